@@ -0,0 +1,362 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.util.PasswordStore;
+
+import iaik.pkcs.pkcs11.Mechanism;
+import iaik.pkcs.pkcs11.Session;
+import iaik.pkcs.pkcs11.State;
+import iaik.pkcs.pkcs11.Token;
+import iaik.pkcs.pkcs11.TokenException;
+import iaik.pkcs.pkcs11.objects.RSAPrivateKey;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Constants;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Exception;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
+import static ee.ria.xroad.common.ErrorCodes.X_KEY_NOT_FOUND;
+import static iaik.pkcs.pkcs11.Token.SessionType.SERIAL_SESSION;
+
+/**
+ * Pool of logged-in PKCS#11 sessions used for concurrent signing on a hardware token.
+ *
+ * Every pooled session caches the private key handles it has looked up. Sessions that have been idle for longer
+ * than the health check interval are checked before use; a session that has lost its login state is logged in
+ * again and a session that has become invalid is replaced with a new one. A session that cannot be repaired is
+ * closed and dropped from the pool.
+ */
+@Slf4j
+final class HardwareTokenSessionPool {
+
+    private static final long BORROW_TIMEOUT_MS = TimeUnit.SECONDS.toMillis(30);
+    private static final long BORROW_POLL_MS = TimeUnit.SECONDS.toMillis(1);
+    private static final long HEALTH_CHECK_INTERVAL_MS = TimeUnit.SECONDS.toMillis(60);
+
+    private final String tokenId;
+    private final int size;
+    private final Set<Long> allowedMechanisms;
+
+    private final LinkedBlockingQueue<PooledSession> idle = new LinkedBlockingQueue<>();
+
+    // incremented on every open and close so that sessions of a previous login are not returned to the pool
+    private volatile int generation;
+    private volatile Token token;
+
+    HardwareTokenSessionPool(String tokenId, int size, Set<Long> allowedMechanisms) {
+        this.tokenId = tokenId;
+        this.size = size;
+        this.allowedMechanisms = allowedMechanisms;
+    }
+
+    /**
+     * Opens the pool sessions. Must be called after the user has logged in to the token, since the new sessions
+     * share the login state of the application.
+     */
+    synchronized void open(Token pkcs11Token) throws TokenException {
+        close();
+
+        int openGeneration = ++generation;
+        List<PooledSession> opened = new ArrayList<>(size);
+
+        try {
+            for (int i = 0; i < size; i++) {
+                opened.add(new PooledSession(pkcs11Token.openSession(SERIAL_SESSION, false, null, null),
+                        openGeneration));
+            }
+        } catch (TokenException | RuntimeException e) {
+            // the pool is not usable, do not leak the sessions that were already opened
+            opened.forEach(PooledSession::close);
+
+            throw e;
+        }
+
+        idle.addAll(opened);
+        token = pkcs11Token;
+
+        log.debug("Opened {} signing session(s) on token '{}'", size, tokenId);
+    }
+
+    /**
+     * Closes the idle sessions. Sessions currently used for signing are closed when they are released.
+     */
+    synchronized void close() {
+        boolean wasOpen = token != null;
+
+        token = null;
+        generation++;
+
+        PooledSession session;
+
+        while ((session = idle.poll()) != null) {
+            session.close();
+        }
+
+        if (wasOpen) {
+            log.debug("Closed signing sessions on token '{}'", tokenId);
+        }
+    }
+
+    boolean isOpen() {
+        return token != null;
+    }
+
+    /**
+     * Removes the cached handle of the given key from all idle sessions.
+     */
+    void forgetKey(String keyId) {
+        idle.forEach(session -> session.privateKeys.remove(keyId));
+    }
+
+    /**
+     * Signs the data with a pooled session. Failures caused by an invalid session or a lost login are retried once
+     * with a repaired session.
+     */
+    byte[] sign(String keyId, Mechanism mechanism, byte[] data) throws Exception {
+        PooledSession session = borrow();
+        boolean usable = true;
+
+        try {
+            try {
+                return session.sign(keyId, mechanism, data);
+            } catch (PKCS11Exception e) {
+                if (!isSessionBroken(e.getErrorCode())) {
+                    throw e;
+                }
+
+                usable = false;
+
+                if (!repair(session, e.getErrorCode())) {
+                    throw e;
+                }
+
+                log.warn("Signing session on token '{}' failed ({}), retrying", tokenId, e.getMessage());
+
+                byte[] signature = session.sign(keyId, mechanism, data);
+                usable = true;
+
+                return signature;
+            }
+        } finally {
+            if (usable) {
+                release(session);
+            } else {
+                discard(session);
+            }
+        }
+    }
+
+    private PooledSession borrow() throws Exception {
+        long deadline = System.currentTimeMillis() + BORROW_TIMEOUT_MS;
+
+        while (isOpen()) {
+            PooledSession session = idle.poll(BORROW_POLL_MS, TimeUnit.MILLISECONDS);
+
+            if (session != null) {
+                if (session.openGeneration != generation) {
+                    session.close();
+
+                    continue;
+                }
+
+                if (session.isHealthCheckDue()) {
+                    healthCheck(session);
+                }
+
+                return session;
+            }
+
+            if (System.currentTimeMillis() > deadline) {
+                throw new CodedException(X_INTERNAL_ERROR, "Timed out waiting for a signing session on token %s",
+                        tokenId);
+            }
+        }
+
+        throw new CodedException(X_INTERNAL_ERROR, "No active session on token %s", tokenId);
+    }
+
+    private void release(PooledSession session) {
+        session.lastUsed = System.currentTimeMillis();
+
+        if (session.openGeneration == generation && isOpen()) {
+            idle.add(session);
+        } else {
+            session.close();
+        }
+    }
+
+    private void healthCheck(PooledSession session) throws Exception {
+        try {
+            State state;
+
+            try {
+                state = session.session.getSessionInfo().getState();
+            } catch (PKCS11Exception e) {
+                if (repair(session, e.getErrorCode())) {
+                    return;
+                }
+
+                throw e;
+            }
+
+            if (!State.RO_USER_FUNCTIONS.equals(state) && !State.RW_USER_FUNCTIONS.equals(state)
+                    && !repair(session, PKCS11Constants.CKR_USER_NOT_LOGGED_IN)) {
+                throw new CodedException(X_INTERNAL_ERROR, "Signing session on token %s is not logged in", tokenId);
+            }
+        } catch (Exception e) {
+            discard(session);
+
+            throw e;
+        }
+    }
+
+    /**
+     * Closes a session that could not be repaired and opens a new one in its place, so that the broken session is
+     * not handed out again. If the new session cannot be opened, the pool runs one session short until it is
+     * opened again.
+     */
+    private void discard(PooledSession session) {
+        session.close();
+
+        Token current = token;
+
+        if (current == null || session.openGeneration != generation) {
+            return;
+        }
+
+        try {
+            release(new PooledSession(current.openSession(SERIAL_SESSION, false, null, null),
+                    session.openGeneration));
+        } catch (TokenException | RuntimeException e) {
+            log.warn("Failed to replace broken signing session on token '{}'", tokenId, e);
+        }
+    }
+
+    private static boolean isSessionBroken(long errorCode) {
+        return errorCode == PKCS11Constants.CKR_USER_NOT_LOGGED_IN || isSessionInvalid(errorCode);
+    }
+
+    private static boolean isSessionInvalid(long errorCode) {
+        return errorCode == PKCS11Constants.CKR_SESSION_HANDLE_INVALID
+                || errorCode == PKCS11Constants.CKR_SESSION_CLOSED
+                || errorCode == PKCS11Constants.CKR_OBJECT_HANDLE_INVALID
+                || errorCode == PKCS11Constants.CKR_KEY_HANDLE_INVALID;
+    }
+
+    /**
+     * Tries to bring the session back to a usable state after the given error.
+     * @return true if the session was repaired and the operation can be retried
+     */
+    private boolean repair(PooledSession session, long errorCode) throws Exception {
+        Token current = token;
+
+        if (current == null) {
+            return false;
+        }
+
+        if (errorCode == PKCS11Constants.CKR_USER_NOT_LOGGED_IN) {
+            char[] password = PasswordStore.getPassword(tokenId);
+
+            if (password == null) {
+                return false;
+            }
+
+            log.info("Signing session on token '{}' is not logged in, logging in", tokenId);
+
+            HardwareTokenUtil.login(session.session, password);
+
+            return true;
+        }
+
+        if (isSessionInvalid(errorCode)) {
+            log.info("Reopening invalid signing session on token '{}'", tokenId);
+
+            session.close();
+            session.session = current.openSession(SERIAL_SESSION, false, null, null);
+            session.privateKeys.clear();
+
+            return true;
+        }
+
+        return false;
+    }
+
+    private final class PooledSession {
+
+        private final int openGeneration;
+
+        // maps key id (hex) to the private key handle found in this session
+        private final Map<String, RSAPrivateKey> privateKeys = new ConcurrentHashMap<>();
+
+        private Session session;
+        private long lastUsed = System.currentTimeMillis();
+
+        PooledSession(Session session, int openGeneration) {
+            this.session = session;
+            this.openGeneration = openGeneration;
+        }
+
+        boolean isHealthCheckDue() {
+            return System.currentTimeMillis() - lastUsed > HEALTH_CHECK_INTERVAL_MS;
+        }
+
+        byte[] sign(String keyId, Mechanism mechanism, byte[] data) throws Exception {
+            RSAPrivateKey key = privateKeys.get(keyId);
+
+            if (key == null) {
+                key = HardwareTokenUtil.findPrivateKey(session, keyId, allowedMechanisms);
+
+                if (key == null) {
+                    throw CodedException.tr(X_KEY_NOT_FOUND, "key_not_found_on_token",
+                            "Key '%s' not found on token '%s'", keyId, tokenId);
+                }
+
+                privateKeys.put(keyId, key);
+            }
+
+            session.signInit(mechanism, key);
+
+            return session.sign(data);
+        }
+
+        void close() {
+            try {
+                session.closeSession();
+            } catch (Exception e) {
+                log.warn("Failed to close signing session on token '{}'", tokenId, e);
+            }
+        }
+    }
+}
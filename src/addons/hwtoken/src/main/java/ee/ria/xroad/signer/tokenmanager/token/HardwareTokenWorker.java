@@ -124,6 +124,9 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
 
     private Session activeSession;
 
+    // sessions used for concurrent signing, null if signing is done with the active session
+    private final HardwareTokenSessionPool signSessionPool;
+
     /**
      * @param tokenInfo the token info
      * @param tokenType the token type
@@ -133,6 +136,24 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
 
         this.tokenType = tokenType;
         this.signMechanisms = createSignMechanisms(tokenType.getSignMechanismName());
+        this.signSessionPool = createSignSessionPool(tokenInfo.getId(), tokenType);
+    }
+
+    private static HardwareTokenSessionPool createSignSessionPool(String tokenId, TokenType tokenType) {
+        int poolSize = ((HardwareTokenType) tokenType).getSignSessionPoolSize();
+
+        if (poolSize <= 1) {
+            return null;
+        }
+
+        if (tokenType.isPinVerificationPerSigning()) {
+            log.warn("Sign session pool is not used on token '{}' since PIN is verified per signing", tokenId);
+
+            return null;
+        }
+
+        return new HardwareTokenSessionPool(tokenId, poolSize,
+                tokenType.getPrivKeyAttributes().getAllowedMechanisms());
     }
 
     private static Map<String, Mechanism> createSignMechanisms(String signMechanismName) {
@@ -237,6 +258,11 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         updateTokenInfo();
     }
 
+    @Override
+    public boolean isConcurrentSigningSupported() {
+        return signSessionPool != null;
+    }
+
     // ----------------------- Message handlers -------------------------------
 
     @Override
@@ -337,6 +363,10 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
             log.warn("Could not find private key '{}' on token '{}'", keyId, getWorkerId());
         }
 
+        if (signSessionPool != null) {
+            signSessionPool.forgetKey(keyId);
+        }
+
         RSAPublicKey publicKey = findPublicKey(activeSession, keyId,
                 tokenType.getPubKeyAttributes().getAllowedMechanisms());
 
@@ -401,6 +431,14 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
     protected byte[] sign(String keyId, String signatureAlgorithmId, byte[] data) throws Exception {
         log.trace("sign({}, {})", keyId, signatureAlgorithmId);
 
+        if (signSessionPool != null) {
+            assertKeyAvailable(keyId);
+
+            log.debug("Signing with key '{}' and signature algorithm '{}'", keyId, signatureAlgorithmId);
+
+            return signSessionPool.sign(keyId, getSignMechanism(signatureAlgorithmId), data);
+        }
+
         assertActiveSession();
         pinVerificationPerSigningLogin();
         assertKeyAvailable(keyId);
@@ -413,12 +451,7 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
 
         log.debug("Signing with key '{}' and signature algorithm '{}'", keyId, signatureAlgorithmId);
         try {
-            Mechanism signMechanism = signMechanisms.get(signatureAlgorithmId);
-            if (signMechanism == null) {
-                throw CodedException.tr(X_UNSUPPORTED_SIGN_ALGORITHM, "unsupported_sign_algorithm",
-                        "Unsupported signature algorithm '%s'", signatureAlgorithmId);
-            }
-            activeSession.signInit(signMechanism, key);
+            activeSession.signInit(getSignMechanism(signatureAlgorithmId), key);
             return activeSession.sign(data);
         } finally {
             pinVerificationPerSigningLogout();
@@ -501,6 +534,15 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         return privateKey;
     }
 
+    private Mechanism getSignMechanism(String signatureAlgorithmId) {
+        Mechanism signMechanism = signMechanisms.get(signatureAlgorithmId);
+        if (signMechanism == null) {
+            throw CodedException.tr(X_UNSUPPORTED_SIGN_ALGORITHM, "unsupported_sign_algorithm",
+                    "Unsupported signature algorithm '%s'", signatureAlgorithmId);
+        }
+        return signMechanism;
+    }
+
     private void findPublicKeysForPrivateKeys() throws Exception {
         log.trace("findPublicKeysForPrivateKeys()");
 
@@ -597,6 +639,10 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
             setTokenStatus(tokenId, TokenStatusInfo.OK);
             setTokenActive(tokenId, true);
             loadPrivateKeys();
+
+            if (signSessionPool != null) {
+                signSessionPool.open(getToken());
+            }
         } catch (PKCS11Exception e) {
             setTokenStatusFromErrorCode(e.getErrorCode());
 
@@ -605,6 +651,10 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
     }
 
     private void logout() throws Exception {
+        if (signSessionPool != null) {
+            signSessionPool.close();
+        }
+
         if (activeSession == null) {
             return;
         }
@@ -825,12 +875,7 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
                             keyId, tokenId);
                 }
                 log.debug("Signing with key '{}' and signature algorithm '{}'", keyId, signatureAlgorithmId);
-                Mechanism signatureMechanism = signMechanisms.get(signatureAlgorithmId);
-                if (signatureMechanism == null) {
-                    throw CodedException.tr(X_UNSUPPORTED_SIGN_ALGORITHM, "unsupported_sign_algorithm",
-                            "Unsupported signature algorithm '%s'", signatureAlgorithmId);
-                }
-                activeSession.signInit(signatureMechanism, privateKey);
+                activeSession.signInit(getSignMechanism(signatureAlgorithmId), privateKey);
                 String digestAlgorithmId = getDigestAlgorithmId(signatureAlgorithmId);
                 byte[] digest = calculateDigest(digestAlgorithmId, dataToSign);
                 byte[] dataDigestToSign = SignerUtil.createDataToSign(digest, signatureAlgorithmId);
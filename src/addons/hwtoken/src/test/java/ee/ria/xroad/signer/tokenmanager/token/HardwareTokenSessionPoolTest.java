@@ -0,0 +1,198 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import iaik.pkcs.pkcs11.Mechanism;
+import iaik.pkcs.pkcs11.Session;
+import iaik.pkcs.pkcs11.Token;
+import iaik.pkcs.pkcs11.TokenException;
+import iaik.pkcs.pkcs11.objects.RSAPrivateKey;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Constants;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Exception;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class HardwareTokenSessionPoolTest {
+
+    private static final String KEY_ID = "0102";
+    private static final byte[] DATA = {1, 2, 3};
+    private static final byte[] SIGNATURE = {4, 5, 6};
+
+    private final Mechanism mechanism = new Mechanism(PKCS11Constants.CKM_RSA_PKCS);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private Token token;
+
+    @Before
+    public void setUp() {
+        token = mock(Token.class);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldReturnSessionsToPool() throws Exception {
+        Session session = signingSession();
+        when(token.openSession(anyBoolean(), anyBoolean(), any(), any())).thenReturn(session);
+
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool("token", 1, Collections.emptySet());
+        pool.open(token);
+
+        assertArrayEquals(SIGNATURE, pool.sign(KEY_ID, mechanism, DATA));
+        assertArrayEquals(SIGNATURE, pool.sign(KEY_ID, mechanism, DATA));
+
+        // the same session is reused and the key handle is looked up only once
+        verify(token, times(1)).openSession(anyBoolean(), anyBoolean(), any(), any());
+        verify(session, times(1)).findObjectsInit(any());
+        verify(session, never()).closeSession();
+
+        pool.close();
+
+        assertFalse(pool.isOpen());
+        verify(session).closeSession();
+    }
+
+    @Test
+    public void shouldWaitForSessionWhenPoolIsExhausted() throws Exception {
+        CountDownLatch signing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Session session = signingSession();
+        when(session.sign(any())).thenAnswer(invocation -> {
+            signing.countDown();
+            assertTrue(release.await(10, TimeUnit.SECONDS));
+            return SIGNATURE;
+        }).thenReturn(SIGNATURE);
+        when(token.openSession(anyBoolean(), anyBoolean(), any(), any())).thenReturn(session);
+
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool("token", 1, Collections.emptySet());
+        pool.open(token);
+
+        Future<byte[]> first = executor.submit(() -> pool.sign(KEY_ID, mechanism, DATA));
+        assertTrue(signing.await(10, TimeUnit.SECONDS));
+
+        ExecutorService second = Executors.newSingleThreadExecutor();
+        try {
+            Future<byte[]> waiting = second.submit(() -> pool.sign(KEY_ID, mechanism, DATA));
+            try {
+                waiting.get(500, TimeUnit.MILLISECONDS);
+                fail("Signing should wait for the only session to be released");
+            } catch (TimeoutException expected) {
+                // the session is still in use
+            }
+
+            release.countDown();
+
+            assertArrayEquals(SIGNATURE, first.get(10, TimeUnit.SECONDS));
+            assertArrayEquals(SIGNATURE, waiting.get(10, TimeUnit.SECONDS));
+        } finally {
+            second.shutdownNow();
+        }
+
+        verify(token, times(1)).openSession(anyBoolean(), anyBoolean(), any(), any());
+    }
+
+    @Test
+    public void shouldCloseOpenedSessionsIfOpenFails() throws Exception {
+        Session opened = mock(Session.class);
+        when(token.openSession(anyBoolean(), anyBoolean(), any(), any()))
+                .thenReturn(opened)
+                .thenThrow(new TokenException("out of sessions"));
+
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool("token", 2, Collections.emptySet());
+
+        try {
+            pool.open(token);
+            fail("Opening the pool should fail");
+        } catch (TokenException expected) {
+            // expected
+        }
+
+        assertFalse(pool.isOpen());
+        verify(opened).closeSession();
+    }
+
+    @Test
+    public void shouldDropSessionThatCannotBeRepaired() throws Exception {
+        Session broken = signingSession();
+        when(broken.sign(any())).thenThrow(new PKCS11Exception(PKCS11Constants.CKR_SESSION_HANDLE_INVALID));
+        Session replacement = signingSession();
+        when(token.openSession(anyBoolean(), anyBoolean(), any(), any()))
+                .thenReturn(broken)
+                .thenThrow(new TokenException("device busy"))
+                .thenReturn(replacement);
+
+        HardwareTokenSessionPool pool = new HardwareTokenSessionPool("token", 1, Collections.emptySet());
+        pool.open(token);
+
+        try {
+            pool.sign(KEY_ID, mechanism, DATA);
+            fail("Signing should fail when the session cannot be reopened");
+        } catch (TokenException expected) {
+            // expected
+        }
+
+        // the broken session is closed and the next signing uses a new session
+        assertArrayEquals(SIGNATURE, pool.sign(KEY_ID, mechanism, DATA));
+
+        verify(broken, times(1)).sign(any());
+        verify(broken, atLeastOnce()).closeSession();
+        verify(replacement, never()).closeSession();
+    }
+
+    private static Session signingSession() throws TokenException {
+        Session session = mock(Session.class);
+        when(session.findObjects(anyInt())).thenReturn(new iaik.pkcs.pkcs11.objects.Object[] {new RSAPrivateKey()});
+        when(session.sign(any())).thenReturn(SIGNATURE);
+        return session;
+    }
+}
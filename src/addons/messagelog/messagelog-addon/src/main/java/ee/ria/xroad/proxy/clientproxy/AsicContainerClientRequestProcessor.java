@@ -43,8 +43,10 @@ import ee.ria.xroad.common.messagelog.MessageLogProperties;
 import ee.ria.xroad.common.messagelog.MessageRecord;
 import ee.ria.xroad.common.messagelog.archive.EncryptionConfig;
 import ee.ria.xroad.common.messagelog.archive.EncryptionConfigProvider;
+import ee.ria.xroad.common.messagelog.archive.GPGKeyRing;
 import ee.ria.xroad.common.messagelog.archive.GPGOutputStream;
 import ee.ria.xroad.common.messagelog.archive.GroupingStrategy;
+import ee.ria.xroad.common.messagelog.archive.OpenPGPOutputStream;
 import ee.ria.xroad.common.util.HttpHeaders;
 import ee.ria.xroad.common.util.MimeTypes;
 import ee.ria.xroad.messagelog.database.MessageRecordEncryption;
@@ -68,9 +70,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -212,22 +214,26 @@ public class AsicContainerClientRequestProcessor extends MessageProcessorBase {
     }
 
     private void ensureTimestamped(ClientId id, String queryId, Boolean response, boolean force) throws Exception {
-        final List<MessageRecord> records = LogRecordManager.getByQueryId(queryId, id, response, Function.identity());
+        // only the records that are missing a timestamp are kept, the others are not needed yet
+        final List<MessageRecord> notTimestamped = new ArrayList<>();
+        final int count = LogRecordManager.forEachByQueryId(queryId, id, response, record -> {
+            if (record.getTimestampRecord() == null) {
+                notTimestamped.add(record);
+            }
+        });
 
-        if (records.isEmpty()) {
+        if (count == 0) {
             throw new CodedExceptionWithHttpStatus(HttpServletResponse.SC_NOT_FOUND, ErrorCodes.X_NOT_FOUND,
                     DOCUMENTS_NOT_FOUND_FAULT_MESSAGE);
         }
 
-        for (MessageRecord record : records) {
-            if (record.getTimestampRecord() == null) {
-                if (force) {
-                    if (MessageLog.timestamp(record) == null) {
-                        throw new Exception(TIMESTAMPING_FAILED_FAULT_MESSAGE);
-                    }
-                } else {
-                    throw new Exception(MISSING_TIMESTAMP_FAULT_MESSAGE);
+        for (MessageRecord record : notTimestamped) {
+            if (force) {
+                if (MessageLog.timestamp(record) == null) {
+                    throw new Exception(TIMESTAMPING_FAILED_FAULT_MESSAGE);
                 }
+            } else {
+                throw new Exception(MISSING_TIMESTAMP_FAULT_MESSAGE);
             }
         }
     }
@@ -269,6 +275,18 @@ public class AsicContainerClientRequestProcessor extends MessageProcessorBase {
         final EncryptionConfig encryptionConfig =
                 encryptionConfigProvider.forGrouping(groupingStrategy.forClient(clientId));
 
+        if (MessageLogProperties.isArchiveEncryptionInProcess()) {
+            final CheckedSupplier<OutputStream> supplier = () -> {
+                servletResponse.setContentType(MimeTypes.BINARY);
+                servletResponse.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                        CONTENT_DISPOSITION_FILENAME_PREFIX + filename + "\"");
+                return openEncryptedResponse(encryptionConfig);
+            };
+
+            writeContainers(clientId, queryId, nameGen, response, supplier);
+            return;
+        }
+
         final Path tempFile = Files.createTempFile(Paths.get(SystemProperties.getTempFilesPath()), "asic", null);
 
         try {
@@ -295,38 +313,77 @@ public class AsicContainerClientRequestProcessor extends MessageProcessorBase {
     private void writeContainers(ClientId clientId, String queryId, AsicContainerNameGenerator nameGen,
             Boolean response, CheckedSupplier<OutputStream> outputSupplier) throws Exception {
 
-        LogRecordManager.getByQueryId(queryId, clientId, response, records -> {
-            if (records.isEmpty()) {
+        final MessageRecordEncryption messageRecordEncryption = MessageRecordEncryption.getInstance();
+        try (ContainerArchive archive = new ContainerArchive(outputSupplier)) {
+            final int count = LogRecordManager.forEachByQueryId(queryId, clientId, response, record -> {
+                if (record.getTimestampRecord() == null) {
+                    // Only happens if there are matching messages that are sent after
+                    // the ensureTimestamped check was made. Ignore to emulate the previous behavior.
+                    return;
+                }
+                try {
+                    messageRecordEncryption.prepareDecryption(record);
+                    archive.write(nameGen.getArchiveFilename(queryId, record.isResponse(), record.getId()), record);
+                } catch (CodedException ce) {
+                    throw ce;
+                } catch (Exception e) {
+                    throw new CodedException(X_INTERNAL_ERROR, e);
+                }
+            });
+
+            if (count == 0) {
                 throw new CodedExceptionWithHttpStatus(HttpServletResponse.SC_NOT_FOUND, ErrorCodes.X_NOT_FOUND,
                         DOCUMENTS_NOT_FOUND_FAULT_MESSAGE);
             }
-            final MessageRecordEncryption messageRecordEncryption = MessageRecordEncryption.getInstance();
-            try (OutputStream os = outputSupplier.get(); ZipOutputStream zos = new ZipOutputStream(os)) {
+            // the response is an empty archive if none of the records was time-stamped
+            archive.open();
+        }
+    }
+
+    private OutputStream openEncryptedResponse(EncryptionConfig encryptionConfig) throws IOException {
+        return new OpenPGPOutputStream(GPGKeyRing.load(encryptionConfig.getGpgHomeDir()),
+                servletResponse.getOutputStream(), encryptionConfig.getEncryptionKeys());
+    }
+
+    /**
+     * ZIP archive of ASiC containers that is written straight to the response as the records are read. The
+     * response is opened only when the first container is written, so that errors can still be reported
+     * before that.
+     */
+    private static final class ContainerArchive implements Closeable {
+
+        private final CheckedSupplier<OutputStream> outputSupplier;
+        private ZipOutputStream zos;
+
+        ContainerArchive(CheckedSupplier<OutputStream> outputSupplier) {
+            this.outputSupplier = outputSupplier;
+        }
+
+        void open() throws Exception {
+            if (zos == null) {
+                zos = new ZipOutputStream(outputSupplier.get());
                 zos.setLevel(0);
-                for (MessageRecord record : records) {
-                    if (record.getTimestampRecord() == null) {
-                        // Only happens if there are matching messages that are sent after
-                        // the ensureTimestamped check was made. Ignore to emulate the previous behavior.
-                        continue;
-                    }
-                    messageRecordEncryption.prepareDecryption(record);
-                    final ZipEntry entry = new ZipEntry(
-                            nameGen.getArchiveFilename(queryId, record.isResponse(), record.getId()));
-                    entry.setLastModifiedTime(FileTime.from(record.getTime(), TimeUnit.MILLISECONDS));
-                    zos.putNextEntry(entry);
-
-                    try (EntryStream es = new EntryStream(zos)) {
-                        record.toAsicContainer().write(es);
-                    }
-                    zos.closeEntry();
-                }
-            } catch (CodedException ce) {
-                throw ce;
-            } catch (Exception e) {
-                throw new CodedException(X_INTERNAL_ERROR, e);
             }
-            return null;
-        });
+        }
+
+        void write(String name, MessageRecord record) throws Exception {
+            open();
+            final ZipEntry entry = new ZipEntry(name);
+            entry.setLastModifiedTime(FileTime.from(record.getTime(), TimeUnit.MILLISECONDS));
+            zos.putNextEntry(entry);
+
+            try (EntryStream es = new EntryStream(zos)) {
+                record.toAsicContainer().write(es);
+            }
+            zos.closeEntry();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (zos != null) {
+                zos.close();
+            }
+        }
     }
 
     /**
@@ -395,6 +452,13 @@ public class AsicContainerClientRequestProcessor extends MessageProcessorBase {
     }
 
     private void encryptContainer(EncryptionConfig encryptionConfig, AsicContainer asicContainer) throws Exception {
+        if (MessageLogProperties.isArchiveEncryptionInProcess()) {
+            try (OutputStream os = openEncryptedResponse(encryptionConfig)) {
+                asicContainer.write(os);
+            }
+            return;
+        }
+
         final Path tempFile = Files.createTempFile(
                 Paths.get(SystemProperties.getTempFilesPath()), "asic", null);
         try {
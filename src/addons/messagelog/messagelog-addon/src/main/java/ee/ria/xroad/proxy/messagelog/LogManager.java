@@ -31,6 +31,7 @@ import ee.ria.xroad.common.DiagnosticsStatus;
 import ee.ria.xroad.common.DiagnosticsUtils;
 import ee.ria.xroad.common.conf.globalconf.GlobalConf;
 import ee.ria.xroad.common.conf.serverconf.ServerConf;
+import ee.ria.xroad.common.identifier.ServiceId;
 import ee.ria.xroad.common.messagelog.AbstractLogManager;
 import ee.ria.xroad.common.messagelog.LogMessage;
 import ee.ria.xroad.common.messagelog.MessageLogProperties;
@@ -155,6 +156,11 @@ public class LogManager extends AbstractLogManager {
         return statusMap;
     }
 
+    @Override
+    public boolean isBodyLogged(ServiceId service, boolean clientSide) {
+        return MAX_LOGGABLE_BODY_SIZE > 0 && new MessageBodyManipulator().isBodyLogged(service.getClientId(), clientSide);
+    }
+
     // ------------------------------------------------------------------------
 
     protected TaskQueue getTaskQueueImpl(Timestamper timestamperParam) {
@@ -48,8 +48,10 @@ import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.Arrays;
 import java.util.Date;
-import java.util.List;
+import java.util.Iterator;
+import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static ee.ria.xroad.proxy.messagelog.MessageLogDatabaseCtx.doInTransaction;
 
@@ -60,6 +62,9 @@ import static ee.ria.xroad.proxy.messagelog.MessageLogDatabaseCtx.doInTransactio
 public final class LogRecordManager {
 
     private static final int DEFAULT_BATCH_SIZE = 50;
+
+    // log records can be large, fetch only a few at a time when streaming
+    private static final int FETCH_SIZE = 10;
     private static final String GET_BY_QUERY_ID_LOG_FORMAT = "getByQueryId({}, {}, {})";
 
     private static int configuredBatchSize = 0;
@@ -105,19 +110,33 @@ public final class LogRecordManager {
     }
 
     /**
-     * Returns a list of log records for a given message Query Id and sender Client Id.
+     * Passes the log records for a given message Query Id and sender Client Id to the consumer one at a time.
+     * The records are read with a database cursor and detached after use, so the result set is never held
+     * in memory as a whole.
      * @param queryId the message query id.
      * @param clientId the sender client id.
      * @param isResponse whether the response record should be retrieved.
-     * @return the log record list or empty list, if no log records were not found in database.
+     * @param consumer the consumer of the records.
+     * @return the number of records found.
      * @throws Exception if an error occurs while communicating with database.
      */
-    public static <R> R getByQueryId(String queryId, ClientId clientId, Boolean isResponse,
-            Function<List<MessageRecord>, R> processor)
-            throws Exception {
+    public static int forEachByQueryId(String queryId, ClientId clientId, Boolean isResponse,
+            Consumer<MessageRecord> consumer) throws Exception {
         log.trace(GET_BY_QUERY_ID_LOG_FORMAT, queryId, clientId, isResponse);
 
-        return doInTransaction(session -> processor.apply(getMessageRecords(session, queryId, clientId, isResponse)));
+        return doInTransaction(session -> {
+            int count = 0;
+            try (Stream<MessageRecord> records = streamMessageRecords(session, queryId, clientId, isResponse)) {
+                for (Iterator<MessageRecord> it = records.iterator(); it.hasNext(); ) {
+                    MessageRecord messageRecord = it.next();
+                    consumer.accept(messageRecord);
+                    //evict record from persistence context to avoid running out of memory
+                    session.detach(messageRecord);
+                    count++;
+                }
+            }
+            return count;
+        });
     }
 
     /**
@@ -296,11 +315,13 @@ public final class LogRecordManager {
         return session.createQuery(query).setReadOnly(true).setMaxResults(1).uniqueResult();
     }
 
-    private static List<MessageRecord> getMessageRecords(Session session, String queryId, ClientId
-            clientId,
+    private static Stream<MessageRecord> streamMessageRecords(Session session, String queryId, ClientId clientId,
             Boolean isResponse) {
         final CriteriaQuery<MessageRecord> query = createRecordCriteria(session, queryId, clientId, isResponse);
-        return session.createQuery(query).setReadOnly(true).getResultList();
+        return session.createQuery(query)
+                .setReadOnly(true)
+                .setFetchSize(FETCH_SIZE)
+                .getResultStream();
     }
 
     private static CriteriaQuery<MessageRecord> createRecordCriteria(Session session, String queryId, ClientId clientId,
@@ -132,15 +132,25 @@ public class MessageBodyManipulator {
      * @return true if this message's body is logged
      */
     public boolean isBodyLogged(LogMessage message) {
+        return isBodyLogged(message.getService().getClientId(), message.isClientSide());
+    }
+
+    /**
+     * Tells whether message body should be logged for messages of the given service provider.
+     * @param serviceProvider the service provider subsystem
+     * @param clientSide whether the message is logged by the client proxy
+     * @return true if the message body is logged
+     */
+    public boolean isBodyLogged(ClientId serviceProvider, boolean clientSide) {
 
         Collection<ClientId> overrides;
-        if (message.isClientSide()) {
+        if (clientSide) {
             overrides = configurator.getRemoteProducerOverrides();
         } else {
             overrides = configurator.getLocalProducerOverrides();
         }
 
-        boolean producerSubsystemIsOverridden = isClientInCollection(message.getService().getClientId(), overrides);
+        boolean producerSubsystemIsOverridden = isClientInCollection(serviceProvider, overrides);
 
         if (configurator.isMessageBodyLoggingEnabled()) {
             return !producerSubsystemIsOverridden;
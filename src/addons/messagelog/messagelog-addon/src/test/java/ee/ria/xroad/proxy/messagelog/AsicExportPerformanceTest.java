@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.message.RestRequest;
+import ee.ria.xroad.common.messagelog.AbstractLogManager;
+import ee.ria.xroad.common.messagelog.MessageLogProperties;
+import ee.ria.xroad.common.messagelog.archive.GroupingStrategy;
+import ee.ria.xroad.proxy.clientproxy.AsicContainerClientRequestProcessor;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mockito.Mockito;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.UUID;
+
+import static ee.ria.xroad.proxy.messagelog.TestUtil.cleanUpDatabase;
+import static ee.ria.xroad.proxy.messagelog.TestUtil.createRestRequest;
+import static ee.ria.xroad.proxy.messagelog.TestUtil.createSignature;
+import static ee.ria.xroad.proxy.messagelog.TestUtil.initForTest;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ASiC container export performance test program. Logs thousands of records with the same query id and
+ * measures the time and peak heap usage of exporting them as one archive.
+ */
+@Slf4j
+public class AsicExportPerformanceTest extends AbstractMessageLogTest {
+
+    // number of records with the same query id
+    private static final int NUM_RECORDS = 5000;
+
+    // size of each logged message body
+    private static final int BODY_SIZE = 16 * 1024;
+
+    private static final long MIB = 1024 * 1024;
+
+    /**
+     * Main program access point.
+     * @param args command-line arguments, "true" to export an encrypted archive
+     * @throws Exception in case of any errors
+     */
+    public static void main(String[] args) throws Exception {
+        log.info("Starting ASiC export performance test...");
+
+        new AsicExportPerformanceTest().run(args.length > 0 && Boolean.parseBoolean(args[0]));
+    }
+
+    void run(boolean encrypted) throws Exception {
+        System.setProperty(SystemProperties.CONFIGURATION_PATH, "src/test/resources/globalconf");
+        System.setProperty(MessageLogProperties.ARCHIVE_INTERVAL, "0 0 0 1 1 ? 2099");
+        System.setProperty(MessageLogProperties.CLEAN_INTERVAL, "0 0 0 1 1 ? 2099");
+        System.setProperty(MessageLogProperties.ARCHIVE_GROUPING, GroupingStrategy.MEMBER.name());
+        System.setProperty(MessageLogProperties.ARCHIVE_GPG_HOME_DIRECTORY, "build/gpg");
+        System.setProperty(MessageLogProperties.ARCHIVE_ENCRYPTION_KEYS_CONFIG, "build/gpg/keys.ini");
+        System.setProperty(MessageLogProperties.ARCHIVE_ENCRYPTION_ENABLED, String.valueOf(encrypted));
+
+        initForTest();
+        testSetUp();
+        initLogManager();
+        TestLogManager.initSetTimestampingStatusLatch();
+        TestTaskQueue.initGateLatch();
+        TestTaskQueue.initTimestampSavedLatch();
+
+        try {
+            final String queryId = "q-" + UUID.randomUUID();
+            final RestRequest message = createRestRequest(queryId, UUID.randomUUID().toString());
+            final byte[] body = new byte[BODY_SIZE];
+
+            for (int i = 0; i < NUM_RECORDS; i++) {
+                log(message, createSignature(), body);
+            }
+            startTimestamping();
+            waitForTimestampSuccessful();
+
+            export(message, queryId, encrypted);
+        } finally {
+            testTearDown();
+            cleanUpDatabase();
+        }
+    }
+
+    private void export(RestRequest message, String queryId, boolean encrypted) throws Exception {
+        final HttpServletRequest request = mock(HttpServletRequest.class);
+        when(request.getParameter(Mockito.eq("xRoadInstance"))).thenReturn(message.getClientId().getXRoadInstance());
+        when(request.getParameter(Mockito.eq("memberClass"))).thenReturn(message.getClientId().getMemberClass());
+        when(request.getParameter(Mockito.eq("memberCode"))).thenReturn(message.getClientId().getMemberCode());
+        when(request.getParameter(Mockito.eq("subsystemCode"))).thenReturn(message.getClientId().getSubsystemCode());
+        when(request.getParameter(Mockito.eq("queryId"))).thenReturn(queryId);
+
+        final HttpServletResponse response = mock(HttpServletResponse.class);
+        final CountingOutputStream out = new CountingOutputStream();
+        when(response.getOutputStream()).thenReturn(out);
+
+        resetPeakUsage();
+        final long start = System.nanoTime();
+
+        new AsicContainerClientRequestProcessor("/asic", request, response).process();
+
+        final long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        log.info("Exported {} records (encrypted: {}) in {} ms, {} MiB written, peak heap {} MiB",
+                NUM_RECORDS, encrypted, elapsedMillis, out.count / MIB, peakUsage() / MIB);
+    }
+
+    private static void resetPeakUsage() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    private static long peakUsage() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+
+    @Override
+    protected Class<? extends AbstractLogManager> getLogManagerImpl() {
+        return TestLogManager.class;
+    }
+
+    private static class CountingOutputStream extends ServletOutputStream {
+
+        private long count;
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            throw new IllegalStateException();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+    }
+}
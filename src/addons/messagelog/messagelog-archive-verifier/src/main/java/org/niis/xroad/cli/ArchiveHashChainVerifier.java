@@ -26,19 +26,24 @@
  */
 package org.niis.xroad.cli;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 public class ArchiveHashChainVerifier {
 
+    private String currentArchiveFile;
+
     public static void main(String[] args) {
         ArchiveHashChainVerifier verifier = new ArchiveHashChainVerifier();
 
         try {
             verifier.run(args);
         } catch (MessageArchiveExtractor.InvalidLogArchiveException e) {
-            exitWithError(args[0], e.getMessage());
+            exitWithError(verifier.currentArchiveFile, e.getMessage());
         } catch (InputErrorException e) {
             System.err.println("INPUT ERROR: " + e.getMessage());
             printUsage();
@@ -47,16 +52,30 @@ public class ArchiveHashChainVerifier {
 
     }
 
+    /**
+     * Verifies one or more consecutive archive files. The ASiC containers of each archive are digested in
+     * parallel, and the last hash step of each archive must match the linking info of the next one.
+     */
     public void run(String[] args) throws InputErrorException, MessageArchiveExtractor.InvalidLogArchiveException {
-        String[] parsedArgs = parseArguments(args);
-        String archiveFile = parsedArgs[0];
-        String prevDigest = parsedArgs[1];
+        Arguments parsedArgs = parseArguments(args);
+        String prevDigest = parsedArgs.prevDigest();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            for (String archiveFile : parsedArgs.archiveFiles()) {
+                currentArchiveFile = archiveFile;
+
+                MessageArchiveExtractor extractor = new MessageArchiveExtractor(archiveFile, executor);
+                MessageArchiveExtractor.ExtractionResult extractedArchive = extractor.extract();
 
-        MessageArchiveExtractor extractor = new MessageArchiveExtractor(archiveFile);
-        MessageArchiveExtractor.ExtractionResult extractedArchive = extractor.extract();
+                verify(archiveFile, prevDigest, extractedArchive);
+                prevDigest = extractedArchive.lastDigest();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
 
-        verify(archiveFile, prevDigest, extractedArchive);
-        printLastDigest(extractedArchive);
+        printLastDigest(prevDigest);
     }
 
     private void verify(final String archiveFile, final String prevDigest,
@@ -101,8 +120,8 @@ public class ArchiveHashChainVerifier {
         }
     }
 
-    private void printLastDigest(MessageArchiveExtractor.ExtractionResult extractedArchive) {
-        System.out.println(extractedArchive.lastDigest());
+    private void printLastDigest(String lastDigest) {
+        System.out.println(lastDigest);
     }
 
     private static void exitWithError(String archiveFile, String errorMessage) {
@@ -112,28 +131,31 @@ public class ArchiveHashChainVerifier {
 
     private static void printUsage() {
         System.err.println("Program must be invoked like this:\n"
-                + "java -jar messagelog-archive-verifier.jar <pathToZippedAsicContainersArchive> "
+                + "java -jar messagelog-archive-verifier.jar <pathToZippedAsicContainersArchive>... "
                 + "<(previousArchiveHexDigest) or (-f) or (--first)>");
     }
 
-    private String[] parseArguments(String[] args) throws InputErrorException {
-        if (args.length != 2) {
-            throw new InputErrorException("Invalid arguments. Expected 2 arguments, got " + args.length + ".");
+    private Arguments parseArguments(String[] args) throws InputErrorException {
+        if (args.length < 2) {
+            throw new InputErrorException("Invalid arguments. Expected at least 2 arguments, got " + args.length + ".");
         }
 
-        String archiveFile = args[0];
+        List<String> archiveFiles = Arrays.asList(args).subList(0, args.length - 1);
         String prevDigest = "";
 
         if (!firstInHashChain(args)) {
-            prevDigest = args[1];
+            prevDigest = args[args.length - 1];
         }
 
-        return new String[]{archiveFile, prevDigest};
+        return new Arguments(archiveFiles, prevDigest);
     }
 
     private boolean firstInHashChain(String[] args) {
-        String secondArg = args.length > 1 ? args[1].toLowerCase() : "";
-        return secondArg.equals("-f") || secondArg.equals("--first");
+        String lastArg = args[args.length - 1].toLowerCase();
+        return lastArg.equals("-f") || lastArg.equals("--first");
+    }
+
+    private record Arguments(List<String> archiveFiles, String prevDigest) {
     }
 
     public static class InputErrorException extends Exception {
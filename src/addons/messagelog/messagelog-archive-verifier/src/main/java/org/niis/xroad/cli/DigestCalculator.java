@@ -29,7 +29,10 @@ package org.niis.xroad.cli;
 import ee.ria.xroad.common.util.CryptoUtils;
 
 import lombok.SneakyThrows;
+import org.bouncycastle.operator.OperatorCreationException;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.List;
@@ -50,12 +53,29 @@ public class DigestCalculator {
     }
 
     public String chainDigest(byte[] fileContent, String prevHexDigest) {
-        String hexDigest = hexDigest(fileContent);
-        String combinedDigests = prevHexDigest + hexDigest;
+        return chainDigest(hexDigest(fileContent), prevHexDigest);
+    }
+
+    /**
+     * Combines an already calculated file digest with the previous step of the hash chain.
+     */
+    public String chainDigest(String fileHexDigest, String prevHexDigest) {
+        String combinedDigests = prevHexDigest + fileHexDigest;
 
         return hexDigest(combinedDigests.getBytes(StandardCharsets.UTF_8));
     }
 
+    /**
+     * Digests the file content without reading it into memory.
+     */
+    public String hexDigest(InputStream fileContent) throws IOException {
+        try {
+            return CryptoUtils.encodeHex(CryptoUtils.calculateDigest(digestAlgoId, fileContent));
+        } catch (OperatorCreationException e) {
+            throw new IOException("Failed to create digest calculator for " + digestAlgoId, e);
+        }
+    }
+
     @SneakyThrows
     private String hexDigest(byte[] fileBytes) {
         return CryptoUtils.hexDigest(digestAlgoId, fileBytes);
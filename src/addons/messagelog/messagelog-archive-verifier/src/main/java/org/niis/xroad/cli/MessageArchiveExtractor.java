@@ -27,19 +27,33 @@
 package org.niis.xroad.cli;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 
+/**
+ * Extracts the hash chain of a message log archive. ASiC containers are streamed from the archive and digested
+ * in parallel on the given executor; only the final chaining of the digests is sequential.
+ */
 public class MessageArchiveExtractor {
     private final List<AsicContainer> asicContainers = new ArrayList<>();
     private final String archiveFile;
+    private final Executor executor;
     private LinkingInfo linkingInfo;
     private String previousDigest;
 
     public MessageArchiveExtractor(final String archiveFile) {
+        this(archiveFile, Runnable::run);
+    }
+
+    public MessageArchiveExtractor(final String archiveFile, final Executor executor) {
         this.archiveFile = archiveFile;
+        this.executor = executor;
         this.linkingInfo = null;
         this.previousDigest = null;
     }
@@ -48,9 +62,18 @@ public class MessageArchiveExtractor {
         try (ZipFile zipFile = new ZipFile(archiveFile)) {
             extractLinkingInfo(zipFile);
 
-            zipFile.stream()
+            DigestCalculator digestCalculator = linkingInfo.digestCalculator();
+            List<ZipEntry> entries = zipFile.stream()
                     .filter(this::isAsic)
-                    .forEach(entry -> processAsic(zipFile, entry));
+                    .toList();
+            List<CompletableFuture<String>> fileDigests = entries.stream()
+                    .map(entry -> CompletableFuture.supplyAsync(() -> digestFile(zipFile, entry, digestCalculator),
+                            executor))
+                    .toList();
+
+            for (int i = 0; i < entries.size(); i++) {
+                chainAsic(entries.get(i), join(fileDigests.get(i)), digestCalculator);
+            }
         } catch (IOException | InvalidLogArchiveException e) {
             throw new InvalidLogArchiveException("File '" + archiveFile + "' cannot be extracted - it may not be a valid zip file.", e);
         }
@@ -58,14 +81,32 @@ public class MessageArchiveExtractor {
         return new ExtractionResult(asicContainers, linkingInfo, previousDigest);
     }
 
-    private void processAsic(ZipFile zipFile, ZipEntry entry) {
-        String fileName = entry.getName();
-        String digest = linkingInfo.digestCalculator().chainDigest(readFile(zipFile, entry), previousDigest);
+    private void chainAsic(ZipEntry entry, String fileDigest, DigestCalculator digestCalculator) {
+        String digest = digestCalculator.chainDigest(fileDigest, previousDigest);
 
-        asicContainers.add(new AsicContainer(fileName, digest));
+        asicContainers.add(new AsicContainer(entry.getName(), digest));
         previousDigest = digest;
     }
 
+    private String digestFile(ZipFile zipFile, ZipEntry entry, DigestCalculator digestCalculator) {
+        try (InputStream in = zipFile.getInputStream(entry)) {
+            return digestCalculator.hexDigest(in);
+        } catch (IOException e) {
+            throw new InvalidLogArchiveException("Failed to extract content from archive file: " + zipFile.getName(), e);
+        }
+    }
+
+    private static String join(CompletableFuture<String> fileDigest) {
+        try {
+            return fileDigest.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof InvalidLogArchiveException invalid) {
+                throw invalid;
+            }
+            throw new InvalidLogArchiveException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
     private boolean isAsic(ZipEntry entry) {
         return entry.getName().endsWith(".asice");
     }
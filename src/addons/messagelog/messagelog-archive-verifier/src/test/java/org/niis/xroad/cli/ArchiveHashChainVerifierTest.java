@@ -55,6 +55,25 @@ class ArchiveHashChainVerifierTest {
         }
     }
 
+    @Test
+    void shouldSucceedOnConsecutiveArchives() {
+        try {
+            verifier.run(new String[]{MESSAGE_ARCHIVE_0_FILENAME, MESSAGE_ARCHIVE_1_FILENAME, "--first"});
+        } catch (Exception e) {
+            Assertions.fail(e);
+        }
+    }
+
+    @Test
+    void shouldFailOnArchivesOutOfOrder() {
+        try {
+            verifier.run(new String[]{MESSAGE_ARCHIVE_1_FILENAME, MESSAGE_ARCHIVE_0_FILENAME, "-f"});
+            Assertions.fail();
+        } catch (Exception e) {
+            Assertions.assertTrue(e instanceof MessageArchiveExtractor.InvalidLogArchiveException);
+        }
+    }
+
     @Test
     void shouldFailOnMissingArgs() {
         try {
@@ -0,0 +1,130 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.cli;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Archive verification benchmark program. Generates a chain of message log archives and compares extracting
+ * their hash chains on the calling thread with extracting them on a thread pool.
+ */
+public final class ArchiveVerificationBenchmark {
+
+    private static final String DIGEST_ALGO_ID = "SHA-512";
+    private static final int NUM_ARCHIVES = 20;
+    private static final int CONTAINERS_PER_ARCHIVE = 200;
+    private static final int CONTAINER_SIZE = 256 * 1024;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private ArchiveVerificationBenchmark() {
+    }
+
+    /**
+     * Main program access point.
+     * @param args command-line arguments
+     * @throws Exception in case of any errors
+     */
+    public static void main(String[] args) throws Exception {
+        Path dir = Files.createDirectories(Paths.get("build/archive-benchmark"));
+        List<String> archives = generateArchives(dir);
+
+        // warm-up
+        extractAll(archives, Runnable::run);
+
+        long sequential = extractAll(archives, Runnable::run);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        try {
+            long parallel = extractAll(archives, executor);
+            System.out.printf("%d archives, %d containers: sequential %d ms, parallel %d ms (%d threads)%n",
+                    NUM_ARCHIVES, NUM_ARCHIVES * CONTAINERS_PER_ARCHIVE, sequential / NANOS_PER_MILLI,
+                    parallel / NANOS_PER_MILLI, Runtime.getRuntime().availableProcessors());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static long extractAll(List<String> archives, Executor executor) {
+        long start = System.nanoTime();
+        String prevDigest = "";
+        for (String archive : archives) {
+            MessageArchiveExtractor.ExtractionResult result = new MessageArchiveExtractor(archive, executor).extract();
+            if (!prevDigest.equals(result.linkingInfo().getPrevDigest())) {
+                throw new IllegalStateException("Hash chain broken at " + archive);
+            }
+            prevDigest = result.lastDigest();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private static List<String> generateArchives(Path dir) throws IOException {
+        DigestCalculator digestCalculator = new DigestCalculator(DIGEST_ALGO_ID);
+        Random random = new Random(NUM_ARCHIVES);
+        byte[] content = new byte[CONTAINER_SIZE];
+        List<String> archives = new ArrayList<>();
+        String prevDigest = "";
+
+        for (int i = 0; i < NUM_ARCHIVES; i++) {
+            Path archive = dir.resolve("mlog-" + i + ".zip");
+            StringBuilder linkingInfo = new StringBuilder()
+                    .append(prevDigest.isEmpty() ? "-" : prevDigest).append(' ')
+                    .append(i == 0 ? "-" : "mlog-" + (i - 1) + ".zip").append(' ')
+                    .append(DIGEST_ALGO_ID).append('\n');
+
+            try (OutputStream out = Files.newOutputStream(archive); ZipOutputStream zip = new ZipOutputStream(out)) {
+                for (int j = 0; j < CONTAINERS_PER_ARCHIVE; j++) {
+                    String name = "request-" + i + "-" + j + ".asice";
+                    random.nextBytes(content);
+                    zip.putNextEntry(new ZipEntry(name));
+                    zip.write(content);
+                    zip.closeEntry();
+
+                    prevDigest = digestCalculator.chainDigest(content, prevDigest);
+                    linkingInfo.append(prevDigest).append(' ').append(name).append('\n');
+                }
+                zip.putNextEntry(new ZipEntry("linkinginfo"));
+                zip.write(linkingInfo.toString().getBytes(StandardCharsets.UTF_8));
+                zip.closeEntry();
+            }
+            archives.add(archive.toString());
+        }
+        return archives;
+    }
+}
@@ -39,8 +39,10 @@ import com.fasterxml.jackson.databind.PropertyNamingStrategy;
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Streams;
 import com.google.common.net.MediaType;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpHeaders;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -48,13 +50,20 @@ import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 
+import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import static ee.ria.xroad.common.metadata.MetadataRequests.LIST_CLIENTS;
+import static ee.ria.xroad.common.util.CryptoUtils.SHA256_ID;
+import static ee.ria.xroad.common.util.CryptoUtils.hexDigest;
 
 /**
  * Soap metadata client request processor
@@ -64,6 +73,13 @@ class MetadataClientRequestProcessor extends MessageProcessorBase {
 
     static final String PARAM_INSTANCE_IDENTIFIER = "xRoadInstance";
 
+    // upper bound for the number of rendered client lists kept for a content version
+    static final int MAX_CACHED_LISTS = 32;
+
+    private static final String GZIP = "gzip";
+
+    private static volatile ClientListCache clientLists = new ClientListCache(OptionalLong.empty());
+
     static final JAXBContext JAXB_CTX = initJaxbCtx();
     static final ObjectFactory OBJECT_FACTORY = new ObjectFactory();
 
@@ -108,8 +124,59 @@ class MetadataClientRequestProcessor extends MessageProcessorBase {
     private void handleListClients() throws Exception {
         log.trace("handleListClients()");
 
-        String instanceIdentifier = getInstanceIdentifierFromRequest();
+        RenderedClientList clientList = getClientList(getInstanceIdentifierFromRequest());
+
+        if (acceptsJson()) {
+            servletResponse.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            writeResponse(clientList.getJson(),
+                    MimeUtils.contentTypeWithCharset(MimeTypes.JSON, StandardCharsets.UTF_8.name().toLowerCase()));
+        } else {
+            writeResponse(clientList.getXml(), MimeTypes.TEXT_XML_UTF8);
+        }
+    }
+
+    /**
+     * Returns the client list of the instance rendered for the current global configuration content version.
+     * The lists of the instances known to the global configuration are rendered again only when the global
+     * configuration content changes; other lists, lists beyond {@link #MAX_CACHED_LISTS} and all lists if the
+     * content version is not known, are rendered on every call.
+     */
+    static RenderedClientList getClientList(String instanceIdentifier) throws Exception {
+        OptionalLong contentVersion = GlobalConf.getContentVersion();
+        if (contentVersion.isEmpty() || !GlobalConf.getInstanceIdentifiers().contains(instanceIdentifier)) {
+            return renderClientList(instanceIdentifier, contentVersion);
+        }
+
+        ClientListCache cache = clientLists;
+        if (!cache.getContentVersion().equals(contentVersion)) {
+            // lists of the previous content version are dropped together
+            cache = new ClientListCache(contentVersion);
+            clientLists = cache;
+        }
+
+        RenderedClientList cached = cache.getLists().get(instanceIdentifier);
+        if (cached != null) {
+            return cached;
+        }
+
+        RenderedClientList rendered = renderClientList(instanceIdentifier, contentVersion);
+        if (cache.getLists().size() < MAX_CACHED_LISTS) {
+            cache.getLists().put(instanceIdentifier, rendered);
+        }
+        return rendered;
+    }
+
+    static RenderedClientList renderClientList(String instanceIdentifier, OptionalLong contentVersion)
+            throws Exception {
+        log.debug("Rendering client list of instance {}", instanceIdentifier);
+
+        ClientListType list = createClientList(instanceIdentifier);
+
+        return new RenderedClientList(contentVersion, RenderedBody.of(toXml(list)),
+                RenderedBody.of(MAPPER.writeValueAsBytes(list)));
+    }
 
+    static ClientListType createClientList(String instanceIdentifier) {
         ClientListType list = OBJECT_FACTORY.createClientListType();
         list.getMember().addAll(
                 GlobalConf.getMembers(instanceIdentifier).stream().map(m -> {
@@ -119,27 +186,40 @@ class MetadataClientRequestProcessor extends MessageProcessorBase {
                     return client;
                 }).collect(Collectors.toList()));
 
-        if (acceptsJson()) {
-            writeResponseJson(list);
-        } else {
-            writeResponseXml(OBJECT_FACTORY.createClientList(list));
-        }
+        return list;
+    }
+
+    static byte[] toXml(ClientListType list) throws Exception {
+        ByteArrayOutputStream xml = new ByteArrayOutputStream();
+        marshal(OBJECT_FACTORY.createClientList(list), xml);
+
+        return xml.toByteArray();
     }
 
     private boolean acceptsJson() {
         return acceptsJson(servletRequest.getHeaders("Accept"));
     }
 
-    private void writeResponseXml(Object object) throws Exception {
-        servletResponse.setContentType(MimeTypes.TEXT_XML_UTF8);
-        marshal(object, servletResponse.getOutputStream());
-    }
+    private void writeResponse(RenderedBody body, String contentType) throws Exception {
+        boolean gzip = acceptsGzip(servletRequest.getHeaders(HttpHeaders.ACCEPT_ENCODING));
+        String etag = gzip ? body.getGzipEtag() : body.getEtag();
+
+        servletResponse.setHeader(HttpHeaders.ETAG, etag);
+        servletResponse.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT + ", " + HttpHeaders.ACCEPT_ENCODING);
 
-    private void writeResponseJson(Object object) throws Exception {
-        servletResponse.setCharacterEncoding(StandardCharsets.UTF_8.name());
-        servletResponse.setContentType(
-                MimeUtils.contentTypeWithCharset(MimeTypes.JSON, StandardCharsets.UTF_8.name().toLowerCase()));
-        MAPPER.writeValue(servletResponse.getOutputStream(), object);
+        if (matchesEtag(servletRequest.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            servletResponse.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] content = gzip ? body.getGzipContent() : body.getContent();
+
+        servletResponse.setContentType(contentType);
+        if (gzip) {
+            servletResponse.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        servletResponse.setContentLength(content.length);
+        servletResponse.getOutputStream().write(content);
     }
 
     private String getInstanceIdentifierFromRequest() {
@@ -171,6 +251,40 @@ class MetadataClientRequestProcessor extends MessageProcessorBase {
 
     private static final MediaType APPLICATION_JSON = MediaType.JSON_UTF_8.withoutParameters();
 
+    /**
+     * Checks if the HTTP "Accept-Encoding" header allows a gzip encoded response, that is, lists gzip with a
+     * nonzero quality value.
+     */
+    static boolean acceptsGzip(final Enumeration<String> acceptEncoding) {
+        return acceptEncoding != null && Streams.stream(Iterators.forEnumeration(acceptEncoding))
+                .flatMap(s -> Arrays.stream(s.split("\\s*,\\s*")))
+                .filter(e -> GZIP.equalsIgnoreCase(StringUtils.substringBefore(e, ";").trim()))
+                .anyMatch(e -> getQuality(e) > 0);
+    }
+
+    private static double getQuality(String coding) {
+        for (String param : StringUtils.substringAfter(coding, ";").split(";")) {
+            String[] nameAndValue = param.split("=", 2);
+            if (nameAndValue.length == 2 && "q".equalsIgnoreCase(nameAndValue[0].trim())) {
+                try {
+                    return Double.parseDouble(nameAndValue[1].trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Checks if the HTTP "If-None-Match" header matches the entity tag of the response.
+     */
+    static boolean matchesEtag(final String ifNoneMatch, final String etag) {
+        return ifNoneMatch != null && Arrays.stream(ifNoneMatch.split("\\s*,\\s*"))
+                .map(t -> StringUtils.removeStart(t.trim(), "W/"))
+                .anyMatch(t -> "*".equals(t) || etag.equals(t));
+    }
+
     private static void marshal(Object object, OutputStream out)
             throws Exception {
         Marshaller marshaller = JAXB_CTX.createMarshaller();
@@ -178,6 +292,47 @@ class MetadataClientRequestProcessor extends MessageProcessorBase {
         marshaller.marshal(object, out);
     }
 
+    /**
+     * Rendered client lists of the known instances for a global configuration content version.
+     */
+    @Value
+    static class ClientListCache {
+        OptionalLong contentVersion;
+        ConcurrentMap<String, RenderedClientList> lists = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Client list of an instance, rendered as XML and JSON for a global configuration content version.
+     */
+    @Value
+    static class RenderedClientList {
+        OptionalLong contentVersion;
+        RenderedBody xml;
+        RenderedBody json;
+    }
+
+    /**
+     * Response body, pre-compressed with gzip, and the entity tags of both encodings.
+     */
+    @Value
+    static class RenderedBody {
+        byte[] content;
+        byte[] gzipContent;
+        String etag;
+        String gzipEtag;
+
+        static RenderedBody of(byte[] content) throws Exception {
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+            try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+                out.write(content);
+            }
+
+            String digest = hexDigest(SHA256_ID, content);
+
+            return new RenderedBody(content, gzipped.toByteArray(), "\"" + digest + "\"", "\"" + digest + "-gzip\"");
+        }
+    }
+
     private static JAXBContext initJaxbCtx() {
         try {
             return JAXBContext.newInstance(ObjectFactory.class);
@@ -55,9 +55,6 @@ import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
 import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
-import org.apache.http.protocol.BasicHttpContext;
-import org.apache.http.protocol.HttpContext;
 import org.w3c.dom.Node;
 import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
@@ -84,8 +81,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.StringWriter;
-import java.net.URI;
-import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
@@ -112,6 +107,8 @@ class MetadataServiceHandlerImpl implements ServiceHandler {
     private SoapMessageImpl requestMessage;
     private SoapMessageEncoder responseEncoder;
 
+    static final ServiceDescriptionCache WSDL_CACHE = new ServiceDescriptionCache();
+
     private HttpClientCreator wsdlHttpClientCreator = new HttpClientCreator();
 
     private static final SAXTransformerFactory TRANSFORMER_FACTORY = createSaxTransformerFactory();
@@ -264,8 +261,10 @@ class MetadataServiceHandlerImpl implements ServiceHandler {
                             request.getService().getClientId()));
         }
 
-        log.info("Downloading WSDL from URL: {}", url);
-        try (InputStream in = modifyWsdl(getWsdl(url, serviceId))) {
+        log.info("Getting WSDL from URL: {}", url);
+        ServiceDescriptionCache.Description wsdl = WSDL_CACHE.get(wsdlHttpClientCreator.getHttpClient(), serviceId,
+                url, new WsdlProcessor());
+        try (InputStream in = new ByteArrayInputStream(wsdl.getContent())) {
             Map<String, String> additionalHeaders = new HashMap<>();
             additionalHeaders.put("Content-Transfer-Encoding", "binary");
             additionalHeaders.put("Content-ID", "<wsdl=" + UUID.randomUUID().toString() + "@x-road.eu>");
@@ -336,12 +335,12 @@ class MetadataServiceHandlerImpl implements ServiceHandler {
     }
 
     /**
-     * reads a WSDL from input stream, modifies it and returns input stream to the result
+     * reads a WSDL from input stream, modifies it and returns the result
      *
      * @param wsdl
      * @return
      */
-    private InputStream modifyWsdl(InputStream wsdl) {
+    private byte[] modifyWsdl(InputStream wsdl) {
         try {
             TransformerHandler serializer = TRANSFORMER_FACTORY.newTransformerHandler();
             StringWriter writer = new StringWriter();
@@ -362,8 +361,7 @@ class MetadataServiceHandlerImpl implements ServiceHandler {
             String resultString = writer.toString();
             log.debug("result of WSDL cleanup: {}", resultString);
 
-            // offer InputStream into processed String
-            return new ByteArrayInputStream(resultString.getBytes(StandardCharsets.UTF_8));
+            return resultString.getBytes(StandardCharsets.UTF_8);
         } catch (IOException | SAXException | TransformerConfigurationException e) {
             throw new RuntimeException(e);
         }
@@ -373,25 +371,24 @@ class MetadataServiceHandlerImpl implements ServiceHandler {
         return OverwriteAttributeFilter.createOverwriteSoapAddressFilter(WSDL_ENDPOINT_ADDRESS);
     }
 
-    private InputStream getWsdl(String url, ServiceId serviceId)
-            throws HttpClientCreator.HttpClientCreatorException, URISyntaxException, IOException {
-
-        HttpClient client = wsdlHttpClientCreator.getHttpClient();
-
-        HttpContext httpContext = new BasicHttpContext();
-
-        // ServerMessageProcessor uses the same method to pass the ServiceId to CustomSSLSocketFactory
-        httpContext.setAttribute(ServiceId.class.getName(), serviceId);
-
-        HttpResponse response = client.execute(new HttpGet(new URI(url)), httpContext);
-
-        StatusLine statusLine = response.getStatusLine();
+    /**
+     * Checks the WSDL download response and overwrites the endpoint addresses of the downloaded WSDL
+     */
+    private class WsdlProcessor implements ServiceDescriptionCache.Processor {
+        @Override
+        public void checkStatus(String url, HttpResponse response) {
+            StatusLine statusLine = response.getStatusLine();
 
-        if (HttpStatus.SC_OK != statusLine.getStatusCode()) {
-            throw new RuntimeException("Received HTTP error: "
-                    + statusLine.getStatusCode() + " - " + statusLine.getReasonPhrase());
+            if (HttpStatus.SC_OK != statusLine.getStatusCode()) {
+                throw new RuntimeException("Received HTTP error: "
+                        + statusLine.getStatusCode() + " - " + statusLine.getReasonPhrase());
+            }
         }
 
-        return response.getEntity().getContent();
+        @Override
+        public ServiceDescriptionCache.Description process(String url, HttpResponse response, byte[] content) {
+            return new ServiceDescriptionCache.Description(modifyWsdl(new ByteArrayInputStream(content)),
+                    MimeTypes.TEXT_XML);
+        }
     }
 }
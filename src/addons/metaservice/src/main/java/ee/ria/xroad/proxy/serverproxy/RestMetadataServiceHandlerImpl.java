@@ -51,16 +51,14 @@ import org.apache.http.HttpStatus;
 import org.apache.http.NameValuePair;
 import org.apache.http.StatusLine;
 import org.apache.http.client.HttpClient;
-import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.utils.URLEncodedUtils;
 import org.apache.http.message.BasicHeader;
-import org.apache.http.protocol.BasicHttpContext;
-import org.apache.http.protocol.HttpContext;
 
 import javax.servlet.http.HttpServletRequest;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.Charset;
@@ -95,6 +93,8 @@ public class RestMetadataServiceHandlerImpl implements RestServiceHandler {
         MAPPER = mapper;
     }
 
+    static final ServiceDescriptionCache OPENAPI_CACHE = new ServiceDescriptionCache();
+
     private HttpClientCreator httpClientCreator = new HttpClientCreator();
 
     private RestResponse restResponse;
@@ -172,8 +172,7 @@ public class RestMetadataServiceHandlerImpl implements RestServiceHandler {
         );
     }
 
-    private void handleGetOpenApi(ProxyMessage requestProxyMessage) throws IOException,
-            HttpClientCreator.HttpClientCreatorException, URISyntaxException {
+    private void handleGetOpenApi(ProxyMessage requestProxyMessage) throws Exception {
         List<NameValuePair> pairs = URLEncodedUtils.parse(requestProxyMessage.getRest().getQuery(),
                 Charset.forName("UTF-8"));
         String targetServiceCode = null;
@@ -206,47 +205,52 @@ public class RestMetadataServiceHandlerImpl implements RestServiceHandler {
 
         String serviceDescriptionURL = ServerConf.getServiceDescriptionURL(targetServiceId);
 
-        HttpClient client = httpClientCreator.getHttpClient();
-
-        HttpContext httpContext = new BasicHttpContext();
-
-        // ServerMessageProcessor uses the same method to pass the ServiceId to CustomSSLSocketFactory
-        httpContext.setAttribute(ServiceId.class.getName(), targetServiceId);
+        ServiceDescriptionCache.Description openapi = OPENAPI_CACHE.get(httpClientCreator.getHttpClient(),
+                targetServiceId, serviceDescriptionURL, new OpenapiProcessor());
 
-        URI uri = new URI(serviceDescriptionURL);
-        HttpResponse response = client.execute(new HttpGet(uri), httpContext);
-        StatusLine statusLine = response.getStatusLine();
+        restResponseBody.write(openapi.getContent());
+        restResponse.getHeaders().add(new BasicHeader(MimeUtils.HEADER_CONTENT_TYPE, openapi.getContentType()));
+    }
 
-        if (HttpStatus.SC_OK != statusLine.getStatusCode()) {
-            throw new CodedException(X_INTERNAL_ERROR,
-                    String.format("Failed reading service description from %s. Status: %s Reason: %s",
-                            serviceDescriptionURL, statusLine.getStatusCode(), statusLine.getReasonPhrase()));
+    /**
+     * Checks the OpenAPI description download response and anonymises the downloaded description
+     */
+    private class OpenapiProcessor implements ServiceDescriptionCache.Processor {
+        @Override
+        public void checkStatus(String url, HttpResponse response) {
+            StatusLine statusLine = response.getStatusLine();
+
+            if (HttpStatus.SC_OK != statusLine.getStatusCode()) {
+                throw new CodedException(X_INTERNAL_ERROR,
+                        String.format("Failed reading service description from %s. Status: %s Reason: %s",
+                                url, statusLine.getStatusCode(), statusLine.getReasonPhrase()));
+            }
         }
 
-        InputStream responseContent = response.getEntity().getContent();
-
-        try {
-            OpenapiDescriptionFiletype filetype = getFileType(response, uri);
-            Openapi3Anonymiser anonymiser = new Openapi3Anonymiser();
-            if (OpenapiDescriptionFiletype.JSON.equals(filetype)) {
-                anonymiser.anonymiseJson(responseContent, restResponseBody);
-            } else {
-                anonymiser.anonymiseYaml(responseContent, restResponseBody);
+        @Override
+        public ServiceDescriptionCache.Description process(String url, HttpResponse response, byte[] content)
+                throws URISyntaxException {
+            ByteArrayOutputStream anonymised = new ByteArrayOutputStream();
+
+            try {
+                OpenapiDescriptionFiletype filetype = getFileType(response, new URI(url));
+                Openapi3Anonymiser anonymiser = new Openapi3Anonymiser();
+                if (OpenapiDescriptionFiletype.JSON.equals(filetype)) {
+                    anonymiser.anonymiseJson(new ByteArrayInputStream(content), anonymised);
+                } else {
+                    anonymiser.anonymiseYaml(new ByteArrayInputStream(content), anonymised);
+                }
+            } catch (IOException e) {
+                throw new CodedException(X_INTERNAL_ERROR,
+                        String.format("Failed overwriting origin URL for the openapi servers for %s", url));
             }
-        } catch (IOException e) {
-            throw new CodedException(X_INTERNAL_ERROR,
-                    String.format("Failed overwriting origin URL for the openapi servers for %s",
-                            serviceDescriptionURL));
-        }
 
-        if (response.containsHeader(MimeUtils.HEADER_CONTENT_TYPE)) {
-            restResponse.getHeaders().add(new BasicHeader(MimeUtils.HEADER_CONTENT_TYPE,
-                    response.getFirstHeader(MimeUtils.HEADER_CONTENT_TYPE).getValue()));
-        } else {
-            restResponse.getHeaders().add(new BasicHeader(MimeUtils.HEADER_CONTENT_TYPE,
-                    DEFAULT_GETOPENAPI_CONTENT_TYPE));
-        }
+            String contentType = response.containsHeader(MimeUtils.HEADER_CONTENT_TYPE)
+                    ? response.getFirstHeader(MimeUtils.HEADER_CONTENT_TYPE).getValue()
+                    : DEFAULT_GETOPENAPI_CONTENT_TYPE;
 
+            return new ServiceDescriptionCache.Description(anonymised.toByteArray(), contentType);
+        }
     }
 
     private OpenapiDescriptionFiletype getFileType(HttpResponse response, URI uri) {
@@ -0,0 +1,256 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.serverproxy;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.identifier.ServiceId;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import static ee.ria.xroad.common.util.CryptoUtils.SHA256_ID;
+import static ee.ria.xroad.common.util.CryptoUtils.calculateDigest;
+
+/**
+ * Bounded cache of processed (anonymised) service descriptions served by the metaservices.
+ *
+ * Descriptions are cached per service and description URL. A cached description is served as is for the cache
+ * period and then revalidated with a conditional request; if the provider returns the same content (by ETag,
+ * Last-Modified or content hash) the processed description is reused without processing it again. If the
+ * revalidation fails, the stale description is served. Concurrent misses for the same key share one fetch.
+ */
+@Slf4j
+final class ServiceDescriptionCache {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private final int maxSize;
+    private final long periodMillis;
+
+    private final Map<Key, Entry> entries;
+    private final ConcurrentMap<Key, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+
+    ServiceDescriptionCache() {
+        this(SystemProperties.getServerProxyServiceDescriptionCacheSize(),
+                TimeUnit.SECONDS.toMillis(SystemProperties.getServerProxyServiceDescriptionCachePeriod()));
+    }
+
+    ServiceDescriptionCache(int maxSize, long periodMillis) {
+        this.maxSize = maxSize;
+        this.periodMillis = periodMillis;
+        this.entries = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > ServiceDescriptionCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * Processes the raw content of a service description downloaded from the service provider.
+     */
+    interface Processor {
+        /**
+         * @param url the description URL
+         * @param response the provider response, not OK if the request failed
+         * @throws Exception if the response status is not acceptable
+         */
+        void checkStatus(String url, HttpResponse response) throws Exception;
+
+        /**
+         * @param url the description URL
+         * @param response the provider response
+         * @param content the raw description
+         * @return processed description
+         * @throws Exception if processing fails
+         */
+        Description process(String url, HttpResponse response, byte[] content) throws Exception;
+    }
+
+    /**
+     * Processed service description.
+     */
+    @Value
+    static class Description {
+        byte[] content;
+        String contentType;
+    }
+
+    /**
+     * Returns the processed description of the service, downloading it using the given client when it is not
+     * cached or the cached description needs revalidation.
+     * @param client HTTP client used for downloading the description
+     * @param serviceId the service the description belongs to
+     * @param url the description URL
+     * @param processor processor of the raw description
+     * @return processed description
+     * @throws Exception if the description can not be downloaded or processed and no cached description exists
+     */
+    Description get(HttpClient client, ServiceId serviceId, String url, Processor processor) throws Exception {
+        if (maxSize <= 0) {
+            return load(client, serviceId, url, null, processor).getDescription();
+        }
+
+        Key key = new Key(serviceId, url);
+        Entry cached = getEntry(key);
+        if (cached != null && System.currentTimeMillis() - cached.getValidatedAt() < periodMillis) {
+            return cached.getDescription();
+        }
+
+        CompletableFuture<Entry> ownLoad = new CompletableFuture<>();
+        CompletableFuture<Entry> pendingLoad = loading.putIfAbsent(key, ownLoad);
+        if (pendingLoad != null) {
+            return await(pendingLoad).getDescription();
+        }
+
+        try {
+            Entry entry = load(client, serviceId, url, cached, processor);
+            putEntry(key, entry);
+            ownLoad.complete(entry);
+            return entry.getDescription();
+        } catch (Exception e) {
+            if (cached != null) {
+                log.warn("Failed to revalidate service description from {}, serving the cached description: {}",
+                        url, e.getMessage());
+                ownLoad.complete(cached);
+                return cached.getDescription();
+            }
+            ownLoad.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(key, ownLoad);
+        }
+    }
+
+    /**
+     * Removes all cached descriptions.
+     */
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    private synchronized Entry getEntry(Key key) {
+        return entries.get(key);
+    }
+
+    private synchronized void putEntry(Key key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    private static Entry await(CompletableFuture<Entry> pendingLoad) throws Exception {
+        try {
+            return pendingLoad.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+    }
+
+    private static Entry load(HttpClient client, ServiceId serviceId, String url, Entry cached,
+            Processor processor) throws Exception {
+        HttpGet request = new HttpGet(new URI(url));
+        if (cached != null && cached.getEtag() != null) {
+            request.setHeader(HttpHeaders.IF_NONE_MATCH, cached.getEtag());
+        }
+        if (cached != null && cached.getLastModified() != null) {
+            request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, cached.getLastModified());
+        }
+
+        HttpContext httpContext = new BasicHttpContext();
+
+        // ServerMessageProcessor uses the same method to pass the ServiceId to CustomSSLSocketFactory
+        httpContext.setAttribute(ServiceId.class.getName(), serviceId);
+
+        HttpResponse response = client.execute(request, httpContext);
+        try {
+            int status = response.getStatusLine().getStatusCode();
+            if (status == HttpStatus.SC_NOT_MODIFIED && cached != null) {
+                log.trace("Service description {} not modified", url);
+                return cached.revalidated(cached.getEtag(), cached.getLastModified());
+            }
+
+            processor.checkStatus(url, response);
+
+            byte[] content = response.getEntity() != null ? EntityUtils.toByteArray(response.getEntity()) : new byte[0];
+            byte[] hash = calculateDigest(SHA256_ID, content);
+            String etag = headerValue(response, HttpHeaders.ETAG);
+            String lastModified = headerValue(response, HttpHeaders.LAST_MODIFIED);
+
+            if (cached != null && Arrays.equals(hash, cached.getHash())) {
+                log.trace("Service description {} content has not changed", url);
+                return cached.revalidated(etag, lastModified);
+            }
+
+            return new Entry(processor.process(url, response, content), hash, etag, lastModified,
+                    System.currentTimeMillis());
+        } finally {
+            EntityUtils.consumeQuietly(response.getEntity());
+        }
+    }
+
+    private static String headerValue(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header != null ? header.getValue() : null;
+    }
+
+    @Value
+    private static class Key {
+        ServiceId serviceId;
+        String url;
+    }
+
+    @Value
+    private static class Entry {
+        Description description;
+        byte[] hash;
+        String etag;
+        String lastModified;
+        long validatedAt;
+
+        Entry revalidated(String newEtag, String newLastModified) {
+            return new Entry(description, hash, newEtag, newLastModified, System.currentTimeMillis());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.clientproxy;
+
+import ee.ria.xroad.common.conf.globalconf.GlobalConf;
+import ee.ria.xroad.common.conf.globalconf.MemberInfo;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.proxy.testsuite.TestSuiteGlobalConf;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Compares rendering the XML listClients response on every request with serving the response pre-rendered for the
+ * global configuration content version. Reports requests per second and bytes allocated per request.
+ */
+@Slf4j
+public final class ListClientsBenchmark {
+
+    private static final String INSTANCE = "EE";
+    private static final int MEMBERS = 20_000;
+    private static final int ROUNDS = 200;
+
+    private ListClientsBenchmark() {
+    }
+
+    /**
+     * Main program access point.
+     * @param args command-line arguments
+     * @throws Exception in case of any errors
+     */
+    public static void main(String[] args) throws Exception {
+        List<MemberInfo> members = new ArrayList<>();
+        for (int i = 0; i < MEMBERS; i++) {
+            members.add(new MemberInfo(ClientId.Conf.create(INSTANCE, "GOV", "member" + i, i % 2 == 0 ? null : "sub"),
+                    "Member " + i));
+        }
+
+        GlobalConf.reload(new TestSuiteGlobalConf() {
+            @Override
+            public List<MemberInfo> getMembers(String... instanceIdentifiers) {
+                return members;
+            }
+
+            @Override
+            public List<String> getInstanceIdentifiers() {
+                return List.of(INSTANCE);
+            }
+
+            @Override
+            public OptionalLong getContentVersion() {
+                return OptionalLong.of(1);
+            }
+        });
+
+        // the response was rendered as XML only, uncompressed and without an entity tag
+        run("render XML per request",
+                () -> MetadataClientRequestProcessor.toXml(MetadataClientRequestProcessor.createClientList(INSTANCE)));
+        run("pre-rendered", () -> MetadataClientRequestProcessor.getClientList(INSTANCE));
+    }
+
+    private static void run(String name, Request request) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < ROUNDS / 10; i++) {
+            request.execute();
+        }
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            request.execute();
+        }
+        long nanos = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        log.info("{}: {} requests/s, {} bytes allocated per request", name,
+                ROUNDS * 1_000_000_000L / Math.max(nanos, 1), allocated / ROUNDS);
+    }
+
+    @FunctionalInterface
+    private interface Request {
+        void execute() throws Exception;
+    }
+}
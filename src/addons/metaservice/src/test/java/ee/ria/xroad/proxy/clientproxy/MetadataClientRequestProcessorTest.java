@@ -53,7 +53,11 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static ee.ria.xroad.common.metadata.MetadataRequests.LIST_CLIENTS;
 import static ee.ria.xroad.proxy.util.MetaserviceTestUtil.xmlUtf8ContentTypes;
@@ -64,7 +68,9 @@ import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -219,6 +225,131 @@ public class MetadataClientRequestProcessorTest {
         );
     }
 
+    @Test
+    public void shouldRenderClientListOncePerContentVersion() throws Exception {
+        final AtomicInteger renderCount = new AtomicInteger();
+        final AtomicLong contentVersion = new AtomicLong(1001);
+
+        GlobalConf.reload(new TestSuiteGlobalConf() {
+            @Override
+            public List<MemberInfo> getMembers(String... instanceIdentifier) {
+                renderCount.incrementAndGet();
+                return Arrays.asList(createMember("producer", null));
+            }
+
+            @Override
+            public List<String> getInstanceIdentifiers() {
+                return Arrays.asList(EXPECTED_XR_INSTANCE);
+            }
+
+            @Override
+            public OptionalLong getContentVersion() {
+                return OptionalLong.of(contentVersion.get());
+            }
+        });
+
+        MetadataClientRequestProcessor.getClientList(EXPECTED_XR_INSTANCE);
+        MetadataClientRequestProcessor.getClientList(EXPECTED_XR_INSTANCE);
+        assertThat(renderCount.get(), is(1));
+
+        contentVersion.incrementAndGet();
+        MetadataClientRequestProcessor.getClientList(EXPECTED_XR_INSTANCE);
+        assertThat(renderCount.get(), is(2));
+
+        // lists of unknown instances are not kept
+        MetadataClientRequestProcessor.getClientList("UNKNOWN");
+        MetadataClientRequestProcessor.getClientList("UNKNOWN");
+        assertThat(renderCount.get(), is(4));
+        MetadataClientRequestProcessor.getClientList(EXPECTED_XR_INSTANCE);
+        assertThat(renderCount.get(), is(4));
+    }
+
+    @Test
+    public void shouldKeepLimitedNumberOfClientLists() throws Exception {
+        final AtomicInteger renderCount = new AtomicInteger();
+        final List<String> instances = IntStream.rangeClosed(0, MetadataClientRequestProcessor.MAX_CACHED_LISTS)
+                .mapToObj(i -> "INSTANCE" + i)
+                .collect(Collectors.toList());
+
+        GlobalConf.reload(new TestSuiteGlobalConf() {
+            @Override
+            public List<MemberInfo> getMembers(String... instanceIdentifier) {
+                renderCount.incrementAndGet();
+                return Arrays.asList(createMember("producer", null));
+            }
+
+            @Override
+            public List<String> getInstanceIdentifiers() {
+                return instances;
+            }
+
+            @Override
+            public OptionalLong getContentVersion() {
+                return OptionalLong.of(2001);
+            }
+        });
+
+        for (String instance : instances) {
+            MetadataClientRequestProcessor.getClientList(instance);
+        }
+        assertThat(renderCount.get(), is(instances.size()));
+
+        // the lists that fit in the cache are reused, the last one is rendered again
+        for (String instance : instances) {
+            MetadataClientRequestProcessor.getClientList(instance);
+        }
+        assertThat(renderCount.get(), is(instances.size() + 1));
+    }
+
+    @Test
+    public void shouldReturnNotModifiedForMatchingEtag() throws Exception {
+        GlobalConf.reload(new TestSuiteGlobalConf() {
+            @Override
+            public List<MemberInfo> getMembers(String... instanceIdentifier) {
+                return Arrays.asList(createMember("producer", null));
+            }
+
+            @Override
+            public OptionalLong getContentVersion() {
+                return OptionalLong.of(2001);
+            }
+        });
+
+        new MetadataClientRequestProcessor(LIST_CLIENTS, mockRequest, mockResponse).process();
+
+        ArgumentCaptor<String> etagCaptor = ArgumentCaptor.forClass(String.class);
+        verify(mockResponse).setHeader(eq("ETag"), etagCaptor.capture());
+
+        HttpServletResponse conditionalResponse = mock(HttpServletResponse.class);
+        when(mockRequest.getHeader("If-None-Match")).thenReturn(etagCaptor.getValue());
+
+        new MetadataClientRequestProcessor(LIST_CLIENTS, mockRequest, conditionalResponse).process();
+
+        verify(conditionalResponse).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(conditionalResponse, never()).getOutputStream();
+    }
+
+    @Test
+    public void shouldAcceptGzip() {
+        assertTrue(MetadataClientRequestProcessor.acceptsGzip(
+                Collections.enumeration(Arrays.asList("deflate, gzip;q=0.8"))));
+        assertFalse(MetadataClientRequestProcessor.acceptsGzip(null));
+        assertFalse(MetadataClientRequestProcessor.acceptsGzip(
+                Collections.enumeration(Arrays.asList("deflate, br"))));
+        assertFalse(MetadataClientRequestProcessor.acceptsGzip(
+                Collections.enumeration(Arrays.asList("deflate, gzip;q=0"))));
+        assertFalse(MetadataClientRequestProcessor.acceptsGzip(
+                Collections.enumeration(Arrays.asList("gzip ; q=0.000"))));
+    }
+
+    @Test
+    public void shouldMatchEtag() {
+        assertTrue(MetadataClientRequestProcessor.matchesEtag("\"a\", W/\"b\"", "\"b\""));
+        assertTrue(MetadataClientRequestProcessor.matchesEtag("*", "\"b\""));
+        assertFalse(MetadataClientRequestProcessor.matchesEtag("\"a\"", "\"b\""));
+        assertFalse(MetadataClientRequestProcessor.matchesEtag(null, "\"b\""));
+    }
+
     // handle WSDL does not have it's own unit test in this class, but WsdlRequestProcessor has it's own test, and it
     // has an integration test. A new test here would test that processor.processor() triggers processor.handleWsdl()
 
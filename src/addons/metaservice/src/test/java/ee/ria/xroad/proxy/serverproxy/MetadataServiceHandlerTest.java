@@ -182,6 +182,7 @@ public class MetadataServiceHandlerTest {
     @Before
     public void init() throws IOException {
 
+        MetadataServiceHandlerImpl.WSDL_CACHE.clear();
         GlobalConf.reload(new TestSuiteGlobalConf());
         KeyConf.reload(new TestSuiteKeyConf());
         ServerConf.reload(new TestSuiteServerConf());
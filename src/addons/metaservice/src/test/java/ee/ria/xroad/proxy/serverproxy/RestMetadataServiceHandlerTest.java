@@ -133,6 +133,7 @@ public class RestMetadataServiceHandlerTest {
     @Before
     public void init() {
 
+        RestMetadataServiceHandlerImpl.OPENAPI_CACHE.clear();
         GlobalConf.reload(new TestSuiteGlobalConf());
         KeyConf.reload(new TestSuiteKeyConf());
         ServerConf.reload(new TestSuiteServerConf() {
@@ -0,0 +1,215 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.serverproxy;
+
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.identifier.ServiceId;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.WireMock;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit test for {@link ServiceDescriptionCache}
+ */
+public class ServiceDescriptionCacheTest {
+
+    private static final int MOCK_SERVER_PORT = 9859;
+    private static final String PATH = "/description";
+    private static final String URL = "http://localhost:" + MOCK_SERVER_PORT + PATH;
+    private static final ServiceId SERVICE_ID = ServiceId.Conf.create(
+            ClientId.Conf.create("EE", "GOV", "1234TEST_CLIENT", "SUBCODE5"), "getDescription");
+
+    private WireMockServer mockServer;
+    private CloseableHttpClient client;
+    private CountingProcessor processor;
+
+    @Before
+    public void init() {
+        mockServer = new WireMockServer(options().port(MOCK_SERVER_PORT));
+        mockServer.start();
+        client = HttpClients.createDefault();
+        processor = new CountingProcessor();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client.close();
+        mockServer.stop();
+    }
+
+    @Test
+    public void shouldServeFreshDescriptionFromCache() throws Exception {
+        stubDescription("first", null);
+        ServiceDescriptionCache cache = new ServiceDescriptionCache(10, TimeUnit.MINUTES.toMillis(1));
+
+        assertEquals("FIRST", get(cache));
+        assertEquals("FIRST", get(cache));
+
+        mockServer.verify(1, getRequestedFor(urlPathEqualTo(PATH)));
+        assertEquals(1, processor.count.get());
+    }
+
+    @Test
+    public void shouldRevalidateWithETag() throws Exception {
+        stubDescription("first", "\"v1\"");
+        ServiceDescriptionCache cache = new ServiceDescriptionCache(10, 0);
+        assertEquals("FIRST", get(cache));
+
+        mockServer.stubFor(WireMock.get(urlPathEqualTo(PATH))
+                .withHeader("If-None-Match", WireMock.equalTo("\"v1\""))
+                .willReturn(aResponse().withStatus(HttpStatus.SC_NOT_MODIFIED)));
+        assertEquals("FIRST", get(cache));
+
+        mockServer.verify(2, getRequestedFor(urlPathEqualTo(PATH)));
+        assertEquals(1, processor.count.get());
+    }
+
+    @Test
+    public void shouldNotReprocessUnchangedContent() throws Exception {
+        stubDescription("first", null);
+        ServiceDescriptionCache cache = new ServiceDescriptionCache(10, 0);
+
+        assertEquals("FIRST", get(cache));
+        assertEquals("FIRST", get(cache));
+        assertEquals(1, processor.count.get());
+
+        stubDescription("second", null);
+        assertEquals("SECOND", get(cache));
+        assertEquals(2, processor.count.get());
+    }
+
+    @Test
+    public void shouldServeStaleDescriptionOnError() throws Exception {
+        stubDescription("first", null);
+        ServiceDescriptionCache cache = new ServiceDescriptionCache(10, 0);
+        assertEquals("FIRST", get(cache));
+
+        mockServer.stubFor(WireMock.get(urlPathEqualTo(PATH))
+                .willReturn(aResponse().withStatus(HttpStatus.SC_SERVICE_UNAVAILABLE)));
+        assertEquals("FIRST", get(cache));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldFailWithoutCachedDescription() throws Exception {
+        mockServer.stubFor(WireMock.get(urlPathEqualTo(PATH))
+                .willReturn(aResponse().withStatus(HttpStatus.SC_SERVICE_UNAVAILABLE)));
+
+        get(new ServiceDescriptionCache(10, 0));
+    }
+
+    @Test
+    public void shouldCollapseConcurrentMisses() throws Exception {
+        mockServer.stubFor(WireMock.get(urlPathEqualTo(PATH))
+                .willReturn(aResponse().withBody("first").withFixedDelay(500)));
+        ServiceDescriptionCache cache = new ServiceDescriptionCache(10, TimeUnit.MINUTES.toMillis(1));
+
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return get(cache);
+                }));
+            }
+            start.countDown();
+            for (Future<String> result : results) {
+                assertEquals("FIRST", result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        mockServer.verify(1, getRequestedFor(urlPathEqualTo(PATH)));
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsed() throws Exception {
+        stubDescription("first", null);
+        ServiceDescriptionCache cache = new ServiceDescriptionCache(1, TimeUnit.MINUTES.toMillis(1));
+        ServiceId otherService = ServiceId.Conf.create(SERVICE_ID.getClientId(), "otherService");
+
+        get(cache);
+        cache.get(client, otherService, URL, processor);
+        get(cache);
+
+        mockServer.verify(3, getRequestedFor(urlPathEqualTo(PATH)));
+    }
+
+    private String get(ServiceDescriptionCache cache) throws Exception {
+        return new String(cache.get(client, SERVICE_ID, URL, processor).getContent(), StandardCharsets.UTF_8);
+    }
+
+    private void stubDescription(String body, String etag) {
+        mockServer.stubFor(WireMock.get(urlPathEqualTo(PATH))
+                .willReturn(etag != null ? aResponse().withBody(body).withHeader("ETag", etag)
+                        : aResponse().withBody(body)));
+    }
+
+    private static class CountingProcessor implements ServiceDescriptionCache.Processor {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public void checkStatus(String url, HttpResponse response) {
+            if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+                throw new IllegalStateException("Received HTTP error " + response.getStatusLine().getStatusCode());
+            }
+        }
+
+        @Override
+        public ServiceDescriptionCache.Description process(String url, HttpResponse response, byte[] content) {
+            count.incrementAndGet();
+            return new ServiceDescriptionCache.Description(
+                    new String(content, StandardCharsets.UTF_8).toUpperCase().getBytes(StandardCharsets.UTF_8),
+                    "text/plain");
+        }
+    }
+}
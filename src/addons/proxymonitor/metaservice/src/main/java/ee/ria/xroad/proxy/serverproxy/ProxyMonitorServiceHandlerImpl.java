@@ -49,6 +49,7 @@ import ee.ria.xroad.proxymonitor.util.MonitorClient;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.http.client.HttpClient;
 import org.w3c.dom.Document;
+import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
@@ -63,6 +64,8 @@ import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * Service handler for proxy monitoring
@@ -77,6 +80,10 @@ public class ProxyMonitorServiceHandlerImpl implements ServiceHandler {
     private ProxyMessage requestMessage;
     private static final JAXBContext JAXB_CTX;
 
+    // weak keys: bodies are dropped with the metric sets the monitor client no longer returns
+    private static final Map<MetricSetType, RenderedBody> RENDERED_BODIES =
+            Collections.synchronizedMap(new WeakHashMap<>());
+
     private final ByteArrayOutputStream responseOut =
             new ByteArrayOutputStream();
 
@@ -127,10 +134,30 @@ public class ProxyMonitorServiceHandlerImpl implements ServiceHandler {
         responseEncoder = new SimpleSoapEncoder(responseOut);
 
         final MonitorClient client = ProxyMonitor.getClient();
+        final MetricSetType metrics = client != null
+                ? client.getMetrics(getMetricNames(proxyRequestMessage), isOwner())
+                : null;
+
+        SoapMessageImpl result = createResponse(requestMessage.getSoap(), getResponseBody(metrics));
+        responseEncoder.soap(result, Collections.emptyMap());
+    }
+
+    /**
+     * Returns the marshalled response body for the metrics. The monitor client returns the same metric set for
+     * repeated requests until it reads new metrics, so the body is marshalled once per metric set.
+     */
+    private static Element getResponseBody(MetricSetType metrics) throws Exception {
+        final String serverName = ServerConf.getIdentifier().toString();
+        if (metrics != null) {
+            final RenderedBody rendered = RENDERED_BODIES.get(metrics);
+            if (rendered != null && rendered.serverName.equals(serverName)) {
+                return rendered.body;
+            }
+        }
 
         final GetSecurityServerMetricsResponse metricsResponse = new GetSecurityServerMetricsResponse();
         final MetricSetType root = new MetricSetType();
-        root.setName(ServerConf.getIdentifier().toString());
+        root.setName(serverName);
         metricsResponse.setMetricSet(root);
 
         final StringMetricType version = new StringMetricType();
@@ -138,12 +165,18 @@ public class ProxyMonitorServiceHandlerImpl implements ServiceHandler {
         version.setValue(ProxyMain.readProxyVersion());
         root.getMetrics().add(version);
 
-        if (client != null) {
-            root.getMetrics().add(client.getMetrics(getMetricNames(proxyRequestMessage), isOwner()));
+        if (metrics != null) {
+            root.getMetrics().add(metrics);
         }
 
-        SoapMessageImpl result = createResponse(requestMessage.getSoap(), metricsResponse);
-        responseEncoder.soap(result, Collections.emptyMap());
+        final Document doc = XmlUtils.newDocumentBuilder(true).newDocument();
+        marshal(metricsResponse, doc);
+        final Element body = doc.getDocumentElement();
+
+        if (metrics != null) {
+            RENDERED_BODIES.put(metrics, new RenderedBody(serverName, body));
+        }
+        return body;
     }
 
     /**
@@ -218,11 +251,14 @@ public class ProxyMonitorServiceHandlerImpl implements ServiceHandler {
                 requestMessage.getSoap().getService());
     }
 
-    private static SoapMessageImpl createResponse(SoapMessageImpl requestMessage, Object response) throws Exception {
+    private static SoapMessageImpl createResponse(SoapMessageImpl requestMessage, Element body) throws Exception {
         SoapMessageImpl responseMessage = SoapUtils.toResponse(requestMessage,
                 soap -> {
                     soap.getSOAPBody().removeContents();
-                    marshal(response, soap.getSOAPBody());
+                    // the body may be shared by concurrent requests, DOM does not guarantee thread safe reads
+                    synchronized (body) {
+                        soap.getSOAPBody().appendChild(soap.getSOAPPart().importNode(body, true));
+                    }
                 });
         return responseMessage;
     }
@@ -234,6 +270,16 @@ public class ProxyMonitorServiceHandlerImpl implements ServiceHandler {
         marshaller.marshal(object, out);
     }
 
+    private static final class RenderedBody {
+        private final String serverName;
+        private final Element body;
+
+        RenderedBody(String serverName, Element body) {
+            this.serverName = serverName;
+            this.body = body;
+        }
+    }
+
     static {
         try {
             JAXB_CTX = JAXBContext.newInstance(ObjectFactory.class);
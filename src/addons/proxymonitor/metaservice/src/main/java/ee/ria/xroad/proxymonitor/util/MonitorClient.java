@@ -34,23 +34,43 @@ import io.grpc.Channel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 import org.niis.xroad.common.rpc.client.RpcClient;
+import org.niis.xroad.monitor.common.Metrics;
+import org.niis.xroad.monitor.common.MetricsGroup;
 import org.niis.xroad.monitor.common.MetricsServiceGrpc;
 import org.niis.xroad.monitor.common.SystemMetricsReq;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Created by hyoty on 25.9.2015.
+ *
+ * Metrics are read from the monitor as a snapshot of all metrics available to the owner or to other clients, which is
+ * kept for {@link SystemProperties#getEnvMonitorMetricsSnapshotPeriod()} seconds. Requested metrics are selected
+ * from the snapshot, and the selections are kept with it, so that repeated requests for the same metrics return the
+ * same {@link MetricSetType} instance until a new snapshot is taken.
  */
 @Slf4j
 public class MonitorClient {
     private static final int TIMEOUT_AWAIT = 10 * 1000;
+    private static final int MAX_SELECTIONS = 100;
 
     private final RpcClient<MetricsRpcExecutionContext> metricsRpcClient;
+    private final long snapshotPeriodNanos;
+    private final Map<Boolean, Snapshot> snapshots = new ConcurrentHashMap<>();
 
     public MonitorClient() throws Exception {
-        this.metricsRpcClient = RpcClient.newClient(SystemProperties.getGrpcInternalHost(),
-                SystemProperties.getEnvMonitorPort(), TIMEOUT_AWAIT, MetricsRpcExecutionContext::new);
+        this(RpcClient.newClient(SystemProperties.getGrpcInternalHost(),
+                SystemProperties.getEnvMonitorPort(), TIMEOUT_AWAIT, MetricsRpcExecutionContext::new),
+                TimeUnit.SECONDS.toNanos(SystemProperties.getEnvMonitorMetricsSnapshotPeriod()));
+    }
+
+    MonitorClient(RpcClient<MetricsRpcExecutionContext> metricsRpcClient, long snapshotPeriodNanos) {
+        this.metricsRpcClient = metricsRpcClient;
+        this.snapshotPeriodNanos = snapshotPeriodNanos;
     }
 
     /**
@@ -58,24 +78,101 @@ public class MonitorClient {
      */
     public MetricSetType getMetrics(List<String> metricNames, boolean isOwner) {
         try {
-            var response = metricsRpcClient.execute(ctx -> ctx.getMetricsServiceBlockingStub().getMetrics(SystemMetricsReq.newBuilder()
-                    .setIsClientOwner(isOwner)
-                    .addAllMetricNames(metricNames)
-                    .build()));
-
-            return MetricTypes.of(response.getMetrics());
+            return getSnapshot(isOwner).select(metricNames);
         } catch (Exception e) {
             log.warn("Unable to read metrics", e);
             throw new CodedException(ErrorCodes.X_INTERNAL_ERROR, "Unable to read metrics");
         }
     }
 
+    private Snapshot getSnapshot(boolean isOwner) throws Exception {
+        if (snapshotPeriodNanos <= 0) {
+            return new Snapshot(readMetrics(isOwner), System.nanoTime());
+        }
+
+        Snapshot snapshot = snapshots.get(isOwner);
+        if (snapshot != null && !snapshot.isExpired()) {
+            return snapshot;
+        }
+
+        // one read from the monitor at a time, requests waiting for it use the new snapshot
+        synchronized (snapshots) {
+            snapshot = snapshots.get(isOwner);
+            if (snapshot == null || snapshot.isExpired()) {
+                snapshot = new Snapshot(readMetrics(isOwner), System.nanoTime() + snapshotPeriodNanos);
+                snapshots.put(isOwner, snapshot);
+            }
+            return snapshot;
+        }
+    }
+
+    private MetricsGroup readMetrics(boolean isOwner) throws Exception {
+        var response = metricsRpcClient.execute(ctx -> ctx.getMetricsServiceBlockingStub().getMetrics(SystemMetricsReq.newBuilder()
+                .setIsClientOwner(isOwner)
+                .build()));
+        return response.getMetrics();
+    }
+
+    private static String getName(Metrics metrics) {
+        if (metrics.hasMetricsGroup()) {
+            return metrics.getMetricsGroup().getName();
+        } else if (metrics.hasSingleHistogram()) {
+            return metrics.getSingleHistogram().getName();
+        } else if (metrics.hasSingleMetrics()) {
+            return metrics.getSingleMetrics().getName();
+        }
+        return null;
+    }
+
+    private static final class Snapshot {
+        private final MetricsGroup metrics;
+        private final long expiresAt;
+        private final Map<List<String>, MetricSetType> selections = new ConcurrentHashMap<>();
+
+        Snapshot(MetricsGroup metrics, long expiresAt) {
+            this.metrics = metrics;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired() {
+            return System.nanoTime() - expiresAt >= 0;
+        }
+
+        /**
+         * Selects the requested metrics like the monitor does: all metrics if no names are given, otherwise the
+         * top-level metrics with the given names.
+         */
+        MetricSetType select(List<String> metricNames) {
+            MetricSetType selection = selections.get(metricNames);
+            if (selection == null) {
+                selection = MetricTypes.of(filter(metricNames));
+                if (selections.size() < MAX_SELECTIONS) {
+                    selections.put(new ArrayList<>(metricNames), selection);
+                }
+            }
+            return selection;
+        }
+
+        private MetricsGroup filter(List<String> metricNames) {
+            if (metricNames.isEmpty()) {
+                return metrics;
+            }
+            MetricsGroup.Builder filtered = MetricsGroup.newBuilder().setName(metrics.getName());
+            for (Metrics metric : metrics.getMetricsList()) {
+                if (metricNames.contains(getName(metric))) {
+                    filtered.addMetrics(metric);
+                }
+            }
+            return filtered.build();
+        }
+    }
+
     public void shutdown() {
         metricsRpcClient.shutdown();
     }
 
     @Getter
-    private static class MetricsRpcExecutionContext implements RpcClient.ExecutionContext {
+    static class MetricsRpcExecutionContext implements RpcClient.ExecutionContext {
         private final MetricsServiceGrpc.MetricsServiceBlockingStub metricsServiceBlockingStub;
 
         MetricsRpcExecutionContext(Channel channel) {
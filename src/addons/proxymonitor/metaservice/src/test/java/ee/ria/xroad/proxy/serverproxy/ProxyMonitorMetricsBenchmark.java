@@ -0,0 +1,158 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.serverproxy;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.TestPortUtils;
+import ee.ria.xroad.common.conf.globalconf.GlobalConf;
+import ee.ria.xroad.common.conf.serverconf.ServerConf;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.identifier.SecurityServerId;
+import ee.ria.xroad.common.identifier.ServiceId;
+import ee.ria.xroad.common.message.SoapMessageImpl;
+import ee.ria.xroad.common.opmonitoring.OpMonitoringData;
+import ee.ria.xroad.proxy.protocol.ProxyMessage;
+import ee.ria.xroad.proxy.testsuite.TestSuiteGlobalConf;
+import ee.ria.xroad.proxy.testsuite.TestSuiteServerConf;
+import ee.ria.xroad.proxymonitor.RestoreMonitorClientAfterTest;
+import ee.ria.xroad.proxymonitor.util.MonitorClient;
+
+import io.grpc.stub.StreamObserver;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.client.HttpClient;
+import org.niis.xroad.common.rpc.server.RpcServer;
+import org.niis.xroad.monitor.common.Metrics;
+import org.niis.xroad.monitor.common.MetricsGroup;
+import org.niis.xroad.monitor.common.MetricsServiceGrpc;
+import org.niis.xroad.monitor.common.SingleMetrics;
+import org.niis.xroad.monitor.common.SystemMetricsReq;
+import org.niis.xroad.monitor.common.SystemMetricsResp;
+
+import javax.servlet.http.HttpServletRequest;
+
+import java.util.concurrent.TimeUnit;
+
+import static ee.ria.xroad.common.message.SoapMessageTestUtil.build;
+import static java.util.UUID.randomUUID;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures getSecurityServerMetrics request latency against a local monitor stub, reading the metrics from the
+ * monitor for every request and serving them from a metrics snapshot.
+ */
+@Slf4j
+public final class ProxyMonitorMetricsBenchmark {
+
+    private static final ClientId.Conf OWNER = ClientId.Conf.create("EE", "GOV", "1234TEST_CLIENT");
+    private static final SecurityServerId.Conf SERVER = SecurityServerId.Conf.create(OWNER, "ownerServer");
+    private static final ServiceId.Conf SERVICE_ID = ServiceId.Conf.create(OWNER,
+            ProxyMonitorServiceHandlerImpl.SERVICE_CODE);
+    private static final int METRICS = 200;
+    private static final int ROUNDS = 2000;
+
+    private ProxyMonitorMetricsBenchmark() {
+    }
+
+    /**
+     * Main program access point.
+     * @param args command-line arguments
+     * @throws Exception in case of any errors
+     */
+    public static void main(String[] args) throws Exception {
+        System.setProperty(SystemProperties.DATABASE_PROPERTIES, "src/test/resources/hibernate.properties");
+        System.setProperty(SystemProperties.CONFIGURATION_PATH, "src/test/resources/");
+        System.setProperty(SystemProperties.GRPC_INTERNAL_TLS_ENABLED, Boolean.FALSE.toString());
+        System.setProperty(SystemProperties.GRPC_INTERNAL_HOST, "127.0.0.1");
+        System.setProperty(SystemProperties.ENV_MONITOR_PORT, String.valueOf(TestPortUtils.findRandomPort()));
+
+        GlobalConf.reload(new TestSuiteGlobalConf());
+        ServerConf.reload(new TestSuiteServerConf() {
+            @Override
+            public SecurityServerId.Conf getIdentifier() {
+                return SERVER;
+            }
+        });
+
+        RpcServer monitor = RpcServer.newServer(SystemProperties.getGrpcInternalHost(),
+                SystemProperties.getEnvMonitorPort(), builder -> builder.addService(new MetricsStub()));
+        monitor.start();
+        try {
+            run("read per request", 0);
+            run("snapshot", TimeUnit.MINUTES.toSeconds(1));
+        } finally {
+            monitor.stop();
+        }
+    }
+
+    private static void run(String name, long snapshotPeriodSeconds) throws Exception {
+        System.setProperty(SystemProperties.ENV_MONITOR_METRICS_SNAPSHOT_PERIOD, String.valueOf(snapshotPeriodSeconds));
+        MonitorClient client = new MonitorClient();
+        RestoreMonitorClientAfterTest.setMonitorClient(client);
+
+        SoapMessageImpl soap = build(OWNER, SERVICE_ID, "testUser", randomUUID().toString());
+        ProxyMessage request = mock(ProxyMessage.class);
+        when(request.getSoap()).thenReturn(soap);
+
+        try {
+            for (int i = 0; i < ROUNDS / 10; i++) {
+                handle(request);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ROUNDS; i++) {
+                handle(request);
+            }
+            long nanos = System.nanoTime() - start;
+
+            log.info("{}: {} us per request", name, TimeUnit.NANOSECONDS.toMicros(nanos / ROUNDS));
+        } finally {
+            client.shutdown();
+        }
+    }
+
+    private static void handle(ProxyMessage request) throws Exception {
+        ProxyMonitorServiceHandlerImpl handler = new ProxyMonitorServiceHandlerImpl();
+        handler.canHandle(SERVICE_ID, request);
+        handler.startHandling(mock(HttpServletRequest.class), request, mock(HttpClient.class),
+                new OpMonitoringData(OpMonitoringData.SecurityServerType.PRODUCER, 0));
+        handler.getResponseContent().readAllBytes();
+    }
+
+    private static class MetricsStub extends MetricsServiceGrpc.MetricsServiceImplBase {
+        @Override
+        public void getMetrics(SystemMetricsReq request, StreamObserver<SystemMetricsResp> responseObserver) {
+            MetricsGroup.Builder metrics = MetricsGroup.newBuilder().setName("systemMetrics");
+            for (int i = 0; i < METRICS; i++) {
+                metrics.addMetrics(Metrics.newBuilder().setSingleMetrics(SingleMetrics.newBuilder()
+                        .setName("metric" + i)
+                        .setValue(String.valueOf(i))));
+            }
+            responseObserver.onNext(SystemMetricsResp.newBuilder().setMetrics(metrics).build());
+            responseObserver.onCompleted();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxymonitor.util;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.TestPortUtils;
+import ee.ria.xroad.proxymonitor.message.MetricSetType;
+import ee.ria.xroad.proxymonitor.message.MetricType;
+
+import io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.niis.xroad.common.rpc.client.RpcClient;
+import org.niis.xroad.common.rpc.server.RpcServer;
+import org.niis.xroad.monitor.common.Metrics;
+import org.niis.xroad.monitor.common.MetricsGroup;
+import org.niis.xroad.monitor.common.MetricsServiceGrpc;
+import org.niis.xroad.monitor.common.SingleMetrics;
+import org.niis.xroad.monitor.common.SystemMetricsReq;
+import org.niis.xroad.monitor.common.SystemMetricsResp;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests {@link MonitorClient} metrics snapshots
+ */
+public class MonitorClientTest {
+
+    private final AtomicInteger requests = new AtomicInteger();
+    private RpcServer rpcServer;
+    private int port;
+    private MonitorClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        System.setProperty(SystemProperties.GRPC_INTERNAL_TLS_ENABLED, Boolean.FALSE.toString());
+        port = TestPortUtils.findRandomPort();
+        rpcServer = RpcServer.newServer("localhost", port, builder -> builder.addService(new CountingMetricsProvider()));
+        rpcServer.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        if (client != null) {
+            client.shutdown();
+        }
+        rpcServer.stop();
+    }
+
+    @Test
+    public void shouldServeMetricsFromSnapshot() throws Exception {
+        client = createClient(TimeUnit.MINUTES.toNanos(1));
+
+        MetricSetType all = client.getMetrics(Collections.emptyList(), true);
+        assertEquals(Arrays.asList("OperatingSystem", "DiskSpaceFree", "Packages"), names(all));
+        assertSame(all, client.getMetrics(Collections.emptyList(), true));
+
+        MetricSetType selected = client.getMetrics(Arrays.asList("DiskSpaceFree", "Packages"), true);
+        assertEquals("systemMetrics", selected.getName());
+        assertEquals(Arrays.asList("DiskSpaceFree", "Packages"), names(selected));
+        assertEquals(1, requests.get());
+
+        // snapshots of the owner and other clients are separate
+        assertEquals(Collections.singletonList("OperatingSystem"), names(client.getMetrics(Collections.emptyList(), false)));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void shouldReadMetricsForEachRequestWithoutSnapshotPeriod() throws Exception {
+        client = createClient(0);
+
+        MetricSetType first = client.getMetrics(Collections.emptyList(), true);
+        MetricSetType second = client.getMetrics(Collections.emptyList(), true);
+
+        assertNotSame(first, second);
+        assertEquals(names(first), names(second));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void shouldReadNewSnapshotWhenExpired() throws Exception {
+        client = createClient(TimeUnit.MILLISECONDS.toNanos(50));
+
+        MetricSetType first = client.getMetrics(Collections.emptyList(), true);
+        Thread.sleep(100);
+        MetricSetType second = client.getMetrics(Collections.emptyList(), true);
+
+        assertNotSame(first, second);
+        assertEquals(2, requests.get());
+    }
+
+    private MonitorClient createClient(long snapshotPeriodNanos) throws Exception {
+        return new MonitorClient(RpcClient.newClient("localhost", port, MonitorClient.MetricsRpcExecutionContext::new),
+                snapshotPeriodNanos);
+    }
+
+    private static List<String> names(MetricSetType metrics) {
+        return metrics.getMetrics().stream().map(MetricType::getName).collect(Collectors.toList());
+    }
+
+    private static Metrics.Builder single(String name, String value) {
+        return Metrics.newBuilder().setSingleMetrics(SingleMetrics.newBuilder().setName(name).setValue(value));
+    }
+
+    private class CountingMetricsProvider extends MetricsServiceGrpc.MetricsServiceImplBase {
+        @Override
+        public void getMetrics(SystemMetricsReq request, StreamObserver<SystemMetricsResp> responseObserver) {
+            requests.incrementAndGet();
+            MetricsGroup.Builder metrics = MetricsGroup.newBuilder()
+                    .setName("systemMetrics")
+                    .addMetrics(single("OperatingSystem", "Linux"));
+            if (request.getIsClientOwner()) {
+                metrics.addMetrics(single("DiskSpaceFree", "1024"))
+                        .addMetrics(Metrics.newBuilder().setMetricsGroup(MetricsGroup.newBuilder()
+                                .setName("Packages")
+                                .addMetrics(single("xroad-proxy", "7.4.0"))));
+            }
+            responseObserver.onNext(SystemMetricsResp.newBuilder().setMetrics(metrics).build());
+            responseObserver.onCompleted();
+        }
+    }
+}
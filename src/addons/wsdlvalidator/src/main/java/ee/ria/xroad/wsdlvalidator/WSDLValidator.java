@@ -52,6 +52,9 @@ import java.security.cert.X509Certificate;
  * Usage: java -jar wsdlvalidator.jar <i>wsdlUrl</i><br> Exits with code zero if the validation was successful, nonzero
  * otherwise.
  *
+ * Usage: java -jar wsdlvalidator.jar --server <i>port</i><br> Keeps running and validates the WSDLs requested over a
+ * local socket, see {@link WSDLValidatorServer}.
+ *
  * @see org.apache.cxf.tools.validator.WSDLValidator
  *
  * The original CLI always exists with code 0. This version does not support any of the wsdlvalidator command line
@@ -61,6 +64,9 @@ public final class WSDLValidator {
 
     private static final String PROPERTY_INTERNAL_KEY_STORE = "ee.ria.xroad.internalKeyStore";
     private static final String PROPERTY_INTERNAL_KEY_STORE_PASSWORD = "ee.ria.xroad.internalKeyStorePassword";
+    private static final String PROPERTY_SERVER_THREADS = "ee.ria.xroad.wsdlValidatorThreads";
+    private static final String SERVER_OPTION = "--server";
+    private static final int DEFAULT_SERVER_THREADS = 4;
 
     private WSDLValidator() {
     }
@@ -94,6 +100,16 @@ public final class WSDLValidator {
         }
 
         setupSSL();
+        if (SERVER_OPTION.equals(args[0])) {
+            if (args.length < 2) {
+                System.err.println("WSDLValidator Error : Missing argument: port");
+                System.exit(1);
+            }
+            new WSDLValidatorServer(Integer.parseInt(args[1]), Integer.getInteger(PROPERTY_SERVER_THREADS,
+                    DEFAULT_SERVER_THREADS)).run();
+            return;
+        }
+
         final int result = executeValidator(args[0], System.err);
         System.exit(result);
     }
@@ -0,0 +1,148 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.wsdlvalidator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Resident WSDL validator, which keeps the validator loaded between validations. Used by the security server admin
+ * service instead of starting the validator command for every validation.
+ *
+ * Listens on the given port of the loopback interface and handles any number of validations per connection. For
+ * each validation the client writes the WSDL URI as one line; the server answers with the validator output, each
+ * line prefixed with {@code "OUT "}, followed by a line {@code "EXIT <code>"} where the code has the same meaning as
+ * the exit code of the validator command.
+ */
+final class WSDLValidatorServer implements Closeable {
+
+    static final String OUTPUT_PREFIX = "OUT ";
+    static final String EXIT_PREFIX = "EXIT ";
+
+    private final ServerSocket serverSocket;
+    private final Semaphore validationPermits;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private final ExecutorService connectionExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "wsdlvalidator-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param port port to listen on, 0 for any free port
+     * @param maxConcurrentValidations maximum number of WSDLs validated at the same time
+     * @throws IOException if the port can not be bound
+     */
+    WSDLValidatorServer(int port, int maxConcurrentValidations) throws IOException {
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        this.validationPermits = new Semaphore(maxConcurrentValidations, true);
+    }
+
+    int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until the server is closed.
+     */
+    void run() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                connections.add(socket);
+                connectionExecutor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("WSDLValidator Error : " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        connectionExecutor.shutdownNow();
+        for (Socket socket : connections) {
+            socket.close();
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                     StandardCharsets.UTF_8));
+             BufferedWriter out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(),
+                     StandardCharsets.UTF_8))) {
+            String wsdlUrl;
+            while ((wsdlUrl = in.readLine()) != null) {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                int exitCode = validate(wsdlUrl, new PrintStream(output, true, StandardCharsets.UTF_8));
+
+                BufferedReader lines = new BufferedReader(new StringReader(output.toString(StandardCharsets.UTF_8)));
+                String line;
+                while ((line = lines.readLine()) != null) {
+                    out.write(OUTPUT_PREFIX + line);
+                    out.newLine();
+                }
+                out.write(EXIT_PREFIX + exitCode);
+                out.newLine();
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the client went away, its connection is closed
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private int validate(String wsdlUrl, PrintStream msg) throws InterruptedException {
+        validationPermits.acquire();
+        try {
+            return WSDLValidator.executeValidator(wsdlUrl, msg);
+        } finally {
+            validationPermits.release();
+        }
+    }
+}
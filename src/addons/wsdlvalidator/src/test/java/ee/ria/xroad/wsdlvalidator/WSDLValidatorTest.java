@@ -27,8 +27,15 @@ package ee.ria.xroad.wsdlvalidator;
 
 import org.junit.Test;
 
+import java.io.BufferedReader;
 import java.io.ByteArrayOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -66,6 +73,29 @@ public class WSDLValidatorTest {
         assertTrue(bout.isEmpty());
     }
 
+    @Test
+    public void shouldValidateManyWsdlsPerServerConnection() throws Exception {
+        try (WSDLValidatorServer server = new WSDLValidatorServer(0, 1)) {
+            new Thread(server::run).start();
+
+            try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+                 Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8);
+                 BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                         StandardCharsets.UTF_8))) {
+                out.write("src/test/resources/testservice.wsdl\nsrc/test/resources/error.wsdl\n");
+                out.flush();
+
+                assertEquals("EXIT 0", in.readLine());
+                String line = in.readLine();
+                assertTrue(line.startsWith(WSDLValidatorServer.OUTPUT_PREFIX));
+                while (line.startsWith(WSDLValidatorServer.OUTPUT_PREFIX)) {
+                    line = in.readLine();
+                }
+                assertEquals("EXIT 1", line);
+            }
+        }
+    }
+
     static class MockStream extends PrintStream {
 
         MockStream() {
@@ -31,9 +31,12 @@ import ee.ria.xroad.common.util.MimeTypes;
 import lombok.Getter;
 
 import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -63,10 +66,14 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
  * Encapsulates the creation of the ASiC-container, which is essentially a
  * ZIP file containing the message and signature.
  */
-public class AsicContainer {
+public class AsicContainer implements Closeable {
 
     /** Holds the entries in the container. */
     private final Map<String, String> entries = new HashMap<>();
+    /** Entries too large to be held in memory, read from the container file when needed. */
+    private final Map<String, EntrySource> largeEntries = new HashMap<>();
+    /** The container file that the large entries are read from, if any. */
+    private final Closeable containerFile;
     private final InputStream attachment;
     @Getter
     private final byte[] attachmentDigest;
@@ -74,7 +81,14 @@ public class AsicContainer {
     private final long creationTime;
 
     AsicContainer(Map<String, String> entries, byte[] attachmentDigest) throws Exception {
+        this(entries, Map.of(), attachmentDigest, null);
+    }
+
+    AsicContainer(Map<String, String> entries, Map<String, EntrySource> largeEntries, byte[] attachmentDigest,
+                  Closeable containerFile) throws Exception {
         this.entries.putAll(entries);
+        this.largeEntries.putAll(largeEntries);
+        this.containerFile = containerFile;
         this.attachment = null;
         this.attachmentDigest = attachmentDigest;
         this.creationTime = new Date().getTime();
@@ -99,6 +113,7 @@ public class AsicContainer {
         put(ENTRY_SIGNATURE, signature.getSignatureXml());
         put(ENTRY_SIG_HASH_CHAIN_RESULT, signature.getHashChainResult());
         put(ENTRY_SIG_HASH_CHAIN, signature.getHashChain());
+        this.containerFile = null;
         this.attachment = attachment;
         this.attachmentDigest = null;
         this.creationTime = time;
@@ -116,7 +131,8 @@ public class AsicContainer {
     }
 
     /**
-     * Returns the message within the container.
+     * Returns the message within the container. A large message is read into memory, use
+     * {@link #getEntry(String)} to stream it instead.
      * @return message within the container
      */
     public String getMessage() {
@@ -179,7 +195,8 @@ public class AsicContainer {
      * @return true if the given file is an entry in this container, false otherwise
      */
     public boolean hasEntry(String fileName) {
-        return entries.containsKey(AsicHelper.stripSlash(fileName));
+        String name = AsicHelper.stripSlash(fileName);
+        return entries.containsKey(name) || largeEntries.containsKey(name);
     }
 
     /**
@@ -188,6 +205,15 @@ public class AsicContainer {
      * @return input stream containing the data for the entry with the given filename
      */
     public InputStream getEntry(String fileName) {
+        EntrySource source = largeEntries.get(AsicHelper.stripSlash(fileName));
+        if (source != null) {
+            try {
+                return source.open();
+            } catch (IOException e) {
+                throw translateException(e);
+            }
+        }
+
         String data = get(AsicHelper.stripSlash(fileName));
         return data != null ? new ByteArrayInputStream(
                 data.getBytes(StandardCharsets.UTF_8)) : null;
@@ -212,6 +238,17 @@ public class AsicContainer {
         return AsicHelper.read(is);
     }
 
+    /**
+     * Create a ASiC container from the given file. Large entries are not read into memory, but streamed
+     * from the file when they are accessed; the container must be closed to release the file.
+     * @param file the container ZIP file
+     * @return the ASiC container that was read from the file
+     * @throws Exception if errors occurred when reading ZIP entries from the file
+     */
+    public static AsicContainer read(Path file) throws Exception {
+        return AsicHelper.read(file);
+    }
+
     /**
      * Write this container to the given output stream in ZIP format.
      * @param out the stream for writing container
@@ -268,7 +305,9 @@ public class AsicContainer {
 
     private void verifyContents() throws Exception {
         AsicHelper.verifyMimeType(get(ENTRY_MIMETYPE));
-        AsicHelper.verifyMessage(get(ENTRY_MESSAGE));
+        if (!largeEntries.containsKey(ENTRY_MESSAGE)) {
+            AsicHelper.verifyMessage(get(ENTRY_MESSAGE));
+        }
         AsicHelper.verifySignature(get(ENTRY_SIGNATURE),
                 get(ENTRY_SIG_HASH_CHAIN_RESULT), get(ENTRY_SIG_HASH_CHAIN));
 
@@ -283,7 +322,15 @@ public class AsicContainer {
             case ENTRY_TIMESTAMP:
                 return getTimestampValueBase64();
             default:
-                return entries.get(entryName);
+                return largeEntries.containsKey(entryName) ? readLargeEntry(entryName) : entries.get(entryName);
+        }
+    }
+
+    private String readLargeEntry(String entryName) {
+        try (InputStream in = largeEntries.get(entryName).open()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw translateException(e);
         }
     }
 
@@ -310,4 +357,24 @@ public class AsicContainer {
     public InputStream getAttachment() {
         return attachment;
     }
+
+    /**
+     * Closes the container file that large entries are streamed from, together with the entry streams that
+     * are still open.
+     * @throws IOException if closing the file fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (containerFile != null) {
+            containerFile.close();
+        }
+    }
+
+    /**
+     * Opens the contents of a container entry that is not held in memory.
+     */
+    @FunctionalInterface
+    interface EntrySource {
+        InputStream open() throws IOException;
+    }
 }
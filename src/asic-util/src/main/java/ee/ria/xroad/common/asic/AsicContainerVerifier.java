@@ -59,10 +59,11 @@ import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.tsp.TimeStampToken;
 
 import java.io.ByteArrayInputStream;
-import java.io.FileInputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.security.Security;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
@@ -87,7 +88,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  */
 @Getter(AccessLevel.PUBLIC)
 @RequiredArgsConstructor(access = AccessLevel.PUBLIC)
-public class AsicContainerVerifier {
+public class AsicContainerVerifier implements Closeable {
 
     static {
         Security.addProvider(new BouncyCastleProvider());
@@ -112,14 +113,23 @@ public class AsicContainerVerifier {
 
     /**
      * Constructs a new ASiC container verifier for the ZIP file with the
-     * given filename. Attempts to verify it's contents.
+     * given filename. Attempts to verify it's contents. Large entries are
+     * streamed from the file during verification instead of being read into memory;
+     * close the verifier to release the file.
      * @param filename name of the ASiC container ZIP file
      * @throws Exception if the file could not be read
      */
     public AsicContainerVerifier(String filename) throws Exception {
-        try (FileInputStream in = new FileInputStream(filename)) {
-            asic = AsicContainer.read(in);
-        }
+        asic = AsicContainer.read(Paths.get(filename));
+    }
+
+    /**
+     * Closes the ASiC container file.
+     * @throws IOException if closing the file fails
+     */
+    @Override
+    public void close() throws IOException {
+        asic.close();
     }
 
     /**
@@ -127,10 +137,9 @@ public class AsicContainerVerifier {
      * @throws Exception if verification was unsuccessful
      */
     public void verify() throws Exception {
-        String message = asic.getMessage();
         SignatureData signatureData = asic.getSignature();
         signature = new Signature(signatureData.getSignatureXml());
-        signerName = getSigner(message);
+        signerName = getSigner();
 
         SignatureVerifier signatureVerifier =
                 new SignatureVerifier(signature,
@@ -239,13 +248,10 @@ public class AsicContainerVerifier {
                 (ASN1Sequence) ASN1Sequence.fromByteArray(tsDerDecoded)));
     }
 
-    private static ClientId getSigner(String messageXml) {
-        final byte[] messageBytes = messageXml.getBytes(UTF_8);
-
-        try {
+    private ClientId getSigner() throws IOException {
+        try (InputStream message = asic.getEntry(MESSAGE)) {
             Soap soap = new SaxSoapParserImpl().parse(
-                    MimeTypes.TEXT_XML_UTF8,
-                    new ByteArrayInputStream(messageBytes));
+                    MimeTypes.TEXT_XML_UTF8, message);
             if (!(soap instanceof SoapMessageImpl)) {
                 throw new RuntimeException("Unexpected SOAP: " + soap.getClass());
             }
@@ -255,7 +261,7 @@ public class AsicContainerVerifier {
         } catch (CodedException ce) {
             if (X_INVALID_SOAP.equals(ce.getFaultCode())) {
                 try {
-                    final RestMessage restMessage = RestMessage.of(messageBytes);
+                    final RestMessage restMessage = RestMessage.of(asic.getMessage().getBytes(UTF_8));
                     return restMessage.getSender();
                 } catch (Exception e) {
                     throw new RuntimeException("Invalid message", e);
@@ -35,12 +35,17 @@ import org.bouncycastle.operator.DigestCalculator;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.attribute.FileTime;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
@@ -73,6 +78,9 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
  */
 final class AsicHelper {
 
+    /** Message entries larger than this are streamed from the container file instead of being held in memory. */
+    private static final long LARGE_ENTRY_SIZE = 1024 * 1024;
+
     private AsicHelper() {
     }
 
@@ -83,30 +91,94 @@ final class AsicHelper {
         byte[] attachmentDigest = null;
 
         while ((zipEntry = zip.getNextEntry()) != null) {
-            for (Object expectedEntry : AsicContainerEntries.getALL_ENTRIES()) {
-                if (matches(expectedEntry, zipEntry.getName())) {
-                    String data;
-
-                    if (ENTRY_TIMESTAMP.equalsIgnoreCase(zipEntry.getName())) {
-                        data = encodeBase64(getBinaryData(zip));
-                    } else {
-                        data = getData(zip);
-                    }
+            byte[] digest = readEntry(zipEntry.getName(), zip, entries);
+            if (digest != null) {
+                attachmentDigest = digest;
+            }
+        }
+
+        return new AsicContainer(entries, attachmentDigest);
+    }
+
+    static AsicContainer read(Path file) throws Exception {
+        ZipFile zip;
+        try {
+            zip = new ZipFile(file.toFile());
+        } catch (ZipException e) {
+            // not a valid ZIP central directory, let the stream reader report what is missing
+            try (InputStream in = Files.newInputStream(file)) {
+                return read(in);
+            }
+        }
+
+        try {
+            return read(zip);
+        } catch (Exception e) {
+            zip.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the container from the ZIP file. The file is closed, unless large entries are streamed from it; then it
+     * is closed when the container is closed.
+     */
+    private static AsicContainer read(ZipFile zip) throws Exception {
+        Map<String, String> entries = new HashMap<>();
+        Map<String, AsicContainer.EntrySource> largeEntries = new HashMap<>();
+        byte[] attachmentDigest = null;
+
+        for (ZipEntry zipEntry : Collections.list(zip.entries())) {
+            String name = zipEntry.getName();
 
-                    entries.put(zipEntry.getName(), data);
+            if (ENTRY_MESSAGE.equals(name) && zipEntry.getSize() > LARGE_ENTRY_SIZE) {
+                largeEntries.put(name, () -> zip.getInputStream(zipEntry));
+                continue;
+            }
 
-                    break;
-                } else if (matches(ENTRY_ATTACHMENT + "1", zipEntry.getName())) {
-                    final DigestCalculator digest =
-                            CryptoUtils.createDigestCalculator(CryptoUtils.DEFAULT_DIGEST_ALGORITHM_ID);
-                    IOUtils.copy(zip, digest.getOutputStream());
-                    attachmentDigest = digest.getDigest();
-                    break;
+            try (InputStream in = zip.getInputStream(zipEntry)) {
+                byte[] digest = readEntry(name, in, entries);
+                if (digest != null) {
+                    attachmentDigest = digest;
                 }
             }
         }
 
-        return new AsicContainer(entries, attachmentDigest);
+        if (largeEntries.isEmpty()) {
+            zip.close();
+            return new AsicContainer(entries, attachmentDigest);
+        }
+
+        return new AsicContainer(entries, largeEntries, attachmentDigest, zip);
+    }
+
+    /**
+     * Reads a known entry into the entries map, or digests it if it is the attachment.
+     * @return the attachment digest, or null if the entry was not the attachment
+     */
+    private static byte[] readEntry(String name, InputStream in, Map<String, String> entries) throws Exception {
+        for (Object expectedEntry : AsicContainerEntries.getALL_ENTRIES()) {
+            if (matches(expectedEntry, name)) {
+                String data;
+
+                if (ENTRY_TIMESTAMP.equalsIgnoreCase(name)) {
+                    data = encodeBase64(getBinaryData(in));
+                } else {
+                    data = getData(in);
+                }
+
+                entries.put(name, data);
+
+                return null;
+            } else if (matches(ENTRY_ATTACHMENT + "1", name)) {
+                final DigestCalculator digest =
+                        CryptoUtils.createDigestCalculator(CryptoUtils.DEFAULT_DIGEST_ALGORITHM_ID);
+                IOUtils.copy(in, digest.getOutputStream());
+                return digest.getDigest();
+            }
+        }
+
+        return null;
     }
 
     static void write(AsicContainer asic, ZipOutputStream zip) throws Exception {
@@ -220,12 +292,12 @@ final class AsicHelper {
         }
     }
 
-    private static String getData(ZipInputStream zip) throws Exception {
-        return IOUtils.toString(zip, StandardCharsets.UTF_8);
+    private static String getData(InputStream in) throws Exception {
+        return IOUtils.toString(in, StandardCharsets.UTF_8);
     }
 
-    private static byte[] getBinaryData(ZipInputStream zip) throws Exception {
-        return IOUtils.toByteArray(zip);
+    private static byte[] getBinaryData(InputStream in) throws Exception {
+        return IOUtils.toByteArray(in);
     }
 
     private static void addEntry(ZipOutputStream zip, String name, long time, String data) throws IOException {
@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.asic;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static ee.ria.xroad.common.asic.AsicContainerEntries.ENTRY_MESSAGE;
+import static ee.ria.xroad.common.asic.AsicContainerEntries.ENTRY_MIMETYPE;
+import static ee.ria.xroad.common.asic.AsicContainerEntries.ENTRY_SIGNATURE;
+import static ee.ria.xroad.common.asic.AsicContainerEntries.MIMETYPE;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests reading containers with entries that are streamed from the container file.
+ */
+public class AsicContainerLargeEntryTest {
+    private static final int MESSAGE_SIZE = 4 * 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /**
+     * Test to ensure a large message is streamed from the file with the same contents.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void shouldStreamLargeMessage() throws Exception {
+        Path file = tempFolder.newFile("large.asice").toPath();
+        byte[] message = writeContainer(file, MESSAGE_SIZE);
+
+        try (AsicContainer asic = AsicContainer.read(file)) {
+            assertTrue(asic.hasEntry("/" + ENTRY_MESSAGE));
+            try (InputStream in = asic.getEntry("/" + ENTRY_MESSAGE)) {
+                assertArrayEquals(message, in.readAllBytes());
+            }
+            // the entry can be read more than once
+            try (InputStream in = asic.getEntry(ENTRY_MESSAGE)) {
+                assertArrayEquals(message, in.readAllBytes());
+            }
+            assertEquals(new String(message, StandardCharsets.UTF_8), asic.getMessage());
+        }
+    }
+
+    /**
+     * Test to ensure closing the container closes the entry streams that were left open.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void shouldCloseOpenEntryStreams() throws Exception {
+        Path file = tempFolder.newFile("large.asice").toPath();
+        writeContainer(file, MESSAGE_SIZE);
+
+        AsicContainer asic = AsicContainer.read(file);
+        InputStream in = asic.getEntry(ENTRY_MESSAGE);
+        assertTrue(in.read() >= 0);
+
+        asic.close();
+
+        assertThrows(IOException.class, in::read);
+    }
+
+    static byte[] writeContainer(Path file, int messageSize) throws IOException {
+        byte[] message = new byte[messageSize];
+        byte[] element = "<a>x</a>".getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < messageSize; i++) {
+            message[i] = element[i % element.length];
+        }
+
+        try (OutputStream out = Files.newOutputStream(file); ZipOutputStream zip = new ZipOutputStream(out)) {
+            addEntry(zip, ENTRY_MIMETYPE, MIMETYPE.getBytes(StandardCharsets.UTF_8));
+            addEntry(zip, ENTRY_MESSAGE, message);
+            addEntry(zip, ENTRY_SIGNATURE, "<signature/>".getBytes(StandardCharsets.UTF_8));
+        }
+        return message;
+    }
+
+    private static void addEntry(ZipOutputStream zip, String name, byte[] data) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(data);
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.asic;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static ee.ria.xroad.common.asic.AsicContainerEntries.ENTRY_MESSAGE;
+
+/**
+ * ASiC container reading benchmark program. Compares the peak heap usage of reading a container with a
+ * large message into memory and of streaming the message from the container file.
+ */
+public final class AsicContainerReadBenchmark {
+
+    private static final int MESSAGE_SIZE = 256 * 1024 * 1024;
+    private static final long MIB = 1024 * 1024;
+
+    private AsicContainerReadBenchmark() {
+    }
+
+    /**
+     * Main program access point.
+     * @param args command-line arguments
+     * @throws Exception in case of any errors
+     */
+    public static void main(String[] args) throws Exception {
+        Path file = Files.createDirectories(Paths.get("build/asic-benchmark")).resolve("large.asice");
+        AsicContainerLargeEntryTest.writeContainer(file, MESSAGE_SIZE);
+
+        resetPeakUsage();
+        try (InputStream in = Files.newInputStream(file)) {
+            AsicContainer asic = AsicContainer.read(in);
+            drain(asic.getEntry(ENTRY_MESSAGE));
+        }
+        long inMemory = peakUsage();
+
+        resetPeakUsage();
+        try (AsicContainer asic = AsicContainer.read(file)) {
+            drain(asic.getEntry(ENTRY_MESSAGE));
+        }
+        long streamed = peakUsage();
+
+        System.out.printf("%d MiB message: peak heap %d MiB read into memory, %d MiB streamed%n",
+                MESSAGE_SIZE / MIB, inMemory / MIB, streamed / MIB);
+    }
+
+    private static void drain(InputStream in) throws Exception {
+        try (in) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    private static void resetPeakUsage() {
+        System.gc();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            pool.resetPeakUsage();
+        }
+    }
+
+    private static long peakUsage() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+}
@@ -91,9 +91,7 @@ public final class AsicVerifierMain {
     private static void verifyAsic(String fileName) {
         System.out.println("Verifying ASiC container \"" + fileName + "\" ...");
 
-        AsicContainerVerifier verifier = null;
-        try {
-            verifier = new AsicContainerVerifier(fileName);
+        try (AsicContainerVerifier verifier = new AsicContainerVerifier(fileName)) {
             verifier.verify();
 
             onVerificationSucceeded(verifier);
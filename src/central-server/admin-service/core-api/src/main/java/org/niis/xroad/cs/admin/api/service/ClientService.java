@@ -26,6 +26,7 @@
  */
 package org.niis.xroad.cs.admin.api.service;
 
+import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.XRoadObjectType;
 
 import lombok.EqualsAndHashCode;
@@ -36,6 +37,7 @@ import org.niis.xroad.cs.admin.api.paging.Page;
 import org.niis.xroad.cs.admin.api.paging.PageRequestDto;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Service for searching {@link FlattenedSecurityServerClientView}s
@@ -48,6 +50,12 @@ public interface ClientService {
 
     List<FlattenedSecurityServerClientView> findAll();
 
+    /**
+     * Loads the clients of all security servers in a single query.
+     * @return client identifiers by security server id
+     */
+    Map<Integer, List<ClientId>> findClientIdsBySecurityServer();
+
     /**
      * Parameters that defined which clients are returned.
      * All given parameters must match (e.g. memberClass = GOV, memberCode = 123 will not return a client
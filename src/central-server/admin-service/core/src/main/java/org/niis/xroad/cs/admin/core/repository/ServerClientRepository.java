@@ -27,7 +27,12 @@
 package org.niis.xroad.cs.admin.core.repository;
 
 import org.niis.xroad.cs.admin.core.entity.ServerClientEntity;
+import org.niis.xroad.cs.admin.core.entity.ServerClientIdentifier;
+
+import java.util.List;
 
 public interface ServerClientRepository extends GenericRepository<ServerClientEntity, Integer> {
 
+    List<ServerClientIdentifier> findAllClientIdentifiers();
+
 }
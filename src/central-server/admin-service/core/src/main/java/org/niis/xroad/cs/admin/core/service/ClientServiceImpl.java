@@ -26,6 +26,8 @@
  */
 package org.niis.xroad.cs.admin.core.service;
 
+import ee.ria.xroad.common.identifier.ClientId;
+
 import lombok.RequiredArgsConstructor;
 import org.niis.xroad.cs.admin.api.domain.FlattenedSecurityServerClientView;
 import org.niis.xroad.cs.admin.api.paging.Page;
@@ -33,15 +35,20 @@ import org.niis.xroad.cs.admin.api.paging.PageRequestDto;
 import org.niis.xroad.cs.admin.api.service.ClientService;
 import org.niis.xroad.cs.admin.core.converter.PageConverter;
 import org.niis.xroad.cs.admin.core.converter.PageRequestDtoConverter;
+import org.niis.xroad.cs.admin.core.entity.ServerClientIdentifier;
 import org.niis.xroad.cs.admin.core.entity.mapper.FlattenedSecurityServerClientViewMapper;
 import org.niis.xroad.cs.admin.core.repository.FlattenedSecurityServerClientRepository;
+import org.niis.xroad.cs.admin.core.repository.ServerClientRepository;
 import org.niis.xroad.cs.admin.core.repository.paging.StableSortHelper;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
 
 import java.util.List;
+import java.util.Map;
 
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
 
 /**
@@ -52,6 +59,7 @@ import static java.util.stream.Collectors.toList;
 @RequiredArgsConstructor
 public class ClientServiceImpl implements ClientService {
     private final FlattenedSecurityServerClientRepository flattenedClientRepository;
+    private final ServerClientRepository serverClientRepository;
     private final FlattenedSecurityServerClientViewMapper flattenedSecurityServerClientViewMapper;
     private final PageRequestDtoConverter pageRequestDtoConverter;
     private final PageConverter pageConverter;
@@ -81,4 +89,11 @@ public class ClientServiceImpl implements ClientService {
                 .collect(toList());
     }
 
+    @Override
+    public Map<Integer, List<ClientId>> findClientIdsBySecurityServer() {
+        return serverClientRepository.findAllClientIdentifiers().stream()
+                .collect(groupingBy(ServerClientIdentifier::getSecurityServerId,
+                        mapping(ServerClientIdentifier::toClientId, toList())));
+    }
+
 }
@@ -42,6 +42,7 @@ import org.niis.xroad.cs.admin.core.converter.PageConverter;
 import org.niis.xroad.cs.admin.core.converter.PageRequestDtoConverter;
 import org.niis.xroad.cs.admin.core.entity.GlobalGroupEntity;
 import org.niis.xroad.cs.admin.core.entity.GlobalGroupMemberEntity;
+import org.niis.xroad.cs.admin.core.entity.GroupMemberIdentifier;
 import org.niis.xroad.cs.admin.core.entity.XRoadMemberEntity;
 import org.niis.xroad.cs.admin.core.entity.mapper.GlobalGroupMemberMapper;
 import org.niis.xroad.cs.admin.core.entity.mapper.GlobalGroupMemberViewMapper;
@@ -57,9 +58,12 @@ import org.springframework.stereotype.Service;
 import javax.transaction.Transactional;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
 import static java.util.stream.Collectors.toList;
 import static org.niis.xroad.cs.admin.api.exception.ErrorMessage.GLOBAL_GROUP_NOT_FOUND;
 import static org.niis.xroad.cs.admin.api.exception.ErrorMessage.MEMBER_NOT_FOUND;
@@ -98,6 +102,13 @@ public class GlobalGroupMemberServiceImpl implements GlobalGroupMemberService {
                 .collect(toList());
     }
 
+    @Override
+    public Map<String, List<ClientId>> findMemberIdsByGroupCode() {
+        return globalGroupMemberRepository.findAllMemberIdentifiers().stream()
+                .collect(groupingBy(GroupMemberIdentifier::getGroupCode,
+                        mapping(GroupMemberIdentifier::toClientId, toList())));
+    }
+
     @Override
     public void addMemberToGlobalGroup(MemberId memberId, String groupCode) {
         final XRoadMemberEntity memberEntity = getMemberIdEntity(memberId);
@@ -32,5 +32,9 @@ public interface ConfigurationPartsGenerator {
 
     int getConfigurationVersion();
 
-    List<ConfigurationPart> generateConfigurationParts();
+    /**
+     * Generates the configuration parts of this version from the parameters loaded for the current generation round.
+     * Called concurrently for the different versions, so implementations must not access the database.
+     */
+    List<ConfigurationPart> generateConfigurationParts(SharedParameters sharedParameters, PrivateParameters privateParameters);
 }
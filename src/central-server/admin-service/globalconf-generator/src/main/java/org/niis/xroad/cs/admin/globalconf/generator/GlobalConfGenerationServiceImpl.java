@@ -47,10 +47,23 @@ import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import javax.annotation.PreDestroy;
+
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 import static ee.ria.xroad.common.SystemProperties.getCenterExternalDirectory;
 import static ee.ria.xroad.common.SystemProperties.getCenterInternalDirectory;
@@ -59,6 +72,7 @@ import static ee.ria.xroad.common.conf.globalconf.ConfigurationConstants.CONTENT
 import static ee.ria.xroad.commonui.OptionalPartsConf.getOptionalPartsConf;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
 import static java.util.stream.Stream.concat;
 import static org.niis.xroad.cs.admin.api.service.ConfigurationSigningKeysService.SOURCE_TYPE_EXTERNAL;
@@ -71,6 +85,7 @@ import static org.niis.xroad.cs.admin.globalconf.generator.GlobalConfGenerationE
 @RequiredArgsConstructor
 public class GlobalConfGenerationServiceImpl implements GlobalConfGenerationService {
     private static final int OLD_CONF_PRESERVING_SECONDS = 600;
+    private static final int PARTS_GENERATOR_THREADS = 2;
 
     private static final Set<String> EXTERNAL_SOURCE_CONTENT_IDENTIFIERS = Set.of(
             CONTENT_ID_SHARED_PARAMETERS);
@@ -84,56 +99,188 @@ public class GlobalConfGenerationServiceImpl implements GlobalConfGenerationServ
     private final ConfigurationSigningKeysService configurationSigningKeysService;
     private final ApplicationEventPublisher eventPublisher;
 
+    private final SharedParametersLoader sharedParametersLoader;
+    private final PrivateParametersLoader privateParametersLoader;
     private final List<ConfigurationPartsGenerator> configurationPartsGenerators;
 
+    private final Map<Integer, Generation> lastGenerations = new ConcurrentHashMap<>();
+    // one thread per supported global configuration version (V2 and V3)
+    private final ExecutorService partsExecutor = Executors.newFixedThreadPool(PARTS_GENERATOR_THREADS, runnable -> {
+        var thread = new Thread(runnable, "globalconf-parts-generator");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PreDestroy
+    public void shutdown() {
+        partsExecutor.shutdownNow();
+    }
+
     @SneakyThrows
     @Override
     @Transactional
     @Scheduled(fixedRateString = "${xroad.admin-service.global-configuration-generation-rate-in-seconds}", timeUnit = SECONDS)
     public void generate() {
-        configurationPartsGenerators.forEach(configurationPartsGenerator -> {
-            int confVersion = configurationPartsGenerator.getConfigurationVersion();
-            if (confVersion < SystemProperties.getMinimumCentralServerGlobalConfigurationVersion()) {
+        var generators = configurationPartsGenerators.stream()
+                .filter(generator -> generator.getConfigurationVersion()
+                        >= SystemProperties.getMinimumCentralServerGlobalConfigurationVersion())
+                .toList();
+        if (generators.isEmpty()) {
+            return;
+        }
+
+        Map<Integer, CompletableFuture<List<ConfigurationPart>>> generatedParts;
+        try {
+            generatedParts = startConfigurationPartsGeneration(generators);
+        } catch (RuntimeException e) {
+            eventPublisher.publishEvent(FAILURE);
+            throw e;
+        }
+
+        for (ConfigurationPartsGenerator generator : generators) {
+            generateVersion(generator.getConfigurationVersion(), generatedParts.get(generator.getConfigurationVersion()));
+        }
+    }
+
+    /**
+     * Loads the parameters once in the current transaction and marshals them for every version in parallel.
+     * Signing and saving the parts stays on the calling thread.
+     */
+    private Map<Integer, CompletableFuture<List<ConfigurationPart>>> startConfigurationPartsGeneration(
+            List<ConfigurationPartsGenerator> generators) {
+        var sharedParameters = sharedParametersLoader.load();
+        log.trace("Shared parameters loaded: {}", sharedParameters);
+        var privateParameters = privateParametersLoader.load();
+
+        return generators.stream().collect(toMap(ConfigurationPartsGenerator::getConfigurationVersion,
+                generator -> CompletableFuture.supplyAsync(
+                        () -> generator.generateConfigurationParts(sharedParameters, privateParameters), partsExecutor)));
+    }
+
+    private void generateVersion(int confVersion, CompletableFuture<List<ConfigurationPart>> generatedParts) throws Throwable {
+        var success = false;
+        try {
+            log.debug("Starting global conf V{} generation", confVersion);
+
+            var configurationParts = await(generatedParts);
+            var allConfigurationParts = saveConfigurationParts(configurationParts, confVersion);
+
+            var internalSigningKey = configurationSigningKeysService.findActiveForSource(SOURCE_TYPE_INTERNAL).orElseThrow();
+            var externalSigningKey = configurationSigningKeysService.findActiveForSource(SOURCE_TYPE_EXTERNAL).orElseThrow();
+
+            var generatedConfDir = Path.of(SystemProperties.getCenterGeneratedConfDir());
+            var fingerprint = fingerprint(allConfigurationParts, internalSigningKey, externalSigningKey);
+            if (isUpToDate(generatedConfDir, confVersion, fingerprint)) {
+                log.debug("Global conf V{} has not changed, keeping the signed directories", confVersion);
+                success = true;
                 return;
             }
 
-            var success = false;
-            try {
-                log.debug("Starting global conf V{} generation", confVersion);
-
-                var configurationParts = configurationPartsGenerator.generateConfigurationParts();
-                configurationParts.forEach(gp -> configurationService
-                        .saveConfigurationPart(gp.getContentIdentifier(), gp.getFilename(), gp.getData(), confVersion));
-                var configGenerationTime = TimeUtils.now();
+            var configGenerationTime = TimeUtils.now();
+            var internalConfigurationParts = internalConfigurationParts(allConfigurationParts);
+            var externalConfigurationParts = externalConfigurationParts(allConfigurationParts);
 
-                var allConfigurationParts = toConfigurationParts(configurationService.getAllConfigurationFiles(confVersion));
-                var internalConfigurationParts = internalConfigurationParts(allConfigurationParts);
-                var externalConfigurationParts = externalConfigurationParts(allConfigurationParts);
+            var configDistributor = new ConfigurationDistributor(generatedConfDir, confVersion, configGenerationTime);
+            configDistributor.initConfLocation();
+            configDistributor.writeConfigurationFiles(allConfigurationParts);
 
-                var generatedConfDir = Path.of(SystemProperties.getCenterGeneratedConfDir());
-                var configDistributor = new ConfigurationDistributor(generatedConfDir, confVersion, configGenerationTime);
-                configDistributor.initConfLocation();
-                configDistributor.writeConfigurationFiles(allConfigurationParts);
+            writeDirectoryContentFile(configDistributor, internalConfigurationParts, internalSigningKey, getTmpInternalDirectory());
+            writeDirectoryContentFile(configDistributor, externalConfigurationParts, externalSigningKey, getTmpExternalDirectory());
 
-                var internalSigningKey = configurationSigningKeysService.findActiveForSource(SOURCE_TYPE_INTERNAL).orElseThrow();
-                var externalSigningKey = configurationSigningKeysService.findActiveForSource(SOURCE_TYPE_EXTERNAL).orElseThrow();
+            configDistributor.moveDirectoryContentFile(getTmpInternalDirectory(), getCenterInternalDirectory());
+            configDistributor.moveDirectoryContentFile(getTmpExternalDirectory(), getCenterExternalDirectory());
 
-                writeDirectoryContentFile(configDistributor, internalConfigurationParts, internalSigningKey, getTmpInternalDirectory());
-                writeDirectoryContentFile(configDistributor, externalConfigurationParts, externalSigningKey, getTmpExternalDirectory());
+            cleanUpOldConfigurations(generatedConfDir.resolve(configDistributor.getVersionSubPath()));
 
-                configDistributor.moveDirectoryContentFile(getTmpInternalDirectory(), getCenterInternalDirectory());
-                configDistributor.moveDirectoryContentFile(getTmpExternalDirectory(), getCenterExternalDirectory());
+            writeLocalCopy(confVersion, allConfigurationParts);
 
-                cleanUpOldConfigurations(generatedConfDir.resolve(configDistributor.getVersionSubPath()));
+            lastGenerations.put(confVersion,
+                    new Generation(fingerprint, configGenerationTime, generatedConfDir.resolve(configDistributor.getSubPath())));
+            log.debug("Global conf generated");
+            success = true;
+        } finally {
+            eventPublisher.publishEvent(success ? SUCCESS : FAILURE);
+        }
+    }
 
-                writeLocalCopy(confVersion, allConfigurationParts);
+    private static List<ConfigurationPart> await(CompletableFuture<List<ConfigurationPart>> generatedParts) throws Throwable {
+        try {
+            return generatedParts.join();
+        } catch (CompletionException e) {
+            throw e.getCause();
+        }
+    }
 
-                log.debug("Global conf generated");
-                success = true;
-            } finally {
-                eventPublisher.publishEvent(success ? SUCCESS : FAILURE);
+    /**
+     * Saves the generated parts whose content differs from the stored ones.
+     * @return all configuration parts of the given version
+     */
+    private Set<ConfigurationPart> saveConfigurationParts(List<ConfigurationPart> configurationParts, int confVersion) {
+        var storedFiles = configurationService.getAllConfigurationFiles(confVersion);
+        var storedData = storedFiles.stream()
+                .collect(toMap(DistributedFile::getContentIdentifier, Function.identity(), (a, b) -> a));
+
+        var changed = false;
+        for (ConfigurationPart part : configurationParts) {
+            var stored = storedData.get(part.getContentIdentifier());
+            if (stored == null || !part.getFilename().equals(stored.getFileName())
+                    || !Arrays.equals(part.getData(), stored.getFileData())) {
+                configurationService.saveConfigurationPart(part.getContentIdentifier(), part.getFilename(), part.getData(),
+                        confVersion);
+                changed = true;
             }
-        });
+        }
+        return toConfigurationParts(changed ? configurationService.getAllConfigurationFiles(confVersion) : storedFiles);
+    }
+
+    /**
+     * Hash over everything that ends up in the signed directories, apart from the generation and expiration times.
+     */
+    @SneakyThrows
+    private String fingerprint(Set<ConfigurationPart> configurationParts, ConfigurationSigningKey internalSigningKey,
+                               ConfigurationSigningKey externalSigningKey) {
+        var digest = MessageDigest.getInstance(CryptoUtils.SHA256_ID);
+        configurationParts.stream()
+                .sorted(Comparator.comparing(ConfigurationPart::getContentIdentifier))
+                .forEach(part -> {
+                    update(digest, part.getContentIdentifier());
+                    update(digest, part.getFilename());
+                    update(digest, String.valueOf(part.getData().length));
+                    digest.update(part.getData());
+                });
+        getInternalSourceContentIdentifiers().stream().sorted().forEach(id -> update(digest, id));
+        for (ConfigurationSigningKey key : List.of(internalSigningKey, externalSigningKey)) {
+            update(digest, key.getKeyIdentifier());
+            digest.update(key.getCert());
+        }
+        update(digest, systemParameterService.getInstanceIdentifier());
+        update(digest, systemParameterService.getConfHashAlgoUri());
+        update(digest, systemParameterService.getConfSignDigestAlgoId());
+        update(digest, systemParameterService.getConfSignCertHashAlgoUri());
+        update(digest, String.valueOf(systemParameterService.getConfExpireIntervalSeconds()));
+        return CryptoUtils.encodeHex(digest.digest());
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(UTF_8));
+        digest.update((byte) 0);
+    }
+
+    /**
+     * The signed directories are kept while their content has not changed, but are re-signed well before they expire and
+     * before the configuration directory they refer to becomes eligible for clean-up.
+     */
+    private boolean isUpToDate(Path generatedConfDir, int confVersion, String fingerprint) {
+        var last = lastGenerations.get(confVersion);
+        if (last == null || !last.fingerprint().equals(fingerprint)) {
+            return false;
+        }
+        var maxAgeSeconds = Math.min(systemParameterService.getConfExpireIntervalSeconds(), OLD_CONF_PRESERVING_SECONDS) / 2;
+        var versionDir = generatedConfDir.resolve("V" + confVersion);
+        return last.generatedAt().plusSeconds(maxAgeSeconds).isAfter(TimeUtils.now())
+                && Files.isDirectory(last.confDir())
+                && Files.isRegularFile(versionDir.resolve(getCenterInternalDirectory()))
+                && Files.isRegularFile(versionDir.resolve(getCenterExternalDirectory()));
     }
 
     @SneakyThrows
@@ -240,6 +387,9 @@ public class GlobalConfGenerationServiceImpl implements GlobalConfGenerationServ
                 .write(allConfigurationParts);
     }
 
+    private record Generation(String fingerprint, Instant generatedAt, Path confDir) {
+    }
+
     private static Set<String> getInternalSourceContentIdentifiers() {
         return concat(INTERNAL_SOURCE_REQUIRED_CONTENT_IDENTIFIERS.stream(),
                 getOptionalPartsConf().getAllParts().stream()
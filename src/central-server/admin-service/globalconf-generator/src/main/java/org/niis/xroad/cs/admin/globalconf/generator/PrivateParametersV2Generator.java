@@ -35,11 +35,9 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class PrivateParametersV2Generator {
     private final PrivateParametersV2Marshaller marshaller;
-    private final PrivateParametersLoader loader;
 
-    String generate() {
+    byte[] generate(PrivateParameters parameters) {
         log.debug("Generating private parameters");
-        var parameters = loader.load();
         return marshaller.marshall(parameters);
     }
 }
@@ -36,20 +36,21 @@ import org.springframework.stereotype.Component;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Marshaller;
 
-import java.io.StringWriter;
+import java.io.ByteArrayOutputStream;
 
 @Component
 class PrivateParametersV2Marshaller {
     private final JAXBContext jaxbContext = createJaxbContext();
 
     @SneakyThrows
-    String marshall(PrivateParameters parameters) {
-        var writer = new StringWriter();
+    byte[] marshall(PrivateParameters parameters) {
+        var out = new ByteArrayOutputStream();
         var marshaller = jaxbContext.createMarshaller();
         marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
         marshaller.setSchema(PrivateParametersSchemaValidatorV2.getSchema());
-        marshaller.marshal(new ObjectFactory().createConf(PrivateParametersV2Converter.INSTANCE.convert(parameters)), writer);
-        return writer.toString();
+        marshaller.marshal(new ObjectFactory().createConf(PrivateParametersV2Converter.INSTANCE.convert(parameters)),
+                out);
+        return out.toByteArray();
     }
 
     @SneakyThrows
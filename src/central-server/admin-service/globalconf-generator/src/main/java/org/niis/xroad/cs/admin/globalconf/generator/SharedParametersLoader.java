@@ -35,8 +35,6 @@ import lombok.extern.slf4j.Slf4j;
 import org.niis.xroad.cs.admin.api.domain.AuthCert;
 import org.niis.xroad.cs.admin.api.domain.ConfigurationSigningKey;
 import org.niis.xroad.cs.admin.api.domain.FlattenedSecurityServerClientView;
-import org.niis.xroad.cs.admin.api.domain.GlobalGroup;
-import org.niis.xroad.cs.admin.api.domain.GlobalGroupMember;
 import org.niis.xroad.cs.admin.api.domain.SecurityServer;
 import org.niis.xroad.cs.admin.api.dto.CertificateAuthority;
 import org.niis.xroad.cs.admin.api.dto.CertificationService;
@@ -89,6 +87,7 @@ class SharedParametersLoader {
 
     private List<SharedParameters.ConfigurationSource> getSources() {
         return configurationService.getNodeAddressesWithConfigurationSigningKeys().entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
                 .map(this::toSource)
                 .collect(toList());
     }
@@ -151,17 +150,18 @@ class SharedParametersLoader {
     }
 
     private List<SharedParameters.SecurityServer> getSecurityServers() {
+        var clientIds = clientService.findClientIdsBySecurityServer();
         return securityServerService.findAll().stream()
-                .map(this::toSecurityServer)
+                .map(ss -> toSecurityServer(ss, clientIds.getOrDefault(ss.getId(), List.of())))
                 .collect(toList());
     }
 
-    private SharedParameters.SecurityServer toSecurityServer(SecurityServer ss) {
+    private SharedParameters.SecurityServer toSecurityServer(SecurityServer ss, List<ClientId> clients) {
         var result = new SharedParameters.SecurityServer();
         result.setOwner(ss.getOwner().getIdentifier());
         result.setAddress(ss.getAddress());
         result.setServerCode(ss.getServerCode());
-        result.setClients(getSecurityServerClients(ss.getId()));
+        result.setClients(clients);
         result.setAuthCertHashes(ss.getAuthCerts().stream()
                 .map(AuthCert::getCert)
                 .map(SharedParametersLoader::certHash)
@@ -169,12 +169,6 @@ class SharedParametersLoader {
         return result;
     }
 
-    private List<ClientId> getSecurityServerClients(int id) {
-        return clientService.find(new ClientService.SearchParameters().setSecurityServerId(id))
-                .stream().map(SharedParametersLoader::toClientId).collect(toList());
-
-    }
-
     @SneakyThrows
     private static byte[] certHash(byte[] cert) {
         return CryptoUtils.certHash(cert);
@@ -188,21 +182,12 @@ class SharedParametersLoader {
     }
 
     private List<SharedParameters.GlobalGroup> getGlobalGroups() {
+        var memberIds = globalGroupMemberService.findMemberIdsByGroupCode();
         return globalGroupService.findGlobalGroups().stream()
-                .map(this::getGlobalGroup)
-                .collect(toList());
-    }
-
-    private SharedParameters.GlobalGroup getGlobalGroup(GlobalGroup globalGroup) {
-        return new SharedParameters.GlobalGroup(
-                globalGroup.getGroupCode(),
-                globalGroup.getDescription(),
-                getGroupMembers(globalGroup.getGroupCode()));
-    }
-
-    private List<ClientId> getGroupMembers(String groupCode) {
-        return globalGroupMemberService.findByGroupCode(groupCode).stream()
-                .map(GlobalGroupMember::getIdentifier)
+                .map(globalGroup -> new SharedParameters.GlobalGroup(
+                        globalGroup.getGroupCode(),
+                        globalGroup.getDescription(),
+                        memberIds.getOrDefault(globalGroup.getGroupCode(), List.of())))
                 .collect(toList());
     }
 
@@ -35,20 +35,21 @@ import org.springframework.stereotype.Component;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Marshaller;
 
-import java.io.StringWriter;
+import java.io.ByteArrayOutputStream;
 
 @Component
 class SharedParametersV2Marshaller {
     private final JAXBContext jaxbContext = createJaxbContext();
 
     @SneakyThrows
-    String marshall(SharedParameters parameters) {
-        var writer = new StringWriter();
+    byte[] marshall(SharedParameters parameters) {
+        var out = new ByteArrayOutputStream();
         var marshaller = jaxbContext.createMarshaller();
         marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
         marshaller.setSchema(SharedParametersSchemaValidatorV2.getSchema());
-        marshaller.marshal(new ObjectFactory().createConf(SharedParametersV2Converter.INSTANCE.convert(parameters)), writer);
-        return writer.toString();
+        marshaller.marshal(new ObjectFactory().createConf(SharedParametersV2Converter.INSTANCE.convert(parameters)),
+                out);
+        return out.toByteArray();
     }
 
     @SneakyThrows
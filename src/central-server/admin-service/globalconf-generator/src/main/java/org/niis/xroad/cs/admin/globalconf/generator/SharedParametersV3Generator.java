@@ -35,12 +35,9 @@ import org.springframework.stereotype.Component;
 @Slf4j
 public class SharedParametersV3Generator {
     private final SharedParametersV3Marshaller marshaller;
-    private final SharedParametersLoader loader;
 
-    String generate() {
+    byte[] generate(SharedParameters parameters) {
         log.debug("Generating shared parameters");
-        var parameters = loader.load();
-        log.trace("Shared parameters loaded: {}", parameters);
         return marshaller.marshall(parameters);
     }
 }
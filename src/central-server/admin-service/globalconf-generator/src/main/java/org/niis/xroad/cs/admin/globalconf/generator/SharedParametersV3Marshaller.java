@@ -35,7 +35,7 @@ import org.springframework.stereotype.Component;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.Marshaller;
 
-import java.io.StringWriter;
+import java.io.ByteArrayOutputStream;
 
 @Component
 public class SharedParametersV3Marshaller {
@@ -43,14 +43,14 @@ public class SharedParametersV3Marshaller {
     private final JAXBContext jaxbContext = createJaxbContext();
 
     @SneakyThrows
-    String marshall(SharedParameters parameters) {
-        var writer = new StringWriter();
+    byte[] marshall(SharedParameters parameters) {
+        var out = new ByteArrayOutputStream();
         var marshaller = jaxbContext.createMarshaller();
         marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
         marshaller.setSchema(SharedParametersSchemaValidatorV3.getSchema());
         marshaller.marshal(new ObjectFactory().createConf(SharedParametersV3Converter.INSTANCE.convert(parameters)),
-                writer);
-        return writer.toString();
+                out);
+        return out.toByteArray();
     }
 
     @SneakyThrows
@@ -34,7 +34,6 @@ import org.springframework.stereotype.Component;
 import java.util.List;
 
 import static ee.ria.xroad.common.conf.globalconf.ConfigurationConstants.CONTENT_ID_SHARED_PARAMETERS;
-import static java.nio.charset.StandardCharsets.UTF_8;
 
 @Component
 @RequiredArgsConstructor
@@ -49,17 +48,18 @@ public class V3ConfigurationsPartsGenerator implements ConfigurationPartsGenerat
         return CONFIGURATION_VERSION;
     }
 
-    public List<ConfigurationPart> generateConfigurationParts() {
+    public List<ConfigurationPart> generateConfigurationParts(SharedParameters sharedParameters,
+                                                              PrivateParameters privateParameters) {
         return List.of(
                 ConfigurationPart.builder()
                         .contentIdentifier(ConfigurationConstants.CONTENT_ID_PRIVATE_PARAMETERS)
                         .filename(ConfigurationConstants.FILE_NAME_PRIVATE_PARAMETERS)
-                        .data(privateParametersV3Generator.generate().getBytes(UTF_8))
+                        .data(privateParametersV3Generator.generate(privateParameters))
                         .build(),
                 ConfigurationPart.builder()
                         .contentIdentifier(CONTENT_ID_SHARED_PARAMETERS)
                         .filename(ConfigurationConstants.FILE_NAME_SHARED_PARAMETERS)
-                        .data(sharedParametersV3Generator.generate().getBytes(UTF_8))
+                        .data(sharedParametersV3Generator.generate(sharedParameters))
                         .build());
     }
 
@@ -0,0 +1,199 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.cs.admin.globalconf.generator;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.util.CryptoUtils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.niis.xroad.cs.admin.api.domain.ConfigurationSigningKey;
+import org.niis.xroad.cs.admin.api.domain.DistributedFile;
+import org.niis.xroad.cs.admin.api.facade.SignerProxyFacade;
+import org.niis.xroad.cs.admin.api.service.ConfigurationService;
+import org.niis.xroad.cs.admin.api.service.ConfigurationSigningKeysService;
+import org.niis.xroad.cs.admin.api.service.SystemParameterService;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static ee.ria.xroad.common.conf.globalconf.ConfigurationConstants.CONTENT_ID_PRIVATE_PARAMETERS;
+import static ee.ria.xroad.common.conf.globalconf.ConfigurationConstants.CONTENT_ID_SHARED_PARAMETERS;
+import static ee.ria.xroad.common.util.CryptoUtils.CKM_RSA_PKCS_NAME;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.niis.xroad.cs.admin.api.service.ConfigurationSigningKeysService.SOURCE_TYPE_EXTERNAL;
+import static org.niis.xroad.cs.admin.api.service.ConfigurationSigningKeysService.SOURCE_TYPE_INTERNAL;
+import static org.niis.xroad.cs.admin.globalconf.generator.GlobalConfGenerationEvent.SUCCESS;
+
+@ExtendWith(MockitoExtension.class)
+class GlobalConfGenerationServiceImplTest {
+    private static final int VERSION = 3;
+    private static final String KEY_ID = "KEY-ID";
+    private static final String HASH_ALGO_URI = "http://www.w3.org/2001/04/xmlenc#sha512";
+
+    @Mock
+    private SignerProxyFacade signerProxyFacade;
+    @Mock
+    private SystemParameterService systemParameterService;
+    @Mock
+    private ConfigurationService configurationService;
+    @Mock
+    private ConfigurationSigningKeysService configurationSigningKeysService;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private SharedParametersLoader sharedParametersLoader;
+    @Mock
+    private PrivateParametersLoader privateParametersLoader;
+    @Mock
+    private ConfigurationPartsGenerator configurationPartsGenerator;
+
+    @TempDir
+    Path tempDir;
+
+    private final Map<String, DistributedFile> storedFiles = new HashMap<>();
+    private final SharedParameters sharedParameters = new SharedParameters();
+    private final PrivateParameters privateParameters = new PrivateParameters();
+    private GlobalConfGenerationServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        System.setProperty("xroad.center.generated-conf-dir", tempDir.resolve("generated").toString());
+        System.setProperty(SystemProperties.CONFIGURATION_PATH, tempDir.resolve("globalconf").toString());
+        System.setProperty(SystemProperties.CONF_PATH, tempDir.toString());
+
+        when(configurationPartsGenerator.getConfigurationVersion()).thenReturn(VERSION);
+        when(sharedParametersLoader.load()).thenReturn(sharedParameters);
+        when(privateParametersLoader.load()).thenReturn(privateParameters);
+        when(systemParameterService.getInstanceIdentifier()).thenReturn("CS");
+        when(systemParameterService.getConfExpireIntervalSeconds()).thenReturn(600);
+        when(systemParameterService.getConfHashAlgoUri()).thenReturn(HASH_ALGO_URI);
+        when(systemParameterService.getConfSignCertHashAlgoUri()).thenReturn(HASH_ALGO_URI);
+        when(systemParameterService.getConfSignDigestAlgoId()).thenReturn(CryptoUtils.SHA512_ID);
+        var signingKey = new ConfigurationSigningKey().setKeyIdentifier(KEY_ID).setCert("SIGNING-CERT".getBytes(UTF_8));
+        when(configurationSigningKeysService.findActiveForSource(SOURCE_TYPE_INTERNAL)).thenReturn(Optional.of(signingKey));
+        when(configurationSigningKeysService.findActiveForSource(SOURCE_TYPE_EXTERNAL)).thenReturn(Optional.of(signingKey));
+        when(signerProxyFacade.getSignMechanism(KEY_ID)).thenReturn(CKM_RSA_PKCS_NAME);
+        when(signerProxyFacade.sign(eq(KEY_ID), anyString(), any())).thenReturn("<signature>".getBytes(UTF_8));
+
+        when(configurationService.getAllConfigurationFiles(VERSION)).thenAnswer(invocation -> Set.copyOf(storedFiles.values()));
+        doAnswer(invocation -> {
+            var file = new DistributedFile();
+            file.setContentIdentifier(invocation.getArgument(0));
+            file.setFileName(invocation.getArgument(1));
+            file.setFileData(invocation.getArgument(2));
+            file.setVersion(invocation.getArgument(3));
+            storedFiles.put(file.getContentIdentifier(), file);
+            return null;
+        }).when(configurationService).saveConfigurationPart(anyString(), anyString(), any(), anyInt());
+
+        service = new GlobalConfGenerationServiceImpl(signerProxyFacade, systemParameterService, configurationService,
+                configurationSigningKeysService, eventPublisher, sharedParametersLoader, privateParametersLoader,
+                List.of(configurationPartsGenerator));
+    }
+
+    @AfterEach
+    void tearDown() {
+        System.clearProperty("xroad.center.generated-conf-dir");
+        System.clearProperty(SystemProperties.CONFIGURATION_PATH);
+        System.clearProperty(SystemProperties.CONF_PATH);
+    }
+
+    @Test
+    void shouldNotResignUnchangedConfiguration() throws Exception {
+        when(configurationPartsGenerator.generateConfigurationParts(sharedParameters, privateParameters))
+                .thenReturn(parts("shared"));
+
+        service.generate();
+        service.generate();
+
+        verify(configurationService, times(2)).saveConfigurationPart(anyString(), anyString(), any(), eq(VERSION));
+        verify(signerProxyFacade, times(2)).sign(eq(KEY_ID), anyString(), any());
+        verify(eventPublisher, times(2)).publishEvent(SUCCESS);
+        assertThat(tempDir.resolve("generated").resolve("V" + VERSION).resolve(SystemProperties.getCenterInternalDirectory()))
+                .isRegularFile();
+    }
+
+    @Test
+    void shouldRegenerateChangedConfiguration() throws Exception {
+        when(configurationPartsGenerator.generateConfigurationParts(sharedParameters, privateParameters))
+                .thenReturn(parts("shared"), parts("changed"));
+
+        service.generate();
+        service.generate();
+
+        verify(configurationService, times(3)).saveConfigurationPart(anyString(), anyString(), any(), eq(VERSION));
+        verify(signerProxyFacade, times(4)).sign(eq(KEY_ID), anyString(), any());
+        assertThat(storedFiles.get(CONTENT_ID_SHARED_PARAMETERS).getFileData()).isEqualTo("changed".getBytes(UTF_8));
+    }
+
+    @Test
+    void shouldLoadParametersOncePerGeneration() throws Exception {
+        when(configurationPartsGenerator.generateConfigurationParts(sharedParameters, privateParameters))
+                .thenReturn(parts("shared"));
+
+        service.generate();
+
+        verify(sharedParametersLoader, times(1)).load();
+        verify(privateParametersLoader, times(1)).load();
+        verify(configurationPartsGenerator, times(1)).generateConfigurationParts(sharedParameters, privateParameters);
+        verify(eventPublisher).publishEvent(SUCCESS);
+    }
+
+    private static List<ConfigurationPart> parts(String sharedParameters) {
+        return List.of(
+                ConfigurationPart.builder()
+                        .contentIdentifier(CONTENT_ID_PRIVATE_PARAMETERS)
+                        .filename("private-params.xml")
+                        .data("private".getBytes(UTF_8))
+                        .build(),
+                ConfigurationPart.builder()
+                        .contentIdentifier(CONTENT_ID_SHARED_PARAMETERS)
+                        .filename("shared-params.xml")
+                        .data(sharedParameters.getBytes(UTF_8))
+                        .build());
+    }
+}
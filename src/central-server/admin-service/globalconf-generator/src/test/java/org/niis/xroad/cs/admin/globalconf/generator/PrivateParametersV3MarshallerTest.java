@@ -49,9 +49,9 @@ class PrivateParametersV3MarshallerTest {
         privateParams.getManagementService().setManagementRequestServiceProviderId(clientId);
         privateParams.setTimeStampingIntervalSeconds(60);
 
-        final String result = marshaller.marshall(privateParams);
+        final byte[] result = marshaller.marshall(privateParams);
 
-        assertThat(result).isNotBlank();
+        assertThat(result).isNotEmpty();
     }
 
     @Test
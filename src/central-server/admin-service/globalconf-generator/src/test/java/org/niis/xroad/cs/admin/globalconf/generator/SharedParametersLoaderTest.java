@@ -39,7 +39,6 @@ import org.niis.xroad.cs.admin.api.domain.AuthCert;
 import org.niis.xroad.cs.admin.api.domain.ConfigurationSigningKey;
 import org.niis.xroad.cs.admin.api.domain.FlattenedSecurityServerClientView;
 import org.niis.xroad.cs.admin.api.domain.GlobalGroup;
-import org.niis.xroad.cs.admin.api.domain.GlobalGroupMember;
 import org.niis.xroad.cs.admin.api.domain.MemberClass;
 import org.niis.xroad.cs.admin.api.domain.SecurityServer;
 import org.niis.xroad.cs.admin.api.domain.XRoadMember;
@@ -127,12 +126,12 @@ class SharedParametersLoaderTest {
         when(clientService.findAll()).thenReturn(getClients());
 
         when(securityServerService.findAll()).thenReturn(getSecurityServers());
-        when(clientService.find(new ClientService.SearchParameters().setSecurityServerId(SECURITY_SERVER_ID)))
-                .thenReturn(List.of(getFlattenedSecurityServerClientView("M2", "S1")));
+        when(clientService.findClientIdsBySecurityServer()).thenReturn(Map.of(
+                SECURITY_SERVER_ID, List.of(ClientId.Conf.create(XROAD_INSTANCE, "CLASS", "M2", "S1"))));
 
         when(globalGroupService.findGlobalGroups()).thenReturn(List.of(getGlobalGroup()));
-        when(globalGroupMemberService.findByGroupCode(GLOBAL_GROUP_CODE)).thenReturn(List.of(
-                new GlobalGroupMember(null, ClientId.Conf.create(XROAD_INSTANCE, "CLASS", "M2", "S2"))));
+        when(globalGroupMemberService.findMemberIdsByGroupCode()).thenReturn(Map.of(
+                GLOBAL_GROUP_CODE, List.of(ClientId.Conf.create(XROAD_INSTANCE, "CLASS", "M2", "S2"))));
 
         when(memberClassService.findAll()).thenReturn(List.of(new MemberClass(MEMBER_CLASS_CODE, MEMBER_CLASS_DESCRIPTION)));
         when(systemParameterService.getOcspFreshnessSeconds()).thenReturn(OCSP_FRESHNESS_SECONDS);
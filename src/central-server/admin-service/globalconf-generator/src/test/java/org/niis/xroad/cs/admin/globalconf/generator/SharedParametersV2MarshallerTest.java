@@ -44,9 +44,9 @@ class SharedParametersV2MarshallerTest {
         sharedParams.setInstanceIdentifier("CS");
         sharedParams.setGlobalSettings(new SharedParameters.GlobalSettings(null, 60));
 
-        final String result = marshaller.marshall(sharedParams);
+        final byte[] result = marshaller.marshall(sharedParams);
 
-        assertThat(result).isNotBlank();
+        assertThat(result).isNotEmpty();
     }
 
     @Test
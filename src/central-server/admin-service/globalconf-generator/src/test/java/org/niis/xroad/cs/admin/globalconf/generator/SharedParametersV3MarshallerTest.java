@@ -51,9 +51,11 @@ class SharedParametersV3MarshallerTest {
         sharedParams.setGlobalSettings(new SharedParameters.GlobalSettings(null, 60));
         sharedParams.setSources(List.of(configurationSource));
 
-        final String result = marshaller.marshall(sharedParams);
+        final byte[] result = marshaller.marshall(sharedParams);
 
-        assertThat(result).isNotBlank();
+        assertThat(result).isNotEmpty();
+        assertThat(new String(result, StandardCharsets.UTF_8)).startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"");
+        assertThat(marshaller.marshall(sharedParams)).isEqualTo(result);
     }
 
     @Test
@@ -30,11 +30,13 @@ import org.niis.xroad.cs.admin.api.service.GlobalGroupService;
 import org.niis.xroad.cs.admin.core.entity.ClientIdEntity;
 import org.niis.xroad.cs.admin.core.entity.GlobalGroupMemberEntity;
 import org.niis.xroad.cs.admin.core.entity.GlobalGroupMemberEntity_;
+import org.niis.xroad.cs.admin.core.entity.GroupMemberIdentifier;
 import org.niis.xroad.cs.admin.core.entity.XRoadIdEntity_;
 import org.niis.xroad.cs.admin.core.repository.GlobalGroupMemberRepository;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.criteria.CriteriaBuilder;
@@ -52,6 +54,11 @@ public interface JpaGlobalGroupMemberRepository
 
     List<GlobalGroupMemberEntity> findByGlobalGroupGroupCode(String groupCode);
 
+    @Query("select new org.niis.xroad.cs.admin.core.entity.GroupMemberIdentifier(m.globalGroup.groupCode, "
+            + "i.xRoadInstance, i.memberClass, i.memberCode, i.subsystemCode) "
+            + "from GlobalGroupMemberEntity m join m.identifier i order by m.id")
+    List<GroupMemberIdentifier> findAllMemberIdentifiers();
+
     default List<GlobalGroupMemberEntity> findMemberGroups(ee.ria.xroad.common.identifier.ClientId clientId) {
         return findAll(findSpecification(GlobalGroupService.Criteria.builder()
                 .instance(clientId.getXRoadInstance())
@@ -27,10 +27,19 @@
 package org.niis.xroad.cs.admin.jpa.repository;
 
 import org.niis.xroad.cs.admin.core.entity.ServerClientEntity;
+import org.niis.xroad.cs.admin.core.entity.ServerClientIdentifier;
 import org.niis.xroad.cs.admin.core.repository.ServerClientRepository;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface JpaServerClientRepository extends JpaRepository<ServerClientEntity, Integer>, ServerClientRepository {
+
+    @Query("select new org.niis.xroad.cs.admin.core.entity.ServerClientIdentifier(sc.securityServer.id, "
+            + "i.xRoadInstance, i.memberClass, i.memberCode, i.subsystemCode) "
+            + "from ServerClientEntity sc join sc.securityServerClient c join c.identifier i order by sc.id")
+    List<ServerClientIdentifier> findAllClientIdentifiers();
 }
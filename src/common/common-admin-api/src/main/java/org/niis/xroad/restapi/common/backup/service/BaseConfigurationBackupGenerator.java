@@ -69,6 +69,22 @@ public abstract class BaseConfigurationBackupGenerator {
 
         auditDataHelper.putBackupFilename(backupRepository.getAbsoluteBackupFilePath(filename));
 
+        createBackup(filename);
+
+        Optional<BackupFile> backupFile = backupService.getBackup(filename);
+        if (backupFile.isEmpty()) {
+            throw new ServiceException(BACKUP_GENERATION_FAILED);
+        }
+        return backupFile.get();
+    }
+
+    /**
+     * Creates the backup file by running the backup script.
+     *
+     * @param filename name of the backup file in the backup directory
+     * @throws InterruptedException if the thread is interrupted while waiting for the script
+     */
+    protected void createBackup(String filename) throws InterruptedException {
         try {
             var args = getScriptArgs(filename);
             log.info("Run configuration backup with command '"
@@ -83,12 +99,6 @@ public abstract class BaseConfigurationBackupGenerator {
         } catch (ProcessNotExecutableException | ProcessFailedException e) {
             throw new DeviationAwareRuntimeException(e, new ErrorDeviation(ERROR_BACKUP_GENERATION_FAILED));
         }
-
-        Optional<BackupFile> backupFile = backupService.getBackup(filename);
-        if (backupFile.isEmpty()) {
-            throw new ServiceException(BACKUP_GENERATION_FAILED);
-        }
-        return backupFile.get();
     }
 
     protected abstract String[] getScriptArgs(String backupFilename);
@@ -56,6 +56,7 @@ public enum RestApiAuditEvent {
     DISABLE_SERVICE_DESCRIPTION("Disable service description"),
     ENABLE_SERVICE_DESCRIPTION("Enable service description"),
     REFRESH_SERVICE_DESCRIPTION("Refresh service description"),
+    REFRESH_SERVICE_DESCRIPTIONS("Refresh service descriptions"),
     EDIT_SERVICE_DESCRIPTION("Edit service description"),
     EDIT_SERVICE_PARAMS("Edit service parameters"),
     ADD_REST_ENDPOINT("Add rest endpoint"),
@@ -56,6 +56,7 @@ public enum RestApiAuditProperty {
     SERVICES_DELETED,
     URL,
     URL_NEW,
+    SERVICE_DESCRIPTIONS,
 
     SERVICES,
     ID,
@@ -26,6 +26,7 @@
 package ee.ria.xroad.common.messagelog;
 
 import ee.ria.xroad.common.DiagnosticsStatus;
+import ee.ria.xroad.common.identifier.ServiceId;
 import ee.ria.xroad.common.util.JobManager;
 
 import lombok.extern.slf4j.Slf4j;
@@ -53,6 +54,17 @@ public abstract class AbstractLogManager {
 
     public abstract Map<String, DiagnosticsStatus> getDiagnosticStatus();
 
+    /**
+     * Tells whether the body of a REST message to the given service would be stored in the message log.
+     * Callers use this to avoid caching message bodies that are not logged.
+     * @param service the service of the message
+     * @param clientSide whether the message is logged by the client proxy
+     * @return true if the body may be logged
+     */
+    public boolean isBodyLogged(ServiceId service, boolean clientSide) {
+        return true;
+    }
+
     public void shutdown() {
         // NO-OP
     }
@@ -161,6 +161,8 @@ public final class MessageLogProperties {
 
     public static final String ARCHIVE_DEFAULT_ENCRYPTION_KEY = PREFIX + "archive-default-encryption-key";
 
+    public static final String ARCHIVE_ENCRYPTION_IN_PROCESS = PREFIX + "archive-encryption-in-process";
+
     public static final String MESSAGELOG_ENCRYPTION_ENABLED = PREFIX + "messagelog-encryption-enabled";
 
     public static final String MESSAGELOG_KEYSTORE = PREFIX + "messagelog-keystore";
@@ -368,6 +370,13 @@ public final class MessageLogProperties {
         return System.getProperty(ARCHIVE_DEFAULT_ENCRYPTION_KEY);
     }
 
+    /**
+     * @return true if archives are encrypted in-process (default), false if an external gpg process is used
+     */
+    public static boolean isArchiveEncryptionInProcess() {
+        return Boolean.parseBoolean(System.getProperty(ARCHIVE_ENCRYPTION_IN_PROCESS, "true"));
+    }
+
     /** @return keystore path for messagelog encryption keys or null if one is not defined */
     public static Path getMessageLogKeyStore() {
         final String property = System.getProperty(MESSAGELOG_KEYSTORE);
@@ -0,0 +1,478 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.messagelog.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.bcpg.BCPGKey;
+import org.bouncycastle.bcpg.RSAPublicBCPGKey;
+import org.bouncycastle.bcpg.RSASecretBCPGKey;
+import org.bouncycastle.gpg.keybox.KeyBlob;
+import org.bouncycastle.gpg.keybox.PublicKeyRingBlob;
+import org.bouncycastle.gpg.keybox.bc.BcKeyBox;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPPublicKeyRing;
+import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.bc.BcPGPPublicKeyRingCollection;
+import org.bouncycastle.util.encoders.Hex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-only view of a GnuPG home directory for in-process OpenPGP encryption.
+ *
+ * Public keys are read from the keybox ({@code pubring.kbx}) or from a legacy {@code pubring.gpg} keyring.
+ * The signing key is the first keyring with an unprotected RSA secret key in {@code private-keys-v1.d}, which
+ * is what {@code gpg} uses as the default key when none is configured.
+ */
+@Slf4j
+public final class GPGKeyRing {
+
+    private static final String PUBRING_KBX = "pubring.kbx";
+    private static final String PUBRING_GPG = "pubring.gpg";
+    private static final String PRIVATE_KEYS_DIR = "private-keys-v1.d";
+
+    private static final Map<Path, GPGKeyRing> CACHE = new ConcurrentHashMap<>();
+
+    private final Path gpgHome;
+    private final FileTime loadedModificationTime;
+    private final List<PGPPublicKeyRing> publicKeyRings;
+    private final List<SecretKeyMaterial> secretKeys;
+    private final PGPPublicKeyRing signingKeyRing;
+    private final PGPPublicKey signingPublicKey;
+    private final PGPPrivateKey signingKey;
+
+    private GPGKeyRing(Path gpgHome, FileTime modificationTime) throws IOException {
+        this.gpgHome = gpgHome;
+        this.loadedModificationTime = modificationTime;
+        this.publicKeyRings = readPublicKeyRings(gpgHome);
+
+        this.secretKeys = readSecretKeys(gpgHome.resolve(PRIVATE_KEYS_DIR));
+        PGPPublicKeyRing foundRing = null;
+        PGPPublicKey foundPublicKey = null;
+        PGPPrivateKey foundKey = null;
+        for (Iterator<PGPPublicKeyRing> it = publicKeyRings.iterator(); it.hasNext() && foundKey == null; ) {
+            final PGPPublicKeyRing ring = it.next();
+            for (PGPPublicKey key : ring) {
+                if (!isUsable(key)) {
+                    continue;
+                }
+                final SecretKeyMaterial secret = findSecret(secretKeys, key);
+                if (secret != null) {
+                    foundRing = ring;
+                    foundPublicKey = key;
+                    foundKey = secret.toPrivateKey(key);
+                    break;
+                }
+            }
+        }
+        if (foundKey == null) {
+            throw new IOException("No usable secret signing key found in " + gpgHome);
+        }
+        this.signingKeyRing = foundRing;
+        this.signingPublicKey = foundPublicKey;
+        this.signingKey = foundKey;
+    }
+
+    /**
+     * Returns the keyring for the given GnuPG home directory. The keyring is cached and re-read only when the
+     * public keyring or the private key directory has been modified.
+     * @param gpgHome GnuPG home directory
+     * @return keyring
+     * @throws IOException if the keyring can not be read or it does not contain a usable signing key
+     */
+    public static GPGKeyRing load(Path gpgHome) throws IOException {
+        final Path home = gpgHome.toAbsolutePath().normalize();
+        final FileTime modified = lastModified(home);
+        final GPGKeyRing cached = CACHE.get(home);
+        if (cached != null && cached.loadedModificationTime.equals(modified)) {
+            return cached;
+        }
+        log.debug("Loading OpenPGP keys from {}", home);
+        final GPGKeyRing keyRing = new GPGKeyRing(home, modified);
+        CACHE.put(home, keyRing);
+        return keyRing;
+    }
+
+    PGPPrivateKey getSigningKey() {
+        return signingKey;
+    }
+
+    PGPPublicKey getSigningPublicKey() {
+        return signingPublicKey;
+    }
+
+    /**
+     * Returns the private key for the given (sub)key id, or null if the secret key is not available.
+     */
+    PGPPrivateKey getPrivateKey(long keyId) {
+        for (PGPPublicKeyRing ring : publicKeyRings) {
+            final PGPPublicKey key = ring.getPublicKey(keyId);
+            if (key != null) {
+                final SecretKeyMaterial secret = findSecret(secretKeys, key);
+                return secret == null ? null : secret.toPrivateKey(key);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolves the encryption (sub)keys for the given recipients, using the same identifier forms that
+     * {@code gpg --recipient} accepts: a key id or fingerprint (optionally prefixed with {@code 0x}), an exact
+     * user id prefixed with {@code =}, an email address in angle brackets or a user id substring.
+     * If no recipients are given, encrypts to the signing key ({@code --default-recipient-self}).
+     * @param recipients recipient key identifiers
+     * @return encryption keys, one per recipient
+     * @throws PGPException if a recipient is not found or does not have a valid encryption key
+     */
+    List<PGPPublicKey> getEncryptionKeys(Set<String> recipients) throws PGPException {
+        if (recipients == null || recipients.isEmpty()) {
+            return Collections.singletonList(encryptionKey(signingKeyRing, "default recipient"));
+        }
+        final Set<PGPPublicKey> keys = new LinkedHashSet<>();
+        for (String recipient : recipients) {
+            final PGPPublicKeyRing ring = publicKeyRings.stream()
+                    .filter(r -> matches(r, recipient))
+                    .findFirst()
+                    .orElseThrow(() -> new PGPException("Recipient key '" + recipient + "' not found in " + gpgHome));
+            keys.add(encryptionKey(ring, recipient));
+        }
+        return new ArrayList<>(keys);
+    }
+
+    private static PGPPublicKey encryptionKey(PGPPublicKeyRing ring, String recipient) throws PGPException {
+        // prefer (the last) encryption subkey over the primary key, like gpg does
+        PGPPublicKey found = null;
+        for (PGPPublicKey key : ring) {
+            if (key.isEncryptionKey() && isUsable(key) && (found == null || !key.isMasterKey())) {
+                found = key;
+            }
+        }
+        if (found == null) {
+            throw new PGPException("No valid encryption key for recipient '" + recipient + "'");
+        }
+        return found;
+    }
+
+    private static boolean isUsable(PGPPublicKey key) {
+        if (key.hasRevocation()) {
+            return false;
+        }
+        final long validSeconds = key.getValidSeconds();
+        return validSeconds <= 0
+                || key.getCreationTime().getTime() + TimeUnit.SECONDS.toMillis(validSeconds) > System.currentTimeMillis();
+    }
+
+    private static boolean matches(PGPPublicKeyRing ring, String recipient) {
+        final String id = recipient.trim();
+        final String hex = id.toLowerCase(Locale.ROOT).replaceFirst("^0x", "").replaceFirst("!$", "");
+        if (hex.matches("[0-9a-f]{8}|[0-9a-f]{16}|[0-9a-f]{40}")) {
+            for (PGPPublicKey key : ring) {
+                final String fingerprint = Hex.toHexString(key.getFingerprint());
+                if (fingerprint.endsWith(hex)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        for (Iterator<String> it = ring.getPublicKey().getUserIDs(); it.hasNext(); ) {
+            final String userId = it.next();
+            if (id.startsWith("=")) {
+                if (userId.equals(id.substring(1))) {
+                    return true;
+                }
+            } else if (userId.toLowerCase(Locale.ROOT).contains(id.toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static FileTime lastModified(Path home) throws IOException {
+        FileTime latest = FileTime.fromMillis(0);
+        for (String name : Arrays.asList(PUBRING_KBX, PUBRING_GPG, PRIVATE_KEYS_DIR)) {
+            final Path path = home.resolve(name);
+            if (Files.exists(path)) {
+                final FileTime time = Files.getLastModifiedTime(path);
+                if (time.compareTo(latest) > 0) {
+                    latest = time;
+                }
+            }
+        }
+        return latest;
+    }
+
+    private static List<PGPPublicKeyRing> readPublicKeyRings(Path home) throws IOException {
+        final List<PGPPublicKeyRing> rings = new ArrayList<>();
+        final Path kbx = home.resolve(PUBRING_KBX);
+        final Path legacy = home.resolve(PUBRING_GPG);
+        if (Files.exists(kbx)) {
+            try (InputStream in = Files.newInputStream(kbx)) {
+                for (KeyBlob blob : new BcKeyBox(in).getKeyBlobs()) {
+                    if (blob instanceof PublicKeyRingBlob) {
+                        rings.add(((PublicKeyRingBlob) blob).getPGPPublicKeyRing());
+                    }
+                }
+            }
+        } else if (Files.exists(legacy)) {
+            try (InputStream in = PGPUtil.getDecoderStream(Files.newInputStream(legacy))) {
+                new BcPGPPublicKeyRingCollection(in).forEach(rings::add);
+            } catch (PGPException e) {
+                throw new IOException("Unable to read public keyring " + legacy, e);
+            }
+        } else {
+            throw new IOException("Public keyring not found in " + home);
+        }
+        return rings;
+    }
+
+    private static List<SecretKeyMaterial> readSecretKeys(Path dir) throws IOException {
+        final List<SecretKeyMaterial> keys = new ArrayList<>();
+        if (!Files.isDirectory(dir)) {
+            return keys;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, "*.key")) {
+            for (Path file : files) {
+                try {
+                    final SecretKeyMaterial key = SecretKeyMaterial.parse(Files.readAllBytes(file));
+                    if (key != null) {
+                        keys.add(key);
+                    } else {
+                        log.debug("Ignoring unsupported or protected secret key {}", file);
+                    }
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Unable to parse secret key {}", file, e);
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static SecretKeyMaterial findSecret(List<SecretKeyMaterial> secretKeys, PGPPublicKey key) {
+        final BCPGKey publicKey = key.getPublicKeyPacket().getKey();
+        if (!(publicKey instanceof RSAPublicBCPGKey)) {
+            return null;
+        }
+        final RSAPublicBCPGKey rsa = (RSAPublicBCPGKey) publicKey;
+        return secretKeys.stream()
+                .filter(s -> s.modulus.equals(rsa.getModulus()) && s.publicExponent.equals(rsa.getPublicExponent()))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Unprotected RSA key material from a gpg-agent key file. Both the canonical S-expression format and the
+     * extended key format (where the S-expression is in the {@code Key:} item) are supported.
+     */
+    private static final class SecretKeyMaterial {
+        private static final String KEY_ITEM = "Key:";
+
+        private final BigInteger modulus;
+        private final BigInteger publicExponent;
+        private final BigInteger privateExponent;
+        private final BigInteger p;
+        private final BigInteger q;
+
+        private SecretKeyMaterial(BigInteger n, BigInteger e, BigInteger d, BigInteger p, BigInteger q) {
+            this.modulus = n;
+            this.publicExponent = e;
+            this.privateExponent = d;
+            this.p = p;
+            this.q = q;
+        }
+
+        PGPPrivateKey toPrivateKey(PGPPublicKey publicKey) {
+            return new PGPPrivateKey(publicKey.getKeyID(), publicKey.getPublicKeyPacket(),
+                    new RSASecretBCPGKey(privateExponent, p, q));
+        }
+
+        static SecretKeyMaterial parse(byte[] data) throws IOException {
+            final List<?> expr = (List<?>) new SExpressionReader(extractKey(data)).read();
+            if (expr.size() < 2 || !"private-key".equals(atom(expr.get(0)))) {
+                // protected-private-key, shadowed-private-key (smart cards) etc.
+                return null;
+            }
+            final List<?> key = (List<?>) expr.get(1);
+            if (!"rsa".equals(atom(key.get(0)))) {
+                return null;
+            }
+            final BigInteger n = param(key, "n");
+            final BigInteger e = param(key, "e");
+            final BigInteger d = param(key, "d");
+            final BigInteger p = param(key, "p");
+            final BigInteger q = param(key, "q");
+            if (n == null || e == null || d == null || p == null || q == null) {
+                return null;
+            }
+            return new SecretKeyMaterial(n, e, d, p, q);
+        }
+
+        private static byte[] extractKey(byte[] data) {
+            if (data.length > 0 && data[0] == '(') {
+                return data;
+            }
+            // extended key format: "Name: value" items, continuation lines start with white space
+            final String text = new String(data, StandardCharsets.UTF_8);
+            final StringBuilder key = new StringBuilder();
+            boolean inKey = false;
+            for (String line : text.split("\n")) {
+                if (line.startsWith(KEY_ITEM)) {
+                    inKey = true;
+                    key.append(line.substring(KEY_ITEM.length()));
+                } else if (inKey && (line.startsWith(" ") || line.startsWith("\t"))) {
+                    key.append(line);
+                } else {
+                    inKey = false;
+                }
+            }
+            return key.toString().trim().getBytes(StandardCharsets.UTF_8);
+        }
+
+        private static BigInteger param(List<?> key, String name) {
+            for (Object item : key) {
+                if (item instanceof List && ((List<?>) item).size() == 2 && name.equals(atom(((List<?>) item).get(0)))) {
+                    return new BigInteger(1, (byte[]) ((List<?>) item).get(1));
+                }
+            }
+            return null;
+        }
+
+        private static String atom(Object o) {
+            return o instanceof byte[] ? new String((byte[]) o, StandardCharsets.US_ASCII) : null;
+        }
+    }
+
+    /**
+     * Minimal reader for canonical and advanced S-expressions. Lists are returned as {@code List<Object>},
+     * atoms as {@code byte[]}.
+     */
+    private static final class SExpressionReader {
+        private final byte[] data;
+        private int pos;
+
+        SExpressionReader(byte[] data) {
+            this.data = Objects.requireNonNull(data);
+        }
+
+        Object read() throws IOException {
+            skipWhitespace();
+            if (pos >= data.length) {
+                throw new IOException("Unexpected end of S-expression");
+            }
+            final int c = data[pos];
+            if (c == '(') {
+                pos++;
+                final List<Object> list = new ArrayList<>();
+                while (true) {
+                    skipWhitespace();
+                    if (pos >= data.length) {
+                        throw new IOException("Unterminated S-expression list");
+                    }
+                    if (data[pos] == ')') {
+                        pos++;
+                        return list;
+                    }
+                    list.add(read());
+                }
+            } else if (Character.isDigit(c)) {
+                int start = pos;
+                while (pos < data.length && Character.isDigit(data[pos])) {
+                    pos++;
+                }
+                if (pos >= data.length || data[pos] != ':') {
+                    // a bare token starting with a digit
+                    pos = start;
+                    return token();
+                }
+                final int len = Integer.parseInt(new String(data, start, pos - start, StandardCharsets.US_ASCII));
+                pos++;
+                if (pos + len > data.length) {
+                    throw new IOException("Invalid S-expression atom length");
+                }
+                final byte[] atom = Arrays.copyOfRange(data, pos, pos + len);
+                pos += len;
+                return atom;
+            } else if (c == '#') {
+                final int end = indexOf('#', pos + 1);
+                final String hex = new String(data, pos + 1, end - pos - 1, StandardCharsets.US_ASCII)
+                        .replaceAll("\\s", "");
+                pos = end + 1;
+                return Hex.decode(hex);
+            } else if (c == '"') {
+                final int end = indexOf('"', pos + 1);
+                final byte[] atom = Arrays.copyOfRange(data, pos + 1, end);
+                pos = end + 1;
+                return atom;
+            }
+            return token();
+        }
+
+        private byte[] token() {
+            final ByteArrayOutputStream token = new ByteArrayOutputStream();
+            while (pos < data.length && data[pos] != '(' && data[pos] != ')' && !Character.isWhitespace(data[pos])) {
+                token.write(data[pos++]);
+            }
+            return token.toByteArray();
+        }
+
+        private int indexOf(char c, int from) throws IOException {
+            for (int i = from; i < data.length; i++) {
+                if (data[i] == c) {
+                    return i;
+                }
+            }
+            throw new IOException("Unterminated S-expression atom");
+        }
+
+        private void skipWhitespace() {
+            while (pos < data.length && Character.isWhitespace(data[pos])) {
+                pos++;
+            }
+        }
+    }
+}
@@ -210,7 +210,10 @@ class LogArchiveCache implements Closeable {
     private void resetArchive() throws IOException {
         deleteArchiveArtifacts(null);
         archiveTmpFile = Files.createTempFile(workingDir, "tmp-mlog-", ".tmp");
-        if (encryptionConfig.isEnabled()) {
+        if (encryptionConfig.isEnabled() && MessageLogProperties.isArchiveEncryptionInProcess()) {
+            outputStream = new OpenPGPOutputStream(encryptionConfig.getGpgHomeDir(), archiveTmpFile,
+                    encryptionConfig.getEncryptionKeys());
+        } else if (encryptionConfig.isEnabled()) {
             outputStream = new GPGOutputStream(encryptionConfig.getGpgHomeDir(), archiveTmpFile,
                     encryptionConfig.getEncryptionKeys());
         } else {
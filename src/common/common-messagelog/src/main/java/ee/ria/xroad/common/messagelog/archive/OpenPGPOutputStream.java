@@ -0,0 +1,155 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.messagelog.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.bcpg.HashAlgorithmTags;
+import org.bouncycastle.bcpg.SymmetricKeyAlgorithmTags;
+import org.bouncycastle.openpgp.PGPEncryptedDataGenerator;
+import org.bouncycastle.openpgp.PGPException;
+import org.bouncycastle.openpgp.PGPLiteralData;
+import org.bouncycastle.openpgp.PGPLiteralDataGenerator;
+import org.bouncycastle.openpgp.PGPPrivateKey;
+import org.bouncycastle.openpgp.PGPPublicKey;
+import org.bouncycastle.openpgp.PGPSignature;
+import org.bouncycastle.openpgp.PGPSignatureGenerator;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentSignerBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPGPDataEncryptorBuilder;
+import org.bouncycastle.openpgp.operator.bc.BcPublicKeyKeyEncryptionMethodGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.SecureRandom;
+import java.util.Date;
+import java.util.Set;
+
+/**
+ * Outputstream that signs and encrypts the output in-process using OpenPGP.
+ *
+ * The output is equivalent to {@code gpg --encrypt --sign} with the options used by {@link GPGOutputStream}
+ * (AES-256 with integrity protection, SHA-256 signature, no compression), so it can be decrypted and verified
+ * with standard GnuPG. Data is encrypted as it is written; plaintext is never written to disk.
+ */
+@Slf4j
+public class OpenPGPOutputStream extends OutputStream {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final OutputStream fileOut;
+    private final PGPEncryptedDataGenerator encryptedDataGenerator;
+    private final OutputStream encryptedOut;
+    private final OutputStream literalOut;
+    private final PGPSignatureGenerator signatureGenerator;
+
+    private boolean closed = false;
+
+    /**
+     * Constructs a stream that encrypts and signs data using the keys in the given GnuPG home directory.
+     * @param gpgHome GnuPG home directory containing the secret key for signing.
+     * @param output Path to the output file, overwritten if present.
+     * @param encryptionKeys Zero or more encryption (recipient) key identifiers
+     * @throws IOException if the keys can not be resolved or opening the output fails
+     */
+    public OpenPGPOutputStream(Path gpgHome, Path output, Set<String> encryptionKeys) throws IOException {
+        this(GPGKeyRing.load(gpgHome), Files.newOutputStream(output), encryptionKeys);
+    }
+
+    /**
+     * Constructs a stream that encrypts and signs data to the given output stream.
+     * @param keyRing keyring containing the signing key and recipient keys
+     * @param output the underlying output stream, closed when this stream is closed
+     * @param encryptionKeys Zero or more encryption (recipient) key identifiers
+     * @throws IOException if the keys can not be resolved or writing the headers fails
+     */
+    public OpenPGPOutputStream(GPGKeyRing keyRing, OutputStream output, Set<String> encryptionKeys)
+            throws IOException {
+        this.fileOut = new BufferedOutputStream(output, BUFFER_SIZE);
+        try {
+            final PGPPrivateKey signingKey = keyRing.getSigningKey();
+
+            encryptedDataGenerator = new PGPEncryptedDataGenerator(
+                    new BcPGPDataEncryptorBuilder(SymmetricKeyAlgorithmTags.AES_256)
+                            .setWithIntegrityPacket(true)
+                            .setSecureRandom(RANDOM));
+            for (PGPPublicKey key : keyRing.getEncryptionKeys(encryptionKeys)) {
+                encryptedDataGenerator.addMethod(new BcPublicKeyKeyEncryptionMethodGenerator(key));
+            }
+            encryptedOut = encryptedDataGenerator.open(fileOut, new byte[BUFFER_SIZE]);
+
+            signatureGenerator = new PGPSignatureGenerator(new BcPGPContentSignerBuilder(
+                    signingKey.getPublicKeyPacket().getAlgorithm(), HashAlgorithmTags.SHA256));
+            signatureGenerator.init(PGPSignature.BINARY_DOCUMENT, signingKey);
+            signatureGenerator.generateOnePassVersion(false).encode(encryptedOut);
+
+            literalOut = new PGPLiteralDataGenerator().open(encryptedOut, PGPLiteralData.BINARY, "", new Date(),
+                    new byte[BUFFER_SIZE]);
+        } catch (PGPException | IOException | RuntimeException e) {
+            try {
+                fileOut.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e instanceof IOException ? (IOException) e : new IOException("Encryption failed", e);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        literalOut.write(b);
+        signatureGenerator.update((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        literalOut.write(b, off, len);
+        signatureGenerator.update(b, off, len);
+    }
+
+    /**
+     * Finishes the literal data, writes the signature and closes the underlying output.
+     * @throws IOException if writing the signature or closing the output fails
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try (OutputStream out = fileOut) {
+            literalOut.close();
+            signatureGenerator.generate().encode(encryptedOut);
+            encryptedOut.close();
+        } catch (PGPException e) {
+            log.error("Encryption failed", e);
+            throw new IOException("Encryption failed", e);
+        }
+    }
+}
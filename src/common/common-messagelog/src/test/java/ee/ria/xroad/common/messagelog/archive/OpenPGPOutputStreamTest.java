@@ -0,0 +1,192 @@
+/*
+ * The MIT License
+ *
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.messagelog.archive;
+
+import ee.ria.xroad.common.SystemProperties;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.bouncycastle.bcpg.BCPGInputStream;
+import org.bouncycastle.bcpg.PacketTags;
+import org.bouncycastle.openpgp.PGPEncryptedDataList;
+import org.bouncycastle.openpgp.PGPLiteralData;
+import org.bouncycastle.openpgp.PGPObjectFactory;
+import org.bouncycastle.openpgp.PGPOnePassSignature;
+import org.bouncycastle.openpgp.PGPOnePassSignatureList;
+import org.bouncycastle.openpgp.PGPPublicKeyEncryptedData;
+import org.bouncycastle.openpgp.PGPSignatureList;
+import org.bouncycastle.openpgp.PGPUtil;
+import org.bouncycastle.openpgp.operator.bc.BcKeyFingerprintCalculator;
+import org.bouncycastle.openpgp.operator.bc.BcPGPContentVerifierBuilderProvider;
+import org.bouncycastle.openpgp.operator.bc.BcPublicKeyDataDecryptorFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+@Slf4j
+public class OpenPGPOutputStreamTest {
+    private static final Path GPG_HOME = Paths.get("build/gpg");
+    private static final Set<String> INVALID_KEYS = Collections.singleton("AAAA");
+    private static final int PAYLOAD_SIZE = 8 * 1024 * 1024;
+
+    private Path tempDir;
+
+    @Before
+    public void before() throws IOException {
+        System.setProperty(SystemProperties.TEMP_FILES_PATH, "build/tmp");
+        tempDir = Files.createDirectories(Paths.get(SystemProperties.getTempFilesPath()));
+    }
+
+    @Test(expected = IOException.class)
+    public void shouldFailIfInvalidRecipient() throws IOException {
+        final Path path = Files.createTempFile(tempDir, null, null);
+        try (OpenPGPOutputStream out = new OpenPGPOutputStream(GPG_HOME, path, INVALID_KEYS)) {
+            out.write(42);
+        }
+    }
+
+    @Test
+    public void shouldEncryptAndSign() throws Exception {
+        final byte[] payload = payload(1024 * 1024);
+        final Path path = Files.createTempFile(tempDir, null, null);
+        try (OutputStream out = new OpenPGPOutputStream(GPG_HOME, path, null /* self as recipient */)) {
+            out.write(payload);
+        }
+
+        try (BCPGInputStream is = new BCPGInputStream(Files.newInputStream(path))) {
+            assertEquals(PacketTags.PUBLIC_KEY_ENC_SESSION, is.nextPacketTag());
+        }
+        assertArrayEquals(payload, decryptAndVerify(path));
+    }
+
+    @Test
+    public void shouldBeReadableByGnuPG() throws IOException {
+        assumeTrue(Files.isExecutable(Paths.get("/usr/bin/gpg")));
+        final Path path = Files.createTempFile(tempDir, null, null);
+        try (OutputStream out = new OpenPGPOutputStream(GPG_HOME, path, null)) {
+            out.write(42);
+        }
+
+        try (GPGInputStream is = new GPGInputStream(GPG_HOME, path)) {
+            assertEquals(42, is.read());
+            assertEquals(-1, is.read());
+        }
+    }
+
+    /**
+     * Compares the in-process encryption with the gpg subprocess. Both write the same amount of data since
+     * neither compresses it, but the in-process stream avoids the process start-up and the pipe copy.
+     */
+    @Test
+    public void compareWithSubprocess() throws IOException {
+        assumeTrue(Files.isExecutable(Paths.get("/usr/bin/gpg")));
+        final byte[] payload = payload(PAYLOAD_SIZE);
+        final int rounds = 5;
+
+        final Path inProcess = Files.createTempFile(tempDir, null, null);
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            try (OutputStream out = new OpenPGPOutputStream(GPG_HOME, inProcess, null)) {
+                out.write(payload);
+            }
+        }
+        final long inProcessNanos = System.nanoTime() - start;
+
+        final Path subprocess = Files.createTempFile(tempDir, null, null);
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            try (OutputStream out = new GPGOutputStream(GPG_HOME, subprocess, null)) {
+                out.write(payload);
+            }
+        }
+        final long subprocessNanos = System.nanoTime() - start;
+
+        log.info("In-process: {} MiB/s, {} bytes written; subprocess: {} MiB/s, {} bytes written",
+                throughput(rounds, inProcessNanos), Files.size(inProcess),
+                throughput(rounds, subprocessNanos), Files.size(subprocess));
+
+        // output overhead (session keys, signature, packet headers) should be comparable
+        assertTrue(Math.abs(Files.size(inProcess) - Files.size(subprocess)) < 4096);
+
+        try (GPGInputStream is = new GPGInputStream(GPG_HOME, inProcess)) {
+            assertArrayEquals(payload, IOUtils.toByteArray(is));
+        }
+    }
+
+    private static long throughput(int rounds, long nanos) {
+        return (long) rounds * PAYLOAD_SIZE * 1_000_000_000L / (1024 * 1024) / Math.max(nanos, 1);
+    }
+
+    private static byte[] payload(int size) {
+        final byte[] payload = new byte[size];
+        new Random(size).nextBytes(payload);
+        return payload;
+    }
+
+    private static byte[] decryptAndVerify(Path path) throws Exception {
+        final GPGKeyRing keyRing = GPGKeyRing.load(GPG_HOME);
+        try (InputStream in = PGPUtil.getDecoderStream(Files.newInputStream(path))) {
+            final PGPObjectFactory factory = new PGPObjectFactory(in, new BcKeyFingerprintCalculator());
+            final PGPEncryptedDataList encrypted = (PGPEncryptedDataList) factory.nextObject();
+            final PGPPublicKeyEncryptedData data = (PGPPublicKeyEncryptedData) encrypted.get(0);
+
+            final PGPObjectFactory plain = new PGPObjectFactory(
+                    data.getDataStream(new BcPublicKeyDataDecryptorFactory(keyRing.getPrivateKey(data.getKeyID()))),
+                    new BcKeyFingerprintCalculator());
+            final PGPOnePassSignature ops = ((PGPOnePassSignatureList) plain.nextObject()).get(0);
+            ops.init(new BcPGPContentVerifierBuilderProvider(), keyRing.getSigningPublicKey());
+
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (InputStream literal = ((PGPLiteralData) plain.nextObject()).getInputStream()) {
+                final byte[] buf = new byte[8192];
+                int count;
+                while ((count = literal.read(buf)) != -1) {
+                    ops.update(buf, 0, count);
+                    out.write(buf, 0, count);
+                }
+            }
+            assertTrue(ops.verify(((PGPSignatureList) plain.nextObject()).get(0)));
+            assertTrue(data.verify());
+            return out.toByteArray();
+        }
+    }
+}
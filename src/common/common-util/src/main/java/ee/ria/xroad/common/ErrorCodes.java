@@ -119,6 +119,7 @@ public final class ErrorCodes {
     public static final String X_ACCESS_DENIED = "AccessDenied";
     public static final String X_SERVICE_DISABLED = "ServiceDisabled";
     public static final String X_SERVICE_FAILED_X = "ServiceFailed";
+    public static final String X_SERVICE_BUSY = "ServiceBusy";
     public static final String X_MISSING_SIGNATURE = "MissingSignature";
     public static final String X_UNKNOWN_SERVICE = "UnknownService";
     public static final String X_INVALID_PROTOCOL_VERSION =
@@ -52,6 +52,10 @@ public final class SystemProperties {
     public static final String CONFIGURATION_PATH =
             PREFIX + "common.configuration-path";
 
+    /** Property name of the global configuration snapshot toggle, used to speed up process start-up. */
+    public static final String GLOBAL_CONF_SNAPSHOT_ENABLED =
+            PREFIX + "common.global-conf-snapshot-enabled";
+
     /** Current version number of the global configuration **/
     public static final int CURRENT_GLOBAL_CONFIGURATION_VERSION = 3;
 
@@ -224,6 +228,22 @@ public final class SystemProperties {
     private static final String SERVERPROXY_SUPPORT_CLIENTS_POOLED_CONNECTIONS =
             PREFIX + "proxy.server-support-clients-pooled-connections";
 
+    /** Property name of the maximum number of concurrent backend calls per service, 0 means unlimited */
+    private static final String SERVERPROXY_BACKEND_MAX_CONCURRENT_CALLS =
+            PREFIX + "proxy.server-backend-max-concurrent-calls";
+
+    /** Property name of the time to wait for a free backend call slot of a service, in milliseconds */
+    private static final String SERVERPROXY_BACKEND_QUEUE_TIMEOUT =
+            PREFIX + "proxy.server-backend-queue-timeout";
+
+    /** Property name of the maximum number of processed service descriptions cached by the metaservices */
+    private static final String SERVERPROXY_SERVICE_DESCRIPTION_CACHE_SIZE =
+            PREFIX + "proxy.server-service-description-cache-size";
+
+    /** Property name of the time a cached service description is served before revalidating it, in seconds */
+    private static final String SERVERPROXY_SERVICE_DESCRIPTION_CACHE_PERIOD =
+            PREFIX + "proxy.server-service-description-cache-period";
+
     /**
      * Property name of the idle time that connections to the clientproxy connector are initially allowed,
      * in milliseconds
@@ -288,6 +308,8 @@ public final class SystemProperties {
 
     private static final String PROXY_BACKUP_ENCRYPTION_KEY_IDS = PREFIX + "proxy.backup-encryption-keyids";
 
+    private static final String PROXY_BACKUP_STREAMING_ENABLED = PREFIX + "proxy.backup-streaming-enabled";
+
     private static final String HSM_HEALTH_CHECK_ENABLED = PREFIX + "proxy.hsm-health-check-enabled";
 
     private static final String DEFAULT_HSM_HEALTH_CHECK_ENABLED = "false";
@@ -312,6 +334,18 @@ public final class SystemProperties {
 
     private static final String DEFAULT_SERVERPROXY_SUPPORT_CLIENTS_POOLED_CONNECTIONS = "false";
 
+    private static final String DEFAULT_SERVERPROXY_BACKEND_MAX_CONCURRENT_CALLS = "0";
+
+    private static final String DEFAULT_SERVERPROXY_BACKEND_QUEUE_TIMEOUT = "1000";
+
+    private static final String DEFAULT_SERVERPROXY_SERVICE_DESCRIPTION_CACHE_SIZE = "100";
+
+    private static final String DEFAULT_SERVERPROXY_SERVICE_DESCRIPTION_CACHE_PERIOD = "60";
+
+    private static final String DEFAULT_WSDL_VALIDATOR_MAX_CONCURRENT = "4";
+
+    private static final String DEFAULT_WSDL_VALIDATOR_MAX_CONCURRENT_PER_HOST = "2";
+
     private static final String DEFAULT_CLIENTPROXY_CONNECTOR_MAX_IDLE_TIME = "0";
 
     private static final String DEFAULT_CLIENTPROXY_CONNECTOR_SO_LINGER = "-1";
@@ -527,6 +561,18 @@ public final class SystemProperties {
     public static final String WSDL_VALIDATOR_COMMAND =
             PREFIX + "proxy-ui-api.wsdl-validator-command";
 
+    /** Property name of the address (host:port) of a resident WSDL validator worker. */
+    public static final String WSDL_VALIDATOR_ADDRESS =
+            PREFIX + "proxy-ui-api.wsdl-validator-address";
+
+    /** Property name of the maximum number of concurrent WSDL validations. */
+    public static final String WSDL_VALIDATOR_MAX_CONCURRENT =
+            PREFIX + "proxy-ui-api.wsdl-validator-max-concurrent";
+
+    /** Property name of the maximum number of concurrent WSDL validations per WSDL host. */
+    public static final String WSDL_VALIDATOR_MAX_CONCURRENT_PER_HOST =
+            PREFIX + "proxy-ui-api.wsdl-validator-max-concurrent-per-host";
+
     /**
      * Property name of the signature digest algorithm ID used for generating authentication certificate
      * registration request.
@@ -620,6 +666,10 @@ public final class SystemProperties {
     public static final String ENV_MONITOR_CERTIFICATE_INFO_SENSOR_INTERVAL =
             PREFIX + "env-monitor.certificate-info-sensor-interval";
 
+    /** Property name of the maximum age of the metrics snapshot kept by the security server proxy. */
+    public static final String ENV_MONITOR_METRICS_SNAPSHOT_PERIOD =
+            PREFIX + "env-monitor.metrics-snapshot-period";
+
     public static final String ONE_DAY_AS_SECONDS = String.valueOf(24 * 60 * 60);
 
     // gRPC internal cross-component transport configuration  -------------------------- //
@@ -881,6 +931,30 @@ public final class SystemProperties {
         return System.getProperty(WSDL_VALIDATOR_COMMAND, null);
     }
 
+    /**
+     * @return address (host:port) of a resident WSDL validator worker. Defaults to null, in which case the
+     * validator command is executed for every validation.
+     */
+    public static String getWsdlValidatorAddress() {
+        return System.getProperty(WSDL_VALIDATOR_ADDRESS, null);
+    }
+
+    /**
+     * @return maximum number of concurrent WSDL validations, '4' by default
+     */
+    public static int getWsdlValidatorMaxConcurrent() {
+        return Integer.parseInt(System.getProperty(WSDL_VALIDATOR_MAX_CONCURRENT,
+                DEFAULT_WSDL_VALIDATOR_MAX_CONCURRENT));
+    }
+
+    /**
+     * @return maximum number of concurrent WSDL validations of WSDLs on the same host, '2' by default
+     */
+    public static int getWsdlValidatorMaxConcurrentPerHost() {
+        return Integer.parseInt(System.getProperty(WSDL_VALIDATOR_MAX_CONCURRENT_PER_HOST,
+                DEFAULT_WSDL_VALIDATOR_MAX_CONCURRENT_PER_HOST));
+    }
+
     /**
      * @return signature digest algorithm ID used for generating authentication certificate registration request,
      * SHA-512 by default.
@@ -903,6 +977,14 @@ public final class SystemProperties {
         return System.getProperty(TEMP_FILES_PATH, DefaultFilepaths.TEMP_FILES_PATH);
     }
 
+    /**
+     * @return whether the parsed global configuration is persisted to and restored from a snapshot next to the
+     * configuration directory, 'true' by default.
+     */
+    public static boolean isGlobalConfSnapshotEnabled() {
+        return Boolean.parseBoolean(System.getProperty(GLOBAL_CONF_SNAPSHOT_ENABLED, "true"));
+    }
+
     /**
      * @return path to the directory where OCSP responses are stored, '/var/cache/xroad/' by default.
      */
@@ -1328,6 +1410,14 @@ public final class SystemProperties {
         return Integer.parseInt(System.getProperty(ENV_MONITOR_CERTIFICATE_INFO_SENSOR_INTERVAL, ONE_DAY_AS_SECONDS));
     }
 
+    /**
+     * @return maximum age of the metrics snapshot in seconds, '5' by default. With 0 the metrics are read from the
+     * environmental monitor for every request.
+     */
+    public static int getEnvMonitorMetricsSnapshotPeriod() {
+        return Integer.parseInt(System.getProperty(ENV_MONITOR_METRICS_SNAPSHOT_PERIOD, "5"));
+    }
+
     /**
      * @return path to the file containing network statistics,
      * '/proc/net/dev' by default.
@@ -1572,6 +1662,42 @@ public final class SystemProperties {
                 DEFAULT_SERVERPROXY_SUPPORT_CLIENTS_POOLED_CONNECTIONS));
     }
 
+    /**
+     * @return the maximum number of concurrent server proxy calls to a single backend service, '0' (unlimited)
+     * by default
+     */
+    public static int getServerProxyBackendMaxConcurrentCalls() {
+        return Integer.parseInt(System.getProperty(SERVERPROXY_BACKEND_MAX_CONCURRENT_CALLS,
+                DEFAULT_SERVERPROXY_BACKEND_MAX_CONCURRENT_CALLS));
+    }
+
+    /**
+     * @return the time in milliseconds a server proxy request waits for a free backend call slot of the service
+     * before it is rejected, '1000' by default
+     */
+    public static long getServerProxyBackendQueueTimeout() {
+        return Long.parseLong(System.getProperty(SERVERPROXY_BACKEND_QUEUE_TIMEOUT,
+                DEFAULT_SERVERPROXY_BACKEND_QUEUE_TIMEOUT));
+    }
+
+    /**
+     * @return the maximum number of processed WSDL and OpenAPI descriptions cached by the metaservices,
+     * '100' by default, 0 disables the cache
+     */
+    public static int getServerProxyServiceDescriptionCacheSize() {
+        return Integer.parseInt(System.getProperty(SERVERPROXY_SERVICE_DESCRIPTION_CACHE_SIZE,
+                DEFAULT_SERVERPROXY_SERVICE_DESCRIPTION_CACHE_SIZE));
+    }
+
+    /**
+     * @return the time in seconds a cached service description is served before it is revalidated with the
+     * service provider, '60' by default
+     */
+    public static int getServerProxyServiceDescriptionCachePeriod() {
+        return Integer.parseInt(System.getProperty(SERVERPROXY_SERVICE_DESCRIPTION_CACHE_PERIOD,
+                DEFAULT_SERVERPROXY_SERVICE_DESCRIPTION_CACHE_PERIOD));
+    }
+
     public static int getClientProxyPoolTotalMaxConnections() {
         return Integer.parseInt(System.getProperty(CLIENTPROXY_POOL_TOTAL_MAX_CONNECTIONS,
                 DEFAULT_CLIENTPROXY_POOL_TOTAL_MAX_CONNECTIONS));
@@ -1716,6 +1842,14 @@ public final class SystemProperties {
         return System.getProperty(PROXY_BACKUP_ENCRYPTION_KEY_IDS, "");
     }
 
+    /**
+     * @return Whether security server backups are written in-process instead of by the backup script,
+     * 'true' by default
+     */
+    public static boolean isBackupStreamingEnabled() {
+        return "true".equalsIgnoreCase(System.getProperty(PROXY_BACKUP_STREAMING_ENABLED, "true"));
+    }
+
     /**
      * @return Whether Hardware Security Modules Healthcheck is enabled
      * 'false' by default
@@ -0,0 +1,428 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.globalconf;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.Version;
+import ee.ria.xroad.common.util.AtomicSave;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.time.OffsetDateTime;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static ee.ria.xroad.common.util.CryptoUtils.SHA256_ID;
+import static ee.ria.xroad.common.util.CryptoUtils.hexDigest;
+import static java.nio.file.attribute.PosixFilePermission.GROUP_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.OTHERS_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_EXECUTE;
+
+/**
+ * Persisted snapshot of the parsed global configuration parameters, keyed by the SHA-256 checksum of the parsed file.
+ *
+ * The configuration client verifies the signatures of the downloaded configuration before it is written to the
+ * configuration directory, so a file with a known checksum does not need to be parsed and schema validated again on
+ * start-up. The snapshot is stored next to the configuration directory with the owner, group and permissions of the
+ * directory. Before restored parameters are served, their certificates are compared with the certificates in the
+ * file; the rest of the file is re-parsed in the background and, if the result differs, the restored parameters
+ * report themselves as changed and are reloaded from the files.
+ */
+@Slf4j
+final class ConfigurationSnapshot {
+
+    static final String SUFFIX = ".snapshot";
+
+    private static final int FORMAT_VERSION = 2;
+    private static final String SHARED = "shared:";
+    private static final String PRIVATE = "private:";
+    private static final Set<PosixFilePermission> EXECUTE = EnumSet.of(OWNER_EXECUTE, GROUP_EXECUTE, OTHERS_EXECUTE);
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "globalconf-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // files (by checksum) whose snapshot entries have already been revalidated in this process
+    private static final Set<String> REVALIDATED = ConcurrentHashMap.newKeySet();
+
+    private final Path directory;
+    private final Path snapshotFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean modified = new AtomicBoolean();
+
+    private ConfigurationSnapshot(Path directory) {
+        this.directory = directory;
+        this.snapshotFile = directory.resolveSibling(directory.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Loads the snapshot of the given configuration directory. A missing, corrupt or outdated snapshot, or one whose
+     * ownership or permissions differ from the directory, results in an empty snapshot. Returns null if snapshots are
+     * disabled.
+     */
+    static ConfigurationSnapshot load(Path directory) {
+        if (!SystemProperties.isGlobalConfSnapshotEnabled()) {
+            return null;
+        }
+
+        ConfigurationSnapshot snapshot = new ConfigurationSnapshot(directory.toAbsolutePath().normalize());
+        try {
+            checkAttributes(snapshot.directory, snapshot.snapshotFile);
+            snapshot.entries.putAll(read(snapshot.snapshotFile));
+        } catch (NoSuchFileException e) {
+            log.trace("Global configuration snapshot {} does not exist", snapshot.snapshotFile);
+        } catch (Exception e) {
+            log.warn("Ignoring unusable global configuration snapshot {}: {}", snapshot.snapshotFile, e.toString());
+        }
+        return snapshot;
+    }
+
+    SharedParametersProvider loadShared(String instanceId, Path file, OffsetDateTime expiresOn) throws Exception {
+        String key = SHARED + instanceId;
+        byte[] content = Files.readAllBytes(file);
+        String checksum = hexDigest(SHA256_ID, content);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.checksum().equals(checksum)) {
+            try {
+                SharedParameters parameters = ConfigurationSnapshotFormat.decodeShared(entry.payload());
+                if (ConfigurationSnapshotFormat.certificates(parameters)
+                        .equals(ConfigurationSnapshotFormat.certificates(content))) {
+                    SnapshotSharedParameters provider = new SnapshotSharedParameters(parameters, expiresOn, file,
+                            checksum, new AtomicBoolean());
+                    log.trace("Restored SharedParameters of {} from snapshot", file);
+                    revalidate(key, entry, provider.invalid, () -> ConfigurationSnapshotFormat.encode(
+                            VersionedConfigurationDirectory.parseShared(file, expiresOn).getSharedParameters()));
+                    return provider;
+                }
+                log.warn("Certificates of SharedParameters in snapshot differ from {}", file);
+            } catch (Exception e) {
+                log.warn("Unable to restore SharedParameters of {} from snapshot: {}", file, e.toString());
+            }
+        }
+
+        SharedParametersProvider provider = VersionedConfigurationDirectory.parseShared(file, expiresOn);
+        put(key, new Entry(checksum, ConfigurationSnapshotFormat.encode(provider.getSharedParameters())));
+        return provider;
+    }
+
+    PrivateParametersProvider loadPrivate(String instanceId, Path file, OffsetDateTime expiresOn) throws Exception {
+        String key = PRIVATE + instanceId;
+        byte[] content = Files.readAllBytes(file);
+        String checksum = hexDigest(SHA256_ID, content);
+        Entry entry = entries.get(key);
+        if (entry != null && entry.checksum().equals(checksum)) {
+            try {
+                PrivateParameters parameters = ConfigurationSnapshotFormat.decodePrivate(entry.payload());
+                if (ConfigurationSnapshotFormat.certificates(parameters)
+                        .equals(ConfigurationSnapshotFormat.certificates(content))) {
+                    SnapshotPrivateParameters provider = new SnapshotPrivateParameters(parameters, expiresOn, file,
+                            checksum, new AtomicBoolean());
+                    log.trace("Restored PrivateParameters of {} from snapshot", file);
+                    revalidate(key, entry, provider.invalid, () -> ConfigurationSnapshotFormat.encode(
+                            VersionedConfigurationDirectory.parsePrivate(file, expiresOn).getPrivateParameters()));
+                    return provider;
+                }
+                log.warn("Certificates of PrivateParameters in snapshot differ from {}", file);
+            } catch (Exception e) {
+                log.warn("Unable to restore PrivateParameters of {} from snapshot: {}", file, e.toString());
+            }
+        }
+
+        PrivateParametersProvider provider = VersionedConfigurationDirectory.parsePrivate(file, expiresOn);
+        put(key, new Entry(checksum, ConfigurationSnapshotFormat.encode(provider.getPrivateParameters())));
+        return provider;
+    }
+
+    /**
+     * Drops the entries of instances that are no longer present and schedules saving of the snapshot if it has
+     * been modified.
+     */
+    void save(Set<String> instanceIds) {
+        if (entries.keySet().removeIf(key -> !instanceIds.contains(key.substring(key.indexOf(':') + 1)))) {
+            modified.set(true);
+        }
+        if (modified.get()) {
+            EXECUTOR.execute(this::write);
+        }
+    }
+
+    /**
+     * Waits until the pending revalidation and save tasks have completed.
+     */
+    static void awaitPendingTasks() throws InterruptedException, ExecutionException {
+        EXECUTOR.submit(() -> { }).get();
+    }
+
+    private void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous == null || !previous.checksum().equals(entry.checksum())) {
+            modified.set(true);
+        }
+    }
+
+    private void revalidate(String key, Entry entry, AtomicBoolean invalid, PayloadParser parser) {
+        String revalidationKey = snapshotFile + ":" + key + ":" + entry.checksum();
+        if (REVALIDATED.contains(revalidationKey)) {
+            return;
+        }
+        EXECUTOR.execute(() -> {
+            if (REVALIDATED.contains(revalidationKey)) {
+                return;
+            }
+            try {
+                if (Arrays.equals(entry.payload(), parser.parse())) {
+                    log.trace("Parameters {} restored from snapshot revalidated", key);
+                    REVALIDATED.add(revalidationKey);
+                    return;
+                }
+                log.warn("Parameters {} restored from snapshot differ from the configuration file", key);
+            } catch (Exception e) {
+                log.warn("Revalidation of parameters {} restored from snapshot failed: {}", key, e.toString());
+            }
+            invalid.set(true);
+            if (entries.remove(key, entry)) {
+                modified.set(true);
+                write();
+            }
+        });
+    }
+
+    private void write() {
+        if (!modified.getAndSet(false)) {
+            return;
+        }
+        try {
+            write(directory, snapshotFile, new HashMap<>(entries));
+            log.trace("Saved global configuration snapshot {}", snapshotFile);
+        } catch (Exception e) {
+            log.warn("Unable to save global configuration snapshot {}: {}", snapshotFile, e.toString());
+        }
+    }
+
+    /**
+     * Writes the entries to the snapshot file and gives it the owner and group of the configuration directory and
+     * the permissions of the directory without the execute bits. The snapshot is removed if that fails.
+     */
+    static void write(Path directory, Path snapshotFile, Map<String, Entry> snapshotEntries) throws Exception {
+        AtomicSave.execute(snapshotFile.toString(), "globalconf-snapshot", out -> {
+            DataOutputStream data = new DataOutputStream(out);
+            byte[] body = encode(snapshotEntries);
+            data.writeInt(FORMAT_VERSION);
+            data.writeUTF(Version.XROAD_VERSION);
+            data.writeUTF(hexDigest(SHA256_ID, body));
+            data.writeInt(body.length);
+            data.write(body);
+            data.flush();
+        });
+        try {
+            PosixFileAttributeView view = Files.getFileAttributeView(snapshotFile, PosixFileAttributeView.class);
+            if (view != null) {
+                PosixFileAttributes attributes = Files.readAttributes(directory, PosixFileAttributes.class);
+                view.setPermissions(expectedPermissions(attributes));
+                if (!view.readAttributes().group().equals(attributes.group())) {
+                    view.setGroup(attributes.group());
+                }
+                if (!view.readAttributes().owner().equals(attributes.owner())) {
+                    view.setOwner(attributes.owner());
+                }
+            }
+        } catch (IOException | UnsupportedOperationException e) {
+            Files.deleteIfExists(snapshotFile);
+            throw e;
+        }
+    }
+
+    static Map<String, Entry> read(Path snapshotFile) throws Exception {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(snapshotFile))) {
+            if (in.readInt() != FORMAT_VERSION || !Version.XROAD_VERSION.equals(in.readUTF())) {
+                throw new IOException("Snapshot was written by a different version");
+            }
+            String checksum = in.readUTF();
+            byte[] body = in.readNBytes(in.readInt());
+            if (!checksum.equals(hexDigest(SHA256_ID, body))) {
+                throw new IOException("Snapshot checksum mismatch");
+            }
+            return decode(body);
+        }
+    }
+
+    private static void checkAttributes(Path directory, Path snapshotFile) throws IOException {
+        PosixFileAttributeView view = Files.getFileAttributeView(snapshotFile, PosixFileAttributeView.class);
+        if (view == null) {
+            return;
+        }
+        PosixFileAttributes attributes = view.readAttributes();
+        PosixFileAttributes directoryAttributes = Files.readAttributes(directory, PosixFileAttributes.class);
+        if (!attributes.owner().equals(directoryAttributes.owner())
+                || !attributes.group().equals(directoryAttributes.group())
+                || !expectedPermissions(directoryAttributes).containsAll(attributes.permissions())) {
+            throw new IOException("Snapshot ownership or permissions differ from the configuration directory");
+        }
+    }
+
+    private static Set<PosixFilePermission> expectedPermissions(PosixFileAttributes directoryAttributes) {
+        Set<PosixFilePermission> permissions = EnumSet.noneOf(PosixFilePermission.class);
+        permissions.addAll(directoryAttributes.permissions());
+        permissions.removeAll(EXECUTE);
+        return permissions;
+    }
+
+    private static byte[] encode(Map<String, Entry> snapshotEntries) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(snapshotEntries.size());
+        for (Map.Entry<String, Entry> entry : snapshotEntries.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeUTF(entry.getValue().checksum());
+            out.writeInt(entry.getValue().payload().length);
+            out.write(entry.getValue().payload());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Map<String, Entry> decode(byte[] body) throws IOException {
+        ByteArrayInputStream bytes = new ByteArrayInputStream(body);
+        DataInputStream in = new DataInputStream(bytes);
+        Map<String, Entry> result = new HashMap<>();
+        for (int count = in.readInt(); count > 0; count--) {
+            String key = in.readUTF();
+            String checksum = in.readUTF();
+            int length = in.readInt();
+            if (length < 0 || length > bytes.available()) {
+                throw new IOException("Corrupt snapshot entry " + key);
+            }
+            result.put(key, new Entry(checksum, in.readNBytes(length)));
+        }
+        if (bytes.available() != 0) {
+            throw new IOException("Corrupt snapshot");
+        }
+        return result;
+    }
+
+    static String checksum(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return hexDigest(SHA256_ID, in.readAllBytes());
+        }
+    }
+
+    @FunctionalInterface
+    private interface PayloadParser {
+        byte[] parse() throws Exception;
+    }
+
+    record Entry(String checksum, byte[] payload) {
+    }
+
+    private static boolean hasChanged(Path file, String checksum, AtomicBoolean invalid) {
+        try {
+            return invalid.get() || !checksum.equals(checksum(file));
+        } catch (IOException e) {
+            return true;
+        }
+    }
+
+    private static final class SnapshotSharedParameters implements SharedParametersProvider {
+        @Getter
+        private final SharedParameters sharedParameters;
+        @Getter
+        private final OffsetDateTime expiresOn;
+        private final Path file;
+        private final String checksum;
+        private final AtomicBoolean invalid;
+
+        private SnapshotSharedParameters(SharedParameters sharedParameters, OffsetDateTime expiresOn, Path file,
+                                         String checksum, AtomicBoolean invalid) {
+            this.sharedParameters = sharedParameters;
+            this.expiresOn = expiresOn;
+            this.file = file;
+            this.checksum = checksum;
+            this.invalid = invalid;
+        }
+
+        @Override
+        public SharedParametersProvider refresh(OffsetDateTime fileExpiresOn) {
+            return new SnapshotSharedParameters(sharedParameters, fileExpiresOn, file, checksum, invalid);
+        }
+
+        @Override
+        public boolean hasChanged() {
+            return ConfigurationSnapshot.hasChanged(file, checksum, invalid);
+        }
+    }
+
+    private static final class SnapshotPrivateParameters implements PrivateParametersProvider {
+        @Getter
+        private final PrivateParameters privateParameters;
+        @Getter
+        private final OffsetDateTime expiresOn;
+        private final Path file;
+        private final String checksum;
+        private final AtomicBoolean invalid;
+
+        private SnapshotPrivateParameters(PrivateParameters privateParameters, OffsetDateTime expiresOn, Path file,
+                                          String checksum, AtomicBoolean invalid) {
+            this.privateParameters = privateParameters;
+            this.expiresOn = expiresOn;
+            this.file = file;
+            this.checksum = checksum;
+            this.invalid = invalid;
+        }
+
+        @Override
+        public PrivateParametersProvider refresh(OffsetDateTime fileExpiresOn) {
+            return new SnapshotPrivateParameters(privateParameters, fileExpiresOn, file, checksum, invalid);
+        }
+
+        @Override
+        public boolean hasChanged() {
+            return ConfigurationSnapshot.hasChanged(file, checksum, invalid);
+        }
+    }
+}
@@ -0,0 +1,542 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.globalconf;
+
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.util.XmlUtils;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.cert.CertificateEncodingException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Binary format of the parameters stored in {@link ConfigurationSnapshot}.
+ *
+ * Every field is written explicitly in declaration order: strings, byte arrays, big integers and lists are prefixed
+ * with their length (-1 for null) and nested values with a presence flag, so decoding creates only the parameter
+ * classes themselves. The certificates of the parameters can be listed both from the decoded parameters and directly
+ * from the configuration file, in document order, to verify restored parameters against the file before they are used.
+ */
+final class ConfigurationSnapshotFormat {
+
+    private static final int NULL_LENGTH = -1;
+
+    // elements that group certificates, so that a certificate moved to another CA, TSA or server is detected
+    private static final Set<String> CERTIFICATE_OWNERS = Set.of("source", "approvedCA", "topCA", "intermediateCA",
+            "ocsp", "approvedTSA", "securityServer", "configurationAnchor", "managementService");
+    private static final Set<String> CERTIFICATES = Set.of("cert", "verificationCert", "authCertHash",
+            "authCertRegServiceCert");
+
+    private ConfigurationSnapshotFormat() {
+    }
+
+    static byte[] encode(SharedParameters parameters) throws IOException {
+        Output out = new Output();
+        out.string(parameters.getInstanceIdentifier());
+        out.list(parameters.getSources(), source -> {
+            out.string(source.getAddress());
+            out.list(source.getVerificationCerts(), out::bytes);
+        });
+        out.list(parameters.getApprovedCAs(), ca -> {
+            out.string(ca.getName());
+            out.bool(ca.getAuthenticationOnly());
+            out.object(ca.getTopCA(), out::caInfo);
+            out.list(ca.getIntermediateCas(), out::caInfo);
+            out.string(ca.getCertificateProfileInfo());
+        });
+        out.list(parameters.getApprovedTSAs(), tsa -> {
+            out.string(tsa.getName());
+            out.string(tsa.getUrl());
+            out.bytes(tsa.getCert());
+        });
+        out.list(parameters.getMembers(), member -> {
+            out.object(member.getMemberClass(), out::memberClass);
+            out.string(member.getMemberCode());
+            out.string(member.getName());
+            out.list(member.getSubsystems(), subsystem -> out.string(subsystem.getSubsystemCode()));
+        });
+        out.list(parameters.getSecurityServers(), server -> {
+            out.clientId(server.getOwner());
+            out.string(server.getServerCode());
+            out.string(server.getAddress());
+            out.list(server.getAuthCertHashes(), out::bytes);
+            out.list(server.getClients(), out::clientId);
+        });
+        out.list(parameters.getGlobalGroups(), group -> {
+            out.string(group.getGroupCode());
+            out.string(group.getDescription());
+            out.list(group.getGroupMembers(), out::clientId);
+        });
+        out.object(parameters.getGlobalSettings(), settings -> {
+            out.list(settings.getMemberClasses(), out::memberClass);
+            out.integer(settings.getOcspFreshnessSeconds());
+        });
+        return out.toByteArray();
+    }
+
+    static SharedParameters decodeShared(byte[] payload) throws CertificateEncodingException, IOException {
+        Input in = new Input(payload);
+        String instanceIdentifier = in.string();
+        List<SharedParameters.ConfigurationSource> sources = in.list(() -> {
+            SharedParameters.ConfigurationSource source = new SharedParameters.ConfigurationSource();
+            source.setAddress(in.string());
+            source.setVerificationCerts(in.list(in::bytes));
+            return source;
+        });
+        List<SharedParameters.ApprovedCA> approvedCAs = in.list(() -> {
+            SharedParameters.ApprovedCA ca = new SharedParameters.ApprovedCA();
+            ca.setName(in.string());
+            ca.setAuthenticationOnly(in.bool());
+            ca.setTopCA(in.object(in::caInfo));
+            ca.setIntermediateCas(in.list(in::caInfo));
+            ca.setCertificateProfileInfo(in.string());
+            return ca;
+        });
+        List<SharedParameters.ApprovedTSA> approvedTSAs = in.list(() -> {
+            SharedParameters.ApprovedTSA tsa = new SharedParameters.ApprovedTSA();
+            tsa.setName(in.string());
+            tsa.setUrl(in.string());
+            tsa.setCert(in.bytes());
+            return tsa;
+        });
+        List<SharedParameters.Member> members = in.list(() -> {
+            SharedParameters.Member member = new SharedParameters.Member();
+            member.setMemberClass(in.object(in::memberClass));
+            member.setMemberCode(in.string());
+            member.setName(in.string());
+            member.setSubsystems(in.list(() -> {
+                SharedParameters.Subsystem subsystem = new SharedParameters.Subsystem();
+                subsystem.setSubsystemCode(in.string());
+                return subsystem;
+            }));
+            return member;
+        });
+        List<SharedParameters.SecurityServer> securityServers = in.list(() -> {
+            SharedParameters.SecurityServer server = new SharedParameters.SecurityServer();
+            server.setOwner(in.clientId());
+            server.setServerCode(in.string());
+            server.setAddress(in.string());
+            server.setAuthCertHashes(in.list(in::bytes));
+            server.setClients(in.list(in::clientId));
+            return server;
+        });
+        List<SharedParameters.GlobalGroup> globalGroups = in.list(() -> {
+            SharedParameters.GlobalGroup group = new SharedParameters.GlobalGroup();
+            group.setGroupCode(in.string());
+            group.setDescription(in.string());
+            group.setGroupMembers(in.list(in::clientId));
+            return group;
+        });
+        SharedParameters.GlobalSettings globalSettings = in.object(() -> {
+            SharedParameters.GlobalSettings settings = new SharedParameters.GlobalSettings();
+            settings.setMemberClasses(in.list(in::memberClass));
+            settings.setOcspFreshnessSeconds(in.integer());
+            return settings;
+        });
+        in.end();
+        return new SharedParameters(instanceIdentifier, sources, approvedCAs, approvedTSAs, members, securityServers,
+                globalGroups, globalSettings);
+    }
+
+    static byte[] encode(PrivateParameters parameters) throws IOException {
+        Output out = new Output();
+        out.string(parameters.getInstanceIdentifier());
+        out.list(parameters.getConfigurationAnchors(), source -> {
+            if (!(source instanceof PrivateParameters.ConfigurationAnchor anchor)) {
+                throw new IOException("Unsupported configuration anchor " + source.getClass().getName());
+            }
+            out.instant(anchor.getGeneratedAt());
+            out.string(anchor.getInstanceIdentifier());
+            out.list(anchor.getSources(), location -> {
+                out.string(location.getDownloadURL());
+                out.list(location.getVerificationCerts(), out::bytes);
+            });
+        });
+        out.object(parameters.getManagementService(), service -> {
+            out.string(service.getAuthCertRegServiceAddress());
+            out.bytes(service.getAuthCertRegServiceCert());
+            out.clientId(service.getManagementRequestServiceProviderId());
+        });
+        out.integer(parameters.getTimeStampingIntervalSeconds());
+        return out.toByteArray();
+    }
+
+    static PrivateParameters decodePrivate(byte[] payload) throws IOException {
+        Input in = new Input(payload);
+        PrivateParameters parameters = new PrivateParameters();
+        parameters.setInstanceIdentifier(in.string());
+        parameters.setConfigurationAnchors(in.list(() -> {
+            PrivateParameters.ConfigurationAnchor anchor = new PrivateParameters.ConfigurationAnchor();
+            anchor.setGeneratedAt(in.instant());
+            anchor.setInstanceIdentifier(in.string());
+            anchor.setSources(in.list(() -> {
+                PrivateParameters.Source location = new PrivateParameters.Source();
+                location.setDownloadURL(in.string());
+                location.setVerificationCerts(in.list(in::bytes));
+                return location;
+            }));
+            return anchor;
+        }));
+        parameters.setManagementService(in.object(() -> {
+            PrivateParameters.ManagementService service = new PrivateParameters.ManagementService();
+            service.setAuthCertRegServiceAddress(in.string());
+            service.setAuthCertRegServiceCert(in.bytes());
+            service.setManagementRequestServiceProviderId(in.clientId());
+            return service;
+        }));
+        parameters.setTimeStampingIntervalSeconds(in.integer());
+        in.end();
+        return parameters;
+    }
+
+    /**
+     * Lists the certificates and certificate hashes of the parameters in the order of the shared parameters schema.
+     */
+    static List<String> certificates(SharedParameters parameters) {
+        Certificates certificates = new Certificates();
+        forEach(parameters.getSources(), source -> {
+            certificates.owner("source");
+            forEach(source.getVerificationCerts(), cert -> certificates.add("verificationCert", cert));
+        });
+        forEach(parameters.getApprovedCAs(), ca -> {
+            certificates.owner("approvedCA");
+            if (ca.getTopCA() != null) {
+                certificates.owner("topCA");
+                certificates.caInfo(ca.getTopCA());
+            }
+            forEach(ca.getIntermediateCas(), intermediate -> {
+                certificates.owner("intermediateCA");
+                certificates.caInfo(intermediate);
+            });
+        });
+        forEach(parameters.getApprovedTSAs(), tsa -> {
+            certificates.owner("approvedTSA");
+            certificates.add("cert", tsa.getCert());
+        });
+        forEach(parameters.getSecurityServers(), server -> {
+            certificates.owner("securityServer");
+            forEach(server.getAuthCertHashes(), hash -> certificates.add("authCertHash", hash));
+        });
+        return certificates.tokens;
+    }
+
+    /**
+     * Lists the certificates of the parameters in the order of the private parameters schema.
+     */
+    static List<String> certificates(PrivateParameters parameters) {
+        Certificates certificates = new Certificates();
+        forEach(parameters.getConfigurationAnchors(), source -> {
+            certificates.owner("configurationAnchor");
+            if (source instanceof PrivateParameters.ConfigurationAnchor anchor) {
+                forEach(anchor.getSources(), location -> {
+                    certificates.owner("source");
+                    forEach(location.getVerificationCerts(), cert -> certificates.add("verificationCert", cert));
+                });
+            }
+        });
+        if (parameters.getManagementService() != null) {
+            certificates.owner("managementService");
+            certificates.add("authCertRegServiceCert", parameters.getManagementService().getAuthCertRegServiceCert());
+        }
+        return certificates.tokens;
+    }
+
+    /**
+     * Lists the certificates and certificate hashes of a configuration file in document order, without schema
+     * validation or conversion.
+     */
+    static List<String> certificates(byte[] file) throws IOException, SAXException {
+        Certificates certificates = new Certificates();
+        XMLReader reader = XmlUtils.createXmlReader();
+        reader.setContentHandler(new DefaultHandler() {
+            private StringBuilder text;
+
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                if (CERTIFICATE_OWNERS.contains(localName)) {
+                    certificates.owner(localName);
+                } else if (CERTIFICATES.contains(localName)) {
+                    text = new StringBuilder();
+                }
+            }
+
+            @Override
+            public void characters(char[] ch, int start, int length) {
+                if (text != null) {
+                    text.append(ch, start, length);
+                }
+            }
+
+            @Override
+            public void endElement(String uri, String localName, String qName) {
+                if (text != null && CERTIFICATES.contains(localName)) {
+                    certificates.add(localName, Base64.getMimeDecoder().decode(text.toString()));
+                    text = null;
+                }
+            }
+        });
+        reader.parse(new InputSource(new ByteArrayInputStream(file)));
+        return certificates.tokens;
+    }
+
+    private static <T> void forEach(List<T> values, Consumer<T> action) {
+        if (values != null) {
+            values.forEach(action);
+        }
+    }
+
+    private static final class Certificates {
+        private final List<String> tokens = new ArrayList<>();
+
+        void owner(String element) {
+            tokens.add("<" + element);
+        }
+
+        void add(String element, byte[] value) {
+            if (value != null) {
+                tokens.add(element + "=" + Base64.getEncoder().encodeToString(value));
+            }
+        }
+
+        void caInfo(SharedParameters.CaInfo caInfo) {
+            add("cert", caInfo.getCert());
+            forEach(caInfo.getOcsp(), ocsp -> {
+                owner("ocsp");
+                add("cert", ocsp.getCert());
+            });
+        }
+    }
+
+    @FunctionalInterface
+    private interface Writer<T> {
+        void write(T value) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Reader<T> {
+        T read() throws IOException;
+    }
+
+    private static final class Output {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        private final DataOutputStream data = new DataOutputStream(buffer);
+
+        void string(String value) throws IOException {
+            bytes(value == null ? null : value.getBytes(UTF_8));
+        }
+
+        void bytes(byte[] value) throws IOException {
+            if (value == null) {
+                data.writeInt(NULL_LENGTH);
+            } else {
+                data.writeInt(value.length);
+                data.write(value);
+            }
+        }
+
+        void bool(Boolean value) throws IOException {
+            if (value == null) {
+                data.writeByte(NULL_LENGTH);
+            } else {
+                data.writeBoolean(value);
+            }
+        }
+
+        void integer(BigInteger value) throws IOException {
+            bytes(value == null ? null : value.toByteArray());
+        }
+
+        void instant(Instant value) throws IOException {
+            data.writeBoolean(value != null);
+            if (value != null) {
+                data.writeLong(value.getEpochSecond());
+                data.writeInt(value.getNano());
+            }
+        }
+
+        void clientId(ClientId value) throws IOException {
+            data.writeBoolean(value != null);
+            if (value != null) {
+                string(value.getXRoadInstance());
+                string(value.getMemberClass());
+                string(value.getMemberCode());
+                string(value.getSubsystemCode());
+            }
+        }
+
+        void memberClass(SharedParameters.MemberClass value) throws IOException {
+            string(value.getCode());
+            string(value.getDescription());
+        }
+
+        void caInfo(SharedParameters.CaInfo value) throws IOException {
+            bytes(value.getCert());
+            list(value.getOcsp(), ocsp -> {
+                string(ocsp.getUrl());
+                bytes(ocsp.getCert());
+            });
+        }
+
+        <T> void object(T value, Writer<T> writer) throws IOException {
+            data.writeBoolean(value != null);
+            if (value != null) {
+                writer.write(value);
+            }
+        }
+
+        <T> void list(List<T> values, Writer<T> writer) throws IOException {
+            if (values == null) {
+                data.writeInt(NULL_LENGTH);
+                return;
+            }
+            data.writeInt(values.size());
+            for (T value : values) {
+                writer.write(value);
+            }
+        }
+
+        byte[] toByteArray() throws IOException {
+            data.flush();
+            return buffer.toByteArray();
+        }
+    }
+
+    private static final class Input {
+        private final ByteArrayInputStream buffer;
+        private final DataInputStream data;
+
+        Input(byte[] payload) {
+            buffer = new ByteArrayInputStream(payload);
+            data = new DataInputStream(buffer);
+        }
+
+        String string() throws IOException {
+            byte[] value = bytes();
+            return value == null ? null : new String(value, UTF_8);
+        }
+
+        byte[] bytes() throws IOException {
+            int length = length();
+            return length == NULL_LENGTH ? null : data.readNBytes(length);
+        }
+
+        Boolean bool() throws IOException {
+            byte value = data.readByte();
+            return value == NULL_LENGTH ? null : value != 0;
+        }
+
+        BigInteger integer() throws IOException {
+            byte[] value = bytes();
+            if (value != null && value.length == 0) {
+                throw new IOException("Corrupt snapshot entry");
+            }
+            return value == null ? null : new BigInteger(value);
+        }
+
+        Instant instant() throws IOException {
+            return data.readBoolean() ? Instant.ofEpochSecond(data.readLong(), data.readInt()) : null;
+        }
+
+        ClientId clientId() throws IOException {
+            if (!data.readBoolean()) {
+                return null;
+            }
+            try {
+                return ClientId.Conf.create(string(), string(), string(), string());
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Corrupt snapshot entry", e);
+            }
+        }
+
+        SharedParameters.MemberClass memberClass() throws IOException {
+            SharedParameters.MemberClass memberClass = new SharedParameters.MemberClass();
+            memberClass.setCode(string());
+            memberClass.setDescription(string());
+            return memberClass;
+        }
+
+        SharedParameters.CaInfo caInfo() throws IOException {
+            SharedParameters.CaInfo caInfo = new SharedParameters.CaInfo();
+            caInfo.setCert(bytes());
+            caInfo.setOcsp(list(() -> {
+                SharedParameters.OcspInfo ocsp = new SharedParameters.OcspInfo();
+                ocsp.setUrl(string());
+                ocsp.setCert(bytes());
+                return ocsp;
+            }));
+            return caInfo;
+        }
+
+        <T> T object(Reader<T> reader) throws IOException {
+            return data.readBoolean() ? reader.read() : null;
+        }
+
+        <T> List<T> list(Reader<T> reader) throws IOException {
+            int size = length();
+            if (size == NULL_LENGTH) {
+                return null;
+            }
+            List<T> values = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                values.add(reader.read());
+            }
+            return values;
+        }
+
+        void end() throws IOException {
+            if (buffer.available() != 0) {
+                throw new IOException("Corrupt snapshot entry");
+            }
+        }
+
+        // every value takes at least one byte, so a length or count cannot exceed the remaining input
+        private int length() throws IOException {
+            int length = data.readInt();
+            if (length < NULL_LENGTH || length > buffer.available()) {
+                throw new IOException("Corrupt snapshot entry");
+            }
+            return length;
+        }
+    }
+}
@@ -73,6 +73,7 @@ public class SharedParameters {
     private final Map<SecurityServerId, Set<ClientId>> securityServerClients = new HashMap<>();
     private final Set<String> knownAddresses = new HashSet<>();
     private final Map<SecurityServerId, SecurityServer> securityServersById = new HashMap<>();
+    private final Map<ClientId, String> memberNames = new HashMap<>();
 
     public SharedParameters(String instanceIdentifier, List<ConfigurationSource> sources, List<ApprovedCA> approvedCAs,
                             List<ApprovedTSA> approvedTSAs, List<Member> members, List<SecurityServer> securityServers,
@@ -90,6 +91,7 @@ public class SharedParameters {
         cacheCaCerts();
         cacheKnownAddresses();
         cacheSecurityServers();
+        cacheMemberNames();
     }
 
     private void cacheCaCerts() throws CertificateEncodingException, IOException {
@@ -166,6 +168,14 @@ public class SharedParameters {
         }
     }
 
+    private void cacheMemberNames() {
+        for (Member member : members) {
+            memberNames.putIfAbsent(
+                    ClientId.Conf.create(instanceIdentifier, member.getMemberClass().getCode(), member.getMemberCode()),
+                    member.getName());
+        }
+    }
+
     private void addServerClient(ClientId client, SecurityServer server) {
         // Add the mapping from client to security server address.
         if (isNotBlank(server.getAddress())) {
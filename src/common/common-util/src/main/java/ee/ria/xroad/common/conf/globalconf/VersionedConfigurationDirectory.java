@@ -43,10 +43,14 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.cert.CertificateEncodingException;
 import java.time.OffsetDateTime;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
@@ -66,6 +70,8 @@ import static java.lang.String.valueOf;
 @Immutable
 public class VersionedConfigurationDirectory implements ConfigurationDirectory {
 
+    private static final AtomicLong CONTENT_VERSIONS = new AtomicLong();
+
     @Getter
     private final Path path;
 
@@ -75,6 +81,18 @@ public class VersionedConfigurationDirectory implements ConfigurationDirectory {
     protected final Map<String, PrivateParametersProvider> privateParameters;
     protected final Map<String, SharedParametersProvider> sharedParameters;
 
+    private final ConfigurationSnapshot snapshot;
+
+    /**
+     * Version of the loaded parameter content. Stays the same across reloads that reuse all parameters
+     * of the base directory, and changes whenever any parameters are parsed again.
+     */
+    @Getter
+    private final long contentVersion;
+
+    // set while loading, if any parameters were parsed instead of reused
+    private boolean reparsed;
+
     // ------------------------------------------------------------------------
 
     /**
@@ -86,10 +104,13 @@ public class VersionedConfigurationDirectory implements ConfigurationDirectory {
         this.path = Paths.get(directoryPath);
 
         instanceIdentifier = loadInstanceIdentifier();
+        snapshot = ConfigurationSnapshot.load(path);
 
         // empty maps as placeholders
         privateParameters = Map.copyOf(loadPrivateParameters(new HashMap<>()));
         sharedParameters = Map.copyOf(loadSharedParameters(new HashMap<>()));
+        contentVersion = CONTENT_VERSIONS.incrementAndGet();
+        saveSnapshot();
     }
 
     /**
@@ -102,9 +123,12 @@ public class VersionedConfigurationDirectory implements ConfigurationDirectory {
         this.path = Paths.get(directoryPath);
 
         instanceIdentifier = loadInstanceIdentifier();
+        snapshot = path.equals(base.path) ? base.snapshot : ConfigurationSnapshot.load(path);
 
         privateParameters = Map.copyOf(loadPrivateParameters(base.privateParameters));
         sharedParameters = Map.copyOf(loadSharedParameters(base.sharedParameters));
+        contentVersion = reparsed ? CONTENT_VERSIONS.incrementAndGet() : base.contentVersion;
+        saveSnapshot();
     }
 
     /**
@@ -138,9 +162,10 @@ public class VersionedConfigurationDirectory implements ConfigurationDirectory {
                     parametersToUse = existingParameters.refresh(fileExpiresOn);
                 } else {
                     log.trace("Reloading PrivateParameters from {} ", privateParametersPath);
-                    parametersToUse = isCurrentVersion(privateParametersPath)
-                            ? new PrivateParametersV3(privateParametersPath, fileExpiresOn)
-                            : new PrivateParametersV2(privateParametersPath, fileExpiresOn);
+                    reparsed = true;
+                    parametersToUse = snapshot != null
+                            ? snapshot.loadPrivate(instanceId, privateParametersPath, fileExpiresOn)
+                            : parsePrivate(privateParametersPath, fileExpiresOn);
                 }
                 basePrivateParams.put(instanceId, parametersToUse);
             } catch (Exception e) {
@@ -183,9 +208,10 @@ public class VersionedConfigurationDirectory implements ConfigurationDirectory {
                     parametersToUse = existingParameters.refresh(fileExpiresOn);
                 } else {
                     log.trace("Reloading SharedParameters from {} ", sharedParametersPath);
-                    parametersToUse = isCurrentVersion(sharedParametersPath)
-                            ? new SharedParametersV3(sharedParametersPath, fileExpiresOn)
-                            : new SharedParametersV2(sharedParametersPath, fileExpiresOn);
+                    reparsed = true;
+                    parametersToUse = snapshot != null
+                            ? snapshot.loadShared(instanceId, sharedParametersPath, fileExpiresOn)
+                            : parseShared(sharedParametersPath, fileExpiresOn);
                 }
                 baseSharedParams.put(instanceId, parametersToUse);
             } catch (Exception e) {
@@ -196,6 +222,27 @@ public class VersionedConfigurationDirectory implements ConfigurationDirectory {
         }
     }
 
+    static PrivateParametersProvider parsePrivate(Path privateParametersPath, OffsetDateTime fileExpiresOn) {
+        return isCurrentVersion(privateParametersPath)
+                ? new PrivateParametersV3(privateParametersPath, fileExpiresOn)
+                : new PrivateParametersV2(privateParametersPath, fileExpiresOn);
+    }
+
+    static SharedParametersProvider parseShared(Path sharedParametersPath, OffsetDateTime fileExpiresOn)
+            throws CertificateEncodingException, IOException {
+        return isCurrentVersion(sharedParametersPath)
+                ? new SharedParametersV3(sharedParametersPath, fileExpiresOn)
+                : new SharedParametersV2(sharedParametersPath, fileExpiresOn);
+    }
+
+    private void saveSnapshot() {
+        if (snapshot != null) {
+            Set<String> instanceIds = new HashSet<>(privateParameters.keySet());
+            instanceIds.addAll(sharedParameters.keySet());
+            snapshot.save(instanceIds);
+        }
+    }
+
     /**
      * Returns private parameters for a given instance identifier.
      * @param instanceId the instance identifier
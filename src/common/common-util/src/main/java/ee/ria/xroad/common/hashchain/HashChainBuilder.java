@@ -28,14 +28,18 @@ package ee.ria.xroad.common.hashchain;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBElement;
-import javax.xml.bind.Marshaller;
+import javax.xml.crypto.dsig.XMLSignature;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import java.io.StringWriter;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 import static ee.ria.xroad.common.hashchain.DigestList.digestHashStep;
@@ -61,11 +65,16 @@ import static java.lang.Integer.numberOfLeadingZeros;
  * children can be calculated from the parent.
  * See http://en.wikipedia.org/wiki/Binary_tree#Arrays for details.
  *
- * Physically, the tree is stored in two separate arrays: inputs (leaf nodes)
- * and nodes (non-leaf nodes). In terms of index calculations these are
+ * Physically, the tree is stored in two separate flat byte arrays: inputs
+ * (leaf nodes, addressed through an offset table) and nodes (non-leaf nodes,
+ * each digest length bytes). In terms of index calculations these are
  * treated as a single array consisting of nodes+inputs.
  *
- * For incomplete binary trees, some inputs and nodes can be null.
+ * For incomplete binary trees, some inputs and nodes can be missing.
+ *
+ * The hash steps are DER-encoded into a reusable buffer and the XML output is
+ * written with a streaming writer, so building the tree and the chains does
+ * not allocate per node.
  */
 public final class HashChainBuilder {
 
@@ -74,8 +83,25 @@ public final class HashChainBuilder {
     private static final Logger LOG =
             LoggerFactory.getLogger(HashChainBuilder.class);
 
-    /** For accessing JAXB functionality. Shared between all the builders. */
-    private static JAXBContext jaxbCtx;
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private static final String XML_DECLARATION =
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+    private static final String NS_HASHCHAIN = "http://cyber.ee/hashchain";
+    private static final String NS_DSIG = XMLSignature.XMLNS;
+    private static final String PREFIX_DSIG = "ds";
+
+    /** DER tags used in the DigestList structure. */
+    private static final int DER_SEQUENCE = 0x30;
+    private static final int DER_OCTET_STRING = 0x04;
+    private static final int DER_UTF8_STRING = 0x0c;
+    private static final int DER_MAX_SHORT_LENGTH = 0x7f;
+    private static final int DER_LONG_LENGTH = 0x80;
+    private static final int BYTE_MASK = 0xff;
+    private static final int BYTE_BITS = 8;
+
+    private static final int INITIAL_CAPACITY = 16;
 
     /**
      * Index of the root of the tree.
@@ -90,8 +116,29 @@ public final class HashChainBuilder {
     /** Hash algorithm URI used in XML. */
     private final String hashAlgorithmUri;
 
-    /** Array of input hashes. */
-    private final List<byte[]> inputs = new ArrayList<>();
+    /** Digest used for hashing the tree nodes. */
+    private final MessageDigest digest;
+
+    /** Length of the tree node digests. */
+    private final int digestLength;
+
+    /**
+     * DER encoding of the SingleDigest fields following the digest value:
+     * the digest method URI and the empty transforms sequence.
+     */
+    private final byte[] singleDigestSuffix;
+
+    /** Buffer for DER-encoding a hash step. */
+    private byte[] stepBuffer = new byte[0];
+
+    /** Input hashes, concatenated. */
+    private byte[] inputData;
+
+    /** Offsets of the input hashes in inputData; input i ends where input i + 1 starts. */
+    private int[] inputOffsets = new int[INITIAL_CAPACITY + 1];
+
+    /** Number of input hashes. */
+    private int inputCount;
 
     /**
      * If an input consisted of multipart (message + attachments),
@@ -102,17 +149,17 @@ public final class HashChainBuilder {
     /** The file name to be used for data refs. */
     private String dataRefFileName;
 
-    /** Array of intermediate Merkle tree nodes. */
-    private byte[][] nodes;
+    /** Intermediate Merkle tree nodes, digestLength bytes each. */
+    private byte[] nodes;
 
-    /** Maximum index a tree node can have. */
-    private int maxIndex;
+    /** Marks the intermediate nodes that have been computed. */
+    private boolean[] nodePresent;
 
-    /** Used for serializing XML objects. */
-    private Marshaller marshaller;
+    /** Number of intermediate nodes. */
+    private int nodeCount;
 
-    /** Factory for creating XML objects. */
-    private ObjectFactory objectFactory = new ObjectFactory();
+    /** Maximum index a tree node can have. */
+    private int maxIndex;
 
     /**
      * Constructs a hash chain builder.
@@ -126,9 +173,19 @@ public final class HashChainBuilder {
         this.hashAlgorithm = hashAlgorithm;
         hashAlgorithmUri = getDigestAlgorithmURI(hashAlgorithm);
 
-        marshaller = jaxbCtx.createMarshaller();
-        // Format the XML, good for debugging.
-        marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
+        digest = MessageDigest.getInstance(hashAlgorithm);
+        digestLength = digest.getDigestLength();
+        inputData = new byte[INITIAL_CAPACITY * digestLength];
+
+        byte[] uri = hashAlgorithmUri.getBytes(StandardCharsets.UTF_8);
+        singleDigestSuffix = new byte[1 + lengthOfLength(uri.length) + uri.length + 2];
+        int pos = 0;
+        singleDigestSuffix[pos++] = DER_UTF8_STRING;
+        pos = writeLength(singleDigestSuffix, pos, uri.length);
+        System.arraycopy(uri, 0, singleDigestSuffix, pos, uri.length);
+        pos += uri.length;
+        singleDigestSuffix[pos++] = DER_SEQUENCE;
+        singleDigestSuffix[pos] = 0;
     }
 
     /**
@@ -140,7 +197,7 @@ public final class HashChainBuilder {
             throw new IllegalStateException(
                     "Cannot add inputs to finished tree");
         }
-        inputs.add(hash);
+        appendInput(hash);
     }
 
     /**
@@ -157,13 +214,25 @@ public final class HashChainBuilder {
         }
 
         if (hashes.length == 1) {
-            inputs.add(hashes[0]);
+            appendInput(hashes[0]);
         } else {
             // Digest the attachments and add a single input.
-            inputs.add(digestHashStep(hashAlgorithm, hashes));
+            appendInput(digestHashStep(hashAlgorithm, hashes));
             // Record the original inputs in separate map.
-            multiparts.put(inputs.size() - 1, hashes);
+            multiparts.put(inputCount - 1, hashes);
+        }
+    }
+
+    private void appendInput(byte[] hash) {
+        if (inputCount + 1 >= inputOffsets.length) {
+            inputOffsets = Arrays.copyOf(inputOffsets, inputOffsets.length * 2);
+        }
+        int start = inputOffsets[inputCount];
+        if (start + hash.length > inputData.length) {
+            inputData = Arrays.copyOf(inputData, Math.max(inputData.length * 2, start + hash.length));
         }
+        System.arraycopy(hash, 0, inputData, start, hash.length);
+        inputOffsets[++inputCount] = start + hash.length;
     }
 
     /**
@@ -172,14 +241,16 @@ public final class HashChainBuilder {
      */
     public void finishBuilding() throws Exception {
         // Create array for intermediate nodes.
-        nodes = new byte[getNodesCount()][];
+        nodeCount = getNodesCount();
+        nodes = new byte[nodeCount * digestLength];
+        nodePresent = new boolean[nodeCount];
 
         // For special cases of 0 or 1 inputs, we behave differently.
-        if (inputs.size() < 2) {
+        if (inputCount < 2) {
             return;
         }
 
-        maxIndex = nodes.length + inputs.size();
+        maxIndex = nodeCount + inputCount;
 
         // Hash input data items to produce lowest level of non-leaf nodes.
         hashInputs();
@@ -206,24 +277,26 @@ public final class HashChainBuilder {
             throw new IllegalStateException("Tree must be finished");
         }
 
-        if (inputs.isEmpty()) {
+        if (inputCount == 0) {
             // Nothing to do for empty tree.
             return null;
         }
 
-        if (inputs.size() == 1 && multiparts.isEmpty()) {
+        if (inputCount == 1 && multiparts.isEmpty()) {
             throw new IllegalStateException(
                     "Hash chains cannot be constructed for single input "
                             + "without attachments.");
         }
 
-        HashChainResultType result = new HashChainResultType();
-
-        result.setDigestValue(getTreeTop());
-        result.setDigestMethod(digestMethod());
-        result.setURI(hashChainFileName + "#" + STEP + "0");
-
-        return elementToString(objectFactory.createHashChainResult(result));
+        return writeDocument(xml -> {
+            startElement(xml, "HashChainResult");
+            writeNamespaces(xml);
+            xml.writeAttribute("URI", hashChainFileName + "#" + STEP + "0");
+            xml.writeEmptyElement(PREFIX_DSIG, "DigestMethod", NS_DSIG);
+            xml.writeAttribute("Algorithm", hashAlgorithmUri);
+            writeDigestValue(xml, getTreeTop());
+            xml.writeEndElement();
+        });
     }
 
     /**
@@ -237,11 +310,11 @@ public final class HashChainBuilder {
             throw new IllegalStateException("Tree must be finished");
         }
 
-        if (inputs.isEmpty()) {
+        if (inputCount == 0) {
             return null;
         }
 
-        if (inputs.size() == 1 && multiparts.isEmpty()) {
+        if (inputCount == 1 && multiparts.isEmpty()) {
             throw new IllegalStateException(
                     "Hash chains cannot be constructed for single input "
                             + "without attachments.");
@@ -253,10 +326,10 @@ public final class HashChainBuilder {
                     "dataRefFileName must not be null");
         }
 
-        String[] ret = new String[inputs.size()];
+        String[] ret = new String[inputCount];
 
-        if (inputs.size() > 1) {
-            for (int i = 0; i < inputs.size(); ++i) {
+        if (inputCount > 1) {
+            for (int i = 0; i < inputCount; ++i) {
                 ret[i] = makeHashChain(i);
             }
         } else {
@@ -270,9 +343,9 @@ public final class HashChainBuilder {
     /**
      * Hashes the non-leaf nodes of the tree, breadth-first, bottom-up.
      */
-    private void hashNodes() throws Exception {
+    private void hashNodes() throws DigestException {
         // levelStart -- index of first node for this level (depth)
-        for (int levelStart = nodes.length / 2; levelStart > 0;
+        for (int levelStart = nodeCount / 2; levelStart > 0;
                 levelStart /= 2) {
             // End of nodes for this level.
             int levelEnd = levelStart * 2;
@@ -280,16 +353,14 @@ public final class HashChainBuilder {
             LOG.trace("Combining: {}-{}", levelStart, levelEnd);
             // Walk through the pairs in this level.
             for (int i = levelStart;
-                    i < levelEnd && nodes[i] != null && nodes[i + 1] != null;
+                    i < levelEnd && isPresent(i) && isPresent(i + 1);
                     i += 2) {
                 // Combine nodes[i] and nodes[i + 1]
                 LOG.trace("Nodes: Combining {} and {}", i, i + 1);
-                byte[] stepDigest = digestHashStep(hashAlgorithm,
-                        nodes[i], nodes[i + 1]);
 
                 // Store the digest as parent of two inputs.
                 LOG.trace("Storing at {}", parentIdx(i));
-                nodes[parentIdx(i)] = stepDigest;
+                hashStep(i, i + 1, parentIdx(i));
             }
         }
     }
@@ -298,32 +369,105 @@ public final class HashChainBuilder {
      * Walks over pairs of inputs and combines them to create lowest
      * level of non-leaf nodes.
      */
-    private void hashInputs() throws Exception {
-        for (int i = 0; i < inputs.size() - 1; i += 2) {
+    private void hashInputs() throws DigestException {
+        for (int i = 0; i < inputCount - 1; i += 2) {
             // Compute the index for nodes.
-            int itemIdx = nodes.length + i;
+            int itemIdx = nodeCount + i;
 
             // Combine inputs[i] and inputs[i + 1]
             LOG.trace("Inputs: Combining {} and {}", i, i + 1);
-            byte[] stepDigest = digestHashStep(hashAlgorithm,
-                    inputs.get(i), inputs.get(i + 1));
 
             // Store the digest as parent of two inputs.
             LOG.trace("Storing at {}", parentIdx(itemIdx));
-            nodes[parentIdx(itemIdx)] = stepDigest;
+            hashStep(itemIdx, itemIdx + 1, parentIdx(itemIdx));
+        }
+    }
+
+    /**
+     * Combines the values at leftIdx and rightIdx into a DigestList, hashes
+     * it and stores the result as the intermediate node targetIdx.
+     */
+    private void hashStep(int leftIdx, int rightIdx, int targetIdx)
+            throws DigestException {
+        int leftLength = valueLength(leftIdx);
+        int rightLength = valueLength(rightIdx);
+        int contentLength = singleDigestLength(leftLength)
+                + singleDigestLength(rightLength);
+        int totalLength = 1 + lengthOfLength(contentLength) + contentLength;
+
+        if (stepBuffer.length < totalLength) {
+            stepBuffer = new byte[totalLength];
         }
+
+        int pos = 0;
+        stepBuffer[pos++] = DER_SEQUENCE;
+        pos = writeLength(stepBuffer, pos, contentLength);
+        pos = writeSingleDigest(pos, leftIdx, leftLength);
+        pos = writeSingleDigest(pos, rightIdx, rightLength);
+
+        digest.update(stepBuffer, 0, pos);
+        digest.digest(nodes, targetIdx * digestLength, digestLength);
+        nodePresent[targetIdx] = true;
+    }
+
+    /**
+     * Writes the SingleDigest structure for the value at index.
+     */
+    private int writeSingleDigest(int pos, int index, int length) {
+        int innerLength = 1 + lengthOfLength(length) + length
+                + singleDigestSuffix.length;
+
+        stepBuffer[pos++] = DER_SEQUENCE;
+        pos = writeLength(stepBuffer, pos, innerLength);
+        stepBuffer[pos++] = DER_OCTET_STRING;
+        pos = writeLength(stepBuffer, pos, length);
+        System.arraycopy(valueArray(index), valueOffset(index), stepBuffer, pos, length);
+        pos += length;
+        System.arraycopy(singleDigestSuffix, 0, stepBuffer, pos,
+                singleDigestSuffix.length);
+        return pos + singleDigestSuffix.length;
+    }
+
+    private int singleDigestLength(int digestValueLength) {
+        int innerLength = 1 + lengthOfLength(digestValueLength)
+                + digestValueLength + singleDigestSuffix.length;
+        return 1 + lengthOfLength(innerLength) + innerLength;
+    }
+
+    private static int lengthOfLength(int length) {
+        if (length <= DER_MAX_SHORT_LENGTH) {
+            return 1;
+        }
+        return 1 + lengthBytes(length);
+    }
+
+    private static int lengthBytes(int length) {
+        return (INTEGER_BITS - numberOfLeadingZeros(length) + BYTE_BITS - 1) / BYTE_BITS;
+    }
+
+    private static int writeLength(byte[] buffer, int pos, int length) {
+        if (length <= DER_MAX_SHORT_LENGTH) {
+            buffer[pos++] = (byte) length;
+            return pos;
+        }
+        int count = lengthBytes(length);
+        buffer[pos++] = (byte) (DER_LONG_LENGTH | count);
+        for (int i = count - 1; i >= 0; --i) {
+            buffer[pos++] = (byte) ((length >>> (i * BYTE_BITS)) & BYTE_MASK);
+        }
+        return pos;
     }
 
     /**
      * Returns the topmost hash of the Merkle tree.
      */
     byte[] getTreeTop() {
-        if (inputs.size() == 1) {
+        if (inputCount == 1) {
             // For single input, we do not build the nodes array
             // and directly return the input.
-            return inputs.get(0);
+            return value(nodeCount);
         } else {
-            return nodes[ROOT_IDX];
+            return value(ROOT_IDX);
         }
     }
 
@@ -331,25 +475,23 @@ public final class HashChainBuilder {
      * For incomplete trees, the hashInputs and hashNodes methods did not
      * create the necessary intermediate nodes. This method walks the tree,
      * discovers the missing nodes and, if necessary, creates them.
-     * @return the hash of the fixed tree node.
+     * @return index of the node holding the hash of the fixed tree node,
+     * or -1 if the subtree is empty.
      */
-    private byte[] fixTree(int nodeIdx) throws Exception {
+    private int fixTree(int nodeIdx) throws DigestException {
         LOG.trace("fixTree({})", nodeIdx);
 
         if (nodeIdx >= maxIndex) {
             // Let's not go infinitely deep.
-            return null;
+            return -1;
         }
 
-        if (get(nodeIdx) != null) {
+        if (isPresent(nodeIdx)) {
             // There's nothing to fix, just return the node.
-            return get(nodeIdx);
+            return nodeIdx;
         }
 
-        // Value of the left subtree.
-        byte[] leftValue = get(leftIdx(nodeIdx));
-
-        if (leftValue == null) {
+        if (!isPresent(leftIdx(nodeIdx))) {
             // No left child. In this case, we'll just go down to the
             // left subtree until we find something.
             return fixTree(leftIdx(nodeIdx));
@@ -358,52 +500,68 @@ public final class HashChainBuilder {
         // To get value of the right subtree, we call fixTree recursively.
         // This handles situations where there are nodes missing on some
         // levels.
-        byte[] rightValue = fixTree(rightIdx(nodeIdx));
-        if (rightValue == null) {
+        int rightValueIdx = fixTree(rightIdx(nodeIdx));
+        if (rightValueIdx < 0) {
             // We fould nothing on the right subtree. Just return value
             // of the left subtree.
             LOG.trace("{} -> left({})", nodeIdx, leftIdx(nodeIdx));
-            return leftValue;
+            return leftIdx(nodeIdx);
         }
 
         // We have values from both left and right subtrees.
         // Combine them and store in the current node.
-        byte[] stepDigest = digestHashStep(hashAlgorithm,
-                leftValue, rightValue);
-        LOG.trace("Fixing: {} + {} -> {}", new Object[] {
-                leftIdx(nodeIdx), rightIdx(nodeIdx), nodeIdx });
-        nodes[nodeIdx] = stepDigest;
-        return stepDigest;
+        LOG.trace("Fixing: {} + {} -> {}",
+                leftIdx(nodeIdx), rightIdx(nodeIdx), nodeIdx);
+        hashStep(leftIdx(nodeIdx), rightValueIdx, nodeIdx);
+        return nodeIdx;
     }
 
     /**
-     * Treats nodes+inputs as a single large array and returns data
-     * at a given index.
+     * Treats nodes+inputs as a single large array and returns true if there
+     * is data at a given index.
      */
-    private byte[] get(int index) {
-        if (index < nodes.length) {
-            return nodes[index];
-        } else if (index < maxIndex) {
-            return inputs.get(index - nodes.length);
-        } else {
-            return null;
+    private boolean isPresent(int index) {
+        if (index < nodeCount) {
+            return nodePresent[index];
         }
+        return index < maxIndex;
+    }
+
+    private byte[] valueArray(int index) {
+        return index < nodeCount ? nodes : inputData;
+    }
+
+    private int valueOffset(int index) {
+        return index < nodeCount
+                ? index * digestLength
+                : inputOffsets[index - nodeCount];
+    }
+
+    private int valueLength(int index) {
+        return index < nodeCount
+                ? digestLength
+                : inputOffsets[index - nodeCount + 1] - inputOffsets[index - nodeCount];
     }
 
     /**
-     * Similar to get(index), but if the data is null then goes down the tree
-     * until data is found.
+     * Returns a copy of the data at a given index.
      */
-    private byte[] getDeep(int index) {
-        byte[] ret = get(index);
+    private byte[] value(int index) {
+        int offset = valueOffset(index);
+        return Arrays.copyOfRange(valueArray(index), offset, offset + valueLength(index));
+    }
 
-        while (ret == null && index < maxIndex) {
+    /**
+     * Similar to isPresent(index), but if there is no data then goes down
+     * the tree until data is found. Returns the index of the data.
+     */
+    private int getDeep(int index) {
+        while (!isPresent(index) && index < maxIndex) {
             index = leftIdx(index);
             LOG.trace("getDeep() -> {}", index);
-            ret = get(index);
         }
 
-        return ret;
+        return index;
     }
 
     /**
@@ -412,116 +570,74 @@ public final class HashChainBuilder {
     private String makeHashChain(int itemIndex) throws Exception {
         LOG.trace("makeHashChain({})", itemIndex);
 
-        HashChainType hashChain = new HashChainType();
-        hashChain.setDefaultDigestMethod(digestMethod());
-
-        // Hash step count is used to generate references.
-        int stepCount = 0;
-
-        // Start with root node
-        int currentNodeIdx = ROOT_IDX;
-        // current level will be height of non-leaf part of the tree.
-        int currentLevel = ceilingLog2(inputs.size()) - 1;
-
-        // Walk the tree downwards from the root node.
-        while (currentNodeIdx < nodes.length) {
-            // Indicates whether we are interested in
-            // left (0) or right (1) child.
-            int myDirection = (itemIndex & (1 << currentLevel)) >> currentLevel;
-            LOG.trace("Level {}, direction {}", currentLevel, myDirection);
-
-            int myChildIdx = childIdx(currentNodeIdx, myDirection);
-            int otherChildIdx = childIdx(currentNodeIdx, 1 - myDirection);
-
-            // Ignore the missing nodes and walk down the tree until we
-            // find some data.
-            while (get(myChildIdx) == null) {
-                // For missing nodes, always take the left child.
-                myChildIdx = leftIdx(myChildIdx);
-                LOG.trace("Skipping down, new index = {}", myChildIdx);
+        return writeDocument(xml -> {
+            startHashChain(xml);
+
+            // Hash step count is used to generate references.
+            int stepCount = 0;
+
+            // Start with root node
+            int currentNodeIdx = ROOT_IDX;
+            // current level will be height of non-leaf part of the tree.
+            int currentLevel = ceilingLog2(inputCount) - 1;
+
+            // Walk the tree downwards from the root node.
+            while (currentNodeIdx < nodeCount) {
+                // Indicates whether we are interested in
+                // left (0) or right (1) child.
+                int myDirection = (itemIndex & (1 << currentLevel)) >> currentLevel;
+                LOG.trace("Level {}, direction {}", currentLevel, myDirection);
+
+                int myChildIdx = childIdx(currentNodeIdx, myDirection);
+                int otherChildIdx = childIdx(currentNodeIdx, 1 - myDirection);
+
+                // Ignore the missing nodes and walk down the tree until we
+                // find some data.
+                while (!isPresent(myChildIdx)) {
+                    // For missing nodes, always take the left child.
+                    myChildIdx = leftIdx(myChildIdx);
+                    LOG.trace("Skipping down, new index = {}", myChildIdx);
+                    --currentLevel;
+                }
+
+                // Construct the hash step.
+                startElement(xml, "HashStep");
+                xml.writeAttribute("id", STEP + stepCount);
+
+                // The data items are written in tree order. For the other
+                // node, we always use hash value. If my child is leaf node
+                // and there are no attachments, use the data ref. Otherwise
+                // use the StepRef.
+                for (int direction = 0; direction < 2; ++direction) {
+                    if (direction != myDirection) {
+                        writeHashValue(xml, getDeep(otherChildIdx));
+                    } else if (isLeaf(myChildIdx)
+                            && !multiparts.containsKey(itemIndex)) {
+                        // Plain data ref.
+                        writeDataRef(xml, dataRefFileName, value(myChildIdx));
+                    } else {
+                        // Non-leaf nodes refer to other hash steps.
+                        writeStepRef(xml, stepCount + 1);
+                    }
+                }
+
+                xml.writeEndElement();
+
+                // Update state variables.
+                ++stepCount;
+                currentNodeIdx = myChildIdx;
                 --currentLevel;
             }
 
-            // For the other node, we always use hash value.
-            AbstractValueType otherData = hashValue(getDeep(otherChildIdx));
-            AbstractValueType myData;
-
-            // If the child is leaf node and there are no attachments,
-            // use the data ref. Otherwise use the StepRef.
-            if (isLeaf(myChildIdx) && !multiparts.containsKey(itemIndex)) {
-                // Plain data ref.
-                myData = dataRef(get(myChildIdx));
-            } else {
-                // Non-leaf nodes refer to other hash steps.
-                myData = stepRef(stepCount + 1);
+            // If the input was a multipart, we need to add final hash
+            // step that references all the individual parts.
+            if (multiparts.containsKey(itemIndex)) {
+                LOG.trace("Adding attachments");
+                writeMultipartStep(xml, multiparts.get(itemIndex), stepCount);
             }
 
-            // Construct the hash step.
-            HashStepType hashStep = new HashStepType();
-            hashStep.setId(STEP + stepCount);
-            // Create two elements.
-            hashStep.getHashValueOrStepRefOrDataRef().add(null);
-            hashStep.getHashValueOrStepRefOrDataRef().add(null);
-
-            // Set the data items.
-            hashStep.getHashValueOrStepRefOrDataRef().set(
-                    myDirection, myData);
-            hashStep.getHashValueOrStepRefOrDataRef().set(
-                    1 - myDirection, otherData);
-
-            // Add to chain
-            hashChain.getHashStep().add(hashStep);
-
-            // Update state variables.
-            ++stepCount;
-            currentNodeIdx = myChildIdx;
-            --currentLevel;
-        }
-
-        // If the input was a multipart, we need to add final hash
-        // step that references all the individual parts.
-        if (multiparts.containsKey(itemIndex)) {
-            LOG.trace("Adding attachments");
-            hashChain.getHashStep().add(
-                    multipartStep(multiparts.get(itemIndex), stepCount));
-        }
-
-        return elementToString(objectFactory.createHashChain(hashChain));
-    }
-
-    /**
-     * Creates reference to input data.
-     */
-    private DataRefType dataRef(byte[] digest) {
-        return dataRef(dataRefFileName, digest);
-    }
-
-    /**
-     * Creates reference to input data with given file name.
-     */
-    private static DataRefType dataRef(String fileName, byte[] digest) {
-        DataRefType dataRef = new DataRefType();
-        dataRef.setURI(fileName);
-        dataRef.setDigestValue(digest);
-        return dataRef;
-    }
-
-    /**
-     * Creates reference to another hash step.
-     */
-    private static StepRefType stepRef(int stepCount) {
-        StepRefType stepRef = new StepRefType();
-        stepRef.setURI("#" + STEP + stepCount);
-        return stepRef;
-    }
-
-    /**
-     * Creates a concrete hash value.
-     */
-    private static HashValueType hashValue(byte[] data) {
-        HashValueType hashValue = new HashValueType();
-        hashValue.setDigestValue(data);
-        return hashValue;
+            xml.writeEndElement();
+        });
     }
 
     /**
@@ -530,53 +646,114 @@ public final class HashChainBuilder {
     private String makeSingleInputHashChain() throws Exception {
         LOG.trace("makeSingleInputHashChain()");
 
-        HashChainType hashChain = new HashChainType();
-        hashChain.setDefaultDigestMethod(digestMethod());
+        return writeDocument(xml -> {
+            startHashChain(xml);
 
-        // This is a multipart input. Add single step for all
-        // the input parts
-        hashChain.getHashStep().add(multipartStep(multiparts.get(0), 0));
+            // This is a multipart input. Add single step for all
+            // the input parts
+            writeMultipartStep(xml, multiparts.get(0), 0);
 
-        return elementToString(objectFactory.createHashChain(hashChain));
+            xml.writeEndElement();
+        });
     }
 
-    private HashStepType multipartStep(byte[][] inputSet, int stepCount) {
-        HashStepType ret = new HashStepType();
-        ret.setId(STEP + stepCount);
+    private void startHashChain(XMLStreamWriter xml) throws XMLStreamException {
+        startElement(xml, "HashChain");
+        writeNamespaces(xml);
+        xml.writeEmptyElement(NS_HASHCHAIN, "DefaultDigestMethod");
+        xml.writeAttribute("Algorithm", hashAlgorithmUri);
+    }
+
+    private void writeMultipartStep(XMLStreamWriter xml, byte[][] inputSet,
+            int stepCount) throws XMLStreamException {
+        startElement(xml, "HashStep");
+        xml.writeAttribute("id", STEP + stepCount);
 
         for (int i = 0; i < inputSet.length; ++i) {
             if (i == 0) {
                 // The first input is message
-                ret.getHashValueOrStepRefOrDataRef().add(dataRef(inputSet[i]));
+                writeDataRef(xml, dataRefFileName, inputSet[i]);
             } else {
                 // All the other inputs are attachments, starting from 1.
-                ret.getHashValueOrStepRefOrDataRef().add(
-                        dataRef(attachment(i), inputSet[i]));
+                writeDataRef(xml, attachment(i), inputSet[i]);
             }
         }
 
-        return ret;
+        xml.writeEndElement();
     }
 
     /**
-     * Creates a DigestMethod element, based on the current hash algorithm.
+     * Writes reference to input data with given file name.
      */
-    private DigestMethodType digestMethod() {
-        DigestMethodType digestMethod = new DigestMethodType();
-        digestMethod.setAlgorithm(hashAlgorithmUri);
-        return digestMethod;
+    private static void writeDataRef(XMLStreamWriter xml, String fileName,
+            byte[] digestValue) throws XMLStreamException {
+        startElement(xml, "DataRef");
+        xml.writeAttribute("URI", fileName);
+        writeDigestValue(xml, digestValue);
+        xml.writeEndElement();
     }
 
     /**
-     * Serializes the given XML element to a string.
+     * Writes reference to another hash step.
      */
-    private <T> String elementToString(JAXBElement<T> element)
-            throws Exception {
+    private static void writeStepRef(XMLStreamWriter xml, int stepCount)
+            throws XMLStreamException {
+        xml.writeEmptyElement(NS_HASHCHAIN, "StepRef");
+        xml.writeAttribute("URI", "#" + STEP + stepCount);
+    }
+
+    /**
+     * Writes a concrete hash value.
+     */
+    private void writeHashValue(XMLStreamWriter xml, int index)
+            throws XMLStreamException {
+        startElement(xml, "HashValue");
+        writeDigestValue(xml, value(index));
+        xml.writeEndElement();
+    }
+
+    private static void writeDigestValue(XMLStreamWriter xml, byte[] value)
+            throws XMLStreamException {
+        xml.writeStartElement(PREFIX_DSIG, "DigestValue", NS_DSIG);
+        xml.writeCharacters(Base64.getEncoder().encodeToString(value));
+        xml.writeEndElement();
+    }
+
+    private static void startElement(XMLStreamWriter xml, String localName)
+            throws XMLStreamException {
+        xml.writeStartElement(NS_HASHCHAIN, localName);
+    }
+
+    private static void writeNamespaces(XMLStreamWriter xml)
+            throws XMLStreamException {
+        xml.writeDefaultNamespace(NS_HASHCHAIN);
+        xml.writeNamespace(PREFIX_DSIG, NS_DSIG);
+    }
+
+    /**
+     * Serializes an XML document to a string.
+     */
+    private static String writeDocument(XmlContent content) throws XMLStreamException {
         StringWriter writer = new StringWriter();
-        marshaller.marshal(element, writer);
+        writer.write(XML_DECLARATION);
+
+        XMLStreamWriter xml = XML_OUTPUT_FACTORY.createXMLStreamWriter(writer);
+        xml.setDefaultNamespace(NS_HASHCHAIN);
+        xml.setPrefix(PREFIX_DSIG, NS_DSIG);
+        try {
+            content.write(xml);
+            xml.flush();
+        } finally {
+            xml.close();
+        }
         return writer.toString();
     }
 
+    @FunctionalInterface
+    private interface XmlContent {
+        void write(XMLStreamWriter xml) throws XMLStreamException;
+    }
+
     /**
      * Returns index for parent of a node identified by childIdx.
      */
@@ -609,7 +786,7 @@ public final class HashChainBuilder {
      * Returns true, if node identified by nodeIdx is a leaf node.
      */
     private boolean isLeaf(int nodeIdx) {
-        return nodeIdx >= nodes.length;
+        return nodeIdx >= nodeCount;
     }
 
     /**
@@ -617,7 +794,7 @@ public final class HashChainBuilder {
      * of the tree.
      */
     private int getNodesCount() {
-        return pow2(ceilingLog2(inputs.size())) - 1;
+        return pow2(ceilingLog2(inputCount)) - 1;
     }
 
     private static int ceilingLog2(int n) {
@@ -627,12 +804,4 @@ public final class HashChainBuilder {
     private static int pow2(int n) {
         return 1 << n;
     }
-
-    static {
-        try {
-            jaxbCtx = JAXBContext.newInstance(ObjectFactory.class);
-        } catch (Exception ex) {
-            LOG.error("Failed to initialize JAXB context", ex);
-        }
-    }
 }
@@ -30,6 +30,8 @@ import ee.ria.xroad.common.ErrorCodes;
 
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.nio.channels.Channels;
@@ -39,30 +41,30 @@ import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 
 /**
- * Caches stuff in a temporary file.
+ * Caches stuff in memory, or in a temporary file once the cached data grows larger than {@link #MEMORY_THRESHOLD}.
+ * Small message bodies are thus cached without creating temporary files.
  */
 @Slf4j
 public class CachingStream extends FilterOutputStream {
+
+    /**
+     * Maximum number of bytes cached in memory before the contents are moved to a temporary file.
+     */
+    public static final int MEMORY_THRESHOLD = 64 * 1024;
+
+    private MemoryBuffer memory = new MemoryBuffer();
     private SeekableByteChannel channel;
     private Path tempFile;
 
     /**
-     * Constructs a new caching stream that caches data in a temporary file.
+     * Constructs a new caching stream that caches data in memory and, if it grows large, in a temporary file.
      *
      * @throws IOException if I/O errors occurred
      */
     public CachingStream() throws IOException {
         // Construct the parent class with null stream and replace it later.
         super(null);
-
-        tempFile = DefaultFilepaths.createTempFile("tmpattach", null);
-        channel = Files.newByteChannel(tempFile, StandardOpenOption.CREATE,
-                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
-                StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
-
-        // Now that we are set up, we can set the output stream in the
-        // parent class.
-        out = Channels.newOutputStream(channel);
+        out = memory;
     }
 
     @Override
@@ -71,18 +73,40 @@ public class CachingStream extends FilterOutputStream {
         flush();
     }
 
+    @Override
+    public void write(int b) throws IOException {
+        reserve(1);
+        out.write(b);
+    }
+
     @Override
     public void write(byte[] b, int off, int len) throws IOException {
+        reserve(len);
         // prevent FilterOutputStream from writing inefficiently
         out.write(b, off, len);
     }
 
+    private void reserve(int len) throws IOException {
+        if (channel == null && memory.size() + (long) len > MEMORY_THRESHOLD) {
+            tempFile = DefaultFilepaths.createTempFile("tmpattach", null);
+            channel = Files.newByteChannel(tempFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+            out = Channels.newOutputStream(channel);
+            memory.writeTo(out);
+            memory = null;
+        }
+    }
+
     /**
      * @return input stream that contains the encoded attachment contents.
      * The returned stream does not support mark, and closing the stream has no effect.
      * @see #consume() to free resources used by the cache.
      */
     public CacheInputStream getCachedContents() {
+        if (channel == null) {
+            return memory.getContents();
+        }
         try {
             return new CacheInputStream(channel);
         } catch (IOException ex) { // the position shouldn't really throw
@@ -94,6 +118,9 @@ public class CachingStream extends FilterOutputStream {
      * Finalize caching stream. Use to avoid file handle leaks.
      */
     public void consume() {
+        if (channel == null) {
+            return;
+        }
         try {
             channel.close();
         } catch (IOException e) {
@@ -101,4 +128,10 @@ public class CachingStream extends FilterOutputStream {
         }
     }
 
+    private static final class MemoryBuffer extends ByteArrayOutputStream {
+        CacheInputStream getContents() {
+            // no copy of the buffer, it is not written to after reading starts
+            return new CacheInputStream(new ByteArrayInputStream(buf, 0, count), count);
+        }
+    }
 }
@@ -0,0 +1,252 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util.backup;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static ee.ria.xroad.common.util.CryptoUtils.SHA256_ID;
+import static ee.ria.xroad.common.util.CryptoUtils.encodeHex;
+
+/**
+ * Writes a configuration backup as a GNU tar stream.
+ *
+ * The archive has the same layout as the one created by {@code _backup_xroad.sh}: a volume label followed by the
+ * backed up files with their ownership and permissions, so that the restore scripts can check and extract it as
+ * before. Every regular file is hashed with SHA-256 while it is copied to the archive and the digests are appended
+ * to the archive as {@link #MANIFEST_ENTRY}, which the restore script checks before extracting the archive.
+ */
+@Slf4j
+public class BackupArchiveWriter implements Closeable {
+
+    /** Name of the manifest entry, outside of the directories that the restore extracts. */
+    public static final String MANIFEST_ENTRY = "backup.manifest";
+
+    /** Paths that are never backed up, matching the exclusions of {@code _backup_xroad.sh}. */
+    public static final List<String> DEFAULT_EXCLUDES = Arrays.asList(
+            "/etc/xroad/services/*.conf",
+            "/etc/xroad/postgresql",
+            "/etc/xroad/gpghome",
+            "/etc/xroad/xroad.properties");
+
+    private static final PathMatcher TEMP_FILE = FileSystems.getDefault().getPathMatcher("glob:tmp*.tmp");
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MODE_BITS = 9;
+    private static final byte LF_GNUTYPE_VOLHDR = 'V';
+
+    private final TarArchiveOutputStream tar;
+    private final List<PathMatcher> excludes;
+    private final BackupManifest manifest = new BackupManifest();
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private final MessageDigest digest;
+
+    private boolean finished;
+
+    /**
+     * Starts an archive with the given volume label.
+     * @param out the output, closed when the writer is closed
+     * @param label the volume label checked by the restore script
+     * @param excludes absolute glob patterns of the paths to leave out
+     * @throws IOException if writing the label fails
+     */
+    public BackupArchiveWriter(OutputStream out, String label, List<String> excludes) throws IOException {
+        this.tar = new TarArchiveOutputStream(out, BUFFER_SIZE);
+        this.excludes = excludes.stream()
+                .map(pattern -> FileSystems.getDefault().getPathMatcher("glob:" + pattern))
+                .collect(Collectors.toList());
+        try {
+            this.digest = MessageDigest.getInstance(SHA256_ID);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_GNU);
+        tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+
+        final TarArchiveEntry volumeHeader = new TarArchiveEntry(label, LF_GNUTYPE_VOLHDR, true);
+        volumeHeader.setModTime(toSeconds(System.currentTimeMillis()));
+        tar.putArchiveEntry(volumeHeader);
+        tar.closeArchiveEntry();
+    }
+
+    /**
+     * Adds a file or a directory tree to the archive. Symbolic links are stored as links.
+     * @param path absolute path of the file or directory
+     * @throws IOException if reading a file or writing the archive fails
+     */
+    public void add(Path path) throws IOException {
+        Files.walkFileTree(path.toAbsolutePath().normalize(), new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (isExcluded(dir)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                addEntry(dir);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!isExcluded(file)) {
+                    addEntry(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Appends the manifest and the end-of-archive marker.
+     * @return the manifest of this backup
+     * @throws IOException if writing fails
+     */
+    public BackupManifest finish() throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        manifest.write(bytes);
+
+        final TarArchiveEntry entry = new TarArchiveEntry(MANIFEST_ENTRY);
+        entry.setSize(bytes.size());
+        entry.setModTime(toSeconds(System.currentTimeMillis()));
+        tar.putArchiveEntry(entry);
+        bytes.writeTo(tar);
+        tar.closeArchiveEntry();
+        tar.finish();
+        finished = true;
+
+        log.info("Backed up {} files", manifest.getEntries().size());
+        return manifest;
+    }
+
+    @Override
+    public void close() throws IOException {
+        tar.close();
+    }
+
+    private boolean isExcluded(Path path) {
+        final Path fileName = path.getFileName();
+        if (fileName != null && TEMP_FILE.matches(fileName)) {
+            return true;
+        }
+        return excludes.stream().anyMatch(matcher -> matcher.matches(path));
+    }
+
+    private void addEntry(Path path) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("Archive already finished");
+        }
+        final PosixFileAttributes attrs = Files.readAttributes(path, PosixFileAttributes.class,
+                LinkOption.NOFOLLOW_LINKS);
+        // tar strips the leading slash, the restore scripts expect relative names
+        final String name = path.toString().substring(1);
+
+        final TarArchiveEntry entry;
+        if (attrs.isSymbolicLink()) {
+            entry = new TarArchiveEntry(name, TarConstants.LF_SYMLINK);
+            entry.setLinkName(Files.readSymbolicLink(path).toString());
+        } else if (attrs.isDirectory()) {
+            entry = new TarArchiveEntry(name + "/", TarConstants.LF_DIR);
+        } else if (attrs.isRegularFile()) {
+            entry = new TarArchiveEntry(name, TarConstants.LF_NORMAL);
+            entry.setSize(attrs.size());
+        } else {
+            log.warn("Skipping special file {}", path);
+            return;
+        }
+        entry.setMode(toMode(attrs));
+        entry.setModTime(toSeconds(attrs.lastModifiedTime().toMillis()));
+        entry.setUserName(attrs.owner().getName());
+        entry.setGroupName(attrs.group().getName());
+        entry.setUserId(((Number) Files.getAttribute(path, "unix:uid", LinkOption.NOFOLLOW_LINKS)).longValue());
+        entry.setGroupId(((Number) Files.getAttribute(path, "unix:gid", LinkOption.NOFOLLOW_LINKS)).longValue());
+
+        tar.putArchiveEntry(entry);
+        if (attrs.isRegularFile()) {
+            copy(path, name, attrs);
+        }
+        tar.closeArchiveEntry();
+    }
+
+    private void copy(Path file, String name, PosixFileAttributes attrs) throws IOException {
+        final long size = attrs.size();
+        final long lastModified = attrs.lastModifiedTime().toMillis();
+        digest.reset();
+        long remaining = size;
+        try (InputStream in = Files.newInputStream(file)) {
+            while (remaining > 0) {
+                final int count = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (count < 0) {
+                    break;
+                }
+                digest.update(buffer, 0, count);
+                tar.write(buffer, 0, count);
+                remaining -= count;
+            }
+        }
+        if (remaining > 0) {
+            throw new IOException("File " + file + " changed while it was backed up");
+        }
+
+        manifest.put(name, new BackupManifest.Entry(encodeHex(digest.digest()), size, lastModified));
+    }
+
+    /** Sub-second modification times would be written as PAX headers that hide the volume label from tar. */
+    private static Date toSeconds(long millis) {
+        return new Date(TimeUnit.SECONDS.toMillis(TimeUnit.MILLISECONDS.toSeconds(millis)));
+    }
+
+    private static int toMode(PosixFileAttributes attrs) {
+        int mode = 0;
+        for (PosixFilePermission permission : attrs.permissions()) {
+            // PosixFilePermission is declared from OWNER_READ (0400) to OTHERS_EXECUTE (01)
+            mode |= 1 << (MODE_BITS - 1 - permission.ordinal());
+        }
+        return mode;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util.backup;
+
+import lombok.Value;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Lists the files of a configuration backup archive with their SHA-256 digests.
+ *
+ * Each line has the form {@code <sha-256 hex> <size> <last modified millis> <entry name>}. The digest and the
+ * entry name can be checked with {@code sha256sum}; the size and the modification time are informational.
+ */
+public final class BackupManifest {
+
+    private static final int DIGEST = 0;
+    private static final int SIZE = 1;
+    private static final int LAST_MODIFIED = 2;
+    private static final int NAME = 3;
+    private static final int FIELDS = 4;
+
+    private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+    /**
+     * Manifest entry of a single file.
+     */
+    @Value
+    public static class Entry {
+        String digest;
+        long size;
+        long lastModified;
+    }
+
+    /**
+     * Reads a manifest from a stream.
+     * @param in the input, not closed by this method
+     * @return the manifest
+     * @throws IOException if reading fails or the input is malformed
+     */
+    public static BackupManifest read(InputStream in) throws IOException {
+        final BackupManifest manifest = new BackupManifest();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            final String[] fields = line.split(" ", FIELDS);
+            if (fields.length != FIELDS) {
+                throw new IOException("Malformed backup manifest line: " + line);
+            }
+            try {
+                manifest.put(fields[NAME], new Entry(fields[DIGEST], Long.parseLong(fields[SIZE]),
+                        Long.parseLong(fields[LAST_MODIFIED])));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed backup manifest line: " + line, e);
+            }
+        }
+        return manifest;
+    }
+
+    /**
+     * Writes the manifest.
+     * @param out the output, flushed but not closed by this method
+     * @throws IOException if writing fails
+     */
+    public void write(OutputStream out) throws IOException {
+        final Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            final Entry entry = e.getValue();
+            writer.write(entry.getDigest() + " " + entry.getSize() + " " + entry.getLastModified() + " " + e.getKey()
+                    + "\n");
+        }
+        writer.flush();
+    }
+
+    void put(String name, Entry entry) {
+        entries.put(name, entry);
+    }
+
+    /**
+     * @param name archive entry name
+     * @return the entry of the file, or null if the manifest does not list the file
+     */
+    public Entry get(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * @return the entries by archive entry name, in archive order
+     */
+    public Map<String, Entry> getEntries() {
+        return Collections.unmodifiableMap(entries);
+    }
+}
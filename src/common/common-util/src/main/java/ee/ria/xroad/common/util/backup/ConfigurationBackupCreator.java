@@ -0,0 +1,174 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util.backup;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.util.process.ExternalProcessRunner;
+import ee.ria.xroad.common.util.process.ProcessFailedException;
+import ee.ria.xroad.common.util.process.ProcessNotExecutableException;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Creates security server configuration backups in-process.
+ *
+ * Replaces the {@code tar} step of {@code _backup_xroad.sh}: the database is still dumped with
+ * {@code backup_db.sh} and the archive is still signed (and optionally encrypted) by gpg, but the archive is
+ * streamed to gpg by {@link BackupArchiveWriter}, which also records the file digests in a manifest inside the
+ * archive.
+ */
+@Slf4j
+public class ConfigurationBackupCreator {
+
+    /** Must match XROAD_VERSION_LABEL in _backup_restore_common.sh. */
+    public static final String XROAD_VERSION_LABEL = "XROAD_7.1";
+
+    // paths relative to the file system root, see _backup_xroad.sh
+    private static final String DATABASE_BACKUP_SCRIPT = "/usr/share/xroad/scripts/backup_db.sh";
+    private static final String DATABASE_DUMP_FILE = "var/lib/xroad/dbdump.dat";
+    private static final String CONF_PATH = "etc/xroad";
+    private static final String NGINX_CONF_PATH = "etc/nginx/conf.d";
+    private static final String NGINX_SITES_PATH = "etc/nginx/sites-enabled";
+    private static final String GPG_HOME = "etc/xroad/gpghome";
+    private static final String LOCAL_CONF = "etc/xroad/services/local.conf";
+    private static final String GPG = "gpg";
+    private static final long GPG_TIMEOUT_MINUTES = 1;
+
+    private final ExternalProcessRunner externalProcessRunner;
+    private final String gpgExecutable;
+    private final Path root;
+
+    public ConfigurationBackupCreator(ExternalProcessRunner externalProcessRunner) {
+        this(externalProcessRunner, GPG, Paths.get("/"));
+    }
+
+    ConfigurationBackupCreator(ExternalProcessRunner externalProcessRunner, String gpgExecutable, Path root) {
+        this.externalProcessRunner = externalProcessRunner;
+        this.gpgExecutable = gpgExecutable;
+        this.root = root;
+    }
+
+    /**
+     * Backs up the configuration files and the database of the security server to a signed archive,
+     * encrypted if backup encryption is enabled.
+     * @param securityServerId short string form of the security server id, used in the label and as gpg key id
+     * @param output path of the backup file
+     * @throws IOException if writing the archive fails; the incomplete backup file is removed
+     * @throws ProcessNotExecutableException if the database backup script can not be executed
+     * @throws ProcessFailedException if the database backup fails
+     * @throws InterruptedException if the thread is interrupted while waiting for the backup
+     */
+    public void createSecurityServerBackup(String securityServerId, Path output)
+            throws IOException, ProcessNotExecutableException, ProcessFailedException, InterruptedException {
+        final Path databaseDump = root.resolve(DATABASE_DUMP_FILE);
+        externalProcessRunner.executeAndThrowOnFailure(DATABASE_BACKUP_SCRIPT, databaseDump.toString());
+
+        final List<Path> paths = new ArrayList<>();
+        paths.add(root.resolve(CONF_PATH));
+        addMatching(paths, root.resolve(NGINX_CONF_PATH), "*xroad*.conf");
+        addMatching(paths, root.resolve(NGINX_SITES_PATH), "*xroad*");
+        paths.add(databaseDump);
+
+        final Process gpg = new ProcessBuilder(gpgCommand(securityServerId, output))
+                // gpg writes the archive to the output file, its diagnostics go to the service log
+                .redirectOutput(ProcessBuilder.Redirect.INHERIT)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try {
+            try (BackupArchiveWriter writer = new BackupArchiveWriter(gpg.getOutputStream(),
+                    "security_" + XROAD_VERSION_LABEL + "_" + securityServerId, excludes())) {
+                for (Path path : paths) {
+                    writer.add(path);
+                }
+                writer.finish();
+            }
+            if (!gpg.waitFor(GPG_TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                throw new IOException("gpg did not finish the backup in time");
+            }
+            if (gpg.exitValue() != 0) {
+                throw new IOException("gpg failed with exit code " + gpg.exitValue());
+            }
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            gpg.destroyForcibly();
+            Files.deleteIfExists(output);
+            throw e;
+        }
+        log.info("Backup file saved to {}", output);
+
+        // same warning as backup_xroad_proxy_configuration.sh, which this replaces
+        if (Files.exists(root.resolve(LOCAL_CONF))) {
+            log.warn("The file /{} used for configuration overrides is deprecated and not included in the backups "
+                    + "anymore. The file /etc/xroad/services/local.properties should be used instead.", LOCAL_CONF);
+        }
+    }
+
+    /**
+     * Builds the gpg command line, equivalent to the one used by {@code _backup_xroad.sh}.
+     */
+    List<String> gpgCommand(String securityServerId, Path output) {
+        final List<String> command = new ArrayList<>(List.of(gpgExecutable, "--batch", "--no-tty",
+                "--homedir", root.resolve(GPG_HOME).toString(), "--sign", "--digest-algo", "SHA256"));
+        if (SystemProperties.isBackupEncryptionEnabled()) {
+            command.addAll(List.of("--encrypt", "--trust-model", "direct", "--cipher-algo", "AES256",
+                    "--no-auto-key-locate", "-r", securityServerId));
+            for (String keyId : SystemProperties.getBackupEncryptionKeyIds().split("[, ]+")) {
+                if (!keyId.isEmpty()) {
+                    command.add("-r");
+                    command.add(keyId);
+                }
+            }
+        }
+        command.add("--output");
+        command.add(output.toString());
+        return command;
+    }
+
+    private List<String> excludes() {
+        // the default exclusions are absolute, relocate them under the root
+        return BackupArchiveWriter.DEFAULT_EXCLUDES.stream()
+                .map(pattern -> root.resolve(pattern.substring(1)).toString())
+                .collect(Collectors.toList());
+    }
+
+    private static void addMatching(List<Path> paths, Path dir, String glob) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, glob)) {
+            stream.forEach(paths::add);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.globalconf;
+
+import ee.ria.xroad.common.SystemProperties;
+
+import org.apache.commons.io.FileUtils;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Global configuration snapshot benchmark program. Compares loading the configuration directory by parsing the
+ * files with restoring it from the snapshot.
+ */
+public final class ConfigurationSnapshotBenchmark {
+
+    private static final Path SOURCE = Paths.get("src/test/resources/globalconf_good_v3_and_v2");
+    private static final Path TEMP = Paths.get("build/tmp/globalconf-snapshot-benchmark");
+    private static final Path CONF = TEMP.resolve("conf");
+    private static final int ROUNDS = 20;
+    private static final long NANOS_PER_MS = 1_000_000;
+
+    private ConfigurationSnapshotBenchmark() {
+    }
+
+    /**
+     * Main program access point.
+     * @param args command-line arguments
+     * @throws Exception in case of any errors
+     */
+    public static void main(String[] args) throws Exception {
+        FileUtils.deleteDirectory(TEMP.toFile());
+        FileUtils.copyDirectory(SOURCE.toFile(), CONF.toFile());
+
+        System.setProperty(SystemProperties.GLOBAL_CONF_SNAPSHOT_ENABLED, "false");
+        long parseNanos = measure();
+
+        System.setProperty(SystemProperties.GLOBAL_CONF_SNAPSHOT_ENABLED, "true");
+        load();
+        long snapshotNanos = measure();
+
+        System.out.printf("Loading configuration directory: parsing %d ms, from snapshot %d ms%n",
+                parseNanos / ROUNDS / NANOS_PER_MS, snapshotNanos / ROUNDS / NANOS_PER_MS);
+    }
+
+    private static long measure() throws Exception {
+        load();
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            new VersionedConfigurationDirectory(CONF.toString());
+        }
+        long nanos = System.nanoTime() - start;
+        ConfigurationSnapshot.awaitPendingTasks();
+        return nanos;
+    }
+
+    private static void load() throws Exception {
+        new VersionedConfigurationDirectory(CONF.toString());
+        ConfigurationSnapshot.awaitPendingTasks();
+    }
+}
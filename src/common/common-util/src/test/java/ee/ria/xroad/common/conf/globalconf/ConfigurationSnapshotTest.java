@@ -0,0 +1,156 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.globalconf;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static java.nio.file.attribute.PosixFilePermission.GROUP_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.OTHERS_EXECUTE;
+import static java.nio.file.attribute.PosixFilePermission.OWNER_EXECUTE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests restoring the configuration directory from a snapshot.
+ */
+public class ConfigurationSnapshotTest {
+
+    private static final Path SOURCE = Paths.get("src/test/resources/globalconf_good_v3_and_v2");
+    private static final Path TEMP = Paths.get("build/tmp/globalconf-snapshot-test");
+    private static final Path CONF = TEMP.resolve("conf");
+    private static final Path SNAPSHOT = TEMP.resolve("conf" + ConfigurationSnapshot.SUFFIX);
+
+    @Before
+    public void before() throws Exception {
+        FileUtils.deleteDirectory(TEMP.toFile());
+        FileUtils.copyDirectory(SOURCE.toFile(), CONF.toFile());
+    }
+
+    @Test
+    public void restoresParametersFromSnapshot() throws Exception {
+        VersionedConfigurationDirectory cold = load();
+        assertTrue(cold.sharedParameters.get("EE") instanceof SharedParametersV3);
+        assertTrue(Files.exists(SNAPSHOT));
+        Set<PosixFilePermission> permissions = EnumSet.copyOf(Files.getPosixFilePermissions(CONF));
+        permissions.removeAll(EnumSet.of(OWNER_EXECUTE, GROUP_EXECUTE, OTHERS_EXECUTE));
+        assertEquals(permissions, Files.getPosixFilePermissions(SNAPSHOT));
+        assertEquals(Files.getOwner(CONF), Files.getOwner(SNAPSHOT));
+
+        VersionedConfigurationDirectory warm = load();
+        assertFalse(warm.sharedParameters.get("EE") instanceof SharedParametersV3);
+        assertFalse(warm.privateParameters.get("foo_v2") instanceof PrivateParametersV2);
+
+        for (String instance : new String[] {"EE", "foo_v2", "bar"}) {
+            SharedParameters expected = cold.getShared(instance);
+            SharedParameters actual = warm.getShared(instance);
+            assertEquals(expected.getInstanceIdentifier(), actual.getInstanceIdentifier());
+            assertEquals(expected.getMembers(), actual.getMembers());
+            assertEquals(expected.getGlobalSettings(), actual.getGlobalSettings());
+            assertEquals(expected.getSecurityServersById().keySet(), actual.getSecurityServersById().keySet());
+            assertEquals(expected.getVerificationCaCerts(), actual.getVerificationCaCerts());
+        }
+        assertEquals(cold.getPrivate("EE").getManagementService().getManagementRequestServiceProviderId(),
+                warm.getPrivate("EE").getManagementService().getManagementRequestServiceProviderId());
+
+        // background revalidation agrees with the snapshot
+        assertFalse(warm.sharedParameters.get("EE").hasChanged());
+        assertFalse(new VersionedConfigurationDirectory(CONF.toString(), warm).sharedParameters.get("EE")
+                instanceof SharedParametersV3);
+    }
+
+    @Test
+    public void reparsesChangedFiles() throws Exception {
+        load();
+
+        Files.write(CONF.resolve("bar").resolve(ConfigurationConstants.FILE_NAME_SHARED_PARAMETERS),
+                "\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        VersionedConfigurationDirectory dir = load();
+        assertTrue(dir.sharedParameters.get("bar") instanceof SharedParametersV3);
+        assertFalse(dir.sharedParameters.get("EE") instanceof SharedParametersV3);
+    }
+
+    @Test
+    public void ignoresCorruptSnapshot() throws Exception {
+        load();
+
+        byte[] bytes = Files.readAllBytes(SNAPSHOT);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(SNAPSHOT, bytes);
+
+        VersionedConfigurationDirectory dir = load();
+        assertTrue(dir.sharedParameters.get("EE") instanceof SharedParametersV3);
+        assertEquals("EE", dir.getShared("EE").getInstanceIdentifier());
+    }
+
+    @Test
+    public void ignoresSnapshotWritableByOthers() throws Exception {
+        load();
+
+        Set<PosixFilePermission> permissions = EnumSet.copyOf(Files.getPosixFilePermissions(SNAPSHOT));
+        permissions.add(PosixFilePermission.OTHERS_WRITE);
+        Files.setPosixFilePermissions(SNAPSHOT, permissions);
+
+        assertTrue(load().sharedParameters.get("EE") instanceof SharedParametersV3);
+    }
+
+    @Test
+    public void doesNotServeCertificatesThatDifferFromFile() throws Exception {
+        VersionedConfigurationDirectory cold = load();
+
+        Map<String, ConfigurationSnapshot.Entry> entries = ConfigurationSnapshot.read(SNAPSHOT);
+        ConfigurationSnapshot.Entry entry = entries.get("shared:EE");
+        SharedParameters forged = ConfigurationSnapshotFormat.decodeShared(entry.payload());
+        forged.getApprovedCAs().get(0).getTopCA().setCert(forged.getApprovedTSAs().get(0).getCert());
+        entries.put("shared:EE", new ConfigurationSnapshot.Entry(entry.checksum(),
+                ConfigurationSnapshotFormat.encode(forged)));
+        ConfigurationSnapshot.write(CONF.toAbsolutePath().normalize(), SNAPSHOT, entries);
+
+        VersionedConfigurationDirectory dir = load();
+        assertTrue(dir.sharedParameters.get("EE") instanceof SharedParametersV3);
+        assertEquals(cold.getShared("EE").getVerificationCaCerts(), dir.getShared("EE").getVerificationCaCerts());
+        assertFalse(dir.sharedParameters.get("bar") instanceof SharedParametersV3);
+    }
+
+    private static VersionedConfigurationDirectory load() throws Exception {
+        VersionedConfigurationDirectory dir = new VersionedConfigurationDirectory(CONF.toString());
+        ConfigurationSnapshot.awaitPendingTasks();
+        return dir;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.hashchain;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Random;
+
+import static ee.ria.xroad.common.util.CryptoUtils.SHA512_ID;
+import static ee.ria.xroad.common.util.MessageFileNames.SIGNATURE;
+import static ee.ria.xroad.common.util.MessageFileNames.TS_HASH_CHAIN;
+
+/**
+ * Hash chain builder performance test program. Builds the tree and the hash
+ * chains for batch sizes from 1 to 10 000, like a batch time-stamp request
+ * does, and reports the time per batch and per input.
+ */
+@Slf4j
+public final class HashChainBuilderPerformanceTest {
+
+    private static final int[] BATCH_SIZES = {1, 10, 100, 1000, 10000};
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int ITERATIONS = 50;
+
+    private HashChainBuilderPerformanceTest() {
+    }
+
+    /**
+     * Main program access point.
+     * @param args command-line arguments
+     * @throws Exception in case of any errors
+     */
+    public static void main(String[] args) throws Exception {
+        log.info("Starting hash chain builder performance test...");
+
+        for (int batchSize : BATCH_SIZES) {
+            byte[][] inputs = inputs(batchSize);
+
+            for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+                build(inputs);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < ITERATIONS; i++) {
+                build(inputs);
+            }
+            long elapsed = (System.nanoTime() - start) / ITERATIONS;
+
+            log.info("Batch size {}: {} us per batch, {} ns per input", batchSize, elapsed / 1000,
+                    elapsed / batchSize);
+        }
+    }
+
+    private static void build(byte[][] inputs) throws Exception {
+        HashChainBuilder builder = new HashChainBuilder(SHA512_ID);
+        if (inputs.length == 1) {
+            // a single input without attachments has no hash chains
+            builder.addInputHash(new byte[][] {inputs[0], inputs[0]});
+        } else {
+            for (byte[] input : inputs) {
+                builder.addInputHash(input);
+            }
+        }
+        builder.finishBuilding();
+        builder.getHashChainResult(TS_HASH_CHAIN);
+        builder.getHashChains(SIGNATURE);
+    }
+
+    private static byte[][] inputs(int count) {
+        Random random = new Random(count);
+        byte[][] inputs = new byte[count][];
+        for (int i = 0; i < count; i++) {
+            inputs[i] = new byte[64];
+            random.nextBytes(inputs[i]);
+        }
+        return inputs;
+    }
+}
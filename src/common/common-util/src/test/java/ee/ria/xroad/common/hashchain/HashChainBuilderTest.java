@@ -29,12 +29,17 @@ import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 
 import static ee.ria.xroad.common.util.CryptoUtils.SHA256_ID;
 import static ee.ria.xroad.common.util.CryptoUtils.calculateDigest;
 import static ee.ria.xroad.common.util.CryptoUtils.encodeBase64;
 import static ee.ria.xroad.common.util.CryptoUtils.encodeHex;
+import static ee.ria.xroad.common.util.CryptoUtils.getDigestAlgorithmURI;
+import static ee.ria.xroad.common.util.MessageFileNames.MESSAGE;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
@@ -46,6 +51,8 @@ public class HashChainBuilderTest {
     private static final Logger LOG = LoggerFactory.getLogger(
             HashChainBuilderTest.class);
 
+    private static final String HASH_CHAIN = "/hashchain.xml";
+
     /**
      * Test to ensure hash chain builder works with varying input sizes.
      * @throws Exception in case of unexpected errors
@@ -213,4 +220,56 @@ public class HashChainBuilderTest {
         LOG.debug("Hash chain result:\n{}", builder.getHashChainResult("foo"));
         printChains(builder);
     }
+
+    /**
+     * Test that ensures the hash chains written by the builder are accepted
+     * by the hash chain verifier, for complete and incomplete trees.
+     * @throws Exception in case of unexpected errors
+     */
+    @Test
+    public void builtChainsVerify() throws Exception {
+        LOG.info("builtChainsVerify()");
+
+        for (int treeSize = 2; treeSize < 40; ++treeSize) {
+            HashChainBuilder builder = new HashChainBuilder(SHA256_ID);
+            byte[][] inputs = new byte[treeSize][];
+            for (int i = 0; i < treeSize; ++i) {
+                inputs[i] = calculateDigest(SHA256_ID,
+                        String.valueOf(i).getBytes(StandardCharsets.UTF_8));
+                builder.addInputHash(inputs[i]);
+            }
+            builder.finishBuilding();
+
+            String hashChainResult = builder.getHashChainResult(HASH_CHAIN);
+            String[] hashChains = builder.getHashChains(MESSAGE);
+
+            for (int i = 0; i < treeSize; ++i) {
+                verify(hashChainResult, hashChains[i], inputs[i]);
+            }
+        }
+    }
+
+    private static void verify(String hashChainResult, String hashChain,
+            byte[] input) throws Exception {
+        HashChainReferenceResolver resolver = new HashChainReferenceResolver() {
+            @Override
+            public InputStream resolve(String uri) {
+                assertEquals(HASH_CHAIN, uri);
+                return new ByteArrayInputStream(
+                        hashChain.getBytes(StandardCharsets.UTF_8));
+            }
+
+            @Override
+            public boolean shouldResolve(String uri, byte[] digestValue) {
+                return true;
+            }
+        };
+
+        HashChainVerifier.verify(
+                new ByteArrayInputStream(
+                        hashChainResult.getBytes(StandardCharsets.UTF_8)),
+                resolver,
+                Collections.singletonMap(MESSAGE, new DigestValue(
+                        getDigestAlgorithmURI(SHA256_ID), input)));
+    }
 }
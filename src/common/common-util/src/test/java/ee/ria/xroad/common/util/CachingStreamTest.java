@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util;
+
+import ee.ria.xroad.common.SystemProperties;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link CachingStream}
+ */
+public class CachingStreamTest {
+    private static final Path TEMP_DIR = Paths.get("build/tmp/cachingstreamtest");
+
+    @Before
+    public void setUp() throws IOException {
+        System.setProperty(SystemProperties.TEMP_FILES_PATH, TEMP_DIR.toString());
+        Files.createDirectories(TEMP_DIR);
+    }
+
+    @Test
+    public void smallContentsAreCachedInMemory() throws IOException {
+        byte[] data = data(CachingStream.MEMORY_THRESHOLD);
+        CachingStream cache = new CachingStream();
+        try {
+            cache.write(data, 0, data.length - 1);
+            cache.write(data[data.length - 1]);
+            assertFalse("Temporary file created", tempFileExists());
+
+            CacheInputStream contents = cache.getCachedContents();
+            assertEquals(data.length, contents.size());
+            assertArrayEquals(data, IOUtils.toByteArray(contents));
+        } finally {
+            cache.consume();
+        }
+    }
+
+    @Test
+    public void largeContentsAreCachedInTemporaryFile() throws IOException {
+        byte[] data = data(CachingStream.MEMORY_THRESHOLD + 1);
+        CachingStream cache = new CachingStream();
+        try {
+            cache.write(data, 0, 1);
+            cache.write(data, 1, data.length - 1);
+            assertTrue("Temporary file not created", tempFileExists());
+
+            CacheInputStream contents = cache.getCachedContents();
+            assertEquals(data.length, contents.size());
+            assertArrayEquals(data, IOUtils.toByteArray(contents));
+        } finally {
+            cache.consume();
+        }
+        assertFalse("Temporary file not deleted", tempFileExists());
+    }
+
+    private static byte[] data(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+        return data;
+    }
+
+    private static boolean tempFileExists() throws IOException {
+        try (DirectoryStream<Path> dirStream = Files.newDirectoryStream(TEMP_DIR, "tmpattach*")) {
+            return dirStream.iterator().hasNext();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util.backup;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static ee.ria.xroad.common.util.CryptoUtils.encodeHex;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class BackupArchiveWriterTest {
+
+    private static final String LABEL = "security_XROAD_7.1_INSTANCE/CLASS/CODE/SERVER";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Path root;
+
+    @Before
+    public void setUp() throws IOException {
+        root = tempFolder.newFolder("xroad").toPath();
+        Files.writeString(root.resolve("serverconf.xml"), "<conf/>");
+        Files.createDirectories(root.resolve("signer"));
+        Files.writeString(root.resolve("signer/keyconf.xml"), "<keys/>");
+        Files.writeString(root.resolve("signer/tmp123.tmp"), "temporary");
+        Files.createDirectories(root.resolve("gpghome"));
+        Files.writeString(root.resolve("gpghome/secring.gpg"), "secret");
+    }
+
+    @Test
+    public void shouldWriteLabelFilesAndManifest() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BackupManifest manifest = write(out);
+
+        final Map<String, String> contents = new HashMap<>();
+        String label = null;
+        byte[] manifestBytes = null;
+        try (TarArchiveInputStream in = new TarArchiveInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            TarArchiveEntry entry;
+            while ((entry = in.getNextTarEntry()) != null) {
+                if (label == null) {
+                    assertEquals('V', entry.getLinkFlag());
+                    label = entry.getName();
+                } else if (BackupArchiveWriter.MANIFEST_ENTRY.equals(entry.getName())) {
+                    manifestBytes = in.readAllBytes();
+                } else if (entry.isFile()) {
+                    contents.put(entry.getName(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+        }
+
+        assertEquals(LABEL, label);
+        assertEquals(2, contents.size());
+        assertEquals("<keys/>", contents.get(name("signer/keyconf.xml")));
+        assertFalse(contents.containsKey(name("signer/tmp123.tmp")));
+        assertFalse(contents.containsKey(name("gpghome/secring.gpg")));
+
+        final BackupManifest stored = BackupManifest.read(new ByteArrayInputStream(manifestBytes));
+        assertEquals(manifest.getEntries(), stored.getEntries());
+        for (Map.Entry<String, String> e : contents.entrySet()) {
+            assertEquals(sha256(e.getValue()), stored.get(e.getKey()).getDigest());
+        }
+    }
+
+    private BackupManifest write(ByteArrayOutputStream out) throws IOException {
+        try (BackupArchiveWriter writer = new BackupArchiveWriter(out, LABEL, excludes())) {
+            writer.add(root);
+            return writer.finish();
+        }
+    }
+
+    private List<String> excludes() {
+        return Collections.singletonList(root.resolve("gpghome").toString());
+    }
+
+    private String name(String relative) {
+        return root.resolve(relative).toString().substring(1);
+    }
+
+    private static String sha256(String content) throws Exception {
+        return encodeHex(MessageDigest.getInstance("SHA-256").digest(content.getBytes(StandardCharsets.UTF_8)));
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util.backup;
+
+import ee.ria.xroad.common.util.process.ExternalProcessRunner;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+public class ConfigurationBackupCreatorTest {
+
+    private static final Path SCRIPTS = Paths.get("../../packages/src/xroad/common/base/usr/share/xroad/scripts");
+    private static final String ENCRYPTION_ENABLED = "xroad.proxy.backup-encryption-enabled";
+    private static final String ENCRYPTION_KEY_IDS = "xroad.proxy.backup-encryption-keyids";
+    private static final String SERVER_ID = "INSTANCE/CLASS/CODE/SERVER";
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Path root;
+    private Path output;
+
+    @Before
+    public void setUp() throws IOException {
+        root = tempFolder.newFolder("root").toPath();
+        Files.createDirectories(root.resolve("etc/xroad"));
+        Files.writeString(root.resolve("etc/xroad/serverconf.ini"), "[proxy]");
+        Files.createDirectories(root.resolve("var/lib/xroad"));
+        Files.writeString(root.resolve("var/lib/xroad/dbdump.dat"), "dump");
+        output = tempFolder.getRoot().toPath().resolve("conf_backup.gpg");
+    }
+
+    @After
+    public void tearDown() {
+        System.clearProperty(ENCRYPTION_ENABLED);
+        System.clearProperty(ENCRYPTION_KEY_IDS);
+    }
+
+    @Test
+    public void shouldUseVersionLabelOfBackupScripts() throws IOException {
+        assertTrue(script("_backup_restore_common.sh")
+                .contains("XROAD_VERSION_LABEL=\"" + ConfigurationBackupCreator.XROAD_VERSION_LABEL + "\""));
+    }
+
+    @Test
+    public void shouldSignOnlyLikeBackupScript() throws IOException {
+        String command = String.join(" ", productionCreator().gpgCommand(SERVER_ID, output));
+
+        assertEquals(scriptGpgCommand() + "--output " + output, command);
+    }
+
+    @Test
+    public void shouldEncryptLikeBackupScript() throws IOException {
+        System.setProperty(ENCRYPTION_ENABLED, "true");
+        System.setProperty(ENCRYPTION_KEY_IDS, "AAAA1111, BBBB2222");
+
+        String command = String.join(" ", productionCreator().gpgCommand(SERVER_ID, output));
+
+        Matcher encryptionArgs = Pattern.compile("ENCRYPTION_ARGS=\\((--encrypt [^\"]*)\"\\$\\{FIRST_RECEIPIENT}\"\\)")
+                .matcher(script("_backup_xroad.sh"));
+        assertTrue(encryptionArgs.find());
+        assertEquals(scriptGpgCommand() + encryptionArgs.group(1) + SERVER_ID
+                + " -r AAAA1111 -r BBBB2222 --output " + output, command);
+    }
+
+    @Test
+    public void shouldCreateBackup() throws Exception {
+        creator(fakeGpg(0)).createSecurityServerBackup(SERVER_ID, output);
+
+        BackupManifest manifest = null;
+        try (TarArchiveInputStream in = new TarArchiveInputStream(Files.newInputStream(output))) {
+            TarArchiveEntry label = in.getNextTarEntry();
+            assertEquals('V', label.getLinkFlag());
+            assertEquals("security_" + ConfigurationBackupCreator.XROAD_VERSION_LABEL + "_" + SERVER_ID,
+                    label.getName());
+            TarArchiveEntry entry;
+            while ((entry = in.getNextTarEntry()) != null) {
+                if (BackupArchiveWriter.MANIFEST_ENTRY.equals(entry.getName())) {
+                    manifest = BackupManifest.read(in);
+                }
+            }
+        }
+        assertEquals(2, manifest.getEntries().size());
+    }
+
+    @Test
+    public void shouldRemoveOutputIfGpgFails() throws Exception {
+        ConfigurationBackupCreator creator = creator(fakeGpg(2));
+
+        try {
+            creator.createSecurityServerBackup(SERVER_ID, output);
+            fail("Backup should fail");
+        } catch (IOException expected) {
+            // gpg exit code
+        }
+
+        assertFalse(Files.exists(output));
+    }
+
+    private static ConfigurationBackupCreator productionCreator() {
+        return new ConfigurationBackupCreator(mock(ExternalProcessRunner.class));
+    }
+
+    private ConfigurationBackupCreator creator(String gpg) {
+        return new ConfigurationBackupCreator(mock(ExternalProcessRunner.class), gpg, root);
+    }
+
+    /**
+     * Writes a script that copies its input to the output file, like gpg would, and exits with the given code.
+     */
+    private String fakeGpg(int exitCode) throws IOException {
+        assumeTrue(Files.isExecutable(Paths.get("/bin/sh")));
+        Path script = tempFolder.getRoot().toPath().resolve("gpg");
+        Files.writeString(script, "#!/bin/sh\nfor arg; do out=\"$arg\"; done\ncat > \"$out\"\nexit " + exitCode + "\n");
+        Files.setPosixFilePermissions(script, PosixFilePermissions.fromString("rwx------"));
+        return script.toString();
+    }
+
+    /**
+     * @return the gpg command of _backup_xroad.sh up to the encryption arguments, ending with a space
+     */
+    private static String scriptGpgCommand() throws IOException {
+        Matcher gpg = Pattern.compile("\\| (gpg [^\"]*)\"\\$\\{ENCRYPTION_ARGS").matcher(script("_backup_xroad.sh"));
+        assertTrue(gpg.find());
+        return gpg.group(1);
+    }
+
+    private static String script(String name) throws IOException {
+        return new String(Files.readAllBytes(SCRIPTS.resolve(name)), StandardCharsets.UTF_8);
+    }
+}
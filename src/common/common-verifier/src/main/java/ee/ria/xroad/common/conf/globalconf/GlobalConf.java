@@ -41,6 +41,7 @@ import java.nio.file.Paths;
 import java.security.cert.X509Certificate;
 import java.util.Collection;
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.Set;
 
 import static ee.ria.xroad.common.ErrorCodes.X_OUTDATED_GLOBALCONF;
@@ -157,6 +158,19 @@ public final class GlobalConf {
         return provider.isValid();
     }
 
+    /**
+     * Returns the version of the loaded configuration content, which changes only when a reload finds
+     * changed configuration files.
+     * @return content version, or empty if it is not known
+     */
+    public static OptionalLong getContentVersion() {
+        GlobalConfProvider provider = getInstance();
+        if (provider == null) {
+            return OptionalLong.empty();
+        }
+        return provider.getContentVersion();
+    }
+
     /**
      * @return the instance identifier for this configuration source
      */
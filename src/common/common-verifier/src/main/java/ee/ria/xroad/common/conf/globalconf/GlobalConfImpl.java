@@ -54,6 +54,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -116,6 +117,11 @@ public class GlobalConfImpl implements GlobalConfProvider {
         }
     }
 
+    @Override
+    public OptionalLong getContentVersion() {
+        return OptionalLong.of(confDir.getContentVersion());
+    }
+
     @Override
     public String getInstanceIdentifier() {
         return confDir.getInstanceIdentifier();
@@ -182,11 +188,8 @@ public class GlobalConfImpl implements GlobalConfProvider {
             throw new CodedException(X_INTERNAL_ERROR, e);
         }
 
-        return p == null ? null : p.getMembers().stream()
-                .filter(m -> createMemberId(p, m).memberEquals(clientId))
-                .map(SharedParameters.Member::getName)
-                .findFirst()
-                .orElse(null);
+        return p == null ? null : p.getMemberNames().get(
+                ClientId.Conf.create(clientId.getXRoadInstance(), clientId.getMemberClass(), clientId.getMemberCode()));
     }
 
     @Override
@@ -37,6 +37,7 @@ import java.security.cert.X509Certificate;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.Set;
 
 /**
@@ -57,6 +58,15 @@ public interface GlobalConfProvider {
      */
     boolean isValid();
 
+    /**
+     * Returns the version of the loaded configuration content. The version stays the same across reloads
+     * that find no changed configuration files.
+     * @return content version, or empty if the provider does not track content changes
+     */
+    default OptionalLong getContentVersion() {
+        return OptionalLong.empty();
+    }
+
     /**
      * @return the instance identifier for this configuration source
      */
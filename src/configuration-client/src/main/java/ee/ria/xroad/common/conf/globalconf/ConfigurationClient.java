@@ -98,7 +98,7 @@ class ConfigurationClient {
     private void initConfigurationAnchor() throws Exception {
         log.trace("initConfigurationAnchor()");
 
-        String anchorFileName = SystemProperties.getConfigurationAnchorFile();
+        String anchorFileName = getConfigurationAnchorFile();
         if (!Files.exists(Paths.get(anchorFileName))) {
             log.warn("Cannot download configuration, anchor file {} does not exist", anchorFileName);
 
@@ -106,7 +106,7 @@ class ConfigurationClient {
         }
 
         try {
-            configurationAnchor = new ConfigurationAnchor(anchorFileName);
+            configurationAnchor = loadConfigurationAnchor(anchorFileName);
         } catch (Exception e) {
             String message = String.format("Failed to load configuration anchor from file %s", anchorFileName);
 
@@ -119,6 +119,14 @@ class ConfigurationClient {
 
     }
 
+    String getConfigurationAnchorFile() {
+        return SystemProperties.getConfigurationAnchorFile();
+    }
+
+    ConfigurationSource loadConfigurationAnchor(String anchorFileName) {
+        return new ConfigurationAnchor(anchorFileName);
+    }
+
     void saveInstanceIdentifier() throws Exception {
         ConfigurationDirectory.saveInstanceIdentifier(globalConfigurationDir,
                 configurationAnchor.getInstanceIdentifier());
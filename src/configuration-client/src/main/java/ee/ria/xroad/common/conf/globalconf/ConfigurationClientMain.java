@@ -50,12 +50,6 @@ import org.quartz.JobListener;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
-import java.io.IOException;
-import java.nio.file.Path;
-import java.security.cert.CertificateEncodingException;
-import java.util.Collections;
-import java.util.List;
-import java.util.Set;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -83,7 +77,8 @@ public final class ConfigurationClientMain {
     static {
         SystemPropertiesLoader.create()
                 .withCommonAndLocal()
-                .with(CONF_FILE_PROXY, "configuration-client")
+                // the proxy section holds the backup encryption settings used by the configuration auto-backup
+                .with(CONF_FILE_PROXY, "configuration-client", "proxy")
                 .load();
 
         listener = new ConfigurationClientJobListener();
@@ -118,7 +113,7 @@ public final class ConfigurationClientMain {
             System.exit(download(actualArgs[0], actualArgs[1], Integer.parseInt(actualArgs[2])));
         } else if (actualArgs.length == NUM_ARGS_FROM_CONF_PROXY) {
             // Run configuration client in one-shot mode downloading the current global configuration version.
-            System.exit(download(actualArgs[0], actualArgs[1]));
+            System.exit(download(actualArgs[0], actualArgs[1], null));
         } else if (actualArgs.length == 1) {
             // Run configuration client in validate mode.
             System.exit(validate(actualArgs[0], getParamsValidator(cmd)));
@@ -140,89 +135,22 @@ public final class ConfigurationClientMain {
         return parser.parse(options, args);
     }
 
-    private static int download(String configurationAnchorFile, String configurationPath, int configurationVersion) {
+    private static int download(String configurationAnchorFile, String configurationPath, Integer configurationVersion) {
         log.debug("Downloading configuration using anchor {} path = {})",
                 configurationAnchorFile, configurationPath);
 
-        System.setProperty(SystemProperties.CONFIGURATION_ANCHOR_FILE, configurationAnchorFile);
-
-        client = new ConfigurationClient(configurationPath, configurationVersion) {
-            @Override
-            protected void deleteExtraConfigurationDirectories(
-                    List<ConfigurationSource> configurationSources,
-                    FederationConfigurationSourceFilter sourceFilter) {
-                // do not delete anything
-            }
-        };
-
-        return execute();
-    }
-
-    private static int download(String configurationAnchorFile, String configurationPath) {
-        log.debug("Downloading configuration using anchor {} path = {})",
-                configurationAnchorFile, configurationPath);
-
-        System.setProperty(SystemProperties.CONFIGURATION_ANCHOR_FILE, configurationAnchorFile);
-
-        client = new ConfigurationClient(configurationPath) {
-            @Override
-            protected void deleteExtraConfigurationDirectories(
-                    List<ConfigurationSource> configurationSources,
-                    FederationConfigurationSourceFilter sourceFilter) {
-                // do not delete anything
-            }
-        };
+        client = OneShotConfigurationClient.createDownloadClient(configurationAnchorFile, configurationPath,
+                configurationVersion);
 
         return execute();
     }
 
-    private static int validate(String configurationAnchorFile, final ParamsValidator paramsValidator)
-            throws Exception {
+    private static int validate(String configurationAnchorFile, final ParamsValidator paramsValidator) {
         log.trace("Downloading configuration using anchor {}", configurationAnchorFile);
 
         // Create configuration that does not persist files to disk.
-        final String configurationPath = SystemProperties.getConfigurationPath();
-
-        var configurationDownloader = new ConfigurationDownloader(configurationPath) {
-            @Override
-            void handleContent(byte[] content, ConfigurationFile file) throws CertificateEncodingException, IOException {
-                validateContent(file);
-                super.handleContent(content, file);
-            }
-
-            @Override
-            void validateContent(ConfigurationFile file) {
-                paramsValidator.tryMarkValid(file.getContentIdentifier());
-            }
-
-            @Override
-            Set<Path> persistAllContent(
-                    List<ConfigurationDownloader.DownloadedContent> downloadedContents) {
-                // empty because we don't want to persist files to disk
-                // can return empty list because extra files deletion method is also empty
-                return Collections.emptySet();
-            }
-
-            @Override
-            void deleteExtraFiles(String instanceIdentifier, Set<Path> neededFiles) {
-                // do not delete anything
-            }
-
-        };
-
-        ConfigurationAnchor configurationAnchor = new ConfigurationAnchor(configurationAnchorFile);
-        client = new ConfigurationClient(configurationPath, configurationDownloader, configurationAnchor) {
-            @Override
-            protected void deleteExtraConfigurationDirectories(List<ConfigurationSource> configurationSources,
-                                                               FederationConfigurationSourceFilter sourceFilter) {
-                // do not delete any files
-            }
-
-            @Override
-            void saveInstanceIdentifier() {
-                // Not needed.
-            }
-        };
+        client = OneShotConfigurationClient.createValidationClient(configurationAnchorFile,
+                paramsValidator::tryMarkValid);
 
         int result = execute();
 
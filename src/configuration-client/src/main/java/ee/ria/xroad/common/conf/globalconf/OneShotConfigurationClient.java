@@ -0,0 +1,181 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.globalconf;
+
+import ee.ria.xroad.common.SystemProperties;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.security.cert.CertificateEncodingException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Runs the configuration client in one-shot mode inside the calling process, e.g. the configuration proxy.
+ * Parsed configuration anchors are cached by file name and only reloaded when the file changes, and all downloads
+ * share the HTTP keep-alive connections of the process, so several versions and instances can be downloaded in one
+ * run without starting a configuration client process for each of them.
+ */
+@Slf4j
+public final class OneShotConfigurationClient {
+
+    private static final Map<String, ConfigurationAnchor> ANCHORS = new ConcurrentHashMap<>();
+
+    private OneShotConfigurationClient() {
+    }
+
+    /**
+     * Downloads the given global configuration version from the source defined in the anchor.
+     * @param configurationAnchorFile path to the source anchor xml file
+     * @param configurationPath where the downloaded files should be placed
+     * @param configurationVersion global configuration version to download
+     * @throws Exception if the download fails
+     */
+    public static void download(String configurationAnchorFile, String configurationPath, int configurationVersion)
+            throws Exception {
+        log.debug("Downloading configuration version {} using anchor {} path = {}",
+                configurationVersion, configurationAnchorFile, configurationPath);
+
+        createDownloadClient(configurationAnchorFile, configurationPath, configurationVersion).execute();
+    }
+
+    /**
+     * Downloads the configuration from the source defined in the anchor without persisting it, in order to check
+     * that the source provides a valid configuration.
+     * @param configurationAnchorFile path to the source anchor xml file
+     * @throws Exception if the configuration can not be downloaded or is not valid
+     */
+    public static void validate(String configurationAnchorFile) throws Exception {
+        log.debug("Validating configuration using anchor {}", configurationAnchorFile);
+
+        createValidationClient(configurationAnchorFile, contentIdentifier -> { }).execute();
+    }
+
+    /**
+     * Creates a client that downloads the configuration to the given path without deleting the configuration
+     * directories of other instances.
+     * @param configurationVersion global configuration version to download, or null for the current version
+     */
+    static ConfigurationClient createDownloadClient(String configurationAnchorFile, String configurationPath,
+                                                    Integer configurationVersion) {
+        ConfigurationDownloader downloader = configurationVersion == null
+                ? new ConfigurationDownloader(configurationPath)
+                : new ConfigurationDownloader(configurationPath, configurationVersion);
+
+        return new AnchorFileClient(configurationPath, downloader, configurationAnchorFile, true);
+    }
+
+    /**
+     * Creates a client that downloads the configuration without persisting it and passes the content identifier of
+     * every configuration file to the given validator.
+     */
+    static ConfigurationClient createValidationClient(String configurationAnchorFile,
+                                                      Consumer<String> contentValidator) {
+        String configurationPath = SystemProperties.getConfigurationPath();
+
+        ConfigurationDownloader downloader = new ConfigurationDownloader(configurationPath) {
+            @Override
+            void handleContent(byte[] content, ConfigurationFile file) throws CertificateEncodingException, IOException {
+                validateContent(file);
+                super.handleContent(content, file);
+            }
+
+            @Override
+            void validateContent(ConfigurationFile file) {
+                contentValidator.accept(file.getContentIdentifier());
+            }
+
+            @Override
+            Set<Path> persistAllContent(List<DownloadedContent> downloadedContents) {
+                // do not persist anything
+                return Collections.emptySet();
+            }
+
+            @Override
+            void deleteExtraFiles(String instanceIdentifier, Set<Path> neededFiles) {
+                // do not delete anything
+            }
+        };
+
+        return new AnchorFileClient(configurationPath, downloader, configurationAnchorFile, false);
+    }
+
+    private static ConfigurationAnchor getAnchor(String configurationAnchorFile) {
+        return ANCHORS.compute(configurationAnchorFile, (file, cached) -> {
+            if (cached != null && !cached.hasChanged()) {
+                return cached;
+            }
+
+            log.debug("Loading configuration anchor {}", file);
+
+            return new ConfigurationAnchor(file);
+        });
+    }
+
+    /**
+     * Configuration client that uses the given anchor file instead of the configured one.
+     */
+    private static final class AnchorFileClient extends ConfigurationClient {
+        private final String configurationAnchorFile;
+        private final boolean persistent;
+
+        private AnchorFileClient(String configurationPath, ConfigurationDownloader downloader,
+                                 String configurationAnchorFile, boolean persistent) {
+            super(configurationPath, downloader, null);
+            this.configurationAnchorFile = configurationAnchorFile;
+            this.persistent = persistent;
+        }
+
+        @Override
+        protected void deleteExtraConfigurationDirectories(List<ConfigurationSource> configurationSources,
+                                                           FederationConfigurationSourceFilter sourceFilter) {
+            // do not delete anything
+        }
+
+        @Override
+        String getConfigurationAnchorFile() {
+            return configurationAnchorFile;
+        }
+
+        @Override
+        ConfigurationSource loadConfigurationAnchor(String anchorFileName) {
+            return getAnchor(anchorFileName);
+        }
+
+        @Override
+        void saveInstanceIdentifier() throws Exception {
+            if (persistent) {
+                super.saveInstanceIdentifier();
+            }
+        }
+    }
+}
@@ -26,8 +26,11 @@
  */
 package org.niis.xroad.schedule.backup;
 
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.conf.globalconf.ConfigurationClientJob;
 import ee.ria.xroad.common.util.JobManager;
+import ee.ria.xroad.common.util.TimeUtils;
+import ee.ria.xroad.common.util.backup.ConfigurationBackupCreator;
 import ee.ria.xroad.common.util.process.ExternalProcessRunner;
 import ee.ria.xroad.common.util.process.ProcessFailedException;
 import ee.ria.xroad.common.util.process.ProcessNotExecutableException;
@@ -38,33 +41,61 @@ import org.quartz.DisallowConcurrentExecution;
 import org.quartz.JobExecutionContext;
 import org.quartz.SchedulerException;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.format.DateTimeFormatter;
+
 /**
- * A quartz job that executes proxy autobackup script.
+ * A quartz job that backs up the security server configuration, in-process unless backup streaming is disabled
+ * in which case the proxy autobackup script is executed.
  */
 @Slf4j
 @DisallowConcurrentExecution
 public class ProxyConfigurationBackupJob extends RetryingQuartzJob {
     private static final String AUTOBACKUP_SCRIPT_PATH = "/usr/share/xroad/scripts/autobackup_xroad_proxy_configuration.sh";
+    private static final String SECURITY_SERVER_ID_SCRIPT_PATH = "/usr/share/xroad/scripts/get_security_server_id.sh";
+    private static final Path BACKUP_PATH = Paths.get("/var/lib/xroad/backup");
+    private static final DateTimeFormatter BACKUP_FILENAME_FORMAT =
+            DateTimeFormatter.ofPattern("'ss-automatic-backup-'yyyy_MM_dd_HHmmss'.gpg'");
     private static final int RETRY_DELAY_SEC = 5;
 
     private final ExternalProcessRunner externalProcessRunner;
+    private final ConfigurationBackupCreator configurationBackupCreator;
 
     public ProxyConfigurationBackupJob() {
         super(RETRY_DELAY_SEC);
         this.externalProcessRunner = new ExternalProcessRunner();
+        this.configurationBackupCreator = new ConfigurationBackupCreator(externalProcessRunner);
     }
 
-    ProxyConfigurationBackupJob(ExternalProcessRunner externalProcessRunner) {
+    ProxyConfigurationBackupJob(ExternalProcessRunner externalProcessRunner,
+            ConfigurationBackupCreator configurationBackupCreator) {
         super(RETRY_DELAY_SEC);
         this.externalProcessRunner = externalProcessRunner;
+        this.configurationBackupCreator = configurationBackupCreator;
     }
 
     @Override
     protected void executeWithRetry(JobExecutionContext context)
-            throws ProcessFailedException, InterruptedException, ProcessNotExecutableException {
+            throws ProcessFailedException, InterruptedException, ProcessNotExecutableException, IOException {
         log.info("Executing security server configuration auto-backup...");
-        ExternalProcessRunner.ProcessResult processResult = externalProcessRunner.executeAndThrowOnFailure(AUTOBACKUP_SCRIPT_PATH);
-        log.info("Auto-backup execution output: {}", String.join("\n", processResult.getProcessOutput()));
+        if (!SystemProperties.isBackupStreamingEnabled()) {
+            ExternalProcessRunner.ProcessResult processResult = externalProcessRunner.executeAndThrowOnFailure(AUTOBACKUP_SCRIPT_PATH);
+            log.info("Auto-backup execution output: {}", String.join("\n", processResult.getProcessOutput()));
+            return;
+        }
+
+        // like the autobackup script, skip the backup until the security server has been initialized
+        ExternalProcessRunner.ProcessResult idResult = externalProcessRunner.execute(SECURITY_SERVER_ID_SCRIPT_PATH);
+        String securityServerId = idResult.getExitCode() == 0 && !idResult.getProcessOutput().isEmpty()
+                ? idResult.getProcessOutput().get(0).trim() : "";
+        if (securityServerId.isEmpty()) {
+            log.info("Security server is not initialized, skipping auto-backup");
+            return;
+        }
+        configurationBackupCreator.createSecurityServerBackup(securityServerId,
+                BACKUP_PATH.resolve(TimeUtils.localDateTimeNow().format(BACKUP_FILENAME_FORMAT)));
     }
 
     @Override
@@ -27,11 +27,14 @@
 package org.niis.xroad.schedule.backup;
 
 import ee.ria.xroad.common.conf.globalconf.ConfigurationClientJob;
+import ee.ria.xroad.common.util.backup.ConfigurationBackupCreator;
 import ee.ria.xroad.common.util.process.ExternalProcessRunner;
 
 import com.google.common.collect.Lists;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.contrib.java.lang.system.RestoreSystemProperties;
 import org.junit.runner.RunWith;
 import org.mockito.Answers;
 import org.mockito.Mock;
@@ -39,9 +42,13 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobKey;
 
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -50,9 +57,17 @@ import static org.mockito.Mockito.when;
 
 @RunWith(MockitoJUnitRunner.class)
 public class ProxyConfigurationBackupJobTest {
+    private static final String SERVER_ID = "INSTANCE/CLASS/CODE/SERVER";
+
+    @Rule
+    public final RestoreSystemProperties restoreSystemProperties = new RestoreSystemProperties();
+
     @Mock
     private ExternalProcessRunner externalProcessRunner;
 
+    @Mock
+    private ConfigurationBackupCreator configurationBackupCreator;
+
     @Mock(answer = Answers.RETURNS_DEEP_STUBS)
     private JobExecutionContext jobExecutionContext;
 
@@ -60,11 +75,35 @@ public class ProxyConfigurationBackupJobTest {
 
     @Before
     public void setUp() {
-        configurationBackupJob = new ProxyConfigurationBackupJob(externalProcessRunner);
+        configurationBackupJob = new ProxyConfigurationBackupJob(externalProcessRunner, configurationBackupCreator);
+    }
+
+    @Test
+    public void shouldCreateBackupInProcess() throws Exception {
+        when(jobExecutionContext.getScheduler().getCurrentlyExecutingJobs()).thenReturn(new ArrayList<>());
+        when(externalProcessRunner.execute(anyString()))
+                .thenReturn(new ExternalProcessRunner.ProcessResult("", 0, Collections.singletonList(SERVER_ID)));
+
+        configurationBackupJob.execute(jobExecutionContext);
+
+        verify(configurationBackupCreator, times(1)).createSecurityServerBackup(eq(SERVER_ID), any(Path.class));
+        verify(externalProcessRunner, never()).executeAndThrowOnFailure(anyString());
+    }
+
+    @Test
+    public void shouldSkipBackupIfServerNotInitialized() throws Exception {
+        when(jobExecutionContext.getScheduler().getCurrentlyExecutingJobs()).thenReturn(new ArrayList<>());
+        when(externalProcessRunner.execute(anyString()))
+                .thenReturn(new ExternalProcessRunner.ProcessResult("", 1, new ArrayList<>()));
+
+        configurationBackupJob.execute(jobExecutionContext);
+
+        verify(configurationBackupCreator, never()).createSecurityServerBackup(anyString(), any(Path.class));
     }
 
     @Test
     public void shouldTriggerBashScript() throws Exception {
+        System.setProperty("xroad.proxy.backup-streaming-enabled", "false");
         when(jobExecutionContext.getScheduler().getCurrentlyExecutingJobs()).thenReturn(new ArrayList<>());
         when(externalProcessRunner.executeAndThrowOnFailure(anyString()))
                 .thenReturn(new ExternalProcessRunner.ProcessResult("", 0, new ArrayList<>()));
@@ -87,5 +126,6 @@ public class ProxyConfigurationBackupJobTest {
         configurationBackupJob.execute(jobExecutionContext);
 
         verify(externalProcessRunner, never()).executeAndThrowOnFailure(anyString());
+        verify(configurationBackupCreator, never()).createSecurityServerBackup(anyString(), any(Path.class));
     }
 }
@@ -34,6 +34,12 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Defines a configuration proxy instance and carries out it's main operations.
@@ -55,24 +61,73 @@ public class ConfProxy {
     /**
      * Launch the configuration proxy instance. Downloads signed directory,
      * signs it's content and moves it to the public distribution directory.
+     * The global configuration versions are processed concurrently.
      * @throws Exception in case of any errors
      */
     public final void execute() throws Exception {
         log.debug("Purge outdated generations");
         ConfProxyHelper.purgeOutdatedGenerations(conf);
-        for (int version = SystemProperties.CURRENT_GLOBAL_CONFIGURATION_VERSION;
-                version >= SystemProperties.getMinimumConfigurationProxyGlobalConfigurationVersion();
-                version--) {
-            log.debug("Download global configuration version {}. Minimum version {}", version,
-                    SystemProperties.getMinimumConfigurationProxyGlobalConfigurationVersion());
-            ConfigurationDirectory confDir = download(version);
-            log.debug("Create output builder");
-            try (OutputBuilder output = new OutputBuilder(confDir, conf, version)) {
-                log.debug("Build signed directory");
-                output.buildSignedDirectory();
-                output.move();
-                log.debug("Finished execute");
+
+        int minVersion = SystemProperties.getMinimumConfigurationProxyGlobalConfigurationVersion();
+        int maxVersion = SystemProperties.CURRENT_GLOBAL_CONFIGURATION_VERSION;
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, maxVersion - minVersion + 1));
+
+        try {
+            List<Future<?>> results = new ArrayList<>();
+
+            for (int version = maxVersion; version >= minVersion; version--) {
+                final int currentVersion = version;
+                results.add(executor.submit(() -> {
+                    execute(currentVersion);
+                    return null;
+                }));
+            }
+
+            Exception failure = null;
+
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+
+                    if (failure == null) {
+                        failure = cause;
+                    } else {
+                        failure.addSuppressed(cause);
+                    }
+                }
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Downloads the given global configuration version and publishes a signed directory for it, unless the
+     * previously published directory was generated from the same content.
+     * @param version global configuration version
+     * @throws Exception in case of any errors
+     */
+    private void execute(int version) throws Exception {
+        log.debug("Download global configuration version {}. Minimum version {}", version,
+                SystemProperties.getMinimumConfigurationProxyGlobalConfigurationVersion());
+        ConfigurationDirectory confDir = download(version);
+        log.debug("Create output builder");
+        try (OutputBuilder output = new OutputBuilder(confDir, conf, version)) {
+            if (output.isUpToDate()) {
+                log.info("Global configuration version {} has not changed, keeping the published directory",
+                        version);
+                return;
             }
+            log.debug("Build signed directory");
+            output.buildSignedDirectory();
+            output.move();
+            log.debug("Finished execute");
         }
     }
 
@@ -80,7 +135,7 @@ public class ConfProxy {
      * Downloads the global configuration to configuration download path e.g. /etc/xroad/globalconf,
      * according to the instance configuration.
      * @return downloaded configuration directory
-     * @throws Exception if configuration client script encounters errors
+     * @throws Exception if configuration client encounters errors
      */
     private ConfigurationDirectory download(int version) throws Exception {
         log.debug("Create directories");
@@ -104,7 +104,8 @@ public class ConfProxyProperties {
 
     /**
      * Gets the location of the configuration client script, which downloads
-     * the global configuration.
+     * the global configuration. The configuration proxy itself runs the
+     * configuration client in-process, the script is for manual downloads.
      *
      * @return path to the configuration client script
      */
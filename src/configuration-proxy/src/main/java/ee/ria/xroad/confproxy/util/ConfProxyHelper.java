@@ -26,7 +26,9 @@
 package ee.ria.xroad.confproxy.util;
 
 import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.conf.globalconf.ConfigurationClientUtils;
 import ee.ria.xroad.common.conf.globalconf.ConfigurationDirectory;
+import ee.ria.xroad.common.conf.globalconf.OneShotConfigurationClient;
 import ee.ria.xroad.common.conf.globalconf.VersionedConfigurationDirectory;
 import ee.ria.xroad.confproxy.ConfProxyProperties;
 
@@ -43,18 +45,17 @@ import java.util.Date;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
+import static ee.ria.xroad.common.DiagnosticsErrorCodes.ERROR_CODE_CANNOT_DOWNLOAD_CONF;
+import static ee.ria.xroad.common.DiagnosticsErrorCodes.ERROR_CODE_EXPIRED_CONF;
+import static ee.ria.xroad.common.DiagnosticsErrorCodes.ERROR_CODE_INVALID_SIGNATURE_VALUE;
+
 /**
  * Provides configuration proxy utility functions.
  */
 @Slf4j
 public final class ConfProxyHelper {
-    private static final int SUCCESS = 0;
-    private static final int ERROR_CODE_INTERNAL = 125;
-    private static final int ERROR_CODE_INVALID_SIGNATURE_VALUE = 124;
-    private static final int ERROR_CODE_EXPIRED_CONF = 123;
-    private static final int ERROR_CODE_CANNOT_DOWNLOAD_CONF = 122;
     private static final int MAX_CONFIGURATION_LIFETIME_SECONDS = 600;
-    private static final String CONFIGURATION_CLIENT_ERROR = "configuration-client error (exit code %1$d)";
+    private static final String CONFIGURATION_CLIENT_ERROR = "configuration-client error (error code %1$d)";
 
     /**
      * Unavailable utility class constructor.
@@ -63,88 +64,71 @@ public final class ConfProxyHelper {
     }
 
     /**
-     * Invoke the configuration client script to download the global
+     * Invoke the configuration client to download the global
      * configuration from the source defined in the provided source anchor.
+     * The configuration client runs in-process, so the parsed anchors and
+     * HTTP connections are reused across versions and instances.
      * @param path where the downloaded files should be placed
      * @param sourceAnchor path to the source anchor xml file
+     * @param version global configuration version to download
      * @return downloaded configuration directory
      * @throws Exception if an configuration client error occurs
      */
     public static ConfigurationDirectory downloadConfiguration(
             final String path, final String sourceAnchor, final int version) throws Exception {
-        ProcessBuilder pb = new ProcessBuilder(
-                ConfProxyProperties.getDownloadScriptPath(),
-                sourceAnchor, path, String.format("%d", version));
-        pb.redirectErrorStream(true);
-        pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
-        log.info("Running '{} {} {} {}' ...", ConfProxyProperties.getDownloadScriptPath(), sourceAnchor, path,
-                version);
-        runConfClient(pb);
+        log.info("Downloading global configuration version {} using anchor {} to {} ...", version, sourceAnchor,
+                path);
+        runConfClient(() -> OneShotConfigurationClient.download(sourceAnchor, path, version));
         return new VersionedConfigurationDirectory(path);
     }
 
     /**
-     * Invoke the configuration client script to check whether the downloaded
+     * Invoke the configuration client to check whether the downloaded
      * global configuration is valid according to the provided source anchor.
      * @param sourceAnchor path to the source anchor xml file
      * @throws Exception if an configuration client error occurs
      */
     public static void validateConfiguration(final String sourceAnchor)
             throws Exception {
-        ProcessBuilder pb = new ProcessBuilder(
-                ConfProxyProperties.getDownloadScriptPath(),
-                sourceAnchor);
-        pb.redirectErrorStream(true);
-        pb.redirectOutput(ProcessBuilder.Redirect.INHERIT);
-        log.info("Running '{} {}' ...",
-                ConfProxyProperties.getDownloadScriptPath(),
+        log.info("Validating global configuration using anchor {} ...",
                 sourceAnchor);
-        runConfClient(pb);
+        runConfClient(() -> OneShotConfigurationClient.validate(sourceAnchor));
     }
 
     /**
-     * Helper method for running the configuration client script.
-     * @param pb the configuration client script process builder
+     * Helper method for running the configuration client.
+     * @param confClientCall the configuration client call
      * @throws Exception if errors occur when running the configuration client
      */
-    private static void runConfClient(final ProcessBuilder pb)
+    private static void runConfClient(final ConfClientCall confClientCall)
             throws Exception {
-        int exitCode = -1;
         try {
-            Process process = pb.start();
-            exitCode = process.waitFor();
-
-        } catch (IOException e) {
-            log.error("IOException", e);
-            exitCode = 2;
-            throw e;
+            confClientCall.run();
         } catch (Exception e) {
-            log.error("Undetermined ConfigurationClient exitCode", e);
-            //undetermined ConfigurationClient exitCode, fail in 'finally'
-            throw e;
-        }
-        switch (exitCode) {
-            case SUCCESS:
-                break;
-            case ERROR_CODE_CANNOT_DOWNLOAD_CONF:
-                throw new Exception(String.format(CONFIGURATION_CLIENT_ERROR, exitCode)
-                        + ", download failed");
-            case ERROR_CODE_EXPIRED_CONF:
-                throw new Exception(String.format(CONFIGURATION_CLIENT_ERROR, exitCode)
-                        + ", configuration is outdated");
-            case ERROR_CODE_INVALID_SIGNATURE_VALUE:
-                throw new Exception(String.format(CONFIGURATION_CLIENT_ERROR, exitCode)
-                        + ", configuration is incorrect");
-            case ERROR_CODE_INTERNAL:
-                throw new Exception(String.format(CONFIGURATION_CLIENT_ERROR, exitCode));
-            default:
-                throw new Exception("Failed to download GlobalConf ["
-                        + String.format(CONFIGURATION_CLIENT_ERROR, exitCode)
-                        + "], make sure configuration-client is"
-                        + "installed correctly");
+            log.error("Error when downloading conf", e);
+
+            int errorCode = ConfigurationClientUtils.getErrorCode(e);
+            switch (errorCode) {
+                case ERROR_CODE_CANNOT_DOWNLOAD_CONF:
+                    throw new Exception(String.format(CONFIGURATION_CLIENT_ERROR, errorCode)
+                            + ", download failed", e);
+                case ERROR_CODE_EXPIRED_CONF:
+                    throw new Exception(String.format(CONFIGURATION_CLIENT_ERROR, errorCode)
+                            + ", configuration is outdated", e);
+                case ERROR_CODE_INVALID_SIGNATURE_VALUE:
+                    throw new Exception(String.format(CONFIGURATION_CLIENT_ERROR, errorCode)
+                            + ", configuration is incorrect", e);
+                default:
+                    throw new Exception(String.format(CONFIGURATION_CLIENT_ERROR, errorCode), e);
+            }
         }
     }
 
+    @FunctionalInterface
+    private interface ConfClientCall {
+        void run() throws Exception;
+    }
+
     /**
      * Gets all existing subdirectory names from the configuration proxy
      * configuration directory, which correspond to the configuration proxy
@@ -182,8 +166,7 @@ public final class ConfProxyHelper {
             }
             long diffSeconds = TimeUnit.MILLISECONDS
                     .toSeconds((current.getTime() - old.getTime()));
-            long timeToKeep = Math.min(MAX_CONFIGURATION_LIFETIME_SECONDS,
-                    conf.getValidityIntervalSeconds());
+            long timeToKeep = getGenerationLifetimeSeconds(conf);
             if (diffSeconds > timeToKeep) {
                 Path oldPath =
                         Paths.get(conf.getConfigurationTargetPath(), genTime);
@@ -197,6 +180,16 @@ public final class ConfProxyHelper {
         }
     }
 
+    /**
+     * Returns the time a generated global configuration is kept in the configuration target path before it is
+     * purged.
+     * @param conf the configuration proxy instance configuration
+     * @return generation lifetime in seconds
+     */
+    public static long getGenerationLifetimeSeconds(final ConfProxyProperties conf) {
+        return Math.min(MAX_CONFIGURATION_LIFETIME_SECONDS, conf.getValidityIntervalSeconds());
+    }
+
     /**
      * Gets the list of subdirectory names in the given directory path.
      * @param dir path to the directory
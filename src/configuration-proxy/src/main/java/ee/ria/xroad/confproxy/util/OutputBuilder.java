@@ -27,6 +27,7 @@ package ee.ria.xroad.confproxy.util;
 
 import ee.ria.xroad.common.conf.globalconf.ConfigurationDirectory;
 import ee.ria.xroad.common.conf.globalconf.ConfigurationPartMetadata;
+import ee.ria.xroad.common.util.AtomicSave;
 import ee.ria.xroad.common.util.CryptoUtils;
 import ee.ria.xroad.common.util.HashCalculator;
 import ee.ria.xroad.common.util.MimeTypes;
@@ -38,13 +39,17 @@ import ee.ria.xroad.signer.SignerProxy;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.TeeOutputStream;
+import org.bouncycastle.operator.DigestCalculator;
 import org.eclipse.jetty.util.MultiPartWriter;
 
-import java.io.ByteArrayOutputStream;
+import java.io.BufferedOutputStream;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -53,9 +58,13 @@ import java.time.OffsetDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
-import java.util.Date;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
-import static ee.ria.xroad.common.util.CryptoUtils.calculateDigest;
+import static ee.ria.xroad.common.util.CryptoUtils.createDigestCalculator;
 import static ee.ria.xroad.common.util.CryptoUtils.encodeBase64;
 import static ee.ria.xroad.common.util.MimeUtils.HEADER_CONTENT_IDENTIFIER;
 import static ee.ria.xroad.common.util.MimeUtils.HEADER_CONTENT_LOCATION;
@@ -78,14 +87,20 @@ import static ee.ria.xroad.common.util.MimeUtils.randomBoundary;
 public class OutputBuilder implements AutoCloseable {
 
     public static final String SIGNED_DIRECTORY_NAME = "conf";
+    private static final String STATE_FILE_FORMAT = ".%s-v%d.state";
+    private static final String CONTENT_FILE_FORMAT = "%s-v%d.content";
     private static final DateTimeFormatter DATETIME_FORMAT =
             DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(ZoneId.of("UTC"));
 
+    // generation timestamps must be unique since the versions are built concurrently
+    private static final AtomicLong LAST_GENERATION = new AtomicLong();
+
     private final ConfigurationDirectory confDir;
     private final ConfProxyProperties conf;
     private final int version;
 
     private Path tempConfPath;
+    private Path tempContentPath;
     private HashCalculator hashCalculator;
     private String timestamp;
     private Path tempDirPath;
@@ -94,6 +109,8 @@ public class OutputBuilder implements AutoCloseable {
     private String envelopeBoundary;
     private String envelopeHeader;
 
+    private String fingerprint;
+
     /**
      * Constructs an output builder for the given global configuration directory
      * and configuration proxy instance configuration.
@@ -110,24 +127,66 @@ public class OutputBuilder implements AutoCloseable {
         setup();
     }
 
+    /**
+     * Checks whether the configuration published by a previous run was generated from the same downloaded
+     * content and signing configuration, and is still fresh enough to be served without regenerating it.
+     * A generation is regenerated after half of its lifetime so that it is never purged while still referenced.
+     * @return true if building the signed directory can be skipped
+     * @throws Exception if reading the downloaded configuration files fails
+     */
+    public final boolean isUpToDate() throws Exception {
+        fingerprint = calculateFingerprint();
+
+        Path stateFile = getStateFile();
+
+        if (!Files.exists(stateFile)) {
+            return false;
+        }
+
+        List<String> state = Files.readAllLines(stateFile, StandardCharsets.UTF_8);
+
+        if (state.size() != 2 || !fingerprint.equals(state.get(1))) {
+            return false;
+        }
+
+        Path targetPath = Paths.get(conf.getConfigurationTargetPath());
+        String generation = state.get(0);
+
+        if (!Files.isDirectory(targetPath.resolve(generation))
+                || !Files.exists(targetPath.resolve(String.format("%s-v%d", SIGNED_DIRECTORY_NAME, version)))) {
+            return false;
+        }
+
+        try {
+            long age = System.currentTimeMillis() - Long.parseLong(generation);
+
+            return age < TimeUnit.SECONDS.toMillis(ConfProxyHelper.getGenerationLifetimeSeconds(conf)) / 2;
+        } catch (NumberFormatException e) {
+            log.warn("Unable to parse generation '{}' in '{}'", generation, stateFile);
+
+            return false;
+        }
+    }
+
     /**
      * Generates a signed directory MIME for the global configuration and
-     * writes the directory contents to a temporary location.
+     * writes the directory contents to a temporary location. The directory content is streamed to a temporary
+     * file while its digest is calculated, so the configuration is never held in memory as a whole.
      * @throws Exception if errors occur when reading global configuration files
      */
     public final void buildSignedDirectory() throws Exception {
-        try (ByteArrayOutputStream mimeContent = new ByteArrayOutputStream()) {
-            build(mimeContent);
+        String digestAlgorithmId = conf.getSignatureDigestAlgorithmId();
+        DigestCalculator digestCalculator = createDigestCalculator(digestAlgorithmId);
 
-            log.debug("Generated directory content:\n{}\n", mimeContent.toString());
+        try (OutputStream out = new TeeOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempContentPath)),
+                digestCalculator.getOutputStream())) {
+            build(out);
+        }
 
-            byte[] contentBytes = mimeContent.toByteArray();
-            mimeContent.reset();
-            sign(contentBytes, mimeContent);
-            Files.write(tempConfPath, mimeContent.toByteArray());
+        log.debug("Generated directory content to '{}' ({} bytes)", tempContentPath, Files.size(tempContentPath));
 
-            log.debug("Written signed directory to '{}'", tempConfPath);
-        }
+        sign(digestAlgorithmId, digestCalculator.getDigest());
     }
 
     /**
@@ -148,6 +207,11 @@ public class OutputBuilder implements AutoCloseable {
         log.debug("Moving '{}' to '{}'", tempConfPath, targetConf);
 
         Files.move(tempConfPath, targetConf, StandardCopyOption.ATOMIC_MOVE);
+
+        if (fingerprint != null) {
+            AtomicSave.execute(getStateFile().toString(), "state",
+                    (timestamp + "\n" + fingerprint + "\n").getBytes(StandardCharsets.UTF_8));
+        }
     }
 
     /**
@@ -158,6 +222,8 @@ public class OutputBuilder implements AutoCloseable {
     public final void close() throws IOException {
         log.debug("Cleaning up '{}'", tempDirPath);
         FileUtils.deleteDirectory(tempDirPath.toFile());
+        Files.deleteIfExists(tempContentPath);
+        Files.deleteIfExists(tempConfPath);
     }
 
     /**
@@ -169,8 +235,10 @@ public class OutputBuilder implements AutoCloseable {
         String hashAlgURI = conf.getHashAlgorithmURI();
 
         hashCalculator = new HashCalculator(hashAlgURI);
-        timestamp = Long.toString(new Date().getTime());
+        timestamp = Long.toString(LAST_GENERATION.updateAndGet(
+                last -> Math.max(last + 1, System.currentTimeMillis())));
         tempConfPath = Paths.get(tempDir, String.format("%s-v%d", SIGNED_DIRECTORY_NAME, version));
+        tempContentPath = Paths.get(tempDir, String.format(CONTENT_FILE_FORMAT, SIGNED_DIRECTORY_NAME, version));
         tempDirPath = Paths.get(tempDir, timestamp);
 
         log.debug("Creating directories {}", tempDirPath);
@@ -192,7 +260,7 @@ public class OutputBuilder implements AutoCloseable {
      * @param mimeContent output stream to write to
      * @throws Exception if reading global configuration files fails
      */
-    private void build(final ByteArrayOutputStream mimeContent) throws Exception {
+    private void build(final OutputStream mimeContent) throws Exception {
         try (MultipartEncoder encoder = new MultipartEncoder(mimeContent, dataBoundary)) {
             OffsetDateTime expireDate = TimeUtils.offsetDateTimeNow().plusSeconds(conf.getValidityIntervalSeconds());
             encoder.startPart(null, new String[]{
@@ -212,44 +280,71 @@ public class OutputBuilder implements AutoCloseable {
     }
 
     /**
-     * Signs the global configuration directory content.
-     * @param contentBytes configuration directory content bytes
-     * @param mimeContent  output stream to write to
+     * Signs the global configuration directory content and writes the signed directory to a temporary location.
+     * @param digestAlgorithmId algorithm used to calculate the content digest
+     * @param digest digest of the configuration directory content
      * @throws Exception if errors are encountered while writing
      *                   the signed directory content to a temporary location
      */
-    private void sign(final byte[] contentBytes, final ByteArrayOutputStream mimeContent) throws Exception {
+    private void sign(final String digestAlgorithmId, final byte[] digest) throws Exception {
         String keyId = conf.getActiveSigningKey();
-        String digestAlgorithmId = conf.getSignatureDigestAlgorithmId();
         String signAlgoId = getSignatureAlgorithmId(keyId, digestAlgorithmId);
-        byte[] digest = calculateDigest(digestAlgorithmId, contentBytes);
 
         log.debug("Signing directory with signing key '{}' and signing algorithm '{}'", keyId, signAlgoId);
 
         String signature = getSignature(keyId, signAlgoId, digest);
 
-        mimeContent.write(envelopeHeader.getBytes());
-
-        try (MultipartEncoder encoder = new MultipartEncoder(mimeContent, envelopeBoundary)) {
-            encoder.startPart(mpMixedContentType(dataBoundary));
-            encoder.write(contentBytes);
-            String algURI = CryptoUtils.getSignatureAlgorithmURI(signAlgoId);
-            String hashURI = hashCalculator.getAlgoURI();
-            Path verificationCertPath = conf.getCertPath(keyId);
-
-            encoder.startPart(MimeTypes.BINARY, new String[]{
-                    HEADER_CONTENT_TRANSFER_ENCODING + ": base64",
-                    HEADER_SIG_ALGO_ID + ": " + algURI,
-                    HEADER_VERIFICATION_CERT_HASH + ": " + getVerificationCertHash(verificationCertPath) + "; "
-                            + HEADER_HASH_ALGORITHM_ID + "=" + hashURI});
-            encoder.write(signature.getBytes());
+        try (OutputStream mimeContent = new BufferedOutputStream(Files.newOutputStream(tempConfPath));
+             InputStream contentBytes = Files.newInputStream(tempContentPath)) {
+            mimeContent.write(envelopeHeader.getBytes());
+
+            try (MultipartEncoder encoder = new MultipartEncoder(mimeContent, envelopeBoundary)) {
+                encoder.startPart(mpMixedContentType(dataBoundary));
+                encoder.write(contentBytes);
+                String algURI = CryptoUtils.getSignatureAlgorithmURI(signAlgoId);
+                String hashURI = hashCalculator.getAlgoURI();
+                Path verificationCertPath = conf.getCertPath(keyId);
+
+                encoder.startPart(MimeTypes.BINARY, new String[]{
+                        HEADER_CONTENT_TRANSFER_ENCODING + ": base64",
+                        HEADER_SIG_ALGO_ID + ": " + algURI,
+                        HEADER_VERIFICATION_CERT_HASH + ": " + getVerificationCertHash(verificationCertPath) + "; "
+                                + HEADER_HASH_ALGORITHM_ID + "=" + hashURI});
+                encoder.write(signature.getBytes());
+            }
         }
 
-        log.debug("Generated signed directory:\n{}\n", mimeContent.toString());
+        log.debug("Written signed directory to '{}'", tempConfPath);
+    }
 
-        Files.write(tempConfPath, mimeContent.toByteArray());
+    /**
+     * Calculates a fingerprint of the downloaded configuration files and the settings that affect the signed
+     * directory, used to detect whether the previously published generation can be reused.
+     * @return fingerprint of the configuration directory
+     * @throws Exception if reading the configuration files fails
+     */
+    private String calculateFingerprint() throws Exception {
+        List<String> entries = new ArrayList<>();
 
-        log.debug("Written signed directory to '{}'", tempConfPath);
+        confDir.eachFile((metadata, inputStream) -> entries.add(metadata.getInstanceIdentifier() + "/"
+                + metadata.getContentIdentifier() + "/" + metadata.getContentLocation() + "="
+                + hashCalculator.calculateFromStream(inputStream)));
+
+        Collections.sort(entries);
+
+        String keyId = conf.getActiveSigningKey();
+
+        entries.add("key=" + keyId);
+        entries.add("cert=" + getVerificationCertHash(conf.getCertPath(keyId)));
+        entries.add("digest=" + conf.getSignatureDigestAlgorithmId());
+        entries.add("validity=" + conf.getValidityIntervalSeconds());
+
+        return hashCalculator.calculateFromString(String.join("\n", entries));
+    }
+
+    private Path getStateFile() {
+        return Paths.get(conf.getConfigurationTargetPath(), String.format(STATE_FILE_FORMAT, SIGNED_DIRECTORY_NAME,
+                version));
     }
 
     /**
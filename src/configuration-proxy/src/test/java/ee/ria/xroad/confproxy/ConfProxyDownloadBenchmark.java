@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.confproxy;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.confproxy.util.ConfProxyHelper;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cycle time of downloading all global configuration versions for several configuration proxy
+ * instances in-process with forking the configuration client download script for every version.
+ *
+ * Arguments: &lt;source anchor&gt; [number of instances]. The anchor must point to a reachable configuration source.
+ * The forked variant is run only if the download script configured for the configuration proxy is executable.
+ */
+@Slf4j
+public final class ConfProxyDownloadBenchmark {
+
+    private static final int DEFAULT_INSTANCES = 3;
+
+    private ConfProxyDownloadBenchmark() {
+    }
+
+    /**
+     * Main program access point.
+     * @param args command-line arguments
+     * @throws Exception in case of any errors
+     */
+    public static void main(String[] args) throws Exception {
+        String anchor = args[0];
+        int instances = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_INSTANCES;
+        Path target = Files.createTempDirectory("confproxy-benchmark");
+
+        try {
+            // warm up the in-process client so that class loading is not attributed to the first cycle
+            ConfProxyHelper.downloadConfiguration(
+                    path(target, "warmup", 0, SystemProperties.CURRENT_GLOBAL_CONFIGURATION_VERSION), anchor,
+                    SystemProperties.CURRENT_GLOBAL_CONFIGURATION_VERSION);
+
+            long start = System.nanoTime();
+            for (int instance = 0; instance < instances; instance++) {
+                for (int version = SystemProperties.CURRENT_GLOBAL_CONFIGURATION_VERSION;
+                     version >= SystemProperties.getMinimumConfigurationProxyGlobalConfigurationVersion(); version--) {
+                    ConfProxyHelper.downloadConfiguration(path(target, "inprocess", instance, version), anchor,
+                            version);
+                }
+            }
+            log.info("In-process: {} instances downloaded in {} ms", instances, millis(start));
+
+            String script = ConfProxyProperties.getDownloadScriptPath();
+            if (!Files.isExecutable(Paths.get(script))) {
+                log.info("Download script {} is not executable, skipping the forked variant", script);
+                return;
+            }
+
+            start = System.nanoTime();
+            for (int instance = 0; instance < instances; instance++) {
+                for (int version = SystemProperties.CURRENT_GLOBAL_CONFIGURATION_VERSION;
+                     version >= SystemProperties.getMinimumConfigurationProxyGlobalConfigurationVersion(); version--) {
+                    Process process = new ProcessBuilder(script, anchor, path(target, "forked", instance, version),
+                            String.valueOf(version))
+                            .inheritIO()
+                            .start();
+                    if (process.waitFor() != 0) {
+                        log.warn("Download script exited with code {}", process.exitValue());
+                    }
+                }
+            }
+            log.info("Forked: {} instances downloaded in {} ms", instances, millis(start));
+        } finally {
+            FileUtils.deleteDirectory(target.toFile());
+        }
+    }
+
+    private static String path(Path target, String variant, int instance, int version) throws Exception {
+        return Files.createDirectories(target.resolve(variant).resolve("instance" + instance)
+                .resolve(String.valueOf(version))).toString();
+    }
+
+    private static long millis(long start) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+}
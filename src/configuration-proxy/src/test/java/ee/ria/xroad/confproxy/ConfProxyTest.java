@@ -26,17 +26,22 @@
 package ee.ria.xroad.confproxy;
 
 import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.TestCertUtil;
 import ee.ria.xroad.common.conf.globalconf.VersionedConfigurationDirectory;
 import ee.ria.xroad.confproxy.util.ConfProxyHelper;
 import ee.ria.xroad.confproxy.util.OutputBuilder;
 import ee.ria.xroad.signer.SignerProxy;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.MockedStatic;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 
 import static ee.ria.xroad.common.SystemProperties.CONFIGURATION_PATH;
@@ -44,9 +49,12 @@ import static ee.ria.xroad.common.SystemProperties.CONFIGURATION_PROXY_CONF_PATH
 import static ee.ria.xroad.common.SystemProperties.CONFIGURATION_PROXY_GENERATED_CONF_PATH;
 import static ee.ria.xroad.common.SystemProperties.TEMP_FILES_PATH;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.times;
 
 /**
  * Test program for the configuration proxy,
@@ -80,4 +88,40 @@ public class ConfProxyTest {
         }
     }
 
+    @Test
+    public void skipRegenerationWhenConfigurationHasNotChanged() throws Exception {
+        Path confPath = Paths.get("build/tmp/test/conf-proxy-conf");
+        FileUtils.copyDirectory(new File("src/test/resources/conf-proxy-conf"), confPath.toFile());
+        System.setProperty(CONFIGURATION_PROXY_CONF_PATH, confPath.toString());
+
+        ConfProxyProperties conf = new ConfProxyProperties("PROXY1");
+        conf.saveCert(conf.getActiveSigningKey(), TestCertUtil.getCaCert().getEncoded());
+        FileUtils.deleteDirectory(new File(conf.getConfigurationTargetPath()));
+        VersionedConfigurationDirectory confDir = new VersionedConfigurationDirectory(conf.getConfigurationDownloadPath(2));
+
+        try (MockedStatic<SignerProxy> signerProxyMock = mockStatic(SignerProxy.class)) {
+            signerProxyMock.when(() -> SignerProxy.getSignMechanism(any())).thenReturn("CKM_RSA_PKCS");
+            signerProxyMock.when(() -> SignerProxy.sign(any(), any(), any())).thenReturn(new byte[] {1, 2, 3});
+
+            try (OutputBuilder output = new OutputBuilder(confDir, conf, 2)) {
+                assertFalse(output.isUpToDate());
+                output.buildSignedDirectory();
+                output.move();
+            }
+
+            try (OutputBuilder output = new OutputBuilder(confDir, conf, 2)) {
+                assertTrue(output.isUpToDate());
+            }
+
+            signerProxyMock.verify(() -> SignerProxy.sign(any(), any(), any()), times(1));
+        }
+
+        String signedDirectory = new String(Files.readAllBytes(
+                Paths.get(conf.getConfigurationTargetPath(), OutputBuilder.SIGNED_DIRECTORY_NAME + "-v2")),
+                StandardCharsets.UTF_8);
+        assertTrue(signedDirectory.contains("shared-params.xml"));
+        assertTrue(signedDirectory.contains("AQID"));
+        assertEquals(0, Files.list(Paths.get("build/tmp/test/PROXY1")).count());
+    }
+
 }
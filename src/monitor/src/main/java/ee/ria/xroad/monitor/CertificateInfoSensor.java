@@ -26,6 +26,7 @@
 package ee.ria.xroad.monitor;
 
 import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.conf.InternalSSLKey;
 import ee.ria.xroad.common.conf.serverconf.ServerConf;
 import ee.ria.xroad.common.util.CryptoUtils;
 import ee.ria.xroad.monitor.CertificateMonitoringInfo.CertificateType;
@@ -36,17 +37,26 @@ import ee.ria.xroad.signer.protocol.dto.TokenInfo;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.TaskScheduler;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
 import java.security.cert.X509Certificate;
 import java.time.Duration;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
- * Collects certificate information.
+ * Collects certificate information. Parsed certificate information is cached by certificate content and the
+ * internal TLS key is reloaded only when its file changes. The caches are cleared periodically.
  * Before using CertificateInfoSensor, SignerClient needs to have been initialized
  * with SignerClient.init()
  */
@@ -56,6 +66,10 @@ public class CertificateInfoSensor extends AbstractSensor {
     // give signer some time to become available
     private static final Duration INITIAL_DELAY = Duration.ofSeconds(10);
     private static final String JMX_HEADER = "SHA1HASH\t\t\t\t\t\t\tCERT TYPE\t\tNOT BEFORE\t\tNOT AFTER\t\tACTIVE";
+    // number of measurements between clearing the caches and re-parsing all certificates
+    private static final int FULL_REFRESH_INTERVAL = 10;
+
+    private int measurementsSinceFullRefresh = 0;
 
     private CertificateInfoCollector certificateInfoCollector;
 
@@ -120,8 +134,41 @@ public class CertificateInfoSensor extends AbstractSensor {
     }
 
     abstract static class CertificateInfoExtractor {
+        // monitoring info of already parsed certificates, by encoded certificate
+        private final Map<ByteBuffer, CertificateMonitoringInfo> parsed = new ConcurrentHashMap<>();
+
         abstract Stream<CertificateMonitoringInfo> getCertificates();
 
+        /**
+         * Clears cached certificate information so that all certificates are parsed again
+         */
+        void invalidate() {
+            parsed.clear();
+        }
+
+        /**
+         * Returns monitoring info for the encoded certificate, parsing the certificate only if it has not been seen before
+         */
+        Stream<CertificateMonitoringInfo> getMonitoringInfo(byte[] certificateBytes, CertificateType certificateType,
+                                                            boolean active) {
+            ByteBuffer key = ByteBuffer.wrap(certificateBytes);
+            CertificateMonitoringInfo info = parsed.get(key);
+            if (info == null || info.getType() != certificateType) {
+                Optional<CertificateMonitoringInfo> converted = convertToMonitoringInfo(
+                        CryptoUtils.readCertificate(certificateBytes), certificateType, active).findFirst();
+                if (converted.isEmpty()) {
+                    return Stream.empty();
+                }
+                info = converted.get();
+                parsed.put(key, info);
+            }
+            if (info.isActive() != active) {
+                info = new CertificateMonitoringInfo(info.getType(), info.getSha1hash(), info.getNotBefore(),
+                        info.getNotAfter(), active);
+            }
+            return Stream.of(info);
+        }
+
         static Stream<CertificateMonitoringInfo> convertToMonitoringInfo(X509Certificate certificate,
                                                                          CertificateType certificateType,
                                                                          boolean active) {
@@ -145,18 +192,42 @@ public class CertificateInfoSensor extends AbstractSensor {
 
     static class InternalTlsExtractor extends CertificateInfoExtractor {
 
+        private volatile FileTime keyModified;
+        private volatile List<CertificateMonitoringInfo> certificates;
+
         @Override
         public Stream<CertificateMonitoringInfo> getCertificates() {
             try {
-                return convertToMonitoringInfo(
+                FileTime modified = getKeyModified();
+                List<CertificateMonitoringInfo> cached = certificates;
+                if (cached != null && modified != null && modified.equals(keyModified)) {
+                    return cached.stream();
+                }
+                List<CertificateMonitoringInfo> loaded = convertToMonitoringInfo(
                         ServerConf.getSSLKey().getCertChain()[0],
                         CertificateType.SECURITY_SERVER_TLS,
-                        true);
+                        true).collect(Collectors.toList());
+                keyModified = modified;
+                certificates = loaded;
+                return loaded.stream();
             } catch (Exception e) {
                 throw new SensorException(e);
             }
         }
 
+        @Override
+        void invalidate() {
+            super.invalidate();
+            certificates = null;
+        }
+
+        private static FileTime getKeyModified() {
+            try {
+                return Files.getLastModifiedTime(Paths.get(SystemProperties.getConfPath(), InternalSSLKey.KEY_FILE_NAME));
+            } catch (IOException e) {
+                return null;
+            }
+        }
     }
 
     static class InternalServerCertificateExtractor extends CertificateInfoExtractor {
@@ -164,7 +235,13 @@ public class CertificateInfoSensor extends AbstractSensor {
         @Override
         public Stream<CertificateMonitoringInfo> getCertificates() {
             return ServerConf.getAllIsCerts().stream()
-                    .flatMap(c -> convertToMonitoringInfo(c, CertificateType.INTERNAL_IS_CLIENT_TLS, true));
+                    .flatMap(c -> {
+                        try {
+                            return getMonitoringInfo(c.getEncoded(), CertificateType.INTERNAL_IS_CLIENT_TLS, true);
+                        } catch (Exception e) {
+                            return convertToMonitoringInfo(c, CertificateType.INTERNAL_IS_CLIENT_TLS, true);
+                        }
+                    });
         }
 
     }
@@ -202,10 +279,7 @@ public class CertificateInfoSensor extends AbstractSensor {
             return tokens
                     .flatMap(t -> t.getKeyInfo().stream())
                     .flatMap(k -> k.getCerts().stream())
-                    .flatMap(c -> convertToMonitoringInfo(
-                            CryptoUtils.readCertificate(c.getCertificateBytes()),
-                            CertificateType.AUTH_OR_SIGN,
-                            c.isActive()));
+                    .flatMap(c -> getMonitoringInfo(c.getCertificateBytes(), CertificateType.AUTH_OR_SIGN, c.isActive()));
         }
     }
 
@@ -221,6 +295,10 @@ public class CertificateInfoSensor extends AbstractSensor {
             return this;
         }
 
+        void invalidate() {
+            extractors.forEach(CertificateInfoExtractor::invalidate);
+        }
+
         Set<CertificateMonitoringInfo> extractToSet() {
             return extractors.stream()
                     .flatMap(CertificateInfoExtractor::getCertificates)
@@ -255,6 +333,11 @@ public class CertificateInfoSensor extends AbstractSensor {
     @Override
     public void measure() {
         log.info("Updating CertificateInfo metrics");
+        if (++measurementsSinceFullRefresh >= FULL_REFRESH_INTERVAL) {
+            log.debug("Clearing cached certificate information");
+            certificateInfoCollector.invalidate();
+            measurementsSinceFullRefresh = 0;
+        }
         updateOrRegisterData(list());
         scheduleSingleMeasurement(getInterval());
     }
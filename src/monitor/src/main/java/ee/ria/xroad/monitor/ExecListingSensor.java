@@ -40,8 +40,8 @@ import java.time.Duration;
 import java.util.ArrayList;
 
 /**
- * Sensor which collects data by running external commands and
- * parsing output from those.
+ * Sensor which collects process, package and operating system listings. Processes are read from
+ * the proc filesystem and the package list is refreshed only when the package database changes.
  */
 @Slf4j
 public class ExecListingSensor extends AbstractSensor {
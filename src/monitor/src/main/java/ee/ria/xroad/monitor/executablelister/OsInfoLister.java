@@ -57,6 +57,17 @@ public class OsInfoLister extends AbstractExecLister<String> {
         return SHOW_OS_INFO_COMMAND;
     }
 
+    /**
+     * Reads /proc/version directly instead of running {@link #SHOW_OS_INFO_COMMAND} in a subprocess.
+     */
+    @Override
+    ProcessOutputs executeProcess() throws IOException {
+        ProcessOutputs outputs = new ProcessOutputs();
+        outputs.setOut(new ProcReader().readVersion());
+        outputs.setErr("");
+        return outputs;
+    }
+
     @Override
     protected Splitter getParsedDataSplitter() {
         return Splitter.on(CharMatcher.none());
@@ -28,12 +28,21 @@ package ee.ria.xroad.monitor.executablelister;
 import ee.ria.xroad.monitor.JmxStringifiedData;
 
 import com.google.common.base.Splitter;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 /**
  * Created by janne on 4.11.2015.
@@ -46,6 +55,12 @@ public class PackageLister extends AbstractExecLister<PackageInfo> {
     private static final String REDHAT_LIST_PACKAGES_COMMAND =
             "rpm -qa --queryformat '%{NAME}/%{VERSION}-%{RELEASE}\n'";
     private static final int NUMBER_OF_FIELDS = 2;
+    private static final Path REDHAT_RELEASE = Paths.get("/etc/redhat-release");
+    private static final Path UBUNTU_PACKAGE_DATABASE = Paths.get("/var/lib/dpkg/status");
+    private static final Path REDHAT_PACKAGE_DATABASE = Paths.get("/var/lib/rpm");
+
+    // package list output by package database, reused until the database is modified
+    private static final Map<Path, CachedPackages> CACHE = new ConcurrentHashMap<>();
 
     /**
      * Program entry point
@@ -58,13 +73,63 @@ public class PackageLister extends AbstractExecLister<PackageInfo> {
 
     @Override
     protected String getCommand() {
-        if (Files.exists(Paths.get("/etc/redhat-release"))) {
+        if (Files.exists(REDHAT_RELEASE)) {
             return REDHAT_LIST_PACKAGES_COMMAND;
         } else {
             return UBUNTU_LIST_PACKAGES_COMMAND;
         }
     }
 
+    Path getPackageDatabase() {
+        return Files.exists(REDHAT_RELEASE) ? REDHAT_PACKAGE_DATABASE : UBUNTU_PACKAGE_DATABASE;
+    }
+
+    /**
+     * Runs the package query only if the package database has been modified since the previous query.
+     */
+    @Override
+    ProcessOutputs executeProcess() throws IOException, InterruptedException {
+        Path database = getPackageDatabase();
+        Optional<FileTime> modified = getLastModifiedTime(database);
+        CachedPackages cached = CACHE.get(database);
+        if (cached != null && modified.isPresent() && modified.get().equals(cached.getModified())) {
+            log.trace("Package database {} has not changed, using cached package list", database);
+            ProcessOutputs outputs = new ProcessOutputs();
+            outputs.setOut(cached.getOut());
+            outputs.setErr("");
+            return outputs;
+        }
+        ProcessOutputs outputs = queryPackages();
+        modified.ifPresent(m -> CACHE.put(database, new CachedPackages(m, outputs.getOut())));
+        return outputs;
+    }
+
+    ProcessOutputs queryPackages() throws IOException, InterruptedException {
+        return super.executeProcess();
+    }
+
+    /**
+     * Returns the latest modification time of the database file, or of the files in the database directory
+     */
+    private static Optional<FileTime> getLastModifiedTime(Path database) {
+        try (Stream<Path> files = Files.isDirectory(database) ? Files.list(database) : Stream.of(database)) {
+            return files.map(PackageLister::getLastModifiedTimeOfFile)
+                    .flatMap(Optional::stream)
+                    .max(Comparator.naturalOrder());
+        } catch (IOException | UncheckedIOException e) {
+            log.debug("Unable to read modification time of package database {}", database, e);
+            return Optional.empty();
+        }
+    }
+
+    private static Optional<FileTime> getLastModifiedTimeOfFile(Path file) {
+        try {
+            return Optional.of(Files.getLastModifiedTime(file));
+        } catch (IOException e) {
+            return Optional.empty();
+        }
+    }
+
     @Override
     protected Splitter getParsedDataSplitter() {
         return Splitter.on("/")
@@ -86,4 +151,10 @@ public class PackageLister extends AbstractExecLister<PackageInfo> {
         info.setVersion(columns.get(columnIndex++));
         return info;
     }
+
+    @Value
+    private static class CachedPackages {
+        FileTime modified;
+        String out;
+    }
 }
@@ -0,0 +1,160 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.monitor.executablelister;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Reads process and memory information directly from the proc filesystem.
+ */
+@Slf4j
+class ProcReader {
+
+    static final Path PROC_ROOT = Paths.get("/proc");
+
+    // used if the page size can not be read, e.g. arm64 kernels may also use 16K or 64K pages
+    private static final long DEFAULT_PAGE_SIZE = 4096;
+    private static final long KILOBYTE = 1024;
+    // index of rss after the command name in /proc/[pid]/stat (field 24 of the whole line)
+    private static final int RSS_FIELD_INDEX = 21;
+    private static final String MEM_TOTAL = "MemTotal:";
+
+    private final Path procRoot;
+    private final long pageSize;
+
+    ProcReader() {
+        this(PROC_ROOT, SystemPageSize.VALUE);
+    }
+
+    ProcReader(Path procRoot, long pageSize) {
+        this.procRoot = procRoot;
+        this.pageSize = pageSize;
+    }
+
+    /**
+     * Reads the status of a process.
+     * @param pid process id
+     * @return process status, or empty if the process does not exist (any more)
+     */
+    Optional<ProcStat> readStat(long pid) {
+        try {
+            return Optional.of(parseStat(Files.readString(procRoot.resolve(Long.toString(pid)).resolve("stat"),
+                    StandardCharsets.US_ASCII), pageSize));
+        } catch (IOException | IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads the total amount of usable memory.
+     * @return total memory in bytes
+     * @throws IOException if reading meminfo fails
+     */
+    long readMemTotal() throws IOException {
+        return parseMemTotal(Files.readAllLines(procRoot.resolve("meminfo"), StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Reads the kernel version string.
+     * @return contents of /proc/version
+     * @throws IOException if reading the version fails
+     */
+    String readVersion() throws IOException {
+        return Files.readString(procRoot.resolve("version"), StandardCharsets.US_ASCII);
+    }
+
+    static ProcStat parseStat(String stat, long pageSize) {
+        // the command name is in parentheses and may itself contain spaces and parentheses
+        int commStart = stat.indexOf('(');
+        int commEnd = stat.lastIndexOf(')');
+        if (commStart < 0 || commEnd < commStart) {
+            throw new IllegalArgumentException("Malformed stat: " + stat);
+        }
+        String[] fields = stat.substring(commEnd + 1).trim().split(" ");
+        if (fields.length <= RSS_FIELD_INDEX) {
+            throw new IllegalArgumentException("Malformed stat: " + stat);
+        }
+        return new ProcStat(stat.substring(commStart + 1, commEnd),
+                Long.parseLong(fields[RSS_FIELD_INDEX]) * pageSize);
+    }
+
+    static long parseMemTotal(List<String> meminfo) throws IOException {
+        for (String line : meminfo) {
+            if (line.startsWith(MEM_TOTAL)) {
+                String value = line.substring(MEM_TOTAL.length()).trim();
+                int unit = value.indexOf(' ');
+                return Long.parseLong(unit < 0 ? value : value.substring(0, unit)) * KILOBYTE;
+            }
+        }
+        throw new IOException("MemTotal not found in meminfo");
+    }
+
+    static long readPageSize() {
+        try {
+            Process getconf = new ProcessBuilder("getconf", "PAGESIZE").redirectErrorStream(true).start();
+            String output;
+            try (InputStream in = getconf.getInputStream()) {
+                output = new String(in.readAllBytes(), StandardCharsets.US_ASCII).trim();
+            }
+            if (getconf.waitFor() == 0) {
+                return Long.parseLong(output);
+            }
+            log.warn("getconf PAGESIZE failed: {}", output);
+        } catch (IOException | NumberFormatException e) {
+            log.warn("Unable to read the page size", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.warn("Assuming a page size of {} bytes", DEFAULT_PAGE_SIZE);
+        return DEFAULT_PAGE_SIZE;
+    }
+
+    /**
+     * Page size of the system, read once when it is first needed.
+     */
+    private static final class SystemPageSize {
+        static final long VALUE = readPageSize();
+    }
+
+    /**
+     * Process information from /proc/[pid]/stat
+     */
+    @Value
+    static class ProcStat {
+        String command;
+        long residentSetSize;
+    }
+}
@@ -26,13 +26,21 @@
 package ee.ria.xroad.monitor.executablelister;
 
 import ee.ria.xroad.monitor.JmxStringifiedData;
+import ee.ria.xroad.monitor.executablelister.ProcReader.ProcStat;
 
 import com.google.common.base.CharMatcher;
 import com.google.common.base.Splitter;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 
 /**
  * Created by janne.mattila on 28.10.2015.
@@ -73,6 +81,25 @@ public class ProcessLister extends AbstractExecLister<ProcessInfo> {
     protected static final String PS_FORMAT = "--format user,pcpu,start_time,pmem,pid,comm";
     protected static final String LIST_PROCESSES_COMMAND = "ps -aew " + PS_FORMAT;
     private static final int NUMBER_OF_FIELDS = 6;
+    private static final String HEADER = "USER %CPU START %MEM PID COMMAND";
+    private static final String UNKNOWN = "?";
+    private static final double PERCENT = 100.0;
+    private static final DateTimeFormatter START_TODAY_FORMAT = DateTimeFormatter.ofPattern("HH:mm", Locale.ROOT);
+    private static final DateTimeFormatter START_THIS_YEAR_FORMAT = DateTimeFormatter.ofPattern("MMMdd", Locale.ROOT);
+    private static final DateTimeFormatter START_EARLIER_FORMAT = DateTimeFormatter.ofPattern("yyyy", Locale.ROOT);
+
+    private final ProcReader procReader;
+
+    /**
+     * Creates a lister that reads processes from /proc
+     */
+    public ProcessLister() {
+        this(new ProcReader());
+    }
+
+    ProcessLister(ProcReader procReader) {
+        this.procReader = procReader;
+    }
 
     /**
      * Program entry point
@@ -88,6 +115,67 @@ public class ProcessLister extends AbstractExecLister<ProcessInfo> {
         return LIST_PROCESSES_COMMAND;
     }
 
+    /**
+     * Produces the output of {@link #LIST_PROCESSES_COMMAND} from the proc filesystem and
+     * {@link ProcessHandle} without starting a subprocess.
+     */
+    @Override
+    ProcessOutputs executeProcess() throws IOException {
+        long memTotal = procReader.readMemTotal();
+        Instant now = Instant.now();
+        StringBuilder out = new StringBuilder(HEADER).append('\n');
+        ProcessHandle.allProcesses().forEach(process -> {
+            ProcessHandle.Info info = process.info();
+            procReader.readStat(process.pid())
+                    .filter(stat -> isListed(info, stat))
+                    .ifPresent(stat -> out.append(format(process.pid(), info, stat, memTotal, now)).append('\n'));
+        });
+        ProcessOutputs outputs = new ProcessOutputs();
+        outputs.setOut(out.toString());
+        outputs.setErr("");
+        return outputs;
+    }
+
+    boolean isListed(ProcessHandle.Info info, ProcStat stat) {
+        return true;
+    }
+
+    String getCommand(ProcessHandle.Info info, ProcStat stat) {
+        return stat.getCommand();
+    }
+
+    private String format(long pid, ProcessHandle.Info info, ProcStat stat, long memTotal, Instant now) {
+        Optional<Instant> start = info.startInstant();
+        double cpuLoad = 0;
+        if (start.isPresent() && info.totalCpuDuration().isPresent()) {
+            // same as ps: cpu time divided by the time the process has been running
+            long elapsed = Duration.between(start.get(), now).toMillis();
+            cpuLoad = elapsed > 0 ? info.totalCpuDuration().get().toMillis() * PERCENT / elapsed : 0;
+        }
+        double memUsed = memTotal > 0 ? stat.getResidentSetSize() * PERCENT / memTotal : 0;
+        return String.format(Locale.ROOT, "%s %.1f %s %.1f %d %s",
+                info.user().orElse(UNKNOWN),
+                cpuLoad,
+                start.map(s -> formatStartTime(s, now, ZoneId.systemDefault())).orElse(UNKNOWN),
+                memUsed,
+                pid,
+                getCommand(info, stat));
+    }
+
+    /**
+     * Formats the start time like ps: time if started today, month and day if started this year, otherwise year.
+     */
+    static String formatStartTime(Instant start, Instant now, ZoneId zone) {
+        LocalDateTime startTime = LocalDateTime.ofInstant(start, zone);
+        LocalDateTime currentTime = LocalDateTime.ofInstant(now, zone);
+        if (startTime.toLocalDate().equals(currentTime.toLocalDate())) {
+            return START_TODAY_FORMAT.format(startTime);
+        } else if (startTime.getYear() == currentTime.getYear()) {
+            return START_THIS_YEAR_FORMAT.format(startTime);
+        }
+        return START_EARLIER_FORMAT.format(startTime);
+    }
+
     @Override
     protected Splitter getParsedDataSplitter() {
         return Splitter.on(CharMatcher.whitespace())
@@ -26,6 +26,7 @@
 package ee.ria.xroad.monitor.executablelister;
 
 import ee.ria.xroad.monitor.JmxStringifiedData;
+import ee.ria.xroad.monitor.executablelister.ProcReader.ProcStat;
 
 import java.io.IOException;
 
@@ -36,6 +37,8 @@ public class XroadProcessLister extends ProcessLister {
 
     protected static final String PS_FORMAT = "--format user,pcpu,start_time,pmem,pid,command";
     private static final String LIST_XROAD_PIDS_COMMAND = "pgrep -u xroad java";
+    private static final String XROAD_USER = "xroad";
+    private static final String JAVA_COMMAND = "java";
 
     /**
      * Program entry point
@@ -56,4 +59,15 @@ public class XroadProcessLister extends ProcessLister {
         return command.toString();
     }
 
+    @Override
+    boolean isListed(ProcessHandle.Info info, ProcStat stat) {
+        // same selection as pgrep: process name is java and it is owned by xroad
+        return JAVA_COMMAND.equals(stat.getCommand()) && info.user().map(XROAD_USER::equals).orElse(false);
+    }
+
+    @Override
+    String getCommand(ProcessHandle.Info info, ProcStat stat) {
+        return info.commandLine().orElse(stat.getCommand());
+    }
+
 }
@@ -59,7 +59,11 @@ import java.util.stream.Stream;
 
 import static ee.ria.xroad.monitor.CertificateInfoSensor.CERT_HEX_DELIMITER;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
@@ -214,6 +218,31 @@ class CertificateInfoSensorTest {
         assertEquals(1, certificatesAsText.getValue().size()); // header line + 0 certs
     }
 
+    @Test
+    void testTokenCertificatesAreCached() throws Exception {
+        CertificateInfo caInfo = createTestCertificateInfo(TestCertUtil.getCaCert());
+        CertificateInfo activeCaInfo = new CertificateInfo(caInfo.getMessage().toBuilder().setActive(true).build());
+        List<TokenInfo> tokens = new ArrayList<>(List.of(createTestTokenInfo(createTestKeyInfo(caInfo))));
+        TokenExtractor extractor = new TokenExtractor(() -> tokens);
+
+        CertificateMonitoringInfo first = extractor.getCertificates().findFirst().get();
+        assertFalse(first.isActive());
+        assertSame(first, extractor.getCertificates().findFirst().get());
+
+        // activation is reflected without parsing the certificate again
+        tokens.set(0, createTestTokenInfo(createTestKeyInfo(activeCaInfo)));
+        CertificateMonitoringInfo activated = extractor.getCertificates().findFirst().get();
+        assertTrue(activated.isActive());
+        assertEquals(caCertId, activated.getSha1hash());
+
+        // cleared cache parses the certificate again
+        tokens.set(0, createTestTokenInfo(createTestKeyInfo(caInfo)));
+        extractor.invalidate();
+        CertificateMonitoringInfo reparsed = extractor.getCertificates().findFirst().get();
+        assertNotSame(first, reparsed);
+        assertEquals(first, reparsed);
+    }
+
     private CertificateMonitoringInfo getCertificateInfo(ArrayList<CertificateMonitoringInfo> dtoData,
                                                          String certId) {
         return dtoData.stream()
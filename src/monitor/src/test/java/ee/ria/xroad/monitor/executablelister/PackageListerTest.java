@@ -33,10 +33,15 @@ import org.apache.commons.lang3.SystemUtils;
 import org.junit.jupiter.api.Assumptions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -86,4 +91,36 @@ class PackageListerTest {
         String jmxData = data.getJmxStringData().get(0);
         assertEquals("account-plugin-aim/3.8.6-0ubuntu9.2", jmxData);
     }
+
+    @Test
+    void testPackageListIsCachedUntilDatabaseChanges(@TempDir Path tempDir) throws IOException {
+        Assumptions.assumeTrue(SystemUtils.IS_OS_LINUX, "AbstractExecListener does not support other operating systems.");
+
+        Path database = Files.writeString(tempDir.resolve("status"), "Package: account-plugin-aim");
+        Files.setLastModifiedTime(database, FileTime.fromMillis(1_000_000L));
+        AtomicInteger queries = new AtomicInteger();
+
+        PackageLister testPackageLister = new PackageLister() {
+            @Override
+            Path getPackageDatabase() {
+                return database;
+            }
+
+            @Override
+            ProcessOutputs queryPackages() {
+                queries.incrementAndGet();
+                ProcessOutputs fakeOutputs = new ProcessOutputs();
+                fakeOutputs.setOut(packageOutputString);
+                return fakeOutputs;
+            }
+        };
+
+        assertEquals(8, testPackageLister.list().getDtoData().size());
+        assertEquals(8, testPackageLister.list().getDtoData().size());
+        assertEquals(1, queries.get());
+
+        Files.setLastModifiedTime(database, FileTime.fromMillis(2_000_000L));
+        assertEquals(8, testPackageLister.list().getDtoData().size());
+        assertEquals(2, queries.get());
+    }
 }
@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.monitor.executablelister;
+
+import ee.ria.xroad.monitor.executablelister.ProcReader.ProcStat;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests for reading process information from a proc filesystem fixture
+ */
+class ProcReaderTest {
+
+    private static final Path PROC_FIXTURE = Paths.get("src/test/resources/proc");
+    // 64K pages, as used by some arm64 kernels
+    private static final long PAGE_SIZE = 65536;
+
+    private final ProcReader procReader = new ProcReader(PROC_FIXTURE, PAGE_SIZE);
+
+    @Test
+    void readStat() {
+        ProcStat stat = procReader.readStat(1234).orElseThrow();
+        // command name with spaces and parentheses
+        assertEquals("java (main)", stat.getCommand());
+        assertEquals(262144L * PAGE_SIZE, stat.getResidentSetSize());
+    }
+
+    @Test
+    void readStatOfMissingProcess() {
+        assertFalse(procReader.readStat(4321).isPresent());
+    }
+
+    @Test
+    void parseMalformedStat() {
+        assertThrows(IllegalArgumentException.class, () -> ProcReader.parseStat("1234 java S 1", PAGE_SIZE));
+        assertThrows(IllegalArgumentException.class, () -> ProcReader.parseStat("1234 (java) S 1 1234", PAGE_SIZE));
+    }
+
+    @Test
+    void readPageSize() {
+        assertTrue(ProcReader.readPageSize() > 0);
+    }
+
+    @Test
+    void readMemTotal() throws IOException {
+        assertEquals(8388608L * 1024, procReader.readMemTotal());
+        assertThrows(IOException.class, () -> ProcReader.parseMemTotal(List.of("MemFree: 1024 kB")));
+    }
+
+    @Test
+    void readVersion() throws IOException {
+        assertTrue(procReader.readVersion().startsWith("Linux version 5.15.0-91-generic"));
+    }
+
+    @Test
+    void formatStartTime() {
+        Instant now = Instant.parse("2023-11-14T15:00:00Z");
+        assertEquals("13:30", ProcessLister.formatStartTime(Instant.parse("2023-11-14T13:30:08Z"), now, ZoneOffset.UTC));
+        assertEquals("Nov05", ProcessLister.formatStartTime(Instant.parse("2023-11-05T08:00:00Z"), now, ZoneOffset.UTC));
+        assertEquals("2022", ProcessLister.formatStartTime(Instant.parse("2022-12-31T23:00:00Z"), now, ZoneOffset.UTC));
+    }
+}
@@ -100,6 +100,25 @@ check_tarball_label () {
   echo "RESTORING CONFIGURATION FROM ${BACKUP_FILENAME}"
 }
 
+# Backups written by the in-process backup writer end with a manifest that lists the
+# SHA-256 digest of every file. Older backups have no manifest and are not checked.
+verify_backup_manifest () {
+  if ! tar tf "${BACKUP_FILENAME}" backup.manifest &>/dev/null; then
+    return 0
+  fi
+  echo "VERIFYING THE CONTENTS OF THE TAR ARCHIVE"
+  local expected actual
+  # manifest lines are "<sha-256> <size> <mtime> <name>", compare in sha256sum format
+  expected=$(tar xOf "${BACKUP_FILENAME}" backup.manifest \
+    | awk '{ digest = $1; sub(/^[^ ]+ [^ ]+ [^ ]+ /, ""); print digest "  " $0 }' | sort)
+  actual=$(tar xf "${BACKUP_FILENAME}" --exclude=backup.manifest \
+    --to-command='echo "$(sha256sum | cut -d " " -f 1)  ${TAR_FILENAME}"' | sort) \
+    || die "Reading the tar archive ${BACKUP_FILENAME} failed. Aborting restore!"
+  if [[ "${expected}" != "${actual}" ]] ; then
+    die "The contents of the tar archive ${BACKUP_FILENAME} do not match its manifest. Aborting restore!"
+  fi
+}
+
 clear_shared_memory () {
   echo "CLEARING SHARED MEMORY"
   ipcrm -m "$(ipcs -m | grep xroad | awk '{print $2}')" 2>/dev/null || true
@@ -318,6 +337,7 @@ check_is_correct_tarball
 check_restore_options
 make_tarball_label
 check_tarball_label
+verify_backup_manifest
 clear_shared_memory
 stop_services
 create_pre_restore_backup
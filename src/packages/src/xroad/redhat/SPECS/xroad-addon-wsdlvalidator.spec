@@ -27,6 +27,8 @@ Addon for wsdl validation
 %install
 cp -a %{srcdir}/common/addon/wsdlvalidator/usr %{buildroot}
 mkdir -p %{buildroot}/usr/share/xroad/wsdlvalidator/jlib/
+mkdir -p %{buildroot}%{_unitdir}
+cp -p %{_sourcedir}/wsdlvalidator/xroad-addon-wsdlvalidator.service %{buildroot}%{_unitdir}
 cp %{srcdir}/../../../addons/wsdlvalidator/build/libs/wsdlvalidator-1.0.jar %{buildroot}/usr/share/xroad/wsdlvalidator/jlib/
 
 %clean
@@ -36,11 +38,14 @@ rm -rf %{buildroot}
 %defattr(-,root,root,-)
 %attr(750,root,xroad) /usr/share/xroad/wsdlvalidator/bin/wsdlvalidator_wrapper.sh
 /usr/share/xroad/wsdlvalidator
+%{_unitdir}/%{name}.service
 
 %pre -p /bin/bash
 %upgrade_check
 
 %post
+%systemd_post xroad-addon-wsdlvalidator.service
+
 #parameters:
 #1 file_path
 #2 old_section
@@ -67,12 +72,21 @@ if [ $1 -gt 1 ] ; then
     migrate_conf_value /etc/xroad/conf.d/local.ini proxy-ui wsdl-validator-command proxy-ui-api wsdl-validator-command
 fi
 
+# validate with the resident validator (xroad-addon-wsdlvalidator service) unless configured otherwise
+if ! crudini --get /etc/xroad/conf.d/local.ini proxy-ui-api wsdl-validator-address >/dev/null 2>&1; then
+    crudini --set /etc/xroad/conf.d/local.ini proxy-ui-api wsdl-validator-address 127.0.0.1:5590
+fi
+
+%preun
+%systemd_preun xroad-addon-wsdlvalidator.service
+
 %postun
 if [ $1 -eq 0 ] ; then
     # not an upgrade, but a real removal
     crudini --del /etc/xroad/conf.d/local.ini proxy-ui-api wsdl-validator-command
+    crudini --del /etc/xroad/conf.d/local.ini proxy-ui-api wsdl-validator-address
 fi
 
-%systemd_postun_with_restart xroad-proxy-ui-api.service
+%systemd_postun_with_restart xroad-proxy-ui-api.service xroad-addon-wsdlvalidator.service
 
 %changelog
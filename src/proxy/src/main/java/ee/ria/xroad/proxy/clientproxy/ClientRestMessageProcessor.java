@@ -320,12 +320,16 @@ class ClientRestMessageProcessor extends AbstractClientMessageProcessor {
                 enc.restRequest(restRequest);
 
                 //Optimize the case without request body (e.g. simple get requests)
-                //TBD: Optimize the case without body logging
                 try (InputStream in = servletRequest.getInputStream()) {
                     @SuppressWarnings("checkstyle:magicnumber")
                     byte[] buf = new byte[4096];
                     int count = in.read(buf);
-                    if (count >= 0) {
+                    if (count >= 0 && !MessageLog.isBodyLogged(restRequest.getServiceId(), true)) {
+                        // body is not logged, relay it without caching
+                        enc.restBody(buf, count, in);
+                        enc.sign(KeyConf.getSigningCtx(senderId));
+                        MessageLog.log(restRequest, enc.getSignature(), null, true, xRequestId);
+                    } else if (count >= 0) {
                         final CachingStream cache = new CachingStream();
                         try (TeeInputStream tee = new TeeInputStream(in, cache)) {
                             cache.write(buf, 0, count);
@@ -27,6 +27,7 @@ package ee.ria.xroad.proxy.messagelog;
 
 import ee.ria.xroad.common.DiagnosticsStatus;
 import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.identifier.ServiceId;
 import ee.ria.xroad.common.message.RestRequest;
 import ee.ria.xroad.common.message.RestResponse;
 import ee.ria.xroad.common.message.SoapMessageImpl;
@@ -129,6 +130,18 @@ public final class MessageLog {
         }
     }
 
+    /**
+     * Tells whether the body of a REST message to the given service would be stored in the message log.
+     *
+     * @param service    the service of the message
+     * @param clientSide whether the message is logged by the client proxy
+     * @return true if the body may be logged and needs to be cached for logging
+     */
+    public static boolean isBodyLogged(ServiceId service, boolean clientSide) {
+        assertInitialized();
+        return logManager.isBodyLogged(service, clientSide);
+    }
+
     public static void log(SoapMessageImpl message, SignatureData signature, boolean clientSide) {
         log(message, signature, clientSide, null);
     }
@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.serverproxy;
+
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.identifier.ServiceId;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static ee.ria.xroad.common.ErrorCodes.X_SERVICE_BUSY;
+
+/**
+ * Limits the number of concurrent backend calls per service, so that a slow service provider can only occupy
+ * a bounded number of server proxy worker threads and does not starve requests to other services.
+ */
+@Slf4j
+final class BackendCallLimiter {
+
+    private static final Permit NO_LIMIT = () -> { };
+
+    private static final BackendCallLimiter INSTANCE = new BackendCallLimiter(
+            SystemProperties.getServerProxyBackendMaxConcurrentCalls(),
+            SystemProperties.getServerProxyBackendQueueTimeout());
+
+    private final int maxConcurrentCalls;
+    private final long queueTimeoutMillis;
+    private final Map<ServiceId, Semaphore> permits = new ConcurrentHashMap<>();
+
+    BackendCallLimiter(int maxConcurrentCalls, long queueTimeoutMillis) {
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.queueTimeoutMillis = queueTimeoutMillis;
+    }
+
+    static BackendCallLimiter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Reserves a backend call slot for the service, waiting at most the configured queue timeout.
+     * @param serviceId the called service
+     * @return permit that must be closed when the backend call completes
+     * @throws CodedException if the service already has the maximum number of calls in progress
+     */
+    Permit acquire(ServiceId serviceId) {
+        if (maxConcurrentCalls <= 0) {
+            return NO_LIMIT;
+        }
+
+        final Semaphore semaphore = permits.computeIfAbsent(serviceId, id -> new Semaphore(maxConcurrentCalls));
+        try {
+            if (!semaphore.tryAcquire(queueTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.warn("Service {} has {} backend calls in progress, rejecting request", serviceId,
+                        maxConcurrentCalls);
+                throw new CodedException(X_SERVICE_BUSY, "Too many concurrent requests to service '%s'", serviceId);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CodedException(X_SERVICE_BUSY, "Interrupted while waiting for service '%s'", serviceId);
+        }
+        return semaphore::release;
+    }
+
+    /**
+     * Backend call slot, released on close.
+     */
+    interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
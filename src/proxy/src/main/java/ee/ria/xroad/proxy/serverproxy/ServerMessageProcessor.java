@@ -535,6 +535,7 @@ class ServerMessageProcessor extends MessageProcessorBase {
     private class DefaultServiceHandlerImpl implements ServiceHandler {
 
         private HttpSender sender;
+        private BackendCallLimiter.Permit backendCallPermit;
 
         @Override
         public boolean shouldVerifyAccess() {
@@ -578,13 +579,24 @@ class ServerMessageProcessor extends MessageProcessorBase {
 
             sender.addHeader("accept-encoding", "");
             sender.addHeader("SOAPAction", originalSoapAction);
+
+            // held until the response has been relayed; a rejected request is recorded as a ServiceBusy fault
+            // without request and response timestamps, since it was never sent to the service
+            backendCallPermit = BackendCallLimiter.getInstance().acquire(requestServiceId);
             sendRequest(address, sender);
         }
 
         @Override
         public void finishHandling() throws Exception {
-            sender.close();
-            sender = null;
+            try {
+                sender.close();
+                sender = null;
+            } finally {
+                if (backendCallPermit != null) {
+                    backendCallPermit.close();
+                    backendCallPermit = null;
+                }
+            }
         }
 
         @Override
@@ -440,6 +440,7 @@ class ServerRestMessageProcessor extends MessageProcessorBase {
 
         private RestResponse restResponse;
         private CachingStream restResponseBody;
+        private BackendCallLimiter.Permit backendCallPermit;
 
         private String concatPath(String address, String path) {
             if (path == null || path.isEmpty()) return address;
@@ -534,6 +535,8 @@ class ServerRestMessageProcessor extends MessageProcessorBase {
 
             final HttpContext ctx = new BasicHttpContext();
             ctx.setAttribute(ServiceId.class.getName(), requestProxyMessage.getRest().getServiceId());
+            // held until the response body has been relayed, see finishHandling
+            backendCallPermit = BackendCallLimiter.getInstance().acquire(requestProxyMessage.getRest().getServiceId());
             monitoringData.setRequestOutTs(getEpochMillisecond());
             final HttpResponse response = restClient.execute(req, ctx);
             monitoringData.setResponseInTs(getEpochMillisecond());
@@ -565,9 +568,13 @@ class ServerRestMessageProcessor extends MessageProcessorBase {
             messageEncoder.restResponse(restResponse);
 
             if (response.getEntity() != null) {
-                restResponseBody = new CachingStream();
-                TeeInputStream tee = new TeeInputStream(response.getEntity().getContent(), restResponseBody);
-                messageEncoder.restBody(tee);
+                // the body is relayed and digested in a single pass, and cached only if it is going to be logged
+                if (MessageLog.isBodyLogged(requestProxyMessage.getRest().getServiceId(), false)) {
+                    restResponseBody = new CachingStream();
+                    messageEncoder.restBody(new TeeInputStream(response.getEntity().getContent(), restResponseBody));
+                } else {
+                    messageEncoder.restBody(response.getEntity().getContent());
+                }
                 EntityUtils.consume(response.getEntity());
             }
 
@@ -588,7 +595,10 @@ class ServerRestMessageProcessor extends MessageProcessorBase {
 
         @Override
         public void finishHandling() throws Exception {
-            // NOP
+            if (backendCallPermit != null) {
+                backendCallPermit.close();
+                backendCallPermit = null;
+            }
         }
     }
 }
@@ -0,0 +1,177 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.serverproxy;
+
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.identifier.ServiceId;
+
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Benchmark program for the isolation of services by {@link BackendCallLimiter}. A fixed pool of threads, standing
+ * in for the server proxy worker threads, relays requests to a slow service, whose backend sends the response
+ * headers at once but streams the body slowly, and to a fast service, both called at the same steady rate.
+ * Reports the latency of the fast service without a limit, with the permit released when the response headers
+ * arrive, and with the permit held until the response body has been relayed, which is how the server proxy uses
+ * the limiter.
+ */
+@Slf4j
+public final class BackendCallIsolationBenchmark {
+
+    private static final ClientId PROVIDER = ClientId.Conf.create("EE", "BUSINESS", "producer", "sub");
+    private static final ServiceId SLOW = ServiceId.Conf.create(PROVIDER, "slow");
+    private static final ServiceId FAST = ServiceId.Conf.create(PROVIDER, "fast");
+
+    private static final int WORKER_THREADS = 32;
+    private static final int REQUESTS = 300;
+    private static final long REQUEST_INTERVAL_MS = 10;
+    private static final int SLOW_BODY_CHUNKS = 20;
+    private static final long SLOW_CHUNK_INTERVAL_MS = 50;
+    private static final int MAX_CONCURRENT_CALLS = 8;
+    private static final int PERCENTILE = 99;
+
+    private BackendCallIsolationBenchmark() {
+    }
+
+    /**
+     * Main program access point.
+     * @param args command-line arguments
+     * @throws Exception in case of any errors
+     */
+    public static void main(String[] args) throws Exception {
+        HttpServer backend = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        backend.setExecutor(Executors.newCachedThreadPool());
+        backend.createContext("/slow", exchange -> {
+            exchange.sendResponseHeaders(200, SLOW_BODY_CHUNKS);
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (int i = 0; i < SLOW_BODY_CHUNKS; i++) {
+                    out.write('x');
+                    out.flush();
+                    Thread.sleep(SLOW_CHUNK_INTERVAL_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        backend.createContext("/fast", exchange -> {
+            exchange.sendResponseHeaders(200, 1);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write('x');
+            }
+        });
+        backend.start();
+
+        String url = "http://127.0.0.1:" + backend.getAddress().getPort();
+        try (CloseableHttpClient client = HttpClients.custom()
+                .setMaxConnTotal(WORKER_THREADS)
+                .setMaxConnPerRoute(WORKER_THREADS)
+                .build()) {
+            run("no limit", client, url, new BackendCallLimiter(0, 0), false);
+            run("permit released at response headers", client, url,
+                    new BackendCallLimiter(MAX_CONCURRENT_CALLS, 0), false);
+            run("permit held until response body relayed", client, url,
+                    new BackendCallLimiter(MAX_CONCURRENT_CALLS, 0), true);
+        } finally {
+            backend.stop(0);
+        }
+    }
+
+    private static void run(String name, CloseableHttpClient client, String url, BackendCallLimiter limiter,
+            boolean holdPermitForBody) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(WORKER_THREADS);
+        AtomicInteger slowRejected = new AtomicInteger();
+        AtomicInteger fastRejected = new AtomicInteger();
+        List<Long> fastLatencies = Collections.synchronizedList(new ArrayList<>());
+        List<Future<?>> requests = new ArrayList<>();
+
+        for (int i = 0; i < REQUESTS; i++) {
+            Thread.sleep(REQUEST_INTERVAL_MS);
+            requests.add(workers.submit(() -> call(client, url + "/slow", limiter, SLOW, holdPermitForBody,
+                    slowRejected)));
+            long submitted = System.nanoTime();
+            requests.add(workers.submit(() -> {
+                if (call(client, url + "/fast", limiter, FAST, holdPermitForBody, fastRejected)) {
+                    fastLatencies.add(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - submitted));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> request : requests) {
+            request.get();
+        }
+        workers.shutdown();
+
+        List<Long> sorted = new ArrayList<>(fastLatencies);
+        Collections.sort(sorted);
+        log.info("{}: fast service latency median {} ms, p{} {} ms; rejected {} slow and {} fast service requests",
+                name, sorted.get(sorted.size() / 2), PERCENTILE, sorted.get(sorted.size() * PERCENTILE / 100),
+                slowRejected.get(), fastRejected.get());
+    }
+
+    private static boolean call(CloseableHttpClient client, String url, BackendCallLimiter limiter, ServiceId service,
+            boolean holdPermitForBody, AtomicInteger rejected) throws Exception {
+        BackendCallLimiter.Permit permit;
+        try {
+            permit = limiter.acquire(service);
+        } catch (CodedException e) {
+            rejected.incrementAndGet();
+            return false;
+        }
+
+        boolean released = false;
+        try {
+            HttpResponse response = client.execute(new HttpGet(url));
+            if (!holdPermitForBody) {
+                permit.close();
+                released = true;
+            }
+            EntityUtils.consume(response.getEntity());
+        } finally {
+            if (!released) {
+                permit.close();
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.serverproxy;
+
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.identifier.ServiceId;
+
+import org.junit.Test;
+
+import static ee.ria.xroad.common.ErrorCodes.X_SERVICE_BUSY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+public class BackendCallLimiterTest {
+    private static final ClientId PROVIDER = ClientId.Conf.create("EE", "BUSINESS", "producer", "sub");
+    private static final ServiceId SLOW = ServiceId.Conf.create(PROVIDER, "slow");
+    private static final ServiceId FAST = ServiceId.Conf.create(PROVIDER, "fast");
+
+    @Test
+    public void shouldRejectCallsOverServiceLimit() {
+        final BackendCallLimiter limiter = new BackendCallLimiter(2, 0);
+
+        limiter.acquire(SLOW);
+        limiter.acquire(SLOW);
+
+        final CodedException e = assertThrows(CodedException.class, () -> limiter.acquire(SLOW));
+        assertEquals(X_SERVICE_BUSY, e.getFaultCode());
+    }
+
+    @Test
+    public void shouldNotLimitOtherServices() {
+        final BackendCallLimiter limiter = new BackendCallLimiter(1, 0);
+
+        limiter.acquire(SLOW);
+
+        try (BackendCallLimiter.Permit permit = limiter.acquire(FAST)) {
+            assertThrows(CodedException.class, () -> limiter.acquire(FAST));
+        }
+        limiter.acquire(FAST).close();
+    }
+
+    @Test
+    public void shouldReleaseSlotOnClose() {
+        final BackendCallLimiter limiter = new BackendCallLimiter(1, 0);
+
+        limiter.acquire(SLOW).close();
+        limiter.acquire(SLOW).close();
+    }
+
+    @Test
+    public void shouldNotLimitWhenDisabled() {
+        final BackendCallLimiter limiter = new BackendCallLimiter(0, 0);
+
+        for (int i = 0; i < 100; i++) {
+            limiter.acquire(SLOW);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.serverproxy;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.util.CachingStream;
+import ee.ria.xroad.common.util.CryptoUtils;
+import ee.ria.xroad.proxy.protocol.ProxyMessageEncoder;
+
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.util.EntityUtils;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Benchmark program for relaying REST response bodies from a local backend through the proxy message encoder,
+ * with the body cached for message logging (body logging enabled) and without caching (body logging disabled).
+ * Reports throughput and the number of bytes copied to the cache. Body sizes in megabytes can be given as
+ * arguments, by default 1 MB - 1 GB bodies are relayed. Finally, the request rate of small responses, which are
+ * cached in memory, is measured.
+ */
+@Slf4j
+public final class RestBodyRelayBenchmark {
+
+    private static final long MEGABYTE = 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long[] DEFAULT_SIZES_MB = {1, 16, 256, 1024};
+    private static final long SMALL_BODY_SIZE = 1024;
+    private static final int SMALL_BODY_REQUESTS = 10000;
+
+    private RestBodyRelayBenchmark() {
+    }
+
+    /**
+     * Main program access point.
+     * @param args body sizes in megabytes
+     * @throws Exception in case of any errors
+     */
+    public static void main(String[] args) throws Exception {
+        System.setProperty(SystemProperties.TEMP_FILES_PATH, "build/tmp");
+        Files.createDirectories(Paths.get(SystemProperties.getTempFilesPath()));
+
+        long[] sizes = args.length > 0
+                ? Arrays.stream(args).mapToLong(Long::parseLong).toArray()
+                : DEFAULT_SIZES_MB;
+
+        HttpServer backend = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        backend.createContext("/", exchange -> {
+            long size = Long.parseLong(exchange.getRequestURI().getQuery());
+            exchange.sendResponseHeaders(200, size);
+            try (OutputStream out = exchange.getResponseBody()) {
+                byte[] buf = new byte[BUFFER_SIZE];
+                for (long written = 0; written < size; written += buf.length) {
+                    out.write(buf, 0, (int) Math.min(buf.length, size - written));
+                }
+            }
+        });
+        backend.start();
+
+        try (CloseableHttpClient client = HttpClients.createDefault()) {
+            String url = "http://127.0.0.1:" + backend.getAddress().getPort() + "/?";
+            for (long size : sizes) {
+                relay(client, url + size * MEGABYTE, size, true);
+                relay(client, url + size * MEGABYTE, size, false);
+            }
+            relaySmall(client, url + SMALL_BODY_SIZE, true);
+            relaySmall(client, url + SMALL_BODY_SIZE, false);
+        } finally {
+            backend.stop(0);
+        }
+    }
+
+    private static void relaySmall(CloseableHttpClient client, String url, boolean cached) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < SMALL_BODY_REQUESTS; i++) {
+            relayBody(client, url, cached);
+        }
+        long nanos = Math.max(System.nanoTime() - start, 1);
+        log.info("{} byte bodies, {}: {} requests/s", SMALL_BODY_SIZE, cached ? "cached for logging" : "not cached",
+                SMALL_BODY_REQUESTS * 1_000_000_000L / nanos);
+    }
+
+    private static long[] relayBody(CloseableHttpClient client, String url, boolean cached) throws Exception {
+        CountingOutputStream relayed = new CountingOutputStream(OutputStream.nullOutputStream());
+        ProxyMessageEncoder encoder = new ProxyMessageEncoder(relayed, CryptoUtils.DEFAULT_DIGEST_ALGORITHM_ID);
+        CachingStream cache = cached ? new CachingStream() : null;
+        CountingOutputStream cacheCounter = cached ? new CountingOutputStream(cache) : null;
+
+        HttpResponse response = client.execute(new HttpGet(url));
+        try (InputStream content = response.getEntity().getContent()) {
+            encoder.restBody(cached ? new TeeInputStream(content, cacheCounter) : content);
+        } finally {
+            EntityUtils.consume(response.getEntity());
+            if (cache != null) {
+                cache.consume();
+            }
+        }
+        return new long[] {relayed.getByteCount(), cacheCounter == null ? 0 : cacheCounter.getByteCount()};
+    }
+
+    private static void relay(CloseableHttpClient client, String url, long sizeMb, boolean cached) throws Exception {
+        long start = System.nanoTime();
+        long[] counts = relayBody(client, url, cached);
+        long nanos = Math.max(System.nanoTime() - start, 1);
+
+        log.info("{} MB body, {}: {} MB/s, {} bytes relayed, {} bytes copied to cache",
+                sizeMb, cached ? "cached for logging" : "not cached",
+                sizeMb * 1_000_000_000L / nanos, counts[0], counts[1]);
+    }
+}
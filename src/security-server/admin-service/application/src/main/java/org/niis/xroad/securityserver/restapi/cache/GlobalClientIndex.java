@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.securityserver.restapi.cache;
+
+import ee.ria.xroad.common.conf.globalconf.MemberInfo;
+import ee.ria.xroad.common.identifier.ClientId;
+
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.niis.xroad.securityserver.restapi.facade.GlobalConfFacade;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory search index over the members and subsystems in global configuration.
+ *
+ * The index is built on first use after a global configuration reload and shared by all requests until
+ * {@link #invalidate()} is called on the next reload. Until the first reload the index is built for each
+ * lookup, since global configuration may not have been loaded yet.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GlobalClientIndex {
+
+    private final GlobalConfFacade globalConfFacade;
+
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Entries entries;
+
+    /**
+     * Discards the current index, it is rebuilt on next use.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        entries = null;
+    }
+
+    /**
+     * @return all members and subsystems in global configuration, in global configuration order
+     */
+    public List<IndexedClient> getClients() {
+        return current().getClients();
+    }
+
+    /**
+     * @param clientId client identifier
+     * @return the indexed member or subsystem, or null if it is not in global configuration
+     */
+    public IndexedClient get(ClientId clientId) {
+        return current().getByEncodedId().get(clientId.asEncodedId());
+    }
+
+    private Entries current() {
+        long currentGeneration = generation.get();
+        Entries current = entries;
+        if (current != null && current.getGeneration() == currentGeneration) {
+            return current;
+        }
+        current = build(currentGeneration);
+        if (currentGeneration > 0) {
+            entries = current;
+        }
+        return current;
+    }
+
+    private Entries build(long buildGeneration) {
+        List<MemberInfo> members = globalConfFacade.getMembers();
+        List<IndexedClient> clients = new ArrayList<>(members.size());
+        Map<String, IndexedClient> byEncodedId = new HashMap<>(members.size() * 2);
+        for (MemberInfo member : members) {
+            IndexedClient client = new IndexedClient(member.getId());
+            clients.add(client);
+            byEncodedId.putIfAbsent(client.getEncodedId(), client);
+        }
+        log.debug("Indexed {} global clients", clients.size());
+        return new Entries(buildGeneration, Collections.unmodifiableList(clients), byEncodedId);
+    }
+
+    @Value
+    private static class Entries {
+        long generation;
+        List<IndexedClient> clients;
+        Map<String, IndexedClient> byEncodedId;
+    }
+
+    /**
+     * Member or subsystem with precomputed search keys. Member names are not indexed, they are looked up
+     * with {@link GlobalConfFacade#getMemberName(ClientId)} like for local clients.
+     */
+    @Value
+    public static class IndexedClient {
+        ClientId.Conf id;
+        String encodedId;
+        String memberClassLowerCase;
+        String memberCodeLowerCase;
+        String subsystemCodeLowerCase;
+
+        IndexedClient(ClientId.Conf id) {
+            this.id = id;
+            this.encodedId = id.asEncodedId();
+            this.memberClassLowerCase = lowerCase(id.getMemberClass());
+            this.memberCodeLowerCase = lowerCase(id.getMemberCode());
+            this.subsystemCodeLowerCase = lowerCase(id.getSubsystemCode());
+        }
+
+        private static String lowerCase(String value) {
+            return value == null ? null : value.toLowerCase(Locale.ROOT);
+        }
+    }
+}
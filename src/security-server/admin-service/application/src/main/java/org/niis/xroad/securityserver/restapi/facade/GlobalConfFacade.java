@@ -45,6 +45,7 @@ import java.security.cert.X509Certificate;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.OptionalLong;
 import java.util.Set;
 
 /**
@@ -210,6 +211,13 @@ public class GlobalConfFacade {
         GlobalConf.reload();
     }
 
+    /**
+     * {@link GlobalConf#getContentVersion()}
+     */
+    public OptionalLong getContentVersion() {
+        return GlobalConf.getContentVersion();
+    }
+
     /**
      * {@link GlobalConf#reload()}
      */
@@ -69,6 +69,7 @@ import org.niis.xroad.securityserver.restapi.openapi.model.Client;
 import org.niis.xroad.securityserver.restapi.openapi.model.ClientAdd;
 import org.niis.xroad.securityserver.restapi.openapi.model.ConnectionType;
 import org.niis.xroad.securityserver.restapi.openapi.model.ConnectionTypeWrapper;
+import org.niis.xroad.securityserver.restapi.openapi.model.IgnoreWarnings;
 import org.niis.xroad.securityserver.restapi.openapi.model.LocalGroup;
 import org.niis.xroad.securityserver.restapi.openapi.model.LocalGroupAdd;
 import org.niis.xroad.securityserver.restapi.openapi.model.OrphanInformation;
@@ -92,6 +93,8 @@ import org.niis.xroad.securityserver.restapi.service.MissingParameterException;
 import org.niis.xroad.securityserver.restapi.service.OrphanRemovalService;
 import org.niis.xroad.securityserver.restapi.service.ServiceClientNotFoundException;
 import org.niis.xroad.securityserver.restapi.service.ServiceClientService;
+import org.niis.xroad.securityserver.restapi.service.ServiceDescriptionNotFoundException;
+import org.niis.xroad.securityserver.restapi.service.ServiceDescriptionRefreshService;
 import org.niis.xroad.securityserver.restapi.service.ServiceDescriptionService;
 import org.niis.xroad.securityserver.restapi.service.ServiceNotFoundException;
 import org.niis.xroad.securityserver.restapi.service.TokenService;
@@ -112,6 +115,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.niis.xroad.restapi.config.audit.RestApiAuditEvent.ADD_CLIENT;
 import static org.niis.xroad.restapi.config.audit.RestApiAuditEvent.ADD_CLIENT_INTERNAL_CERT;
@@ -121,6 +125,7 @@ import static org.niis.xroad.restapi.config.audit.RestApiAuditEvent.ADD_SERVICE_
 import static org.niis.xroad.restapi.config.audit.RestApiAuditEvent.DELETE_CLIENT;
 import static org.niis.xroad.restapi.config.audit.RestApiAuditEvent.DELETE_CLIENT_INTERNAL_CERT;
 import static org.niis.xroad.restapi.config.audit.RestApiAuditEvent.DELETE_ORPHANS;
+import static org.niis.xroad.restapi.config.audit.RestApiAuditEvent.REFRESH_SERVICE_DESCRIPTIONS;
 import static org.niis.xroad.restapi.config.audit.RestApiAuditEvent.REGISTER_CLIENT;
 import static org.niis.xroad.restapi.config.audit.RestApiAuditEvent.REMOVE_SERVICE_CLIENT_ACCESS_RIGHTS;
 import static org.niis.xroad.restapi.config.audit.RestApiAuditEvent.SEND_OWNER_CHANGE_REQ;
@@ -152,6 +157,7 @@ public class ClientsApiController implements ClientsApi {
     private final CertificateDetailsConverter certificateDetailsConverter;
     private final ServiceDescriptionConverter serviceDescriptionConverter;
     private final ServiceDescriptionService serviceDescriptionService;
+    private final ServiceDescriptionRefreshService serviceDescriptionRefreshService;
     private final AccessRightService accessRightService;
     private final TokenCertificateConverter tokenCertificateConverter;
     private final OrphanRemovalService orphanRemovalService;
@@ -177,13 +183,15 @@ public class ClientsApiController implements ClientsApi {
      *                              NOTE: parameter does not have an effect on whether local or global clients are
      *                              searched
      * @param internalSearch search only in the local clients
+     * @param after encoded id of the last client of the previous page
+     * @param limit maximum number of clients to return
      * @return
      */
     @Override
     @PreAuthorize("hasAuthority('VIEW_CLIENTS')")
     public ResponseEntity<Set<Client>> findClients(String name, String instance, String memberClass,
             String memberCode, String subsystemCode, Boolean showMembers, Boolean internalSearch,
-            Boolean localValidSignCert, Boolean excludeLocal) {
+            Boolean localValidSignCert, Boolean excludeLocal, String after, Integer limit) {
         ClientService.SearchParameters searchParams = ClientService.SearchParameters.builder()
                 .name(name)
                 .instance(instance)
@@ -194,6 +202,8 @@ public class ClientsApiController implements ClientsApi {
                 .internalSearch(internalSearch)
                 .excludeLocal(excludeLocal)
                 .hasValidLocalSignCert(localValidSignCert)
+                .after(after == null ? null : clientIdConverter.convertId(after))
+                .limit(limit)
                 .build();
         Set<Client> clients = clientConverter.convert(clientService.findClients(searchParams));
         return new ResponseEntity<>(clients, HttpStatus.OK);
@@ -364,6 +374,34 @@ public class ClientsApiController implements ClientsApi {
         return new ResponseEntity<>(serviceDescriptions, HttpStatus.OK);
     }
 
+    @Override
+    @PreAuthorize("hasAnyAuthority('REFRESH_WSDL', 'REFRESH_OPENAPI3')")
+    @AuditEventMethod(event = REFRESH_SERVICE_DESCRIPTIONS)
+    public ResponseEntity<List<ServiceDescription>> refreshClientServiceDescriptions(String encodedId,
+            IgnoreWarnings ignoreWarnings) {
+        ClientId clientId = clientIdConverter.convertId(encodedId);
+        List<ServiceDescriptionType> refreshed;
+        try {
+            refreshed = serviceDescriptionRefreshService.refreshClientServiceDescriptions(clientId,
+                    ignoreWarnings.getIgnoreWarnings());
+        } catch (WsdlParser.WsdlNotFoundException | UnhandledWarningsException | InvalidUrlException
+                 | InvalidWsdlException | ServiceDescriptionService.WrongServiceDescriptionTypeException
+                 | OpenApiParser.ParsingException | InvalidServiceUrlException | UnsupportedOpenApiVersionException e) {
+            throw new BadRequestException(e);
+        } catch (ServiceDescriptionService.ServiceAlreadyExistsException
+                 | ServiceDescriptionService.WsdlUrlAlreadyExistsException e) {
+            throw new ConflictException(e);
+        } catch (ClientNotFoundException | ServiceDescriptionNotFoundException e) {
+            throw new ResourceNotFoundException(e);
+        } catch (InterruptedException e) {
+            throw new InternalServerErrorException(new ErrorDeviation(ERROR_WSDL_VALIDATOR_INTERRUPTED));
+        }
+        List<ServiceDescription> serviceDescriptions = refreshed.stream()
+                .map(serviceDescriptionConverter::convert)
+                .collect(toList());
+        return new ResponseEntity<>(serviceDescriptions, HttpStatus.OK);
+    }
+
     @Override
     @PreAuthorize("hasAnyAuthority('ADD_WSDL', 'ADD_OPENAPI3')")
     @AuditEventMethod(event = ADD_SERVICE_DESCRIPTION)
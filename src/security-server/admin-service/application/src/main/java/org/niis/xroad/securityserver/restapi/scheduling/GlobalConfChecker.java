@@ -39,6 +39,7 @@ import ee.ria.xroad.signer.protocol.dto.KeyUsageInfo;
 
 import lombok.extern.slf4j.Slf4j;
 import org.niis.xroad.restapi.common.backup.service.BackupRestoreEvent;
+import org.niis.xroad.securityserver.restapi.cache.GlobalClientIndex;
 import org.niis.xroad.securityserver.restapi.facade.GlobalConfFacade;
 import org.niis.xroad.securityserver.restapi.facade.SignerProxyFacade;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -50,6 +51,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.security.cert.X509Certificate;
 import java.util.List;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 import static ee.ria.xroad.common.ErrorCodes.translateException;
 import static ee.ria.xroad.common.SystemProperties.NodeType.SLAVE;
@@ -64,22 +66,30 @@ import static java.util.stream.Collectors.toList;
 public class GlobalConfChecker {
     public static final int JOB_REPEAT_INTERVAL_MS = 30000;
     public static final int INITIAL_DELAY_MS = 30000;
+    // serverconf is reconciled at least every n:th run even if globalconf has not changed, to pick up local changes
+    private static final int FULL_UPDATE_INTERVAL_RUNS = 10;
     private final GlobalConfCheckerHelper globalConfCheckerHelper;
     private final GlobalConfFacade globalConfFacade;
     private final SignerProxyFacade signerProxyFacade;
+    private final GlobalClientIndex globalClientIndex;
     private volatile boolean restoreInProgress = false;
+    private volatile OptionalLong updatedContentVersion = OptionalLong.empty();
+    private int runsSinceUpdate = 0;
 
     @Autowired
     public GlobalConfChecker(GlobalConfCheckerHelper globalConfCheckerHelper, GlobalConfFacade globalConfFacade,
-                             SignerProxyFacade signerProxyFacade) {
+                             SignerProxyFacade signerProxyFacade, GlobalClientIndex globalClientIndex) {
         this.globalConfCheckerHelper = globalConfCheckerHelper;
         this.globalConfFacade = globalConfFacade;
         this.signerProxyFacade = signerProxyFacade;
+        this.globalClientIndex = globalClientIndex;
     }
 
     /**
      * Reloads global configuration, and updates client statuses, authentication certificate statuses
-     * and server owner identity to the serverconf database. The task is scheduled at a fixed rate
+     * and server owner identity to the serverconf database. The serverconf update is skipped when the
+     * content of the global configuration has not changed since the last successful update, except
+     * on every tenth run. The task is scheduled at a fixed rate
      * which means that the task is run at a fixed interval (defined by FIXED_RATE_MS) regardless of the
      * previous executions of the task. However, scheduled tasks do not run in parallel by default. The
      * next task won't be invoked until the previous one is done. Set an initial delay before running the task
@@ -98,8 +108,14 @@ public class GlobalConfChecker {
 
         try {
             log.debug("Check globalconf for updates");
-            reloadGlobalConf();
+            OptionalLong contentVersion = reloadGlobalConf();
+            if (isUpToDate(contentVersion)) {
+                log.debug("Globalconf has not changed - skipping serverconf updates");
+                return;
+            }
             updateServerConf();
+            updatedContentVersion = contentVersion;
+            runsSinceUpdate = 0;
         } catch (Exception e) {
             log.error("Checking globalconf for updates failed", e);
         }
@@ -108,13 +124,26 @@ public class GlobalConfChecker {
     @EventListener
     protected void onEvent(BackupRestoreEvent e) {
         restoreInProgress = BackupRestoreEvent.START.equals(e);
+        // restored serverconf must be checked against globalconf
+        updatedContentVersion = OptionalLong.empty();
     }
 
-    private void reloadGlobalConf() {
+    private OptionalLong reloadGlobalConf() {
         // conf MUST be reloaded before checking validity otherwise expired or invalid conf is never reloaded
         log.debug("Reloading globalconf");
         globalConfFacade.reload();
+        OptionalLong contentVersion = globalConfFacade.getContentVersion();
+        if (contentVersion.isEmpty() || !contentVersion.equals(updatedContentVersion)) {
+            globalClientIndex.invalidate();
+        }
         globalConfFacade.verifyValidity();
+        return contentVersion;
+    }
+
+    private boolean isUpToDate(OptionalLong contentVersion) {
+        // unknown content version is always considered changed
+        return contentVersion.isPresent() && contentVersion.equals(updatedContentVersion)
+                && ++runsSinceUpdate < FULL_UPDATE_INTERVAL_RUNS;
     }
 
     private void updateServerConf() {
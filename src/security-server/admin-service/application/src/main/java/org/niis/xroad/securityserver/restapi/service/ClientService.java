@@ -37,6 +37,7 @@ import ee.ria.xroad.signer.protocol.dto.CertificateInfo;
 
 import lombok.Builder;
 import lombok.RequiredArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.hibernate.Hibernate;
 import org.niis.xroad.restapi.config.audit.AuditDataHelper;
@@ -47,6 +48,8 @@ import org.niis.xroad.restapi.service.ServiceException;
 import org.niis.xroad.restapi.service.UnhandledWarningsException;
 import org.niis.xroad.securityserver.restapi.cache.CurrentSecurityServerId;
 import org.niis.xroad.securityserver.restapi.cache.CurrentSecurityServerSignCertificates;
+import org.niis.xroad.securityserver.restapi.cache.GlobalClientIndex;
+import org.niis.xroad.securityserver.restapi.cache.GlobalClientIndex.IndexedClient;
 import org.niis.xroad.securityserver.restapi.facade.GlobalConfFacade;
 import org.niis.xroad.securityserver.restapi.repository.ClientRepository;
 import org.niis.xroad.securityserver.restapi.repository.IdentifierRepository;
@@ -61,9 +64,11 @@ import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -96,10 +101,15 @@ import static org.niis.xroad.restapi.exceptions.DeviationCodes.WARNING_UNREGISTE
 public class ClientService {
     private static final String INVALID_INSTANCE_IDENTIFIER = "instance identifier is invalid: ";
     private static final String INVALID_MEMBER_CLASS = "member class is invalid: ";
+    // same order as ClientSortingComparator: member name (nulls last), then client id
+    private static final Comparator<SortableClient> CLIENT_ORDER = Comparator
+            .comparing(SortableClient::getMemberName, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(SortableClient::getEncodedId, String.CASE_INSENSITIVE_ORDER);
 
     private final ClientRepository clientRepository;
     private final GlobalConfService globalConfService;
     private final GlobalConfFacade globalConfFacade;
+    private final GlobalClientIndex globalClientIndex;
     private final ServerConfService serverConfService;
     private final IdentifierRepository identifierRepository;
     private final ManagementRequestSenderService managementRequestSenderService;
@@ -158,16 +168,18 @@ public class ClientService {
      * @return
      */
     public List<ClientType> getAllGlobalClients() {
-        return globalConfFacade.getMembers()
+        return globalClientIndex.getClients()
                 .stream()
-                .map(memberInfo -> {
-                    ClientType clientType = new ClientType();
-                    clientType.setIdentifier(memberInfo.getId());
-                    return clientType;
-                })
+                .map(ClientService::toClientType)
                 .collect(Collectors.toList());
     }
 
+    private static ClientType toClientType(IndexedClient indexedClient) {
+        ClientType clientType = new ClientType();
+        clientType.setIdentifier(indexedClient.getId());
+        return clientType;
+    }
+
     /**
      * Return one client, or null if not found.
      * This method does NOT trigger load of lazy loaded properties.
@@ -383,7 +395,14 @@ public class ClientService {
      * Find clients in the globalconf
      */
     public List<ClientType> findGlobalClients(ClientService.SearchParameters searchParameters) {
-        return searchClients(searchParameters, getAllGlobalClients());
+        Predicate<IndexedClient> matchingIdentifier = buildIndexedClientSearchPredicate(searchParameters);
+        Predicate<ClientType> matchingNameAndSignCert = buildNameAndSignCertPredicate(searchParameters);
+        return globalClientIndex.getClients().stream()
+                .filter(c -> searchParameters.showMembers || c.getId().getSubsystemCode() != null)
+                .filter(matchingIdentifier)
+                .map(ClientService::toClientType)
+                .filter(matchingNameAndSignCert)
+                .collect(Collectors.toList());
     }
 
     private List<ClientType> searchClients(SearchParameters searchParameters, List<ClientType> allClients) {
@@ -401,30 +420,53 @@ public class ClientService {
      * @return
      */
     public Optional<ClientType> findByClientId(ClientId clientId) {
-        List<ClientType> localClients = getAllLocalClients();
-        List<ClientType> globalClients = getAllGlobalClients();
-        List<ClientType> distinctClients = mergeClientListsDistinctively(globalClients, localClients);
-        return distinctClients.stream()
-                .filter(clientType -> clientType.getIdentifier().toShortString().trim()
-                        .equals(clientId.toShortString().trim()))
+        String shortId = clientId.toShortString().trim();
+        Optional<ClientType> localClient = getAllLocalClients().stream()
+                .filter(clientType -> clientType.getIdentifier().toShortString().trim().equals(shortId))
                 .findFirst();
+        if (localClient.isPresent()) {
+            return localClient;
+        }
+        return Optional.ofNullable(globalClientIndex.get(clientId)).map(ClientService::toClientType);
     }
 
     /**
-     * Find from all clients (local or global)
+     * Find from all clients (local or global). If {@code after} or {@code limit} is given, the clients are
+     * sorted by member name and client id, and only the requested page is returned.
      */
     public List<ClientType> findClients(ClientService.SearchParameters searchParameters) {
         List<ClientType> localClients = findLocalClients(searchParameters);
         if (searchParameters.internalSearch) {
-            return localClients;
+            return page(localClients, searchParameters);
         }
 
         List<ClientType> globalClients = findGlobalClients(searchParameters);
         if (searchParameters.excludeLocal) {
-            return subtractLocalFromGlobalClients(globalClients, localClients);
+            return page(subtractLocalFromGlobalClients(globalClients, localClients), searchParameters);
         }
 
-        return mergeClientListsDistinctively(globalClients, localClients);
+        return page(mergeClientListsDistinctively(globalClients, localClients), searchParameters);
+    }
+
+    /**
+     * Returns the clients sorted after the {@code after} cursor, at most {@code limit} of them
+     */
+    private List<ClientType> page(List<ClientType> clients, SearchParameters searchParameters) {
+        if (searchParameters.after == null && searchParameters.limit == null) {
+            return clients;
+        }
+        SortableClient cursor = searchParameters.after == null ? null : toSortableClient(searchParameters.after, null);
+        return clients.stream()
+                .map(clientType -> toSortableClient(clientType.getIdentifier(), clientType))
+                .filter(client -> cursor == null || CLIENT_ORDER.compare(client, cursor) > 0)
+                .sorted(CLIENT_ORDER)
+                .limit(searchParameters.limit == null ? Long.MAX_VALUE : searchParameters.limit)
+                .map(SortableClient::getClient)
+                .collect(Collectors.toList());
+    }
+
+    private SortableClient toSortableClient(ClientId clientId, ClientType clientType) {
+        return new SortableClient(globalConfFacade.getMemberName(clientId), clientId.asEncodedId(), clientType);
     }
 
     /**
@@ -436,8 +478,8 @@ public class ClientService {
      */
     private List<ClientType> subtractLocalFromGlobalClients(List<ClientType> globalClients,
             List<ClientType> localClients) {
-        List<String> localClientIds = localClients.stream().map(localClient ->
-                localClient.getIdentifier().toShortString()).collect(Collectors.toList());
+        Set<String> localClientIds = localClients.stream().map(localClient ->
+                localClient.getIdentifier().toShortString()).collect(Collectors.toSet());
 
         return globalClients.stream()
                 .filter(globalClient -> !localClientIds.contains(globalClient.getIdentifier().toShortString()))
@@ -583,12 +625,6 @@ public class ClientService {
 
     private Predicate<ClientType> buildClientSearchPredicate(ClientService.SearchParameters searchParameters) {
         Predicate<ClientType> clientTypePredicate = clientType -> true;
-        if (!StringUtils.isEmpty(searchParameters.name)) {
-            clientTypePredicate = clientTypePredicate.and(ct -> {
-                String memberName = globalConfFacade.getMemberName(ct.getIdentifier());
-                return memberName != null && memberName.toLowerCase().contains(searchParameters.name.toLowerCase());
-            });
-        }
         if (!StringUtils.isEmpty(searchParameters.instance)) {
             clientTypePredicate = clientTypePredicate.and(ct -> ct.getIdentifier().getXRoadInstance()
                     .equalsIgnoreCase(searchParameters.instance));
@@ -605,6 +641,44 @@ public class ClientService {
             clientTypePredicate = clientTypePredicate.and(ct -> ct.getIdentifier().getSubsystemCode() != null
                     && ct.getIdentifier().getSubsystemCode().toLowerCase().contains(searchParameters.subsystemCode.toLowerCase()));
         }
+        return clientTypePredicate.and(buildNameAndSignCertPredicate(searchParameters));
+    }
+
+    /**
+     * Same identifier criteria as {@link #buildClientSearchPredicate(SearchParameters)}, on the precomputed
+     * keys of the global client index
+     */
+    private static Predicate<IndexedClient> buildIndexedClientSearchPredicate(ClientService.SearchParameters searchParameters) {
+        Predicate<IndexedClient> indexedClientPredicate = indexedClient -> true;
+        if (!StringUtils.isEmpty(searchParameters.instance)) {
+            indexedClientPredicate = indexedClientPredicate.and(ic -> ic.getId().getXRoadInstance()
+                    .equalsIgnoreCase(searchParameters.instance));
+        }
+        if (!StringUtils.isEmpty(searchParameters.memberClass)) {
+            String memberClass = searchParameters.memberClass.toLowerCase(Locale.ROOT);
+            indexedClientPredicate = indexedClientPredicate.and(ic -> ic.getMemberClassLowerCase().contains(memberClass));
+        }
+        if (!StringUtils.isEmpty(searchParameters.memberCode)) {
+            String memberCode = searchParameters.memberCode.toLowerCase(Locale.ROOT);
+            indexedClientPredicate = indexedClientPredicate.and(ic -> ic.getMemberCodeLowerCase().contains(memberCode));
+        }
+        if (!StringUtils.isEmpty(searchParameters.subsystemCode)) {
+            String subsystemCode = searchParameters.subsystemCode.toLowerCase(Locale.ROOT);
+            indexedClientPredicate = indexedClientPredicate.and(ic -> ic.getSubsystemCodeLowerCase() != null
+                    && ic.getSubsystemCodeLowerCase().contains(subsystemCode));
+        }
+        return indexedClientPredicate;
+    }
+
+    private Predicate<ClientType> buildNameAndSignCertPredicate(ClientService.SearchParameters searchParameters) {
+        Predicate<ClientType> clientTypePredicate = clientType -> true;
+        if (!StringUtils.isEmpty(searchParameters.name)) {
+            String name = searchParameters.name.toLowerCase();
+            clientTypePredicate = clientTypePredicate.and(ct -> {
+                String memberName = globalConfFacade.getMemberName(ct.getIdentifier());
+                return memberName != null && memberName.toLowerCase().contains(name);
+            });
+        }
         if (searchParameters.hasValidLocalSignCert != null) {
             clientTypePredicate = clientTypePredicate.and(
                     ct -> searchParameters.hasValidLocalSignCert.equals(hasValidLocalSignCertCheck(ct)));
@@ -868,5 +942,16 @@ public class ClientService {
           NOTE: parameter does not have an effect on whether local or global clients are searched
          */
         private Boolean hasValidLocalSignCert;
+        /** return only clients sorted after this client (cursor of the previous page) */
+        private ClientId after;
+        /** maximum number of clients to return, null = no limit */
+        private Integer limit;
+    }
+
+    @Value
+    private static class SortableClient {
+        String memberName;
+        String encodedId;
+        ClientType client;
     }
 }
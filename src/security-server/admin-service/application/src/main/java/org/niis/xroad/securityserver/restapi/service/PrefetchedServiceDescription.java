@@ -0,0 +1,96 @@
+/*
+ *  The MIT License
+ *  Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ *  Copyright (c) 2018 Estonian Information System Authority (RIA),
+ *  Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ *  Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.niis.xroad.securityserver.restapi.service;
+
+import ee.ria.xroad.common.conf.serverconf.model.DescriptionType;
+import ee.ria.xroad.common.conf.serverconf.model.ServiceDescriptionType;
+
+import org.niis.xroad.securityserver.restapi.wsdl.OpenApiParser;
+import org.niis.xroad.securityserver.restapi.wsdl.UnsupportedOpenApiVersionException;
+import org.niis.xroad.securityserver.restapi.wsdl.WsdlParser;
+import org.niis.xroad.securityserver.restapi.wsdl.WsdlValidator;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Service description downloaded, parsed and validated by {@link ServiceDescriptionRefreshService} ahead of
+ * refreshing it. A failure of each step is kept and rethrown at the point where the step runs when the description
+ * is not prefetched.
+ */
+public final class PrefetchedServiceDescription {
+    private final String url;
+    private final DescriptionType type;
+
+    Collection<WsdlParser.ServiceInfo> parsedServices;
+    List<String> validationWarnings;
+    OpenApiParser.Result openApiResult;
+    Exception parseError;
+    Exception validationError;
+
+    PrefetchedServiceDescription(String url, DescriptionType type) {
+        this.url = url;
+        this.type = type;
+    }
+
+    /**
+     * Whether this was fetched from the current url of the given service description
+     */
+    boolean isFor(ServiceDescriptionType serviceDescriptionType) {
+        return Objects.equals(url, serviceDescriptionType.getUrl()) && type == serviceDescriptionType.getType();
+    }
+
+    Collection<WsdlParser.ServiceInfo> getParsedServices() throws WsdlParser.WsdlNotFoundException,
+            WsdlParser.WsdlParseException {
+        if (parseError instanceof WsdlParser.WsdlNotFoundException) {
+            throw (WsdlParser.WsdlNotFoundException) parseError;
+        } else if (parseError instanceof WsdlParser.WsdlParseException) {
+            throw (WsdlParser.WsdlParseException) parseError;
+        }
+        return parsedServices;
+    }
+
+    List<String> getValidationWarnings() throws WsdlValidator.WsdlValidationFailedException,
+            WsdlValidator.WsdlValidatorNotExecutableException {
+        if (validationError instanceof WsdlValidator.WsdlValidationFailedException) {
+            throw (WsdlValidator.WsdlValidationFailedException) validationError;
+        } else if (validationError instanceof WsdlValidator.WsdlValidatorNotExecutableException) {
+            throw (WsdlValidator.WsdlValidatorNotExecutableException) validationError;
+        }
+        return validationWarnings;
+    }
+
+    OpenApiParser.Result getOpenApiResult() throws OpenApiParser.ParsingException,
+            UnsupportedOpenApiVersionException {
+        if (parseError instanceof OpenApiParser.ParsingException) {
+            throw (OpenApiParser.ParsingException) parseError;
+        } else if (parseError instanceof UnsupportedOpenApiVersionException) {
+            throw (UnsupportedOpenApiVersionException) parseError;
+        }
+        return openApiResult;
+    }
+}
@@ -26,22 +26,33 @@
  */
 package org.niis.xroad.securityserver.restapi.service;
 
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.identifier.SecurityServerId;
 import ee.ria.xroad.common.util.TimeUtils;
+import ee.ria.xroad.common.util.backup.ConfigurationBackupCreator;
 import ee.ria.xroad.common.util.process.ExternalProcessRunner;
+import ee.ria.xroad.common.util.process.ProcessFailedException;
+import ee.ria.xroad.common.util.process.ProcessNotExecutableException;
 
 import org.niis.xroad.restapi.common.backup.repository.BackupRepository;
 import org.niis.xroad.restapi.common.backup.service.BackupService;
 import org.niis.xroad.restapi.common.backup.service.BaseConfigurationBackupGenerator;
 import org.niis.xroad.restapi.config.audit.AuditDataHelper;
+import org.niis.xroad.restapi.exceptions.DeviationAwareRuntimeException;
+import org.niis.xroad.restapi.exceptions.ErrorDeviation;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.time.format.DateTimeFormatter;
 
+import static org.niis.xroad.restapi.exceptions.DeviationCodes.ERROR_BACKUP_GENERATION_FAILED;
+
 @Component
 public class SecurityServerConfigurationBackupGenerator extends BaseConfigurationBackupGenerator {
     private final ServerConfService serverConfService;
+    private final ConfigurationBackupCreator configurationBackupCreator;
 
     public SecurityServerConfigurationBackupGenerator(@Value("${script.generate-backup.path}") String generateBackupScriptPath,
                                                       BackupService backupService,
@@ -51,8 +62,22 @@ public class SecurityServerConfigurationBackupGenerator extends BaseConfiguratio
                                                       ServerConfService serverConfService) {
         super(generateBackupScriptPath, backupService, backupRepository, externalProcessRunner, auditDataHelper);
         this.serverConfService = serverConfService;
+        this.configurationBackupCreator = new ConfigurationBackupCreator(externalProcessRunner);
     }
 
+    @Override
+    protected void createBackup(String backupFilename) throws InterruptedException {
+        if (!SystemProperties.isBackupStreamingEnabled()) {
+            super.createBackup(backupFilename);
+            return;
+        }
+        try {
+            configurationBackupCreator.createSecurityServerBackup(serverConfService.getSecurityServerId().toShortString(),
+                    Paths.get(backupRepository.getConfigurationBackupPath() + backupFilename));
+        } catch (IOException | ProcessNotExecutableException | ProcessFailedException e) {
+            throw new DeviationAwareRuntimeException(e, new ErrorDeviation(ERROR_BACKUP_GENERATION_FAILED));
+        }
+    }
 
     @Override
     protected String[] getScriptArgs(String backupFileName) {
@@ -0,0 +1,191 @@
+/*
+ *  The MIT License
+ *  Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ *  Copyright (c) 2018 Estonian Information System Authority (RIA),
+ *  Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ *  Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.niis.xroad.securityserver.restapi.service;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.conf.serverconf.model.DescriptionType;
+import ee.ria.xroad.common.conf.serverconf.model.ServiceDescriptionType;
+import ee.ria.xroad.common.identifier.ClientId;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.niis.xroad.restapi.service.UnhandledWarningsException;
+import org.niis.xroad.securityserver.restapi.wsdl.InvalidWsdlException;
+import org.niis.xroad.securityserver.restapi.wsdl.OpenApiParser;
+import org.niis.xroad.securityserver.restapi.wsdl.UnsupportedOpenApiVersionException;
+import org.niis.xroad.securityserver.restapi.wsdl.WsdlParser;
+import org.niis.xroad.securityserver.restapi.wsdl.WsdlValidator;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Refreshes all service descriptions of a client at once. The descriptions are downloaded, parsed and validated
+ * concurrently outside of any transaction, after which {@link ServiceDescriptionService} applies the results in one
+ * transaction. This bean is deliberately not transactional, so that no database connection is held while waiting
+ * for the downloads and the WSDL validator.
+ */
+@Slf4j
+@Service
+@PreAuthorize("isAuthenticated()")
+@RequiredArgsConstructor
+public class ServiceDescriptionRefreshService {
+
+    private final ServiceDescriptionService serviceDescriptionService;
+    private final ClientService clientService;
+    private final UrlValidator urlValidator;
+    private final WsdlValidator wsdlValidator;
+    private final OpenApiParser openApiParser;
+
+    // bounded by the same limit as WSDL validations, which also limits the concurrent validations per host
+    private final ExecutorService executor = Executors.newFixedThreadPool(
+            Math.max(1, SystemProperties.getWsdlValidatorMaxConcurrent()), runnable -> {
+                Thread thread = new Thread(runnable, "service-description-refresh");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Refresh all WSDL and OPENAPI3 service descriptions of a client. The changes are applied one description at a
+     * time in the order the client's descriptions are stored, exactly as
+     * {@link ServiceDescriptionService#refreshServiceDescription(Long, boolean)} would. If refreshing any of the
+     * descriptions fails, none of the changes are saved.
+     *
+     * @param clientId
+     * @param ignoreWarnings
+     * @return refreshed service descriptions
+     * @throws ClientNotFoundException if client with given id was not found
+     * @throws WsdlParser.WsdlNotFoundException WSDL not found
+     * @throws InvalidWsdlException Invalid wsdl
+     * @throws ServiceDescriptionNotFoundException service description was removed while refreshing
+     * @throws ServiceDescriptionService.WrongServiceDescriptionTypeException wrong type of service description
+     * @throws UnhandledWarningsException Unhandledwarnings in openapi3 or wsdl description
+     * @throws InvalidUrlException invalid url
+     * @throws InvalidServiceUrlException if the WSDL has services with invalid urls
+     * @throws ServiceDescriptionService.ServiceAlreadyExistsException service code already exists if refreshing wsdl
+     * @throws ServiceDescriptionService.WsdlUrlAlreadyExistsException url is already in use by this client
+     * @throws OpenApiParser.ParsingException openapi3 description parsing fails
+     * @throws UnsupportedOpenApiVersionException if the openapi version is not supported
+     */
+    public List<ServiceDescriptionType> refreshClientServiceDescriptions(ClientId clientId, boolean ignoreWarnings)
+            throws ClientNotFoundException, WsdlParser.WsdlNotFoundException, InvalidWsdlException,
+            ServiceDescriptionNotFoundException, ServiceDescriptionService.WrongServiceDescriptionTypeException,
+            UnhandledWarningsException, InvalidUrlException, ServiceDescriptionService.ServiceAlreadyExistsException,
+            ServiceDescriptionService.WsdlUrlAlreadyExistsException, OpenApiParser.ParsingException,
+            InterruptedException, InvalidServiceUrlException, UnsupportedOpenApiVersionException {
+
+        List<ServiceDescriptionType> serviceDescriptions = clientService.getLocalClientServiceDescriptions(clientId);
+        if (serviceDescriptions == null) {
+            throw new ClientNotFoundException("Client with id " + clientId.toShortString() + " not found");
+        }
+
+        Map<Long, PrefetchedServiceDescription> prefetched = prefetchDescriptions(serviceDescriptions);
+        return serviceDescriptionService.refreshServiceDescriptions(new ArrayList<>(prefetched.keySet()),
+                ignoreWarnings, prefetched);
+    }
+
+    /**
+     * Downloads, parses and validates the WSDL and OPENAPI3 descriptions concurrently. Failures are not thrown here
+     * but kept in the results, so that they are reported in the same order and at the same point as when
+     * refreshing a single description.
+     */
+    private Map<Long, PrefetchedServiceDescription> prefetchDescriptions(
+            List<ServiceDescriptionType> serviceDescriptions) throws InterruptedException {
+        Map<Long, Future<PrefetchedServiceDescription>> futures = new LinkedHashMap<>();
+        try {
+            for (ServiceDescriptionType serviceDescriptionType : serviceDescriptions) {
+                String url = serviceDescriptionType.getUrl();
+                DescriptionType type = serviceDescriptionType.getType();
+                if (type == DescriptionType.WSDL || type == DescriptionType.OPENAPI3) {
+                    futures.put(serviceDescriptionType.getId(), executor.submit(() -> prefetchDescription(url, type)));
+                }
+            }
+
+            Map<Long, PrefetchedServiceDescription> prefetched = new LinkedHashMap<>();
+            for (Map.Entry<Long, Future<PrefetchedServiceDescription>> future : futures.entrySet()) {
+                try {
+                    prefetched.put(future.getKey(), future.getValue().get());
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof InterruptedException) {
+                        throw (InterruptedException) e.getCause();
+                    } else if (e.getCause() instanceof RuntimeException) {
+                        throw (RuntimeException) e.getCause();
+                    }
+                    throw new IllegalStateException("could not download service description", e.getCause());
+                }
+            }
+            return prefetched;
+        } finally {
+            // no-op for completed downloads, stops the rest if one failed or we were interrupted
+            futures.values().forEach(future -> future.cancel(true));
+        }
+    }
+
+    private PrefetchedServiceDescription prefetchDescription(String url, DescriptionType type)
+            throws InterruptedException {
+        PrefetchedServiceDescription prefetched = new PrefetchedServiceDescription(url, type);
+        if (!urlValidator.isValidUrl(url)) {
+            // reported when the description is refreshed
+            return prefetched;
+        }
+
+        if (type == DescriptionType.WSDL) {
+            try {
+                prefetched.parsedServices = WsdlParser.parseWSDL(url);
+            } catch (WsdlParser.WsdlNotFoundException | WsdlParser.WsdlParseException e) {
+                prefetched.parseError = e;
+                return prefetched;
+            }
+            try {
+                prefetched.validationWarnings = wsdlValidator.executeValidator(url);
+            } catch (WsdlValidator.WsdlValidationFailedException | WsdlValidator.WsdlValidatorNotExecutableException e) {
+                prefetched.validationError = e;
+            }
+        } else {
+            try {
+                prefetched.openApiResult = openApiParser.parse(url);
+            } catch (OpenApiParser.ParsingException | UnsupportedOpenApiVersionException e) {
+                prefetched.parseError = e;
+            }
+        }
+        return prefetched;
+    }
+}
@@ -66,6 +66,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -242,7 +243,7 @@ public class ServiceDescriptionService {
             throw new ClientNotFoundException(CLIENT_WITH_ID + " " + clientId.toShortString() + NOT_FOUND);
         }
 
-        WsdlProcessingResult wsdlProcessingResult = processWsdl(client, url, null);
+        WsdlProcessingResult wsdlProcessingResult = processWsdl(client, url, null, null);
 
         validateServiceUrls(wsdlProcessingResult.getParsedServices());
 
@@ -569,13 +570,88 @@ public class ServiceDescriptionService {
             throw createServiceDescriptionNotFoundException(id);
         }
 
-        auditDataHelper.put(serviceDescriptionType.getClient().getIdentifier());
-        auditDataHelper.putServiceDescriptionUrl(serviceDescriptionType);
+        return refreshServiceDescription(serviceDescriptionType, ignoreWarnings, null, null);
+    }
+
+    /**
+     * Refresh several Service Descriptions in one transaction, using the results that
+     * {@link ServiceDescriptionRefreshService} has downloaded, parsed and validated in advance. The changes are
+     * applied one description at a time in the given order, exactly as {@link #refreshServiceDescription(Long, boolean)}
+     * would. A description whose url has changed since it was prefetched is downloaded again. If refreshing any of
+     * the descriptions fails, none of the changes are saved.
+     *
+     * @param ids
+     * @param ignoreWarnings
+     * @param prefetched prefetched descriptions by service description id
+     * @return refreshed service descriptions in the given order
+     * @throws WsdlParser.WsdlNotFoundException WSDL not found
+     * @throws InvalidWsdlException Invalid wsdl
+     * @throws ServiceDescriptionNotFoundException service description is not found
+     * @throws WrongServiceDescriptionTypeException wrong type of service description
+     * @throws UnhandledWarningsException Unhandledwarnings in openapi3 or wsdl description
+     * @throws InvalidUrlException invalid url
+     * @throws InvalidServiceUrlException if the WSDL has services with invalid urls
+     * @throws ServiceAlreadyExistsException service code already exists if refreshing wsdl
+     * @throws WsdlUrlAlreadyExistsException url is already in use by this client
+     * @throws OpenApiParser.ParsingException openapi3 description parsing fails
+     * @throws UnsupportedOpenApiVersionException if the openapi version is not supported
+     */
+    @Transactional(rollbackFor = Exception.class)
+    public List<ServiceDescriptionType> refreshServiceDescriptions(List<Long> ids, boolean ignoreWarnings,
+            Map<Long, PrefetchedServiceDescription> prefetched)
+            throws WsdlParser.WsdlNotFoundException, InvalidWsdlException,
+            ServiceDescriptionNotFoundException, WrongServiceDescriptionTypeException,
+            UnhandledWarningsException, InvalidUrlException, ServiceAlreadyExistsException,
+            WsdlUrlAlreadyExistsException, OpenApiParser.ParsingException, InterruptedException,
+            InvalidServiceUrlException, UnsupportedOpenApiVersionException {
+
+        List<ServiceDescriptionType> refreshed = new ArrayList<>();
+        for (Long id : ids) {
+            ServiceDescriptionType serviceDescriptionType = getServiceDescriptiontype(id);
+            if (serviceDescriptionType == null) {
+                throw createServiceDescriptionNotFoundException(id);
+            }
+
+            PrefetchedServiceDescription prefetchedDescription = prefetched.get(id);
+            if (prefetchedDescription != null && !prefetchedDescription.isFor(serviceDescriptionType)) {
+                prefetchedDescription = null;
+            }
+
+            Map<RestApiAuditProperty, Object> auditData = new LinkedHashMap<>();
+            auditDataHelper.put(serviceDescriptionType.getClient().getIdentifier());
+            auditDataHelper.addListPropertyItem(RestApiAuditProperty.SERVICE_DESCRIPTIONS, auditData);
+            auditData.put(RestApiAuditProperty.URL, serviceDescriptionType.getUrl());
+            auditData.put(RestApiAuditProperty.SERVICE_TYPE, serviceDescriptionType.getType());
+
+            refreshed.add(refreshServiceDescription(serviceDescriptionType, ignoreWarnings, prefetchedDescription,
+                    auditData));
+        }
+        return refreshed;
+    }
+
+    /**
+     * @param auditData audit data of this description when refreshing several descriptions, or null to put it
+     * directly to the audit event
+     */
+    private ServiceDescriptionType refreshServiceDescription(ServiceDescriptionType serviceDescriptionType,
+            boolean ignoreWarnings, PrefetchedServiceDescription prefetched, Map<RestApiAuditProperty, Object> auditData)
+            throws WsdlParser.WsdlNotFoundException, InvalidWsdlException,
+            WrongServiceDescriptionTypeException,
+            UnhandledWarningsException, InvalidUrlException, ServiceAlreadyExistsException,
+            WsdlUrlAlreadyExistsException, OpenApiParser.ParsingException, InterruptedException,
+            InvalidServiceUrlException, UnsupportedOpenApiVersionException {
+
+        if (auditData == null) {
+            auditDataHelper.put(serviceDescriptionType.getClient().getIdentifier());
+            auditDataHelper.putServiceDescriptionUrl(serviceDescriptionType);
+        }
 
         if (serviceDescriptionType.getType().equals(DescriptionType.WSDL)) {
-            serviceDescriptionType = refreshWSDLServiceDescription(serviceDescriptionType, ignoreWarnings);
+            serviceDescriptionType = refreshWSDLServiceDescription(serviceDescriptionType, ignoreWarnings,
+                    prefetched, auditData);
         } else if (serviceDescriptionType.getType().equals(DescriptionType.OPENAPI3)) {
-            serviceDescriptionType = refreshOpenApi3ServiceDescription(serviceDescriptionType, ignoreWarnings);
+            serviceDescriptionType = refreshOpenApi3ServiceDescription(serviceDescriptionType, ignoreWarnings,
+                    prefetched);
         }
 
         return serviceDescriptionType;
@@ -602,7 +678,7 @@ public class ServiceDescriptionService {
      */
     @PreAuthorize("hasAuthority('REFRESH_WSDL')")
     private ServiceDescriptionType refreshWSDLServiceDescription(ServiceDescriptionType serviceDescriptionType,
-            boolean ignoreWarnings)
+            boolean ignoreWarnings, PrefetchedServiceDescription prefetched, Map<RestApiAuditProperty, Object> auditData)
             throws WsdlParser.WsdlNotFoundException, InvalidWsdlException,
             WrongServiceDescriptionTypeException,
             UnhandledWarningsException, InvalidUrlException, ServiceAlreadyExistsException,
@@ -614,7 +690,7 @@ public class ServiceDescriptionService {
 
         if (serviceDescriptionType.getType() == DescriptionType.WSDL) {
             String wsdlUrl = serviceDescriptionType.getUrl();
-            return updateWsdlUrl(serviceDescriptionType, wsdlUrl, ignoreWarnings);
+            return updateWsdlUrl(serviceDescriptionType, wsdlUrl, ignoreWarnings, prefetched, auditData);
         }
 
         // we only have two types at the moment so the type must be OPENAPI3 if we end up this far
@@ -635,7 +711,7 @@ public class ServiceDescriptionService {
      */
     @PreAuthorize("hasAuthority('REFRESH_OPENAPI3')")
     private ServiceDescriptionType refreshOpenApi3ServiceDescription(ServiceDescriptionType serviceDescriptionType,
-            boolean ignoreWarnings) throws WrongServiceDescriptionTypeException,
+            boolean ignoreWarnings, PrefetchedServiceDescription prefetched) throws WrongServiceDescriptionTypeException,
             UnhandledWarningsException, OpenApiParser.ParsingException, InvalidUrlException,
             UnsupportedOpenApiVersionException {
 
@@ -651,7 +727,10 @@ public class ServiceDescriptionService {
 
         serviceDescriptionType.setRefreshedDate(new Date());
 
-        parseOpenApi3ToServiceDescription(serviceDescriptionType.getUrl(),
+        OpenApiParser.Result result = prefetched != null
+                ? prefetched.getOpenApiResult()
+                : openApiParser.parse(serviceDescriptionType.getUrl());
+        parseOpenApi3ToServiceDescription(result,
                 serviceDescriptionType.getService().get(0).getServiceCode(),
                 ignoreWarnings,
                 serviceDescriptionType);
@@ -788,7 +867,11 @@ public class ServiceDescriptionService {
     private void parseOpenApi3ToServiceDescription(String url, String serviceCode, boolean ignoreWarnings,
             ServiceDescriptionType serviceDescription) throws
             OpenApiParser.ParsingException, UnhandledWarningsException, UnsupportedOpenApiVersionException {
-        OpenApiParser.Result result = openApiParser.parse(url);
+        parseOpenApi3ToServiceDescription(openApiParser.parse(url), serviceCode, ignoreWarnings, serviceDescription);
+    }
+
+    private void parseOpenApi3ToServiceDescription(OpenApiParser.Result result, String serviceCode,
+            boolean ignoreWarnings, ServiceDescriptionType serviceDescription) throws UnhandledWarningsException {
         if (!ignoreWarnings && result.hasWarnings()) {
             WarningDeviation openapiParserWarnings = new WarningDeviation(WARNING_OPENAPI_VALIDATION_WARNINGS,
                     result.getWarnings());
@@ -929,10 +1012,25 @@ public class ServiceDescriptionService {
             WrongServiceDescriptionTypeException, UnhandledWarningsException,
             ServiceAlreadyExistsException, InvalidUrlException, WsdlUrlAlreadyExistsException, InterruptedException,
             InvalidServiceUrlException {
+        return updateWsdlUrl(serviceDescriptionType, url, ignoreWarnings, null, null);
+    }
+
+    private ServiceDescriptionType updateWsdlUrl(ServiceDescriptionType serviceDescriptionType, String url,
+            boolean ignoreWarnings, PrefetchedServiceDescription prefetched, Map<RestApiAuditProperty, Object> auditData)
+            throws InvalidWsdlException, WsdlParser.WsdlNotFoundException,
+            WrongServiceDescriptionTypeException, UnhandledWarningsException,
+            ServiceAlreadyExistsException, InvalidUrlException, WsdlUrlAlreadyExistsException, InterruptedException,
+            InvalidServiceUrlException {
 
         auditDataHelper.put(serviceDescriptionType.getClient().getIdentifier());
-        Map<RestApiAuditProperty, Object> wsdlAuditData = auditDataHelper.putMap(RestApiAuditProperty.WSDL);
-        auditDataHelper.putServiceDescriptionUrl(serviceDescriptionType);
+        Map<RestApiAuditProperty, Object> wsdlAuditData;
+        if (auditData != null) {
+            wsdlAuditData = new LinkedHashMap<>();
+            auditData.put(RestApiAuditProperty.WSDL, wsdlAuditData);
+        } else {
+            wsdlAuditData = auditDataHelper.putMap(RestApiAuditProperty.WSDL);
+            auditDataHelper.putServiceDescriptionUrl(serviceDescriptionType);
+        }
 
         if (auditDataHelper.dataIsForEvent(RestApiAuditEvent.EDIT_SERVICE_DESCRIPTION)) {
             auditDataHelper.put(RestApiAuditProperty.URL_NEW, url);
@@ -945,7 +1043,8 @@ public class ServiceDescriptionService {
         }
 
         ClientType client = serviceDescriptionType.getClient();
-        WsdlProcessingResult wsdlProcessingResult = processWsdl(client, url, serviceDescriptionType.getId());
+        WsdlProcessingResult wsdlProcessingResult = processWsdl(client, url, serviceDescriptionType.getId(),
+                prefetched);
 
         List<ServiceType> newServices = wsdlProcessingResult.getParsedServices()
                 .stream()
@@ -1183,6 +1282,7 @@ public class ServiceDescriptionService {
      * @param updatedServiceDescriptionId id of the service description we
      * will update with this wsdl, or null
      * if we're adding a new one
+     * @param prefetched the already parsed and validated wsdl, or null to parse and validate it now
      * @return parsed and validated wsdl and possible warnings
      * @throws WsdlParser.WsdlNotFoundException if a wsdl was not found at the url
      * @throws InvalidUrlException if url was empty or invalid
@@ -1192,7 +1292,7 @@ public class ServiceDescriptionService {
      * @throws ServiceAlreadyExistsException conflict: same service exists in another SD
      */
     private WsdlProcessingResult processWsdl(ClientType client, String url,
-            Long updatedServiceDescriptionId)
+            Long updatedServiceDescriptionId, PrefetchedServiceDescription prefetched)
             throws WsdlParser.WsdlNotFoundException,
             InvalidWsdlException,
             InvalidUrlException,
@@ -1207,7 +1307,9 @@ public class ServiceDescriptionService {
         checkForExistingWsdl(client, url, updatedServiceDescriptionId);
 
         // parse wsdl
-        Collection<WsdlParser.ServiceInfo> parsedServices = parseWsdl(url);
+        Collection<WsdlParser.ServiceInfo> parsedServices = prefetched != null
+                ? prefetched.getParsedServices()
+                : parseWsdl(url);
 
         // check that service identifiers are legal
         validateServiceIdentifierFields(parsedServices);
@@ -1218,7 +1320,7 @@ public class ServiceDescriptionService {
         // validate wsdl
         List<String> warningStrings = null;
         try {
-            warningStrings = validateWsdl(url);
+            warningStrings = prefetched != null ? prefetched.getValidationWarnings() : validateWsdl(url);
         } catch (WsdlValidator.WsdlValidatorNotExecutableException e) {
             throw new RuntimeException("could not run validator command", e);
         }
@@ -97,6 +97,8 @@ public final class WsdlParser {
     private static final String VERSION = "version";
     private static final int BUF_SIZE = 8192;
     private static final long MAX_DESCRIPTION_SIZE = 10 * 1024 * 1024;
+    private static final int CONNECT_TIMEOUT_MS = 30_000;
+    private static final int READ_TIMEOUT_MS = 30_000;
 
     private WsdlParser() {
     }
@@ -294,6 +296,8 @@ public final class WsdlParser {
         public InputSource getBaseInputSource() {
             try (ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream()) {
                 URLConnection conn = new URL(wsdlUrl).openConnection();
+                conn.setConnectTimeout(CONNECT_TIMEOUT_MS);
+                conn.setReadTimeout(READ_TIMEOUT_MS);
                 if (conn instanceof HttpsURLConnection) {
                     configureHttps((HttpsURLConnection) conn);
                 }
@@ -37,8 +37,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
 
 import static org.niis.xroad.restapi.exceptions.DeviationCodes.ERROR_WSDL_VALIDATOR_NOT_EXECUTABLE;
 
@@ -51,11 +57,22 @@ public class WsdlValidator {
     private final ExternalProcessRunner externalProcessRunner;
     @Getter
     private final String wsdlValidatorCommand;
+    private final WsdlValidatorWorkerClient workerClient;
+    private final Semaphore validationPermits;
+    private final int maxConcurrentPerHost;
+    private final Map<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
 
     @Autowired
     public WsdlValidator(ExternalProcessRunner externalProcessRunner) {
         this.externalProcessRunner = externalProcessRunner;
         this.wsdlValidatorCommand = SystemProperties.getWsdlValidatorCommand();
+
+        int maxConcurrent = SystemProperties.getWsdlValidatorMaxConcurrent();
+        String workerAddress = SystemProperties.getWsdlValidatorAddress();
+        this.workerClient = StringUtils.isEmpty(workerAddress)
+                ? null : new WsdlValidatorWorkerClient(workerAddress, maxConcurrent);
+        this.validationPermits = new Semaphore(maxConcurrent, true);
+        this.maxConcurrentPerHost = SystemProperties.getWsdlValidatorMaxConcurrentPerHost();
     }
 
     /**
@@ -72,7 +89,7 @@ public class WsdlValidator {
             WsdlValidationFailedException, InterruptedException {
         List<String> warnings = new ArrayList<>();
         // validator not set - this is ok since validator is optional
-        if (StringUtils.isEmpty(getWsdlValidatorCommand())) {
+        if (StringUtils.isEmpty(getWsdlValidatorCommand()) && workerClient == null) {
             log.warn("Skipping WSDL validator, command not set");
             return warnings;
         }
@@ -81,6 +98,39 @@ public class WsdlValidator {
             throw new IllegalArgumentException("wsdl url cannot be null or empty");
         }
 
+        Semaphore hostPermit = hostPermits.computeIfAbsent(getHost(wsdlUrl),
+                host -> new Semaphore(maxConcurrentPerHost, true));
+        hostPermit.acquire();
+        try {
+            validationPermits.acquire();
+            try {
+                return validate(wsdlUrl);
+            } finally {
+                validationPermits.release();
+            }
+        } finally {
+            hostPermit.release();
+        }
+    }
+
+    private List<String> validate(String wsdlUrl) throws WsdlValidatorNotExecutableException,
+            WsdlValidationFailedException, InterruptedException {
+        if (workerClient != null) {
+            try {
+                ExternalProcessRunner.ProcessResult processResult = workerClient.validate(wsdlUrl);
+                logValidatorOutput(processResult.getProcessOutput());
+                if (processResult.getExitCode() != 0) {
+                    throw new WsdlValidationFailedException(processResult.getProcessOutput());
+                }
+                return processResult.getProcessOutput();
+            } catch (IOException e) {
+                if (StringUtils.isEmpty(getWsdlValidatorCommand())) {
+                    throw new WsdlValidatorNotExecutableException(e);
+                }
+                log.warn("WSDL validator worker not available, running the validator command: {}", e.getMessage());
+            }
+        }
+
         try {
             ExternalProcessRunner.ProcessResult processResult = externalProcessRunner
                     .executeAndThrowOnFailure(getWsdlValidatorCommand(), wsdlUrl);
@@ -97,6 +147,15 @@ public class WsdlValidator {
         }
     }
 
+    private static String getHost(String wsdlUrl) {
+        try {
+            String host = new URI(wsdlUrl).getHost();
+            return host != null ? host : "";
+        } catch (URISyntaxException e) {
+            return "";
+        }
+    }
+
     private void logValidatorOutput(List<String> processOutput) {
         log.debug(" --- WSDL validator console output - START --- ");
         if (processOutput != null && log.isDebugEnabled()) {
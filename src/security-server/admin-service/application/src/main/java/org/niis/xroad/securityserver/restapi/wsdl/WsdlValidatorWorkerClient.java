@@ -0,0 +1,169 @@
+/*
+ * The MIT License
+ * Copyright (c) 2019- Nordic Institute for Interoperability Solutions (NIIS)
+ * Copyright (c) 2018 Estonian Information System Authority (RIA),
+ * Nordic Institute for Interoperability Solutions (NIIS), Population Register Centre (VRK)
+ * Copyright (c) 2015-2017 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.niis.xroad.securityserver.restapi.wsdl;
+
+import ee.ria.xroad.common.util.process.ExternalProcessRunner;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Client of the resident WSDL validator ({@code wsdlvalidator.jar --server <port>}, run by the
+ * xroad-addon-wsdlvalidator service), which keeps the validator loaded between validations.
+ *
+ * The validator listens on a local TCP socket and handles any number of validations per connection. For each
+ * validation the client writes the WSDL URI as one line; the validator answers with its output, each line
+ * prefixed with {@code "OUT "}, followed by a line {@code "EXIT <code>"} where the code has the same meaning as the
+ * exit code of the validator command. Idle connections are kept for reuse, up to the given pool size.
+ */
+@Slf4j
+class WsdlValidatorWorkerClient {
+    private static final String OUTPUT_PREFIX = "OUT ";
+    private static final String EXIT_PREFIX = "EXIT ";
+    private static final int CONNECT_TIMEOUT_MS = 1000;
+    private static final int READ_TIMEOUT_MS = 60000;
+
+    private final String host;
+    private final int port;
+    private final BlockingQueue<Connection> idleConnections;
+
+    /**
+     * @param address validator address as host:port
+     * @param poolSize maximum number of idle connections kept for reuse
+     */
+    WsdlValidatorWorkerClient(String address, int poolSize) {
+        this.host = StringUtils.substringBeforeLast(address, ":");
+        this.port = Integer.parseInt(StringUtils.substringAfterLast(address, ":"));
+        this.idleConnections = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+    }
+
+    /**
+     * Validates the WSDL using the worker.
+     * @param wsdlUrl the WSDL URI
+     * @return result of the validation
+     * @throws IOException if communication with the validator fails
+     * @throws IllegalArgumentException if the WSDL URI contains a line break
+     */
+    ExternalProcessRunner.ProcessResult validate(String wsdlUrl) throws IOException {
+        if (StringUtils.containsAny(wsdlUrl, '\r', '\n')) {
+            // the URI is sent as one line, a line break would desynchronise the connection
+            throw new IllegalArgumentException("wsdl url must not contain line breaks");
+        }
+
+        Connection connection = idleConnections.poll();
+        if (connection != null) {
+            try {
+                return validate(connection, wsdlUrl);
+            } catch (IOException e) {
+                // the validator may have been restarted since the connection was pooled
+                log.debug("Pooled WSDL validator connection failed, reconnecting: {}", e.getMessage());
+            }
+        }
+        return validate(connect(), wsdlUrl);
+    }
+
+    private ExternalProcessRunner.ProcessResult validate(Connection connection, String wsdlUrl) throws IOException {
+        try {
+            ExternalProcessRunner.ProcessResult result = connection.validate(wsdlUrl);
+            if (!idleConnections.offer(connection)) {
+                connection.close();
+            }
+            return result;
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private Connection connect() throws IOException {
+        Socket socket = new Socket();
+        try {
+            socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+            socket.setSoTimeout(READ_TIMEOUT_MS);
+            return new Connection(socket);
+        } catch (IOException e) {
+            IOUtils.closeQuietly(socket);
+            throw e;
+        }
+    }
+
+    private static final class Connection {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final BufferedWriter out;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            this.out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        ExternalProcessRunner.ProcessResult validate(String wsdlUrl) throws IOException {
+            out.write(wsdlUrl);
+            out.newLine();
+            out.flush();
+
+            List<String> output = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.startsWith(EXIT_PREFIX)) {
+                    int exitCode = parseExitCode(line);
+                    log.info("WSDL validator worker finished with exit status {}", exitCode);
+                    return new ExternalProcessRunner.ProcessResult("wsdl-validator-worker " + wsdlUrl, exitCode,
+                            output);
+                }
+                output.add(StringUtils.removeStart(line, OUTPUT_PREFIX));
+            }
+            throw new IOException("WSDL validator worker closed the connection");
+        }
+
+        private static int parseExitCode(String line) throws IOException {
+            try {
+                return Integer.parseInt(line.substring(EXIT_PREFIX.length()).trim());
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid response from WSDL validator worker: " + line, e);
+            }
+        }
+
+        void close() {
+            IOUtils.closeQuietly(socket);
+        }
+    }
+}
@@ -170,7 +170,7 @@ public class ClientsApiControllerIntegrationTest extends AbstractApiControllerTe
     @WithMockUser(authorities = "VIEW_CLIENTS")
     public void getAllClients() {
         ResponseEntity<Set<Client>> response =
-                clientsApiController.findClients(null, null, null, null, null, true, false, null, false);
+                clientsApiController.findClients(null, null, null, null, null, true, false, null, false, null, null);
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(11, response.getBody().size());
         // Test sorting order
@@ -181,7 +181,7 @@ public class ClientsApiControllerIntegrationTest extends AbstractApiControllerTe
     @WithMockUser(authorities = "VIEW_CLIENTS")
     public void ownerMemberFlag() {
         ResponseEntity<Set<Client>> response =
-                clientsApiController.findClients(null, null, null, null, null, true, false, null, false);
+                clientsApiController.findClients(null, null, null, null, null, true, false, null, false, null, null);
         assertEquals(11, response.getBody().size());
         List<Client> owners = response.getBody().stream()
                 .filter(Client::getOwner)
@@ -194,7 +194,7 @@ public class ClientsApiControllerIntegrationTest extends AbstractApiControllerTe
     @WithMockUser(authorities = "VIEW_CLIENTS")
     public void getAllLocalClients() {
         ResponseEntity<Set<Client>> response = clientsApiController.findClients(null, null, null, null, null, true,
-                true, null, false);
+                true, null, false, null, null);
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(7, response.getBody().size());
         Client client = response
@@ -306,7 +306,7 @@ public class ClientsApiControllerIntegrationTest extends AbstractApiControllerTe
     public void forbidden() {
         try {
             ResponseEntity<Set<Client>> response = clientsApiController.findClients(null, null, null, null, null, null,
-                    null, null, false);
+                    null, null, false, null, null);
             fail("should throw AccessDeniedException");
         } catch (AccessDeniedException expected) {
         }
@@ -456,7 +456,7 @@ public class ClientsApiControllerIntegrationTest extends AbstractApiControllerTe
         ResponseEntity<Set<Client>> clientsResponse = clientsApiController.findClients(
                 TestUtils.NAME_FOR + TestUtils.SUBSYSTEM1,
                 TestUtils.INSTANCE_FI, TestUtils.MEMBER_CLASS_GOV, TestUtils.MEMBER_CODE_M1, TestUtils.SUBSYSTEM1,
-                false, false, null, false);
+                false, false, null, false, null, null);
         assertEquals(HttpStatus.OK, clientsResponse.getStatusCode());
         assertEquals(1, clientsResponse.getBody().size());
         Set<Client> clients = clientsResponse.getBody();
@@ -476,7 +476,7 @@ public class ClientsApiControllerIntegrationTest extends AbstractApiControllerTe
     @WithMockUser(authorities = "VIEW_CLIENTS")
     public void findAllClients() {
         ResponseEntity<Set<Client>> clientsResponse = clientsApiController.findClients(null, null, null, null, null,
-                true, false, null, false);
+                true, false, null, false, null, null);
         assertEquals(HttpStatus.OK, clientsResponse.getStatusCode());
         assertEquals(11, clientsResponse.getBody().size());
     }
@@ -491,19 +491,19 @@ public class ClientsApiControllerIntegrationTest extends AbstractApiControllerTe
         int clientsWithValidSignCert = 3;
         // search all
         ResponseEntity<Set<Client>> clientsResponse = clientsApiController.findClients(null, null, null, null, null,
-                true, false, null, false);
+                true, false, null, false, null, null);
         assertEquals(HttpStatus.OK, clientsResponse.getStatusCode());
         assertEquals(clientsTotal, clientsResponse.getBody().size());
 
         // search ones with valid sign cert
         clientsResponse = clientsApiController.findClients(null, null, null, null, null,
-                true, false, true, false);
+                true, false, true, false, null, null);
         assertEquals(HttpStatus.OK, clientsResponse.getStatusCode());
         assertEquals(clientsWithValidSignCert, clientsResponse.getBody().size());
 
         // search ones without valid sign cert
         clientsResponse = clientsApiController.findClients(null, null, null, null, null,
-                true, false, false, false);
+                true, false, false, false, null, null);
         assertEquals(HttpStatus.OK, clientsResponse.getStatusCode());
         assertEquals((clientsTotal - clientsWithValidSignCert), clientsResponse.getBody().size());
     }
@@ -525,7 +525,7 @@ public class ClientsApiControllerIntegrationTest extends AbstractApiControllerTe
     @WithMockUser(authorities = "VIEW_CLIENTS")
     public void findAllClientsByMemberCodeIncludeMembers() {
         ResponseEntity<Set<Client>> clientsResponse = clientsApiController.findClients(null, null, null,
-                TestUtils.MEMBER_CODE_M1, null, true, false, null, false);
+                TestUtils.MEMBER_CODE_M1, null, true, false, null, false, null, null);
         assertEquals(HttpStatus.OK, clientsResponse.getStatusCode());
         assertEquals(5, clientsResponse.getBody().size());
     }
@@ -535,7 +535,7 @@ public class ClientsApiControllerIntegrationTest extends AbstractApiControllerTe
     public void findAllClientsByMemberClassIncludeMembers() {
         ResponseEntity<Set<Client>> clientsResponse = clientsApiController.findClients(null, null,
                 TestUtils.MEMBER_CLASS_PRO,
-                null, null, true, false, null, false);
+                null, null, true, false, null, false, null, null);
         assertEquals(HttpStatus.OK, clientsResponse.getStatusCode());
         assertEquals(3, clientsResponse.getBody().size());
     }
@@ -545,12 +545,12 @@ public class ClientsApiControllerIntegrationTest extends AbstractApiControllerTe
     public void findAllClientsByNameIncludeMembers() {
         ResponseEntity<Set<Client>> clientsResponse = clientsApiController.findClients(
                 TestUtils.NAME_FOR + TestUtils.SUBSYSTEM2,
-                null, null, null, null, false, true, null, false);
+                null, null, null, null, false, true, null, false, null, null);
         assertEquals(HttpStatus.OK, clientsResponse.getStatusCode());
         assertEquals(1, clientsResponse.getBody().size());
         // not found
         clientsResponse = clientsApiController.findClients("DOES_NOT_EXIST", null, null, null, null, true, false,
-                null, false);
+                null, false, null, null);
         assertEquals(0, clientsResponse.getBody().size());
     }
 
@@ -560,7 +560,7 @@ public class ClientsApiControllerIntegrationTest extends AbstractApiControllerTe
         ResponseEntity<Set<Client>> clientsResponse = clientsApiController.findClients(
                 TestUtils.NAME_FOR + TestUtils.SUBSYSTEM1,
                 TestUtils.INSTANCE_FI, TestUtils.MEMBER_CLASS_GOV, TestUtils.MEMBER_CODE_M1, TestUtils.SUBSYSTEM1,
-                false, true, null, false);
+                false, true, null, false, null, null);
         assertEquals(HttpStatus.OK, clientsResponse.getStatusCode());
         assertEquals(1, clientsResponse.getBody().size());
     }
@@ -569,12 +569,12 @@ public class ClientsApiControllerIntegrationTest extends AbstractApiControllerTe
     @WithMockUser(authorities = "VIEW_CLIENTS")
     public void findInternalClientsBySubsystemExcludeMembers() {
         ResponseEntity<Set<Client>> clientsResponse = clientsApiController.findClients(null, null, null, null,
-                TestUtils.SUBSYSTEM2, false, true, null, false);
+                TestUtils.SUBSYSTEM2, false, true, null, false, null, null);
         assertEquals(HttpStatus.OK, clientsResponse.getStatusCode());
         assertEquals(1, clientsResponse.getBody().size());
         // not found
         clientsResponse = clientsApiController.findClients(null, null, null, null, TestUtils.SUBSYSTEM3, false, true,
-                null, false);
+                null, false, null, null);
         assertEquals(0, clientsResponse.getBody().size());
     }
 
@@ -642,7 +642,7 @@ public class ClientsApiControllerIntegrationTest extends AbstractApiControllerTe
     @WithMockUser(authorities = {"VIEW_CLIENTS"})
     public void findAllClientsByPartialNameIncludeMembers() {
         ResponseEntity<Set<Client>> clientsResponse = clientsApiController.findClients(TestUtils.SUBSYSTEM3, null,
-                null, null, null, false, false, null, false);
+                null, null, null, false, false, null, false, null, null);
         assertEquals(HttpStatus.OK, clientsResponse.getStatusCode());
         assertEquals(1, clientsResponse.getBody().size());
     }
@@ -651,7 +651,7 @@ public class ClientsApiControllerIntegrationTest extends AbstractApiControllerTe
     @WithMockUser(authorities = {"VIEW_CLIENTS"})
     public void findAllClientsByPartialSearchTermsIncludeMembers() {
         ResponseEntity<Set<Client>> clientsResponse = clientsApiController.findClients(null, "FI",
-                "OV", "1", "1", false, true, null, false);
+                "OV", "1", "1", false, true, null, false, null, null);
         assertEquals(HttpStatus.OK, clientsResponse.getStatusCode());
         assertEquals(1, clientsResponse.getBody().size());
     }
@@ -660,11 +660,29 @@ public class ClientsApiControllerIntegrationTest extends AbstractApiControllerTe
     @WithMockUser(authorities = {"VIEW_CLIENTS"})
     public void findAllClientsShouldNotFindByPartialInstance() {
         ResponseEntity<Set<Client>> clientsResponse = clientsApiController.findClients(null, "F",
-                "OV", "1", "1", false, true, null, false);
+                "OV", "1", "1", false, true, null, false, null, null);
         assertEquals(HttpStatus.OK, clientsResponse.getStatusCode());
         assertEquals(0, clientsResponse.getBody().size());
     }
 
+    @Test
+    @WithMockUser(authorities = {"VIEW_CLIENTS"})
+    public void findClientsPageByPage() {
+        Set<Client> allClients = clientsApiController.findClients(null, null, null, null, null, true, false, null,
+                false, null, null).getBody();
+        List<String> pagedIds = new ArrayList<>();
+        String after = null;
+        Set<Client> page;
+        do {
+            page = clientsApiController.findClients(null, null, null, null, null, true, false, null, false, after, 2)
+                    .getBody();
+            assertTrue(page.size() <= 2);
+            page.forEach(client -> pagedIds.add(client.getId()));
+            after = pagedIds.isEmpty() ? null : pagedIds.get(pagedIds.size() - 1);
+        } while (page.size() == 2);
+        assertEquals(allClients.stream().map(Client::getId).collect(Collectors.toList()), pagedIds);
+    }
+
     private Client createTestClient(String memberClass, String memberCode, String subsystemCode) {
         Client client = new Client();
         client.setMemberClass(memberClass);
@@ -47,6 +47,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.test.context.support.WithMockUser;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -252,6 +253,30 @@ public class ServiceDescriptionsApiControllerIntegrationTest extends AbstractApi
         assertTrue(refreshed.getRefreshedAt().isAfter(serviceDescription.getRefreshedAt()));
     }
 
+    @Test
+    @WithMockUser(authorities = { "VIEW_CLIENT_SERVICES", "REFRESH_WSDL" })
+    public void refreshClientServiceDescriptions() {
+        ServiceDescription serviceDescription = getServiceDescription(
+                clientsApiController.getClientServiceDescriptions(TestUtils.CLIENT_ID_SS2).getBody(), "3").get();
+
+        List<ServiceDescription> refreshed = clientsApiController.refreshClientServiceDescriptions(
+                TestUtils.CLIENT_ID_SS2, new IgnoreWarnings().ignoreWarnings(true)).getBody();
+        assertEquals(1, refreshed.size());
+        assertEquals(serviceDescription.getId(), refreshed.get(0).getId());
+        Set<String> serviceCodes = getServiceCodes(refreshed.get(0));
+        assertEquals(2, serviceCodes.size());
+        assertTrue(serviceCodes.contains(TestUtils.SERVICE_XROAD_GET_RANDOM));
+        assertTrue(serviceCodes.contains(TestUtils.SERVICE_CODE_BMI));
+        assertTrue(refreshed.get(0).getRefreshedAt().isAfter(serviceDescription.getRefreshedAt()));
+
+        try {
+            clientsApiController.refreshClientServiceDescriptions("FI:GOV:M1:NONEXISTENT",
+                    new IgnoreWarnings().ignoreWarnings(true));
+            fail("should throw ResourceNotFoundException");
+        } catch (ResourceNotFoundException expected) {
+        }
+    }
+
     @Test(expected = BadRequestException.class)
     @WithMockUser(authorities = { "REFRESH_REST" })
     public void refreshRestServiceDescriptionWithoutRights() {
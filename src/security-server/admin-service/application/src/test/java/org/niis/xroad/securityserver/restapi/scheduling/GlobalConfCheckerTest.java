@@ -58,6 +58,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalLong;
 
 import static ee.ria.xroad.common.SystemProperties.NODE_TYPE;
 import static ee.ria.xroad.common.SystemProperties.NodeType.MASTER;
@@ -194,6 +195,26 @@ public class GlobalConfCheckerTest extends AbstractFacadeMockingTestContext {
         assertEquals(ClientType.STATUS_REGISTERED, subsystem.getClientStatus());
     }
 
+    @Test
+    public void skipServerConfUpdateWhenGlobalConfNotChanged() {
+        when(globalConfFacade.getContentVersion()).thenReturn(OptionalLong.of(1));
+        when(globalConfFacade.isSecurityServerClient(OWNER_MEMBER, SS_ID)).thenReturn(true);
+        ClientType subsystem = clientService.getLocalClient(SUBSYSTEM);
+
+        globalConfChecker.checkGlobalConf();
+        assertEquals(ClientType.STATUS_GLOBALERR, subsystem.getClientStatus());
+
+        // Same globalconf content => serverconf is not updated
+        when(globalConfFacade.isSecurityServerClient(SUBSYSTEM, SS_ID)).thenReturn(true);
+        globalConfChecker.checkGlobalConf();
+        assertEquals(ClientType.STATUS_GLOBALERR, subsystem.getClientStatus());
+
+        // Changed globalconf content => serverconf is updated
+        when(globalConfFacade.getContentVersion()).thenReturn(OptionalLong.of(2));
+        globalConfChecker.checkGlobalConf();
+        assertEquals(ClientType.STATUS_REGISTERED, subsystem.getClientStatus());
+    }
+
     @Test
     public void registerMemberAndChangeSecurityServerOwner() throws Exception {
         when(globalConfService.getMemberClassesForThisInstance()).thenReturn(new HashSet<>(MEMBER_CLASSES));
@@ -288,6 +309,7 @@ public class GlobalConfCheckerTest extends AbstractFacadeMockingTestContext {
         globalConfChecker.checkGlobalConf();
 
         verify(globalConfFacade).reload();
+        verify(globalConfFacade).getContentVersion();
         verify(globalConfFacade).verifyValidity();
         verifyNoMoreInteractions(globalConfFacade);
 
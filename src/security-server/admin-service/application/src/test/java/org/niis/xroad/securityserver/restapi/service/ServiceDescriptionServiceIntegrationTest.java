@@ -83,6 +83,9 @@ public class ServiceDescriptionServiceIntegrationTest extends AbstractServiceInt
     @Autowired
     ServiceDescriptionService serviceDescriptionService;
 
+    @Autowired
+    ServiceDescriptionRefreshService serviceDescriptionRefreshService;
+
     @Autowired
     ClientService clientService;
 
@@ -187,6 +190,52 @@ public class ServiceDescriptionServiceIntegrationTest extends AbstractServiceInt
                 XROAD_GET_RANDOM_SERVICECODE);
     }
 
+    @Test
+    @WithMockUser(authorities = {"REFRESH_WSDL", "REFRESH_OPENAPI3"})
+    public void refreshClientServiceDescriptions() throws Exception {
+        File getRandomWsdl = tempFolder.newFile("getrandom.wsdl");
+        File smallAttachmentWsdl = tempFolder.newFile("smallattachment.wsdl");
+        FileUtils.copyFile(TestUtils.getTestResourceFile("wsdl/valid-getrandom.wsdl"), getRandomWsdl);
+        FileUtils.copyFile(TestUtils.getTestResourceFile("wsdl/valid-smallattachment.wsdl"), smallAttachmentWsdl);
+        String getRandomUrl = getRandomWsdl.toURI().toURL().toString();
+        String smallAttachmentUrl = smallAttachmentWsdl.toURI().toURL().toString();
+        serviceDescriptionService.addWsdlServiceDescription(CLIENT_ID_SS6, getRandomUrl, false);
+        serviceDescriptionService.addWsdlServiceDescription(CLIENT_ID_SS6, smallAttachmentUrl, false);
+
+        // add a service to the first wsdl
+        FileUtils.copyFile(TestUtils.getTestResourceFile("wsdl/testservice.wsdl"), getRandomWsdl);
+        ClientType clientType = clientService.getLocalClient(CLIENT_ID_SS6);
+        ServiceDescriptionType getRandom = getServiceDescription(getRandomUrl, clientType);
+        ServiceDescriptionType smallAttachment = getServiceDescription(smallAttachmentUrl, clientType);
+        Date originalOpenApiRefreshedDate = serviceDescriptionService.getServiceDescriptiontype(6L).getRefreshedDate();
+
+        try {
+            serviceDescriptionRefreshService.refreshClientServiceDescriptions(CLIENT_ID_SS6, false);
+            fail("should throw exception warning about service addition");
+        } catch (UnhandledWarningsException expected) {
+            DeviationTestUtils.assertWarning(DeviationCodes.WARNING_ADDING_SERVICES, expected, BMI_SERVICE + ".v1");
+        }
+
+        List<ServiceDescriptionType> refreshed =
+                serviceDescriptionRefreshService.refreshClientServiceDescriptions(CLIENT_ID_SS6, true);
+        assertEquals(new HashSet<>(Arrays.asList(getRandom.getId(), smallAttachment.getId(), 6L)),
+                refreshed.stream().map(ServiceDescriptionType::getId).collect(Collectors.toSet()));
+        assertEquals(new HashSet<>(Arrays.asList(BMI_SERVICE, XROAD_GET_RANDOM_SERVICECODE)),
+                getServiceDescription(getRandomUrl, clientType).getService().stream()
+                        .map(ServiceType::getServiceCode)
+                        .collect(Collectors.toSet()));
+        assertServiceCodes(getServiceDescription(smallAttachmentUrl, clientType), SMALL_ATTACHMENT_SERVICECODE);
+        assertTrue(originalOpenApiRefreshedDate.compareTo(
+                serviceDescriptionService.getServiceDescriptiontype(6L).getRefreshedDate()) < 0);
+    }
+
+    @Test(expected = ClientNotFoundException.class)
+    @WithMockUser(authorities = "REFRESH_WSDL")
+    public void refreshServiceDescriptionsOfMissingClient() throws Exception {
+        serviceDescriptionRefreshService.refreshClientServiceDescriptions(
+                ClientId.Conf.create("FI", "GOV", "M2", "NONEXISTENT"), true);
+    }
+
     @Test
     @WithMockUser(authorities = "REFRESH_WSDL")
     public void refreshServiceDetectsAllWarnings() throws Exception {
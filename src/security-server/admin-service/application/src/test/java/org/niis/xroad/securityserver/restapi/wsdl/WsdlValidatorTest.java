@@ -33,6 +33,13 @@ import org.junit.Test;
 import org.niis.xroad.restapi.exceptions.DeviationCodes;
 import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -91,4 +98,71 @@ public class WsdlValidatorTest {
         List<String> warnings = wsdlValidator.executeValidator("src/test/resources/wsdl/testservice.wsdl");
         assertEquals(new ArrayList(), warnings);
     }
+
+    @Test
+    public void shouldUseWorker() throws Exception {
+        ReflectionTestUtils.setField(wsdlValidator, "wsdlValidatorCommand", FOOBAR_VALIDATOR);
+        try (ServerSocket server = new ServerSocket(0)) {
+            Thread worker = new Thread(() -> serveWorker(server));
+            worker.setDaemon(true);
+            worker.start();
+            ReflectionTestUtils.setField(wsdlValidator, "workerClient",
+                    new WsdlValidatorWorkerClient("127.0.0.1:" + server.getLocalPort(), 1));
+
+            assertEquals(Collections.singletonList(MOCK_VALIDATOR_WARNING),
+                    wsdlValidator.executeValidator("src/test/resources/wsdl/warning.wsdl"));
+            assertEquals(new ArrayList(), wsdlValidator.executeValidator("src/test/resources/wsdl/testservice.wsdl"));
+            try {
+                wsdlValidator.executeValidator("src/test/resources/wsdl/error.wsdl");
+                fail("should have thrown WsdlValidationException");
+            } catch (WsdlValidator.WsdlValidationFailedException expected) {
+                Assert.assertEquals(DeviationCodes.ERROR_INVALID_WSDL, expected.getErrorDeviation().getCode());
+            }
+        }
+    }
+
+    @Test
+    public void shouldFallBackToCommandIfWorkerNotAvailable() throws Exception {
+        int port;
+        try (ServerSocket server = new ServerSocket(0)) {
+            port = server.getLocalPort();
+        }
+        ReflectionTestUtils.setField(wsdlValidator, "workerClient", new WsdlValidatorWorkerClient("127.0.0.1:" + port, 1));
+
+        List<String> warnings = wsdlValidator.executeValidator("src/test/resources/wsdl/warning.wsdl");
+        assertEquals(Collections.singletonList(MOCK_VALIDATOR_WARNING), warnings);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectLineBreaksInWorkerRequests() throws Exception {
+        try (ServerSocket server = new ServerSocket(0)) {
+            new WsdlValidatorWorkerClient("127.0.0.1:" + server.getLocalPort(), 1)
+                    .validate("http://example.com/a.wsdl\nhttp://example.com/b.wsdl");
+        }
+    }
+
+    /**
+     * Serves validations on one connection, answering like mock-wsdlvalidator.sh
+     */
+    private static void serveWorker(ServerSocket server) {
+        try (Socket socket = server.accept();
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                     StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(socket.getOutputStream(), true, StandardCharsets.UTF_8)) {
+            String url;
+            while ((url = in.readLine()) != null) {
+                if (url.endsWith("warning.wsdl")) {
+                    out.println("OUT " + MOCK_VALIDATOR_WARNING);
+                    out.println("EXIT 0");
+                } else if (url.endsWith("error.wsdl")) {
+                    out.println("OUT ERROR: this is not fine");
+                    out.println("EXIT 1");
+                } else {
+                    out.println("EXIT 0");
+                }
+            }
+        } catch (IOException e) {
+            // test finished
+        }
+    }
 }
@@ -49,6 +49,9 @@ public class HardwareModuleType implements ModuleType {
 
     private final boolean batchSigningEnabled;
 
+    // Number of logged-in sessions used concurrently for signing.
+    private final int signSessionPoolSize;
+
     private final boolean forceReadOnly;
 
     private final String signMechanismName;
@@ -187,6 +187,14 @@ public abstract class AbstractTokenWorker implements TokenWorker, WorkerWithLife
      */
     public abstract void onActionHandled();
 
+    /**
+     * @return true, if signing requests may be handled concurrently with each other and with the other token
+     * worker actions
+     */
+    public boolean isConcurrentSigningSupported() {
+        return false;
+    }
+
     // ------------------------------------------------------------------------
 
     protected abstract void activateToken(ActivateTokenReq message) throws Exception;
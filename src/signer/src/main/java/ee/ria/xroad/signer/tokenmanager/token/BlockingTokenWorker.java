@@ -37,7 +37,8 @@ import org.niis.xroad.signer.proto.SignReq;
 import static ee.ria.xroad.common.ErrorCodes.translateException;
 
 /**
- * A blocking (calls to token are synchronized) token worker.
+ * A blocking (calls to token are synchronized) token worker. Signing requests bypass the lock if the
+ * underlying worker supports concurrent signing.
  */
 @Slf4j
 @RequiredArgsConstructor
@@ -66,6 +67,10 @@ public class BlockingTokenWorker implements TokenWorker {
 
     @Override
     public byte[] handleSign(SignReq request) {
+        if (tokenWorker.isConcurrentSigningSupported()) {
+            return tokenWorker.handleSign(request);
+        }
+
         return synchronizedAction(() -> tokenWorker.handleSign(request));
     }
 